@@ -1,43 +1,121 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+/**
+ * <p>Base <code>Message</code> implementation, backed by a single array
+ * holding the message frame as sent on the wire. Destination, header and data
+ * are read from the frame at their offset.</p>
+ * <p>Messages are immutable: the frame is never exposed, and arrays returned
+ * by {@link #bytes()} or {@link #getDataBytes()} are copies.</p>
+ * @author Pierre Beucher
+ *
+ */
 public abstract class AbstractMessage implements Message {
+	
+	/**
+	 * Maximum number of data bytes a message can contain
+	 */
+	public static final int MAX_DATA_LENGTH = 255;
+	
+	/**
+	 * Length of a message without data: destination, data length,
+	 * source or checksum, header and checksum.
+	 */
+	public static final int MIN_LENGTH = 5;
+	
+	/**
+	 * Length of a message with {@link #MAX_DATA_LENGTH} data bytes
+	 */
+	public static final int MAX_LENGTH = MIN_LENGTH + MAX_DATA_LENGTH;
+	
+	/**
+	 * Offset of the first data byte in a frame
+	 */
+	protected static final int DATA_OFFSET = 4;
 
-	protected byte destination;
-	protected byte header;
-	protected byte dataLength;
-	protected byte[] data;
+	/**
+	 * Frame of this message. The byte following the data length
+	 * and the last byte are set by subclasses.
+	 */
+	protected final byte[] frame;
 	
 	/**
 	 * @param destination
 	 * @param header
-	 * @param dataByteCount
 	 * @param data
+	 * @throws IllegalArgumentException if data length exceed 255
 	 */
 	protected AbstractMessage(byte destination, byte header, byte[] data) {
 		super();
 		
-		if(data.length > 255){
+		if(data.length > MAX_DATA_LENGTH){
 			throw new IllegalArgumentException("Data array length must not exceed 255");
 		}
 		
-		this.destination = destination;
-		this.header = header;
-		this.data = data;
-		this.dataLength = (byte)data.length; //binary representation safe as we ensured 0 < length < 256
+		this.frame = new byte[MIN_LENGTH + data.length];
+		this.frame[0] = destination;
+		this.frame[1] = (byte)data.length; //binary representation safe as we ensured 0 < length < 256
+		this.frame[3] = header;
+		System.arraycopy(data, 0, frame, DATA_OFFSET, data.length);
+	}
+	
+	/**
+	 * Create a message backed by the given frame, which must not be modified afterward.
+	 * @param frame a frame whose length matches its data length byte
+	 */
+	protected AbstractMessage(byte[] frame) {
+		super();
+		this.frame = frame;
 	}
 
 	public byte getDestination() {
-		return destination;
+		return frame[0];
 	}
 
 	public byte getHeader() {
-		return header;
+		return frame[3];
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>The returned array is a copy of the data bytes.</p>
+	 */
 	public byte[] getDataBytes() {
-		return data;
+		return Arrays.copyOfRange(frame, DATA_OFFSET, frame.length - 1);
+	}
+	
+	public int getDataLength() {
+		return frame.length - MIN_LENGTH;
+	}
+	
+	public byte getDataByte(int i) throws IndexOutOfBoundsException {
+		if(i < 0 || i >= getDataLength()){
+			throw new IndexOutOfBoundsException("Data index " + i + " out of data length " + getDataLength());
+		}
+		return frame[DATA_OFFSET + i];
+	}
+	
+	public int length() {
+		return frame.length;
+	}
+	
+	public byte[] bytes() {
+		return frame.clone();
+	}
+	
+	public int encodeTo(ByteBuffer dst) {
+		dst.put(frame);
+		return frame.length;
+	}
+	
+	public int encodeTo(byte[] dst, int off) {
+		if(off < 0 || off + frame.length > dst.length){
+			throw new IndexOutOfBoundsException("Cannot encode " + frame.length + " bytes at offset " + off + " of array of length " + dst.length);
+		}
+		System.arraycopy(frame, 0, dst, off, frame.length);
+		return frame.length;
 	}
 
 	@Override
@@ -46,10 +124,12 @@ public abstract class AbstractMessage implements Message {
 		 if (other == this) return true;
 		 if (!(other instanceof AbstractMessage))return false;
 		 AbstractMessage m = (AbstractMessage)other;
-		 return m.destination == this.destination &&
-				 m.dataLength == this.dataLength &&
-				 m.header == this.header &&
-				 Arrays.equals(m.data, this.data);
+		 return Arrays.equals(m.frame, this.frame);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(frame);
 	}
 
 }
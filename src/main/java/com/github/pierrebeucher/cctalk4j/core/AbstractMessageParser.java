@@ -6,6 +6,16 @@ public abstract class AbstractMessageParser implements MessageParser {
 
 	protected byte[] bytes;
 	
+	/**
+	 * Offset of the message first byte in {@link #bytes}
+	 */
+	protected int offset;
+	
+	/**
+	 * Length of the message in {@link #bytes}
+	 */
+	protected int length;
+	
 	/**
 	 * 
 	 */
@@ -18,11 +28,34 @@ public abstract class AbstractMessageParser implements MessageParser {
 	}
 	
 	public void setMessageBytes(byte[] messageBytes) {
+		setMessageBytes(messageBytes, 0, messageBytes.length);
+	}
+	
+	public void setMessageBytes(byte[] messageBytes, int offset, int length) {
+		if(offset < 0 || length < 0 || offset + length > messageBytes.length){
+			throw new IndexOutOfBoundsException("Invalid region [" + offset + ", " + (offset + length) + "[ for array of length " + messageBytes.length);
+		}
 		this.bytes = messageBytes;
+		this.offset = offset;
+		this.length = length;
 	}
 	
+	/**
+	 * @return the message bytes being parsed, copied if they are
+	 * a region of a larger array
+	 */
 	public byte[] getMessageBytes() {
-		return bytes;
+		if(offset == 0 && length == bytes.length){
+			return bytes;
+		}
+		return Arrays.copyOfRange(bytes, offset, offset + length);
+	}
+
+	/**
+	 * @return a copy of the parsed message bytes, to be owned by a parsed message
+	 */
+	protected byte[] copyMessageBytes() {
+		return Arrays.copyOfRange(bytes, offset, offset + length);
 	}
 
 	/**
@@ -32,37 +65,44 @@ public abstract class AbstractMessageParser implements MessageParser {
 	 * @throws MessageParsingException if message length lesser than 5
 	 */
 	protected void checkMessageLength() throws MessageParsingException{
-		if(bytes.length < 5){
+		if(length < AbstractMessage.MIN_LENGTH){
 			throw new MessageParsingException("Message length incorrect, must be at least 5.");
 		}
 	}
 	
-	public byte dataLengthByte() throws MessageParsingException{
-		checkMessageLength();
-		return bytes[1];
-	}
-	
-	public byte[] dataBytes() throws MessageParsingException{
+	/**
+	 * Check the data length byte matches the message length.
+	 * @throws MessageParsingException if the message length does not match its data length byte
+	 */
+	protected void checkDataLength() throws MessageParsingException{
 		checkMessageLength();
-		int dataLength = dataLengthByte();
+		int dataLength = Utils.byteToUnsignedInt(dataLengthByte());
 		
-		if(bytes.length != 5 + dataLength){
+		if(length != AbstractMessage.MIN_LENGTH + dataLength){
 			throw new MessageParsingException("Message data length byte"
 					+ " does not match the actual message length. Expected "
-					+ dataLength + " data byte(s) but found " + (bytes.length - 5) + ".");
+					+ dataLength + " data byte(s) but found " + (length - AbstractMessage.MIN_LENGTH) + ".");
 		}
-		
-		return Arrays.copyOfRange(bytes, 4, 4+dataLength);
+	}
+	
+	public byte dataLengthByte() throws MessageParsingException{
+		checkMessageLength();
+		return bytes[offset + 1];
+	}
+	
+	public byte[] dataBytes() throws MessageParsingException{
+		checkDataLength();
+		return Arrays.copyOfRange(bytes, offset + 4, offset + length - 1);
 	}
 	
 	public byte destinationByte() throws MessageParsingException{
 		checkMessageLength();
-		return bytes[0];
+		return bytes[offset];
 	}
 	
 	public byte headerByte() throws MessageParsingException{
 		checkMessageLength();
-		return bytes[3];
+		return bytes[offset + 3];
 	}
 	
 	protected abstract Message doParse() throws MessageParsingException;
@@ -72,5 +112,13 @@ public abstract class AbstractMessageParser implements MessageParser {
 		
 		return doParse();
 	}
+	
+	public void parseInto(MessageView view) throws MessageParsingException {
+		checkDataLength();
+		if(!isChecksumValid()){
+			throw new MessageParsingException("Invalid checksum for message " + Utils.bytesToHex(getMessageBytes()));
+		}
+		view.wrap(bytes, offset, length);
+	}
 
 }
@@ -0,0 +1,154 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Table-driven and incremental CRC 16 CCIT calculator, as used by
+ * ccTalk <i>CRC checksum</i> messages (polynomial 0x1021, initial value 0,
+ * no reflection, no final XOR).</p>
+ * <p>Bytes can be fed one at a time or by slices, so a checksum can be computed
+ * directly over a message's fields or a received frame without building
+ * an intermediate feed array. A calculator instance is not thread safe,
+ * but can be reused after {@link #reset()}.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class CRC16CCIT {
+
+	/**
+	 * CRC 16 CCIT polynomial: 0001 0000 0010 0001 (0, 5, 12)
+	 */
+	public static final int POLYNOMIAL = 0x1021;
+
+	/**
+	 * Pre-computed CRC of each byte value, such as
+	 * <code>crc = (crc << 8) ^ TABLE[(crc >>> 8) ^ b]</code>
+	 */
+	private static final char[] TABLE = buildTable();
+
+	private int crc;
+
+	/**
+	 * Create a new calculator with an initial value of 0.
+	 */
+	public CRC16CCIT() {
+		this.crc = 0;
+	}
+
+	private static char[] buildTable(){
+		char[] table = new char[256];
+		for(int i=0; i<256; i++){
+			int c = i << 8;
+			for(int bit=0; bit<8; bit++){
+				c = (c & 0x8000) != 0 ? (c << 1) ^ POLYNOMIAL : c << 1;
+			}
+			table[i] = (char) c;
+		}
+		return table;
+	}
+
+	/**
+	 * Update the CRC with a single byte.
+	 * @param b byte to feed
+	 * @return this calculator
+	 */
+	public CRC16CCIT update(byte b){
+		crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ b) & 0xFF]) & 0xFFFF;
+		return this;
+	}
+
+	/**
+	 * Update the CRC with <code>len</code> bytes of the given array,
+	 * starting at <code>off</code>.
+	 * @param bytes bytes to feed
+	 * @param off offset of the first byte to feed
+	 * @param len number of bytes to feed
+	 * @return this calculator
+	 * @throws IndexOutOfBoundsException if <code>off</code> and <code>len</code> are out of array bounds
+	 */
+	public CRC16CCIT update(byte[] bytes, int off, int len) throws IndexOutOfBoundsException {
+		if(off < 0 || len < 0 || off + len > bytes.length){
+			throw new IndexOutOfBoundsException("Invalid slice [" + off + ", " + (off + len) + "[ for array of length " + bytes.length);
+		}
+		int c = crc;
+		int end = off + len;
+		for(int i=off; i<end; i++){
+			c = ((c << 8) ^ TABLE[((c >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+		}
+		crc = c;
+		return this;
+	}
+
+	/**
+	 * Update the CRC with all the bytes of the given array.
+	 * @param bytes bytes to feed
+	 * @return this calculator
+	 */
+	public CRC16CCIT update(byte[] bytes){
+		return update(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Update the CRC with the remaining bytes of the given buffer. The buffer's
+	 * position is advanced to its limit. Both heap and direct buffers are supported.
+	 * @param buffer buffer to feed
+	 * @return this calculator
+	 */
+	public CRC16CCIT update(ByteBuffer buffer){
+		if(buffer.hasArray()){
+			int pos = buffer.position();
+			update(buffer.array(), buffer.arrayOffset() + pos, buffer.remaining());
+			buffer.position(buffer.limit());
+		} else {
+			int c = crc;
+			while(buffer.hasRemaining()){
+				c = ((c << 8) ^ TABLE[((c >>> 8) ^ buffer.get()) & 0xFF]) & 0xFFFF;
+			}
+			crc = c;
+		}
+		return this;
+	}
+
+	/**
+	 * @return the CRC of all the bytes fed since creation or last reset
+	 */
+	public short value(){
+		return (short) crc;
+	}
+
+	/**
+	 * @return the CRC Most Significant Byte
+	 */
+	public byte msb(){
+		return (byte) (crc >>> 8);
+	}
+
+	/**
+	 * @return the CRC Least Significant Byte
+	 */
+	public byte lsb(){
+		return (byte) crc;
+	}
+
+	/**
+	 * Reset this calculator to its initial value.
+	 * @return this calculator
+	 */
+	public CRC16CCIT reset(){
+		crc = 0;
+		return this;
+	}
+
+	/**
+	 * Calculate the CRC 16 CCIT of <code>len</code> bytes of the given array,
+	 * starting at <code>off</code>.
+	 * @param bytes bytes to calculate CRC for
+	 * @param off offset of the first byte
+	 * @param len number of bytes
+	 * @return calculated CRC
+	 */
+	public static short checksum(byte[] bytes, int off, int len){
+		return new CRC16CCIT().update(bytes, off, len).value();
+	}
+
+}
@@ -1,11 +1,7 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
-import java.nio.ByteBuffer;
 import java.util.Arrays;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * A <i>Standard Message Packet, CRC checksum</i> message, as described
  * in the ccTalk specifications. Such messages uses the CRC-16 CCIT checksum, and contains:
@@ -23,10 +19,6 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class CRCChecksumMessage extends AbstractMessage {
-
-	private Logger logger = LoggerFactory.getLogger(getClass());
-	
-	private byte[] checksum;
 	
 	/**
 	 * <p>Create a new message using the given destination, header and data.
@@ -39,46 +31,28 @@ public class CRCChecksumMessage extends AbstractMessage {
 	public CRCChecksumMessage(byte destination, byte header, byte[] data)
 			throws IllegalArgumentException {
 		super(destination, header, data);
-		this.checksum = calculateChecksum();
-	}
-	
-	public byte[] bytes() {
-		ByteBuffer buf = ByteBuffer.allocate(5 + data.length);
-		buf.put(destination);
-		buf.put(dataLength);
-		buf.put(getCrcLsb());
-		buf.put(header);
-		buf.put(data);
-		buf.put(getCrcMsb());
-		return buf.array();
+		calculateChecksum();
 	}
 	
 	/**
-	 * Build the byte array used to calculate CRC 16 CCIT checksum,
-	 * composed of: [header, destination, data_count, data_1, ..., data_n]
-	 * @return bye array used to calculate this message CRC 16 CCIT
+	 * Create a message backed by an already validated frame, such as a
+	 * parsed message whose checksum has been checked.
+	 * @param frame message frame, which must not be modified afterward
 	 */
-	private byte[] buildChecksumFeed(){
-		//to checksum: header (1), data count (1), dest (1),  and data (n)
-		byte[] feed = new byte[3 + data.length];
-		feed[0] = destination;
-		feed[1] = dataLength;
-		feed[2] = header;
-		for(int i=0; i<data.length; i++){
-			feed[i+3] = data[i];
-		}
-		
-		return feed;
+	CRCChecksumMessage(byte[] frame) {
+		super(frame);
 	}
-
-	private byte[] calculateChecksum(){
-		byte[] checksumFeed = buildChecksumFeed();
-		short checksumCrc16 = Utils.checksumCRC16CCIT(checksumFeed);
-		
-		logger.debug("Calculated 16bits CRC checksum for {} is {}", this, checksumCrc16);
+	
+	private void calculateChecksum(){
+		//to checksum: dest (1), data count (1), header (1) and data (n)
+		short checksumCrc16 = new CRC16CCIT()
+				.update(frame, 0, 2)
+				.update(frame, 3, frame.length - 4)
+				.value();
 		
 		//CRC16 checksum composed of 16 bits (2 bytes)
-		return ByteBuffer.allocate(2).putShort(checksumCrc16).array();
+		frame[frame.length - 1] = (byte) (checksumCrc16 >>> 8);
+		frame[2] = (byte) checksumCrc16;
 	}
 
 	/**
@@ -88,7 +62,7 @@ public class CRCChecksumMessage extends AbstractMessage {
 	 * the Least Significant Byte (LSB).
 	 */
 	public byte[] getChecksum() {
-		return checksum;
+		return new byte[]{ getCrcMsb(), getCrcLsb() };
 	}
 	
 	/**
@@ -97,7 +71,7 @@ public class CRCChecksumMessage extends AbstractMessage {
 	 * @return this message's CRC least significant byte.
 	 */
 	public byte getCrcLsb(){
-		return checksum[1];
+		return frame[2];
 	}
 	
 	/**
@@ -106,21 +80,21 @@ public class CRCChecksumMessage extends AbstractMessage {
 	 * @return this message's CRC most significant byte.
 	 */
 	public byte getCrcMsb(){
-		return checksum[0];
+		return frame[frame.length - 1];
 	}
 	
 	public String getHexMessage() {
-		StringBuilder strBuilder = new StringBuilder(20 + 2 * data.length);
-		strBuilder.append(Utils.byteToHex(destination));
+		StringBuilder strBuilder = new StringBuilder(20 + 2 * getDataLength());
+		strBuilder.append(Utils.byteToHex(getDestination()));
 		strBuilder.append(" ");
-		strBuilder.append(Utils.byteToHex(dataLength));
+		strBuilder.append(Utils.byteToHex(frame[1]));
 		strBuilder.append(" ");
 		strBuilder.append(Utils.byteToHex(getCrcLsb()));
 		strBuilder.append(" ");
-		strBuilder.append(Utils.byteToHex(header));
-		if(data.length > 0){
+		strBuilder.append(Utils.byteToHex(getHeader()));
+		if(getDataLength() > 0){
 			strBuilder.append(" ");
-			strBuilder.append(Utils.bytesToHex(data));
+			strBuilder.append(Utils.bytesToHex(getDataBytes()));
 		}
 		strBuilder.append(" ");
 		strBuilder.append(Utils.byteToHex(getCrcMsb()));
@@ -129,18 +103,19 @@ public class CRCChecksumMessage extends AbstractMessage {
 
 	@Override
 	public String toString() {
-		return "CRCChecksumMessage [checksum=" + Arrays.toString(checksum) + ", destination=" + destination + ", header="
-				+ header + ", data=" + Arrays.toString(data) + "]";
+		return "CRCChecksumMessage [checksum=" + Arrays.toString(getChecksum()) + ", destination=" + getDestination() + ", header="
+				+ getHeader() + ", data=" + Arrays.toString(getDataBytes()) + "]";
 	}
 
 	@Override
 	public boolean equals(Object other) {
 		if (!(other instanceof CRCChecksumMessage))return false;
-		CRCChecksumMessage m = (CRCChecksumMessage) other;
-		return super.equals(m) &&
-				Arrays.equals(m.checksum, this.checksum);
-				
+		return super.equals(other);
 	}
 	
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
 	
 }
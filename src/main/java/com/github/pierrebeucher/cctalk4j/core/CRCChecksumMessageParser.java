@@ -2,6 +2,11 @@ package com.github.pierrebeucher.cctalk4j.core;
 
 public class CRCChecksumMessageParser extends AbstractMessageParser
 		implements MessageParser {
+	
+	/**
+	 * Reused to validate parsed messages checksum
+	 */
+	private final CRC16CCIT crc = new CRC16CCIT();
 
 	public CRCChecksumMessageParser() {
 		super();
@@ -16,7 +21,7 @@ public class CRCChecksumMessageParser extends AbstractMessageParser
 	 * @return the CRC LSB from the byte representation of the parsed message
 	 */
 	public byte crcLsb(){
-		return bytes[2];
+		return bytes[offset + 2];
 	}
 	
 	/**
@@ -24,30 +29,33 @@ public class CRCChecksumMessageParser extends AbstractMessageParser
 	 * @return the CRC MSB from the byte representation of the parsed message
 	 */
 	public byte crcMsb(){
-		return bytes[bytes.length-1];
+		return bytes[offset + length - 1];
+	}
+	
+	/**
+	 * Calculate the CRC of the message in one pass over its bytes:
+	 * destination, data length, header and data.
+	 */
+	public boolean isChecksumValid() throws MessageParsingException {
+		checkMessageLength();
+		crc.reset()
+			.update(bytes, offset, 2)
+			.update(bytes, offset + 3, length - 4);
+		return crc.lsb() == crcLsb() && crc.msb() == crcMsb();
 	}
 
 	@Override
 	protected Message doParse() throws MessageParsingException{
-		try {
-			CRCChecksumMessage message = new CRCChecksumMessage(
-					destinationByte(),
-					headerByte(),
-					dataBytes());
-			
-			//verify checksum
-			if(message.getCrcLsb() != crcLsb() || message.getCrcMsb() != crcMsb()){
-				throw new MessageParsingException("Invalid checksum: expected ["
-						+ message.getCrcLsb() + ", " + message.getCrcMsb() + "], but"
-						+ " parsed checksum is [" + crcLsb() + "," + crcMsb() + "].");
-			}
-			
-			return message;
-		} catch (IllegalArgumentException e) {
-			throw new MessageParsingException(e);
+		checkDataLength();
+		
+		//verify checksum
+		if(!isChecksumValid()){
+			throw new MessageParsingException("Invalid checksum: expected ["
+					+ crc.lsb() + ", " + crc.msb() + "], but"
+					+ " parsed checksum is [" + crcLsb() + "," + crcMsb() + "].");
 		}
+		
+		return new CRCChecksumMessage(copyMessageBytes());
 	}
 
-	
-
 }
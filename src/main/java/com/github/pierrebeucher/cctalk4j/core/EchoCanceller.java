@@ -0,0 +1,186 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+/**
+ * <p>Removes the local echo of written messages from received bytes. On a single-wire
+ * ccTalk bus, every byte transmitted by the host is also received by the host,
+ * right before the device reply.</p>
+ * <p>Before writing a message, its bytes are given to {@link #expect(byte[], int, int)}.
+ * Received bytes are then given to {@link #filter(byte[], int, int)}: every byte up to and
+ * including the echo is dropped, whether it is part of the echo or was received before it
+ * (leftover bytes of a previous exchange). Bytes following the echo are the reply, and are
+ * passed until {@link #replyReceived()} is called. Bytes received while no reply is expected
+ * are dropped as well.</p>
+ * <p>The write and read sides may be used by different threads.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class EchoCanceller {
+
+	private enum State {
+		/**
+		 * No message written, received bytes are dropped
+		 */
+		IDLE,
+		/**
+		 * Message written, waiting for its echo
+		 */
+		ECHO,
+		/**
+		 * Echo received, received bytes are the reply
+		 */
+		REPLY
+	}
+
+	private final byte[] echo = new byte[AbstractMessage.MAX_LENGTH];
+
+	/**
+	 * Partial match table of the echo, such as <code>fallback[i]</code> is the length of the
+	 * longest proper prefix of <code>echo[0..i]</code> which is also a suffix of it.
+	 * Allows to find the echo in the received bytes even if it is preceded by
+	 * bytes partially matching it.
+	 */
+	private final int[] fallback = new int[AbstractMessage.MAX_LENGTH];
+
+	private int echoLength;
+
+	/**
+	 * Number of echo bytes matched so far
+	 */
+	private int matched;
+	
+	/**
+	 * Number of bytes received while waiting for the echo
+	 */
+	private int received;
+
+	private State state;
+
+	private boolean echoCompleted;
+
+	private long droppedByteCount;
+
+	public EchoCanceller() {
+		super();
+		this.state = State.IDLE;
+	}
+
+	/**
+	 * Expect the echo of the given bytes, about to be written.
+	 * @param bytes bytes to be written
+	 * @param off offset of the first byte
+	 * @param len number of bytes
+	 */
+	public synchronized void expect(byte[] bytes, int off, int len){
+		if(len <= 0 || len > echo.length){
+			throw new IllegalArgumentException("Echo length must be in range [1-" + echo.length + "]");
+		}
+		System.arraycopy(bytes, off, echo, 0, len);
+		echoLength = len;
+		matched = 0;
+		received = 0;
+
+		fallback[0] = 0;
+		int k = 0;
+		for(int i=1; i<len; i++){
+			while(k > 0 && echo[i] != echo[k]){
+				k = fallback[k - 1];
+			}
+			if(echo[i] == echo[k]){
+				k++;
+			}
+			fallback[i] = k;
+		}
+
+		state = State.ECHO;
+	}
+
+	/**
+	 * Filter the given received bytes. Bytes preceding the returned index are
+	 * dropped, following bytes are part of the reply.
+	 * @param bytes received bytes
+	 * @param off offset of the first received byte
+	 * @param len number of received bytes
+	 * @return index of the first reply byte, <code>off + len</code> if all bytes are dropped
+	 */
+	public synchronized int filter(byte[] bytes, int off, int len){
+		int end = off + len;
+		switch(state){
+			case REPLY:
+				return off;
+			case IDLE:
+				droppedByteCount += len;
+				return end;
+			default:
+				for(int i=off; i<end; i++){
+					received++;
+					while(matched > 0 && bytes[i] != echo[matched]){
+						matched = fallback[matched - 1];
+					}
+					if(bytes[i] == echo[matched]){
+						matched++;
+					}
+					if(matched == echoLength){
+						droppedByteCount += received - echoLength;
+						state = State.REPLY;
+						echoCompleted = true;
+						return i + 1;
+					}
+				}
+				return end;
+		}
+	}
+
+	/**
+	 * Indicate whether the echo has been completed by a {@link #filter(byte[], int, int)}
+	 * call since the last call to this method. Used by the read side to discard
+	 * any state preceding the reply.
+	 * @return true if the echo has been completed since the last call
+	 */
+	public synchronized boolean pollEchoCompleted(){
+		boolean completed = echoCompleted;
+		echoCompleted = false;
+		return completed;
+	}
+
+	/**
+	 * @return true if the echo of the last written message is not fully received yet
+	 */
+	public synchronized boolean isEchoPending(){
+		return state == State.ECHO;
+	}
+
+	/**
+	 * @return the minimum number of bytes to receive before the end of the echo,
+	 * 0 if no echo is pending
+	 */
+	public synchronized int remaining(){
+		return state == State.ECHO ? echoLength - matched : 0;
+	}
+
+	/**
+	 * Indicate the reply has been received: following bytes are dropped until
+	 * the echo of the next message.
+	 */
+	public synchronized void replyReceived(){
+		if(state == State.REPLY){
+			state = State.IDLE;
+		}
+	}
+
+	/**
+	 * Stop expecting any echo or reply.
+	 */
+	public synchronized void reset(){
+		state = State.IDLE;
+		matched = 0;
+		echoCompleted = false;
+	}
+
+	/**
+	 * @return number of received bytes dropped which were not part of an echo
+	 */
+	public synchronized long getDroppedByteCount() {
+		return droppedByteCount;
+	}
+
+}
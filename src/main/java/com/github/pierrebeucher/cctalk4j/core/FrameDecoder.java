@@ -0,0 +1,233 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.Arrays;
+
+/**
+ * <p>Incremental decoder extracting ccTalk frames from a stream of bytes.
+ * Bytes are fed in chunks of any size using {@link #feed(byte[], int, int)}, and
+ * complete frames are retrieved with {@link #next(MessageView)}.</p>
+ * <p>A candidate frame starts at the first pending byte and its length is deduced from
+ * its data length byte. Once complete, its checksum is checked by the
+ * given <code>MessageParser</code>: if it does not match, the first byte is discarded and
+ * the decoder slides to the next byte, resynchronising on the next valid frame. A candidate
+ * which cannot complete (for instance because a corrupted byte announces a wrong
+ * data length) can be dropped using {@link #skip()}.</p>
+ * <p>Note that with simple checksum messages, a misaligned candidate has a 1 in 256 chance
+ * of having a valid checksum. CRC checksum messages make such false positives very unlikely.</p>
+ * <p>A decoder is not thread safe.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class FrameDecoder {
+	
+	/**
+	 * Notified of complete candidate frames rejected because of an invalid checksum.
+	 */
+	public interface RejectListener {
+		
+		/**
+		 * Called before the first byte of the rejected frame is discarded. The
+		 * given bytes must not be modified nor used after returning.
+		 * @param bytes array holding the rejected frame
+		 * @param off offset of the frame first byte
+		 * @param len frame length
+		 */
+		public void frameRejected(byte[] bytes, int off, int len);
+	}
+
+	/**
+	 * Minimum number of bytes required to know a candidate frame length:
+	 * destination and data length
+	 */
+	private static final int FRAME_PREFIX_LENGTH = 2;
+
+	private MessageParser parser;
+
+	private byte[] buffer;
+
+	/**
+	 * Index of the first pending byte
+	 */
+	private int start;
+
+	/**
+	 * Index after the last pending byte
+	 */
+	private int end;
+
+	private long discardedByteCount;
+	
+	private RejectListener rejectListener;
+
+	/**
+	 * @param parser parser used to check frames checksum
+	 */
+	public FrameDecoder(MessageParser parser) {
+		super();
+		this.parser = parser;
+		this.buffer = new byte[2 * AbstractMessage.MAX_LENGTH];
+		this.start = 0;
+		this.end = 0;
+		this.discardedByteCount = 0;
+	}
+
+	/**
+	 * Append the given bytes to the pending bytes.
+	 * @param bytes bytes to append
+	 * @param off offset of the first byte to append
+	 * @param len number of bytes to append
+	 */
+	public void feed(byte[] bytes, int off, int len){
+		if(off < 0 || len < 0 || off + len > bytes.length){
+			throw new IndexOutOfBoundsException("Invalid slice [" + off + ", " + (off + len) + "[ for array of length " + bytes.length);
+		}
+		ensureCapacity(len);
+		System.arraycopy(bytes, off, buffer, end, len);
+		end += len;
+	}
+
+	/**
+	 * Append all the given bytes to the pending bytes.
+	 * @param bytes bytes to append
+	 */
+	public void feed(byte[] bytes){
+		feed(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Make room for <code>len</code> more bytes at the end of the buffer,
+	 * moving pending bytes to the beginning of the buffer or growing it if needed.
+	 */
+	private void ensureCapacity(int len){
+		if(end + len <= buffer.length){
+			return;
+		}
+		int pending = pending();
+		if(pending + len > buffer.length){
+			buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, pending + len));
+		}
+		System.arraycopy(buffer, start, buffer, 0, pending);
+		start = 0;
+		end = pending;
+	}
+
+	/**
+	 * <p>Try to decode the next frame from the pending bytes. If a valid frame is found,
+	 * the given view is wrapped around it and the frame bytes are consumed. Pending
+	 * bytes preceding the frame which cannot be part of a valid frame are discarded.</p>
+	 * <p>The view wraps this decoder's internal buffer: it remains valid until
+	 * the next call to any method of this decoder. The decoder's parser is left
+	 * set on the decoded frame, which can then be parsed using {@link MessageParser#parse()}.</p>
+	 * @param view view to wrap around the decoded frame
+	 * @return true if a frame was decoded, false if more bytes are needed
+	 */
+	public boolean next(MessageView view){
+		while(pending() >= FRAME_PREFIX_LENGTH){
+			int frameLength = candidateLength();
+			if(pending() < frameLength){
+				return false;
+			}
+
+			parser.setMessageBytes(buffer, start, frameLength);
+			if(isChecksumValid()){
+				view.wrap(buffer, start, frameLength);
+				start += frameLength;
+				return true;
+			}
+
+			if(rejectListener != null){
+				rejectListener.frameRejected(buffer, start, frameLength);
+			}
+			skip();
+		}
+		return false;
+	}
+
+	private boolean isChecksumValid(){
+		try {
+			return parser.isChecksumValid();
+		} catch (MessageParsingException e) {
+			//cannot happen as candidate length is at least a message minimum length
+			return false;
+		}
+	}
+
+	/**
+	 * @return length of the frame starting at the first pending byte
+	 */
+	private int candidateLength(){
+		return AbstractMessage.MIN_LENGTH + (buffer[start + 1] & 0xFF);
+	}
+
+	/**
+	 * @return the minimum number of bytes to feed before
+	 * a frame can possibly be decoded
+	 */
+	public int bytesNeeded(){
+		int pending = pending();
+		if(pending < FRAME_PREFIX_LENGTH){
+			return FRAME_PREFIX_LENGTH - pending;
+		}
+		return Math.max(candidateLength() - pending, 0);
+	}
+
+	/**
+	 * @return number of bytes fed but not decoded yet
+	 */
+	public int pending(){
+		return end - start;
+	}
+
+	/**
+	 * Discard the first pending byte, so that decoding resumes
+	 * from the next byte. Does nothing if there is no pending byte.
+	 */
+	public void skip(){
+		if(start < end){
+			start++;
+			discardedByteCount++;
+		}
+		if(start == end){
+			start = 0;
+			end = 0;
+		}
+	}
+
+	/**
+	 * Wrap the given view around the pending bytes, which remain pending.
+	 * The view remains valid until the next call to any method of this decoder.
+	 * @param view view to wrap around the pending bytes
+	 */
+	public void wrapPending(MessageView view){
+		view.wrap(buffer, start, pending());
+	}
+
+	/**
+	 * Discard all pending bytes.
+	 */
+	public void reset(){
+		discardedByteCount += pending();
+		start = 0;
+		end = 0;
+	}
+
+	/**
+	 * @return total number of bytes discarded since this decoder creation
+	 */
+	public long getDiscardedByteCount() {
+		return discardedByteCount;
+	}
+
+	/**
+	 * @param rejectListener listener notified of frames rejected because of an invalid
+	 * checksum, or null
+	 */
+	public void setRejectListener(RejectListener rejectListener) {
+		this.rejectListener = rejectListener;
+	}
+
+	public MessageParser getParser() {
+		return parser;
+	}
+
+}
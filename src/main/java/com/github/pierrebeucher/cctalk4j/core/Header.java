@@ -1,7 +1,8 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
 /**
- * Set of ccTalk Headers.  
+ * Set of ccTalk Headers. Metadata of each header are
+ * available from a {@link HeaderRegistry}.
  * @author Pierre Beucher
  *
  */
@@ -16,6 +17,8 @@ public enum Header {
 	REQUEST_EQUIPMENT_CATEGORY_ID(245),
 	REQUEST_PRODUCT_CODE(244),
 	
+	REQUEST_SERIAL_NUMBER(242),
+	
 	PERFORM_SELF_CHECK(232),
 	MODIFY_INHIBIT_STATUS(231),
 	REQUEST_INHIBIT_STATUS(230),
@@ -34,10 +37,23 @@ public enum Header {
 	MODIFY_BILL_OPERATING_MODE(153),
 	REQUEST_BILL_OPERATING_MODE(152),
 	
+	REQUEST_CURRENCY_REVISION(145),
+	
 	REQUEST_ENCRYPTION_SUPPORT(111),
 	
 	NONE(0);
 	
+	/**
+	 * Headers indexed by unsigned value
+	 */
+	private static final Header[] BY_VALUE = new Header[256];
+	
+	static {
+		for(Header h : values()){
+			BY_VALUE[h.getIntegerValue()] = h;
+		}
+	}
+	
 	private byte value;
 	
 	/**
@@ -55,4 +71,13 @@ public enum Header {
 	public int getIntegerValue(){
 		return Utils.byteToUnsignedInt(value);
 	}
+	
+	/**
+	 * Return the header with the given value, in constant time.
+	 * @param value header byte
+	 * @return header with the given value, null if there is none
+	 */
+	public static Header fromValue(byte value){
+		return BY_VALUE[value & 0xFF];
+	}
 }
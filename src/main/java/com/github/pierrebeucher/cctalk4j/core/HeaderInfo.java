@@ -0,0 +1,158 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+/**
+ * <p>Metadata of a ccTalk header: the data length of the reply to a command using this header,
+ * whether the command is idempotent, and the time a device may take to reply.</p>
+ * <p>Headers are identified by their byte value, so that vendor-specific headers
+ * without <code>Header</code> constant can be described as well.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class HeaderInfo {
+	
+	/**
+	 * Class of time a device may take to reply to a command.
+	 */
+	public enum TimeoutClass {
+		/**
+		 * Status requests and settings, answered right away
+		 */
+		SHORT(500),
+		/**
+		 * Commands writing to the device memory
+		 */
+		NORMAL(1000),
+		/**
+		 * Commands involving mechanical actions or self tests
+		 */
+		LONG(5000);
+		
+		private int suggestedTimeout;
+		
+		TimeoutClass(int suggestedTimeout){
+			this.suggestedTimeout = suggestedTimeout;
+		}
+		
+		/**
+		 * @return suggested read timeout in milliseconds
+		 */
+		public int getSuggestedTimeout() {
+			return suggestedTimeout;
+		}
+	}
+	
+	/**
+	 * Reply data length used for variable length replies
+	 */
+	public static final int VARIABLE_LENGTH = -1;
+	
+	private final byte value;
+	private final String name;
+	private final int minReplyDataLength;
+	private final int maxReplyDataLength;
+	private final boolean idempotent;
+	private final TimeoutClass timeoutClass;
+	
+	/**
+	 * @param value header byte
+	 * @param name header name
+	 * @param minReplyDataLength minimum number of data bytes of the reply
+	 * @param maxReplyDataLength maximum number of data bytes of the reply
+	 * @param idempotent true if sending the command several times has the same effect as sending it once
+	 * @param timeoutClass time the device may take to reply
+	 * @throws IllegalArgumentException if reply data lengths are not in range [0-255] or min is greater than max
+	 */
+	public HeaderInfo(byte value, String name, int minReplyDataLength, int maxReplyDataLength, boolean idempotent,
+			TimeoutClass timeoutClass) throws IllegalArgumentException {
+		super();
+		if(minReplyDataLength < 0 || maxReplyDataLength > AbstractMessage.MAX_DATA_LENGTH
+				|| minReplyDataLength > maxReplyDataLength){
+			throw new IllegalArgumentException("Invalid reply data length range [" + minReplyDataLength
+					+ "-" + maxReplyDataLength + "]");
+		}
+		this.value = value;
+		this.name = name;
+		this.minReplyDataLength = minReplyDataLength;
+		this.maxReplyDataLength = maxReplyDataLength;
+		this.idempotent = idempotent;
+		this.timeoutClass = timeoutClass;
+	}
+	
+	/**
+	 * Describe a header whose reply has a fixed data length.
+	 */
+	public static HeaderInfo fixed(Header header, int replyDataLength, boolean idempotent, TimeoutClass timeoutClass){
+		return new HeaderInfo(header.getValue(), header.name(), replyDataLength, replyDataLength, idempotent, timeoutClass);
+	}
+	
+	/**
+	 * Describe a header whose reply data length is within a range.
+	 */
+	public static HeaderInfo range(Header header, int minReplyDataLength, int maxReplyDataLength, boolean idempotent,
+			TimeoutClass timeoutClass){
+		return new HeaderInfo(header.getValue(), header.name(), minReplyDataLength, maxReplyDataLength, idempotent, timeoutClass);
+	}
+	
+	/**
+	 * Describe a header whose reply may have any data length.
+	 */
+	public static HeaderInfo variable(Header header, boolean idempotent, TimeoutClass timeoutClass){
+		return range(header, 0, AbstractMessage.MAX_DATA_LENGTH, idempotent, timeoutClass);
+	}
+
+	public byte getValue() {
+		return value;
+	}
+
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @return the matching <code>Header</code>, null for a header without constant
+	 */
+	public Header getHeader() {
+		return Header.fromValue(value);
+	}
+
+	public int getMinReplyDataLength() {
+		return minReplyDataLength;
+	}
+
+	public int getMaxReplyDataLength() {
+		return maxReplyDataLength;
+	}
+	
+	/**
+	 * @return true if the reply always has the same data length
+	 */
+	public boolean isFixedReplyLength() {
+		return minReplyDataLength == maxReplyDataLength;
+	}
+	
+	/**
+	 * @return the reply data length if fixed, {@link #VARIABLE_LENGTH} otherwise
+	 */
+	public int getExpectedReplyDataLength() {
+		return isFixedReplyLength() ? minReplyDataLength : VARIABLE_LENGTH;
+	}
+
+	/**
+	 * @return true if sending the command several times has the same effect as
+	 * sending it once, i.e. it can be retried safely
+	 */
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+	public TimeoutClass getTimeoutClass() {
+		return timeoutClass;
+	}
+
+	@Override
+	public String toString() {
+		return "HeaderInfo [value=" + (value & 0xFF) + ", name=" + name + ", replyDataLength=[" + minReplyDataLength
+				+ "-" + maxReplyDataLength + "], idempotent=" + idempotent + ", timeoutClass=" + timeoutClass + "]";
+	}
+	
+}
@@ -0,0 +1,101 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.github.pierrebeucher.cctalk4j.core.HeaderInfo.TimeoutClass;
+
+/**
+ * <p>Registry of {@link HeaderInfo} indexed by header byte, giving constant time
+ * access to the metadata of a header. The {@link #getDefault() default registry}
+ * describes the headers defined by <code>Header</code>, vendor-specific headers can be
+ * added to it with {@link #register(HeaderInfo)}.</p>
+ * <p>This class is thread safe.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class HeaderRegistry {
+	
+	private static final HeaderRegistry DEFAULT = standard();
+	
+	private final AtomicReferenceArray<HeaderInfo> infos;
+
+	/**
+	 * Create an empty registry.
+	 */
+	public HeaderRegistry() {
+		super();
+		this.infos = new AtomicReferenceArray<HeaderInfo>(256);
+	}
+	
+	/**
+	 * @return the registry used by devices unless specified otherwise
+	 */
+	public static HeaderRegistry getDefault(){
+		return DEFAULT;
+	}
+	
+	/**
+	 * @return a new registry describing the headers defined by <code>Header</code>
+	 */
+	public static HeaderRegistry standard(){
+		HeaderRegistry r = new HeaderRegistry();
+		r.register(HeaderInfo.fixed(Header.SIMPLE_POLL, 0, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.range(Header.REQUEST_MANUFACTURER_ID, 1, AbstractMessage.MAX_DATA_LENGTH, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.range(Header.REQUEST_EQUIPMENT_CATEGORY_ID, 1, AbstractMessage.MAX_DATA_LENGTH, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.range(Header.REQUEST_PRODUCT_CODE, 1, AbstractMessage.MAX_DATA_LENGTH, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.fixed(Header.REQUEST_SERIAL_NUMBER, 3, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.range(Header.PERFORM_SELF_CHECK, 1, 2, true, TimeoutClass.LONG));
+		r.register(HeaderInfo.fixed(Header.MODIFY_INHIBIT_STATUS, 0, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.fixed(Header.REQUEST_INHIBIT_STATUS, 2, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.fixed(Header.MODIFY_MASTER_INHIBIT_STATUS, 0, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.fixed(Header.REQUEST_MASTER_INHIBIT_STATUS, 1, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.range(Header.REQUEST_BUILD_CODE, 1, AbstractMessage.MAX_DATA_LENGTH, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.fixed(Header.READ_BUFFERED_BILL_EVENTS, 11, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.fixed(Header.MODIFY_BILL_ID, 0, true, TimeoutClass.NORMAL));
+		r.register(HeaderInfo.fixed(Header.REQUEST_BILL_ID, 7, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.fixed(Header.REQUEST_COUNTRY_SCALING_FACTOR, 3, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.range(Header.ROUTE_BILL, 0, 1, false, TimeoutClass.LONG));
+		r.register(HeaderInfo.fixed(Header.MODIFY_BILL_OPERATING_MODE, 0, true, TimeoutClass.SHORT));
+		r.register(HeaderInfo.fixed(Header.REQUEST_BILL_OPERATING_MODE, 1, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.range(Header.REQUEST_CURRENCY_REVISION, 1, AbstractMessage.MAX_DATA_LENGTH, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.variable(Header.REQUEST_ENCRYPTION_SUPPORT, true, TimeoutClass.SHORT));
+		
+		r.register(HeaderInfo.variable(Header.NONE, false, TimeoutClass.NORMAL));
+		return r;
+	}
+	
+	/**
+	 * Register the given header metadata, replacing any metadata
+	 * registered for the same header byte.
+	 * @param info metadata to register
+	 */
+	public void register(HeaderInfo info){
+		infos.set(info.getValue() & 0xFF, info);
+	}
+	
+	/**
+	 * @param value header byte
+	 * @return metadata of the given header, null if not registered
+	 */
+	public HeaderInfo get(byte value){
+		return infos.get(value & 0xFF);
+	}
+	
+	/**
+	 * @param header header
+	 * @return metadata of the given header, null if not registered
+	 */
+	public HeaderInfo get(Header header){
+		return get(header.getValue());
+	}
+	
+}
@@ -1,5 +1,7 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
+import java.nio.ByteBuffer;
+
 /**
  * <p>A <code>Message</code> is the representation of a ccTalk message as defined
  * in ccTalk specification <i>Message structure</i>. It is composed of a destination,
@@ -15,6 +17,30 @@ public interface Message {
 	 */
 	public byte[] bytes();
 	
+	/**
+	 * @return the number of bytes of this message once encoded,
+	 * i.e. the length of the array returned by {@link #bytes()}
+	 */
+	public int length();
+	
+	/**
+	 * Write this message bytes into the given buffer, starting at its current position.
+	 * The buffer position is advanced by {@link #length()} bytes.
+	 * @param dst buffer to write into
+	 * @return number of bytes written
+	 * @throws java.nio.BufferOverflowException if the buffer remaining space is lower than {@link #length()}
+	 */
+	public int encodeTo(ByteBuffer dst);
+	
+	/**
+	 * Write this message bytes into the given array, starting at <code>off</code>.
+	 * @param dst array to write into
+	 * @param off offset of the first byte to write
+	 * @return number of bytes written
+	 * @throws IndexOutOfBoundsException if the array cannot hold {@link #length()} bytes from <code>off</code>
+	 */
+	public int encodeTo(byte[] dst, int off);
+	
 	/**
 	 * @return an Hexadecimal String representation of this message.
 	 */
@@ -44,5 +70,17 @@ public interface Message {
 	 * @return the data array contained in this message.
 	 */
 	public byte[] getDataBytes();
+	
+	/**
+	 * @return the number of data bytes contained in this message
+	 */
+	public int getDataLength();
+	
+	/**
+	 * @param i index of the data byte, starting at 0
+	 * @return the ith data byte
+	 * @throws IndexOutOfBoundsException if <code>i</code> is not lower than {@link #getDataLength()}
+	 */
+	public byte getDataByte(int i) throws IndexOutOfBoundsException;
 
 }
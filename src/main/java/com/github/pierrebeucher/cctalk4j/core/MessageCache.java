@@ -0,0 +1,175 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+/**
+ * <p>Cache of messages sent repeatedly with the same content, such as simple poll,
+ * event buffer reads or inhibit status requests. Messages are keyed by
+ * message type, destination, source, header and data, so a cache hit returns
+ * an already built message, its checksum already calculated.</p>
+ * <p>Only messages with at most {@link #MAX_CACHED_DATA_LENGTH} data bytes are cached:
+ * other messages are built on each call. Once the cache is full, new messages are
+ * built but not cached anymore.</p>
+ * <p>This class is thread safe.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class MessageCache {
+
+	/**
+	 * Default maximum number of cached messages
+	 */
+	public static final int DEFAULT_CAPACITY = 512;
+
+	/**
+	 * Maximum number of data bytes for a message to be cached
+	 */
+	public static final int MAX_CACHED_DATA_LENGTH = 4;
+
+	/**
+	 * Maximum message type value which can be part of a cache key
+	 */
+	private static final int MAX_MESSAGE_TYPE = 7;
+
+	/**
+	 * Keys of cached messages, 0 marking an empty slot
+	 */
+	private final long[] keys;
+
+	private final Message[] messages;
+
+	private final int capacity;
+
+	private int size;
+
+	private long hitCount;
+
+	private long missCount;
+
+	/**
+	 * Create a cache with {@link #DEFAULT_CAPACITY}.
+	 */
+	public MessageCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity maximum number of cached messages
+	 */
+	public MessageCache(int capacity) {
+		super();
+		if(capacity <= 0){
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		//keep the table at most half full for short probe sequences
+		int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		this.keys = new long[tableSize];
+		this.messages = new Message[tableSize];
+		this.capacity = capacity;
+		this.size = 0;
+	}
+
+	/**
+	 * @param messageType one of the <code>MessagePort.MESSAGE_TYPE</code> constants
+	 * @param data message data
+	 * @return true if a message of the given type and data can be cached
+	 */
+	public static boolean isCacheable(int messageType, byte[] data){
+		return messageType > 0 && messageType <= MAX_MESSAGE_TYPE
+				&& data.length <= MAX_CACHED_DATA_LENGTH;
+	}
+
+	/**
+	 * Return the cached message for the given content, building and caching
+	 * it if needed. The given data are copied before being cached.
+	 * @param messageType one of the <code>MessagePort.MESSAGE_TYPE</code> constants
+	 * @param destination message destination
+	 * @param source message source, ignored by message types without source
+	 * @param header message header
+	 * @param data message data
+	 * @return message for the given content
+	 * @throws IllegalArgumentException if message type is unknown
+	 */
+	public Message get(int messageType, byte destination, byte source, byte header, byte[] data)
+			throws IllegalArgumentException {
+		if(!isCacheable(messageType, data)){
+			return MessageFactory.message(messageType, destination, source, header, data);
+		}
+
+		long key = key(messageType, destination, source, header, data);
+		synchronized (this) {
+			int mask = keys.length - 1;
+			int i = hash(key) & mask;
+			while(keys[i] != 0){
+				if(keys[i] == key){
+					hitCount++;
+					return messages[i];
+				}
+				i = (i + 1) & mask;
+			}
+
+			missCount++;
+			Message m = MessageFactory.message(messageType, destination, source, header, data.clone());
+			if(size < capacity){
+				keys[i] = key;
+				messages[i] = m;
+				size++;
+			}
+			return m;
+		}
+	}
+
+	/**
+	 * Pack the message content into a non-zero key: message type (3 bits), destination,
+	 * source and header (8 bits each), data length (3 bits) and up to 4 data bytes.
+	 */
+	private static long key(int messageType, byte destination, byte source, byte header, byte[] data){
+		long key = messageType;
+		key = (key << 8) | (destination & 0xFF);
+		key = (key << 8) | (source & 0xFF);
+		key = (key << 8) | (header & 0xFF);
+		key = (key << 3) | data.length;
+		for(int i=0; i<MAX_CACHED_DATA_LENGTH; i++){
+			key = (key << 8) | (i < data.length ? data[i] & 0xFF : 0);
+		}
+		return key;
+	}
+
+	private static int hash(long key){
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Remove all cached messages.
+	 */
+	public synchronized void clear(){
+		for(int i=0; i<keys.length; i++){
+			keys[i] = 0;
+			messages[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * @return number of cached messages
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of calls to {@link #get(int, byte, byte, byte, byte[])} which returned a cached message
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return number of calls to {@link #get(int, byte, byte, byte, byte[])} which built a cacheable message
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+}
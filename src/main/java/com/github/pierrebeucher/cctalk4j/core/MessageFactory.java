@@ -61,4 +61,27 @@ public class MessageFactory {
 		return new SimpleChecksumMessage(destination, source, header.getValue(), data);
 	}
 	
+	/**
+	 * Create a new message of the given type. The source is ignored
+	 * by message types without source byte.
+	 * @param messageType one of the <code>MessagePort.MESSAGE_TYPE</code> constants
+	 * @param destination message's destination
+	 * @param source message's source
+	 * @param header message's header
+	 * @param data message's data payload
+	 * @return created message
+	 * @throws IllegalArgumentException if message type is unknown
+	 */
+	public static Message message(int messageType, byte destination, byte source, byte header, byte[] data)
+			throws IllegalArgumentException {
+		switch(messageType){
+			case MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM:
+				return new CRCChecksumMessage(destination, header, data);
+			case MessagePort.MESSAGE_TYPE_STANDARD_CHECKSUM:
+				return new SimpleChecksumMessage(destination, source, header, data);
+			default:
+				throw new IllegalArgumentException("Unknown message type " + messageType);
+		}
+	}
+	
 }
@@ -14,6 +14,15 @@ public interface MessageParser {
 	 */
 	public void setMessageBytes(byte[] messageBytes);
 	
+	/**
+	 * Set the message bytes to parse as a region of the given array.
+	 * The bytes are not copied.
+	 * @param messageBytes array containing the message bytes
+	 * @param offset offset of the message first byte
+	 * @param length message length
+	 */
+	public void setMessageBytes(byte[] messageBytes, int offset, int length);
+	
 	/**
 	 * Parse the given bytes into a <code>Message</code>
 	 * @param bytes bytes to parse
@@ -22,6 +31,24 @@ public interface MessageParser {
 	 */
 	public Message parse() throws MessageParsingException;
 	
+	/**
+	 * Validate the message bytes (length and checksum) and wrap the given view
+	 * around them, without copying them nor creating a <code>Message</code>.
+	 * The view can be reused across parsings.
+	 * @param view view to wrap around the parsed bytes
+	 * @throws MessageParsingException if the message is invalid
+	 */
+	public void parseInto(MessageView view) throws MessageParsingException;
+	
+	/**
+	 * Check the message checksum against its content. The message must have
+	 * the minimum message length, but its data length byte is not checked
+	 * against the actual number of data bytes.
+	 * @return true if checksum matches the message content
+	 * @throws MessageParsingException if the message is shorter than the minimum message length
+	 */
+	public boolean isChecksumValid() throws MessageParsingException;
+	
 	/**
 	 * Extract the header byte from the message.
 	 * @return
@@ -52,6 +52,19 @@ public interface MessagePort {
 	 */
 	public Message read(int timeout) throws MessagePortException, MessageParsingException;
 	
+	/**
+	 * Try to read a single message from this port until a timeout occur, expecting a message
+	 * with the given number of data bytes. The expected length is a hint allowing to read the
+	 * whole message at once: messages of any length are still read.
+	 * @param timeout time to wait for a message before timeout
+	 * @param expectedDataLength expected number of data bytes, {@link HeaderInfo#VARIABLE_LENGTH} if unknown
+	 * @return the read message
+	 * @throws MessagePortException if no message is available, or an error occured reading
+	 * the message
+	 * @throws MessageParsingException if read message cannot be parsed (incorrect checksum, incorrect length...)
+	 */
+	public Message read(int timeout, int expectedDataLength) throws MessagePortException, MessageParsingException;
+	
 	/**
 	 * Reset any input buffer that may exists.
 	 * @throws SerialPortException 
@@ -63,4 +76,13 @@ public interface MessagePort {
 	 */
 	public void resetOutputBuffer() throws SerialPortException;
 	
+	/**
+	 * Indicate whether this port removes by itself any byte received before the reply
+	 * to the last written message, such as the local echo of a single-wire bus and leftover
+	 * bytes of previous exchanges. If so, there is no need to reset the input
+	 * buffer before a request.
+	 * @return true if this port cancels the echo of written messages
+	 */
+	public boolean isEchoCancelling();
+	
 }
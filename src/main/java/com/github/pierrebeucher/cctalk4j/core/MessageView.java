@@ -0,0 +1,177 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>A read-only view over the bytes of a ccTalk message held in a
+ * <code>byte[]</code> or <code>ByteBuffer</code> region. Destination, header and data
+ * are read by offset from the underlying bytes, without copying them.</p>
+ * <p>A view is a flyweight: it can be re-wrapped around another region
+ * at any time, typically by {@link MessageParser#parseInto(MessageView)}
+ * on each read. It does not own the underlying bytes, which must not be modified
+ * while the view is used. A view is not thread safe.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class MessageView {
+
+	private byte[] array;
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+
+	/**
+	 * Create an empty view, which must be wrapped around a message before use.
+	 */
+	public MessageView() {
+		super();
+	}
+
+	/**
+	 * Wrap this view around <code>length</code> bytes of the given array,
+	 * starting at <code>offset</code>.
+	 * @param bytes message bytes
+	 * @param offset offset of the message first byte
+	 * @param length message length
+	 * @return this view
+	 * @throws IndexOutOfBoundsException if the region is out of array bounds
+	 */
+	public MessageView wrap(byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+		if(offset < 0 || length < 0 || offset + length > bytes.length){
+			throw new IndexOutOfBoundsException("Invalid region [" + offset + ", " + (offset + length) + "[ for array of length " + bytes.length);
+		}
+		this.array = bytes;
+		this.buffer = null;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	/**
+	 * Wrap this view around the remaining bytes of the given buffer, from its
+	 * position to its limit. The buffer position and limit are not modified.
+	 * @param buffer buffer containing the message
+	 * @return this view
+	 */
+	public MessageView wrap(ByteBuffer buffer){
+		if(buffer.hasArray()){
+			return wrap(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		this.array = null;
+		this.buffer = buffer;
+		this.offset = buffer.position();
+		this.length = buffer.remaining();
+		return this;
+	}
+
+	/**
+	 * Release the wrapped bytes.
+	 */
+	public void clear(){
+		this.array = null;
+		this.buffer = null;
+		this.offset = 0;
+		this.length = 0;
+	}
+
+	/**
+	 * @return true if this view does not wrap any message
+	 */
+	public boolean isEmpty(){
+		return length == 0;
+	}
+
+	/**
+	 * Read the byte at the given index of the message.
+	 * @param index index relative to the message first byte
+	 * @return read byte
+	 * @throws IndexOutOfBoundsException if index is out of the message bounds
+	 */
+	public byte get(int index) throws IndexOutOfBoundsException {
+		if(index < 0 || index >= length){
+			throw new IndexOutOfBoundsException("Index " + index + " out of message of length " + length);
+		}
+		return array != null ? array[offset + index] : buffer.get(offset + index);
+	}
+
+	/**
+	 * @return total length of the message
+	 */
+	public int length(){
+		return length;
+	}
+
+	public byte destination(){
+		return get(0);
+	}
+
+	/**
+	 * @return the data length byte, as an unsigned integer
+	 */
+	public int dataLength(){
+		return get(1) & 0xFF;
+	}
+
+	public byte header(){
+		return get(3);
+	}
+
+	/**
+	 * @param i index of the data byte, starting at 0
+	 * @return the ith data byte
+	 * @throws IndexOutOfBoundsException if <code>i</code> is not lower than {@link #dataLength()}
+	 */
+	public byte dataByte(int i) throws IndexOutOfBoundsException {
+		if(i < 0 || i >= dataLength()){
+			throw new IndexOutOfBoundsException("Data index " + i + " out of data length " + dataLength());
+		}
+		return get(4 + i);
+	}
+
+	/**
+	 * Copy the data bytes into the given array.
+	 * @param dst destination array
+	 * @param off offset in the destination array
+	 * @return number of bytes copied
+	 */
+	public int copyData(byte[] dst, int off){
+		int dataLength = dataLength();
+		if(array != null){
+			System.arraycopy(array, offset + 4, dst, off, dataLength);
+		} else {
+			for(int i=0; i<dataLength; i++){
+				dst[off + i] = buffer.get(offset + 4 + i);
+			}
+		}
+		return dataLength;
+	}
+
+	/**
+	 * @return a copy of the data bytes
+	 */
+	public byte[] dataBytes(){
+		byte[] data = new byte[dataLength()];
+		copyData(data, 0);
+		return data;
+	}
+
+	/**
+	 * @return an Hexadecimal String representation of the viewed message.
+	 */
+	public String getHexMessage(){
+		StringBuilder strBuilder = new StringBuilder(3 * length);
+		for(int i=0; i<length; i++){
+			if(i > 0){
+				strBuilder.append(" ");
+			}
+			strBuilder.append(Utils.byteToHex(get(i)));
+		}
+		return strBuilder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "MessageView [" + getHexMessage() + "]";
+	}
+
+}
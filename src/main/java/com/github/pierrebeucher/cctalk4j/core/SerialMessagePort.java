@@ -3,11 +3,26 @@ package com.github.pierrebeucher.cctalk4j.core;
 import com.github.pierrebeucher.cctalk4j.serial.JsscSerialPort;
 import com.github.pierrebeucher.cctalk4j.serial.SerialPort;
 import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortTimeoutException;
 
 /**
- * A <code>MessagePort</code> using a serial port for communication. 
+ * <p>A <code>MessagePort</code> using a serial port for communication. 
  * The serial port is configured to respect ccTalk specifications default
- * parameters: 9600 baud rate, 8 data bits, 1 stop bit, no parity.
+ * parameters: 9600 baud rate, 8 data bits, 1 stop bit, no parity.</p>
+ * <p>Received bytes are decoded by a {@link FrameDecoder}: if the bytes of a candidate message
+ * stop arriving for more than {@link #INTER_BYTE_TIMEOUT} milliseconds, the candidate is considered
+ * corrupted and decoding resynchronises on the next bytes.</p>
+ * <p>On a single-wire ccTalk bus, the host receives the echo of every byte it writes. Enable
+ * echo cancellation with {@link #setEchoCancellation(boolean)} so that the echo, and any byte
+ * received before it, is removed from received bytes. Input does not need to be purged
+ * before each request in this mode.</p>
+ * <p>When the data length of the message to read is known, such as a reply whose length is given by
+ * a {@link HeaderRegistry}, the whole message is first requested from the serial port at once. If it is
+ * not received shortly, or is shorter, decoding falls back to reading the message length first.</p>
+ * <p>Written frames, received frames, rejected frames and read timeouts are recorded
+ * in a {@link WireTrace}, which can be dumped when an incident happens.</p>
+ * <p>Reads and writes may happen concurrently from different threads, for instance 
+ * when a read is started before writing a request.</p>
  * @author Pierre Beucher
  *
  */
@@ -19,30 +34,87 @@ public class SerialMessagePort implements MessagePort{
 	public static final int DEFAULT_PARITY = SerialPort.PARIY_NONE;
 	public static final int DEFAULT_FLOW_CONTROL = SerialPort.FLOWCONTROL_NONE;
 	
+	/**
+	 * Maximum time between two bytes of a message, as per ccTalk specifications
+	 */
+	public static final int INTER_BYTE_TIMEOUT = 50;
+	
 	private SerialPort serialPort;
 	
 	private MessageParser parser;
 	
+	private FrameDecoder decoder;
+	
+	private final MessageView view = new MessageView();
+	
+	private volatile EchoCanceller echoCanceller;
+	
+	private volatile WireTrace wireTrace = new WireTrace();
+	
+	/**
+	 * Destination of the last written message, used as device address
+	 * of the frames received afterward
+	 */
+	private volatile byte lastDestination;
+	
+	private final Object readLock = new Object();
+	
+	/**
+	 * Length of the whole message expected by the current read, 0 if unknown
+	 * or if the message could not be read at once
+	 */
+	private int wholeMessageLength;
+	
+	private final Object writeLock = new Object();
+	
+	/**
+	 * Write buffers indexed by message length, reused across writes so that
+	 * writing a message does not produce garbage once warmed up. The underlying
+	 * serial port only writes whole arrays, hence one buffer per length.
+	 */
+	private final byte[][] writeBuffers = new byte[AbstractMessage.MAX_LENGTH + 1][];
+	
 	public SerialMessagePort(String serialPortName, int messageType){
 		createSerialPort(serialPortName);
+		setParser(createParser(messageType));
+	}
+	
+	public SerialMessagePort(String serialPortName, MessageParser parser) {
+		createSerialPort(serialPortName);
+		setParser(parser);
+	}
+	
+	/**
+	 * Create a port using an already configured serial port.
+	 * @param serialPort serial port to use
+	 * @param messageType one of the <code>MESSAGE_TYPE</code> constants
+	 */
+	public SerialMessagePort(SerialPort serialPort, int messageType) {
+		this.serialPort = serialPort;
+		setParser(createParser(messageType));
+	}
+	
+	/**
+	 * Create a port using an already configured serial port.
+	 * @param serialPort serial port to use
+	 * @param parser parser for the read messages
+	 */
+	public SerialMessagePort(SerialPort serialPort, MessageParser parser) {
+		this.serialPort = serialPort;
+		setParser(parser);
+	}
+	
+	private static MessageParser createParser(int messageType){
 		switch(messageType){
 			case MESSAGE_TYPE_CRC16_CHECKSUM:
-				setParser(new CRCChecksumMessageParser());
-				break;
+				return new CRCChecksumMessageParser();
 			case MESSAGE_TYPE_STANDARD_CHECKSUM:
-				throw new RuntimeException("Not available yet");
-				//setParser(new StandardChecksumMessageParser());
-				//break;
+				return new SimpleChecksumMessageParser();
 			default:
 				throw new IllegalArgumentException("Unknown message type: " + messageType);
 		}
 	}
 	
-	public SerialMessagePort(String serialPortName, MessageParser parser) {
-		createSerialPort(serialPortName);
-		setParser(parser);
-	}
-	
 	private void createSerialPort(String portName){
 		this.serialPort = new JsscSerialPort(portName, 
 				DEFAULT_BAUD_RATE, DEFAULT_DATA_BITS, DEFAULT_STOP_BITS, DEFAULT_FLOW_CONTROL, DEFAULT_PARITY,
@@ -51,6 +123,16 @@ public class SerialMessagePort implements MessagePort{
 	
 	protected void setParser(MessageParser parser){
 		this.parser = parser;
+		this.decoder = new FrameDecoder(parser);
+		this.decoder.setRejectListener(new FrameDecoder.RejectListener() {
+			@Override
+			public void frameRejected(byte[] bytes, int off, int len) {
+				WireTrace trace = wireTrace;
+				if(trace != null){
+					trace.record(WireTrace.Direction.RX, WireTrace.Outcome.CHECKSUM_ERROR, lastDestination, bytes, off, len);
+				}
+			}
+		});
 	}
 	
 	public void open() throws MessagePortException{
@@ -82,37 +164,154 @@ public class SerialMessagePort implements MessagePort{
 	}
 	
 	public void write(Message m) throws MessagePortException{
-		try {
-			if(!serialPort.writeBytes(m.bytes())){
-				throw new MessagePortException("Error during write, writeBytes() returned false.");
+		synchronized (writeLock) {
+			try {
+				byte[] bytes = encode(m);
+				EchoCanceller canceller = echoCanceller;
+				if(canceller != null){
+					canceller.expect(bytes, 0, bytes.length);
+				}
+				lastDestination = m.getDestination();
+				if(!serialPort.writeBytes(bytes)){
+					throw new MessagePortException("Error during write, writeBytes() returned false.");
+				}
+				WireTrace trace = wireTrace;
+				if(trace != null){
+					trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, m.getDestination(), bytes, 0, bytes.length);
+				}
+			} catch (SerialPortException e) {
+				throw new MessagePortException(e);
 			}
-		} catch (SerialPortException e) {
-			throw new MessagePortException(e);
 		}
 	}
 
+	/**
+	 * Encode the given message into the reusable write buffer matching its length.
+	 * @param m message to encode
+	 * @return buffer containing the encoded message
+	 */
+	private byte[] encode(Message m){
+		int length = m.length();
+		byte[] buffer = writeBuffers[length];
+		if(buffer == null){
+			buffer = new byte[length];
+			writeBuffers[length] = buffer;
+		}
+		m.encodeTo(buffer, 0);
+		return buffer;
+	}
+
 	public Message read(int timeout) throws MessagePortException, MessageParsingException {
+		return read(timeout, HeaderInfo.VARIABLE_LENGTH);
+	}
+
+	public Message read(int timeout, int expectedDataLength) throws MessagePortException, MessageParsingException {
+		synchronized (readLock) {
+			long deadline = System.currentTimeMillis() + timeout;
+			wholeMessageLength = expectedDataLength >= 0 ? AbstractMessage.MIN_LENGTH + expectedDataLength : 0;
+			EchoCanceller canceller = echoCanceller;
+			try {
+				while(!decoder.next(view)){
+					readChunk(deadline, canceller);
+				}
+				
+				WireTrace trace = wireTrace;
+				if(trace != null){
+					trace.record(WireTrace.Direction.RX, WireTrace.Outcome.OK, lastDestination, view);
+				}
+				
+				if(canceller != null){
+					canceller.replyReceived();
+				}
+				
+				//parser is left set on the decoded frame
+				return parser.parse();
+			} catch (SerialPortException e) {
+				throw new MessagePortException(e);
+			} 
+		}
+	}
+	
+	/**
+	 * Read the bytes needed by the decoder to complete its current candidate frame,
+	 * or the whole expected message if no candidate has started yet.
+	 * If a candidate has started but its bytes stop arriving, it is skipped
+	 * so that decoding resynchronises on the next bytes.
+	 * @param deadline time at which the read times out
+	 * @param canceller echo canceller filtering read bytes, may be null
+	 * @throws MessagePortTimeoutException if deadline is reached before a frame is decoded
+	 */
+	private void readChunk(long deadline, EchoCanceller canceller) throws SerialPortException, MessagePortTimeoutException{
+		long remaining = deadline - System.currentTimeMillis();
+		if(remaining <= 0){
+			timeout(canceller, null);
+		}
+		
+		int needed = decoder.bytesNeeded();
+		boolean wholeMessage = wholeMessageLength > 0 && decoder.pending() == 0;
+		if(wholeMessage){
+			needed = wholeMessageLength;
+		}
+		if(canceller != null && canceller.isEchoPending()){
+			needed += canceller.remaining();
+		} else if(canceller != null && decoder.pending() == 0){
+			//no reply started yet, at least expect the shortest message echo
+			needed = Math.max(needed, AbstractMessage.MIN_LENGTH);
+		}
+		
+		boolean partial = decoder.pending() > 0;
+		int wait = (int) (partial || wholeMessage ? Math.min(remaining, interByteWait(needed)) : remaining);
 		try {
-			//try to read 2 bytes (dest and data length)
-			//then read more bytes according to data length
-			byte[] destAndLength = serialPort.readBytes(2, timeout);
-			byte dataLength = destAndLength[1];
-			
-			//read the remaining message: data, header and checksum/source bytes
-			//no timeout as the remaining bytes should be available
-			byte[] remaining = serialPort.readBytes(dataLength + 3, timeout);
-			
-			parser.setMessageBytes(Utils.concat(destAndLength, remaining));
-			return parser.parse();
-		} catch (SerialPortException e) {
-			throw new MessagePortException(e);
-		} 
+			byte[] bytes = serialPort.readBytes(needed, wait);
+			int replyOffset = 0;
+			if(canceller != null){
+				replyOffset = canceller.filter(bytes, 0, bytes.length);
+				if(canceller.pollEchoCompleted()){
+					decoder.reset();
+				}
+			}
+			decoder.feed(bytes, replyOffset, bytes.length - replyOffset);
+		} catch (SerialPortTimeoutException e) {
+			if(wait >= remaining){
+				timeout(canceller, e);
+			} else if(wholeMessage){
+				//no byte consumed, read the message length first
+				wholeMessageLength = 0;
+			} else {
+				decoder.skip();
+			}
+		}
+	}
+	
+	private void timeout(EchoCanceller canceller, Throwable cause) throws MessagePortTimeoutException{
+		WireTrace trace = wireTrace;
+		if(trace != null){
+			decoder.wrapPending(view);
+			trace.record(WireTrace.Direction.RX, WireTrace.Outcome.TIMEOUT, lastDestination, view);
+		}
+		decoder.reset();
+		if(canceller != null){
+			canceller.reset();
+		}
+		throw new MessagePortTimeoutException("No message received within timeout.", cause);
 	}
 	
+	/**
+	 * @param byteCount number of bytes to receive
+	 * @return maximum time to receive the given number of bytes
+	 * of a message being transmitted
+	 */
+	private static long interByteWait(int byteCount){
+		//10 bits per byte: start bit, 8 data bits, stop bit
+		return INTER_BYTE_TIMEOUT + (byteCount * 10L * 1000 + DEFAULT_BAUD_RATE - 1) / DEFAULT_BAUD_RATE;
+	}
 
 	@Override
 	public void resetInputBuffer() throws SerialPortException {
-		this.serialPort.resetInputBuffer();
+		synchronized (readLock) {
+			this.serialPort.resetInputBuffer();
+			this.decoder.reset();
+		}
 	}
 
 	@Override
@@ -120,6 +319,37 @@ public class SerialMessagePort implements MessagePort{
 		this.serialPort.resetOutputBuffer();
 	}
 
+	/**
+	 * Enable or disable the cancellation of the local echo, to use on single-wire
+	 * ccTalk buses. Must not be enabled if written bytes are not echoed, otherwise
+	 * replies are dropped while waiting for the echo.
+	 * @param enabled true to enable echo cancellation
+	 */
+	public void setEchoCancellation(boolean enabled){
+		this.echoCanceller = enabled ? new EchoCanceller() : null;
+	}
+	
+	@Override
+	public boolean isEchoCancelling() {
+		return echoCanceller != null;
+	}
+	
+	/**
+	 * @return trace of the frames exchanged on this port, null if disabled
+	 */
+	public WireTrace getWireTrace() {
+		return wireTrace;
+	}
+	
+	/**
+	 * Set the trace recording frames exchanged on this port. A trace
+	 * keeping the last {@link WireTrace#DEFAULT_CAPACITY} frames is set by default.
+	 * @param wireTrace trace to use, or null to disable tracing
+	 */
+	public void setWireTrace(WireTrace wireTrace) {
+		this.wireTrace = wireTrace;
+	}
+
 	/**
 	 * 
 	 * @return the underlying <code>jssc.SerialPort</code> used 
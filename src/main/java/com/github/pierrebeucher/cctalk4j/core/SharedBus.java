@@ -0,0 +1,551 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
+
+/**
+ * <p>A ccTalk multi-drop bus: several devices of different addresses sharing a single
+ * physical <code>MessagePort</code>. Each device uses its own <code>MessagePort</code>
+ * given by {@link #port(byte)}, and the bus serialises their transactions.</p>
+ * <p>A transaction is a written request followed by the read of its reply. Writing
+ * a request waits until the bus is granted to the writing address, which keeps it until
+ * the reply is read (or the read fails). Requests of an address are granted in the order
+ * they were written, and addresses waiting for the bus are granted in turn. An address
+ * having several requests waiting, such as requests of a poller and of another thread,
+ * performs up to its weight ({@link #setWeight(byte, int)}, 1 by default) transactions
+ * before the next waiting address is granted.</p>
+ * <p>Resetting the buffers of an address port does not affect the transactions of other
+ * addresses: the physical port buffers are reset once the bus is granted to the address,
+ * right before writing its next request.</p>
+ * <p>Every written request must be followed by a read, as done by <code>Device</code>s
+ * for any ccTalk request. A bus granted to an address not reading the reply of its
+ * request is released after {@link #getMaxHoldTime()} ms. A reply being read keeps
+ * the bus until the read ends, whatever its timeout.</p>
+ * <p>Example usage:
+ * <pre>
+ * {@code
+ * SharedBus bus = new SharedBus(new SerialMessagePort("COM1", new CRCChecksumMessageParser()));
+ * BillValidator validator = DeviceFactory.billValidatorSharedBusCRC(bus, (byte) 40);
+ * BillValidator other = DeviceFactory.billValidatorSharedBusCRC(bus, (byte) 41);
+ * }
+ * </pre>
+ * </p>
+ * @author Pierre Beucher
+ *
+ */
+public class SharedBus {
+
+	/**
+	 * Default time after which a bus granted to an address which did not read
+	 * the reply of its request is released, in ms
+	 */
+	public static final long DEFAULT_MAX_HOLD_TIME = 2000;
+
+	private static final Logger logger = LoggerFactory.getLogger(SharedBus.class);
+
+	private final MessagePort port;
+
+	private final ReentrantLock lock;
+
+	/*
+	 * Signaled when the bus is granted or released, or a request written
+	 */
+	private final Condition changed;
+
+	/*
+	 * Address ports, granted in turn
+	 */
+	private final List<AddressPort> ports;
+
+	/*
+	 * Index of the next port to be granted the bus in its turn
+	 */
+	private int nextPort;
+
+	/*
+	 * Transaction holding the bus, null if the bus is free
+	 */
+	private Transaction current;
+
+	/*
+	 * Number of consecutive transactions granted to the port of the current transaction
+	 */
+	private int consecutiveGrants;
+
+	private int openCount;
+
+	private long maxHoldTime;
+
+	private long forcedReleaseCount;
+
+	/**
+	 * @param port physical port shared by devices
+	 */
+	public SharedBus(MessagePort port) {
+		super();
+		this.port = port;
+		this.lock = new ReentrantLock();
+		this.changed = lock.newCondition();
+		this.ports = new ArrayList<AddressPort>();
+		this.maxHoldTime = DEFAULT_MAX_HOLD_TIME;
+	}
+
+	/**
+	 * Return the port used by the device of the given address, created on first call.
+	 * @param address device address
+	 * @return port of the given address
+	 */
+	public MessagePort port(byte address){
+		return addressPort(address);
+	}
+
+	/**
+	 * Return the physical port of the given port: the port shared by the bus
+	 * if the given port is the port of an address of a <code>SharedBus</code>,
+	 * the given port otherwise. Used to key per-port resources, such as threads,
+	 * so that devices on a bus share them.
+	 * @param port port of a device
+	 * @return physical port of the given port
+	 */
+	public static MessagePort physicalPort(MessagePort port){
+		while(port instanceof AddressPort){
+			port = ((AddressPort) port).bus().port;
+		}
+		return port;
+	}
+
+	private AddressPort addressPort(byte address){
+		lock.lock();
+		try {
+			for(AddressPort p : ports){
+				if(p.address == address){
+					return p;
+				}
+			}
+			AddressPort p = new AddressPort(address);
+			ports.add(p);
+			return p;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set the number of consecutive transactions of an address granted while
+	 * other addresses are waiting for the bus.
+	 * @param address device address
+	 * @param weight number of consecutive transactions, at least 1
+	 */
+	public void setWeight(byte address, int weight){
+		if(weight < 1){
+			throw new IllegalArgumentException("Weight must be at least 1.");
+		}
+		AddressPort p = addressPort(address);
+		lock.lock();
+		try {
+			p.weight = weight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getWeight(byte address){
+		AddressPort p = addressPort(address);
+		lock.lock();
+		try {
+			return p.weight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @param address device address
+	 * @return number of transactions granted to the given address
+	 */
+	public long getTransactionCount(byte address){
+		AddressPort p = addressPort(address);
+		lock.lock();
+		try {
+			return p.transactionCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return number of times the bus was released because an address did not read
+	 * the reply of its request in time
+	 */
+	public long getForcedReleaseCount() {
+		lock.lock();
+		try {
+			return forcedReleaseCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getMaxHoldTime() {
+		return maxHoldTime;
+	}
+
+	/**
+	 * @param maxHoldTime time after which a bus granted to an address which did not read
+	 * the reply of its request is released, in ms
+	 */
+	public void setMaxHoldTime(long maxHoldTime) {
+		this.maxHoldTime = maxHoldTime;
+	}
+
+	/**
+	 *
+	 * @return physical port shared by devices
+	 */
+	public MessagePort getMessagePort() {
+		return port;
+	}
+
+	/*
+	 * A request granted the bus, until its reply is read
+	 */
+	private static final class Transaction {
+		final AddressPort port;
+		boolean granted;
+		boolean written;
+		long writtenTime;
+		//reply being read, never released before the read ends
+		boolean reading;
+
+		Transaction(AddressPort port) {
+			this.port = port;
+		}
+	}
+
+	/*
+	 * Must be called holding the lock
+	 */
+	private Transaction acquire(AddressPort p) throws InterruptedException{
+		Transaction t = new Transaction(p);
+		p.waiting.add(t);
+		if(current == null){
+			grantNext(null);
+		}
+		try {
+			awaitGrant(t);
+		} catch (InterruptedException e) {
+			p.waiting.remove(t);
+			release(t);
+			throw e;
+		}
+		return t;
+	}
+	
+	/*
+	 * Must be called holding the lock
+	 */
+	private void awaitGrant(Transaction t) throws InterruptedException{
+		while(!t.granted){
+			if(current != null && current.written && !current.reading && current.port.readers == 0){
+				//the holder is not reading its reply
+				long remaining = current.writtenTime + TimeUnit.MILLISECONDS.toNanos(maxHoldTime) - System.nanoTime();
+				if(remaining <= 0){
+					logger.warn("Bus released as address {} did not read its reply in {} ms.", current.port.address, maxHoldTime);
+					forcedReleaseCount++;
+					if(current.port.pending == current){
+						current.port.pending = null;
+					}
+					release(current);
+				} else {
+					changed.awaitNanos(remaining);
+				}
+			} else {
+				changed.await();
+			}
+		}
+	}
+
+	/*
+	 * Must be called holding the lock
+	 */
+	private void release(Transaction t){
+		if(current == t){
+			current = null;
+			grantNext(t.port);
+		}
+	}
+
+	/*
+	 * Grant the bus to the next waiting transaction, if any, previous being
+	 * the port of the last transaction if any.
+	 * Must be called holding the lock.
+	 */
+	private void grantNext(AddressPort previous){
+		Transaction next = null;
+		if(previous != null && consecutiveGrants < previous.weight && !previous.waiting.isEmpty()){
+			next = previous.waiting.poll();
+			consecutiveGrants++;
+		} else {
+			for(int i=0; i<ports.size() && next == null; i++){
+				AddressPort p = ports.get((nextPort + i) % ports.size());
+				if(!p.waiting.isEmpty()){
+					next = p.waiting.poll();
+					nextPort = (ports.indexOf(p) + 1) % ports.size();
+					consecutiveGrants = 1;
+				}
+			}
+		}
+		if(next != null){
+			next.granted = true;
+			next.port.transactionCount++;
+			current = next;
+		}
+		changed.signalAll();
+	}
+
+	/*
+	 * Port of a single address
+	 */
+	private final class AddressPort implements MessagePort {
+
+		private final byte address;
+
+		/*
+		 * Requests waiting for the bus, in write order
+		 */
+		private final ArrayDeque<Transaction> waiting = new ArrayDeque<Transaction>();
+
+		/*
+		 * Written request whose reply has not been read yet
+		 */
+		private Transaction pending;
+
+		/*
+		 * Number of requests being written
+		 */
+		private int writers;
+
+		/*
+		 * Number of threads reading a reply
+		 */
+		private int readers;
+
+		private int weight = 1;
+
+		private long transactionCount;
+
+		private boolean open;
+
+		private boolean resetInput;
+
+		private boolean resetOutput;
+
+		AddressPort(byte address) {
+			this.address = address;
+		}
+
+		SharedBus bus(){
+			return SharedBus.this;
+		}
+
+		@Override
+		public void open() throws MessagePortException {
+			lock.lock();
+			try {
+				if(open){
+					return;
+				}
+				if(openCount == 0 && !port.isOpen()){
+					port.open();
+				}
+				openCount++;
+				open = true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void close() throws MessagePortException {
+			lock.lock();
+			try {
+				if(!open){
+					return;
+				}
+				open = false;
+				openCount--;
+				if(openCount == 0){
+					port.close();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			lock.lock();
+			try {
+				return open && port.isOpen();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isClosed() {
+			return !isOpen();
+		}
+
+		@Override
+		public void write(Message m) throws MessagePortException {
+			Transaction t;
+			boolean resetIn;
+			boolean resetOut;
+			lock.lock();
+			try {
+				//a new request supersedes a reply which was not read
+				if(pending != null){
+					Transaction stale = pending;
+					pending = null;
+					release(stale);
+				}
+				writers++;
+				try {
+					t = acquire(this);
+				} catch (InterruptedException e) {
+					writers--;
+					changed.signalAll();
+					throw new MessagePortException(e);
+				}
+				resetIn = resetInput;
+				resetOut = resetOutput;
+				resetInput = false;
+				resetOutput = false;
+			} finally {
+				lock.unlock();
+			}
+
+			//the bus is ours, nothing else is in flight
+			boolean written = false;
+			try {
+				if(resetIn){
+					port.resetInputBuffer();
+				}
+				if(resetOut){
+					port.resetOutputBuffer();
+				}
+				port.write(m);
+				written = true;
+			} catch (SerialPortException e) {
+				throw new MessagePortException(e);
+			} finally {
+				lock.lock();
+				try {
+					writers--;
+					if(written){
+						t.written = true;
+						t.writtenTime = System.nanoTime();
+						pending = t;
+					} else {
+						release(t);
+					}
+					changed.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		@Override
+		public Message read(int timeout) throws MessagePortException, MessageParsingException {
+			return read(timeout, HeaderInfo.VARIABLE_LENGTH);
+		}
+
+		/**
+		 * Wait for a request of this address to be written, then read its reply.
+		 * The timeout starts once the request is written.
+		 */
+		@Override
+		public Message read(int timeout, int expectedDataLength) throws MessagePortException, MessageParsingException {
+			Transaction t;
+			lock.lock();
+			try {
+				readers++;
+				try {
+					long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+					while(pending == null){
+						if(writers > 0){
+							changed.await();
+						} else if(remaining > 0){
+							remaining = changed.awaitNanos(remaining);
+						} else {
+							throw new MessagePortTimeoutException("No request written by address " + address + " after " + timeout + " ms.");
+						}
+					}
+				} catch (InterruptedException e) {
+					throw new MessagePortException(e);
+				} finally {
+					readers--;
+				}
+				t = pending;
+				t.reading = true;
+				pending = null;
+			} finally {
+				lock.unlock();
+			}
+
+			try {
+				return port.read(timeout, expectedDataLength);
+			} finally {
+				lock.lock();
+				try {
+					release(t);
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		@Override
+		public void resetInputBuffer() throws SerialPortException {
+			lock.lock();
+			try {
+				resetInput = true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void resetOutputBuffer() throws SerialPortException {
+			lock.lock();
+			try {
+				resetOutput = true;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public boolean isEchoCancelling() {
+			return port.isEchoCancelling();
+		}
+
+		@Override
+		public String toString() {
+			return "SharedBus.AddressPort [address=" + address + ", port=" + port + "]";
+		}
+	}
+}
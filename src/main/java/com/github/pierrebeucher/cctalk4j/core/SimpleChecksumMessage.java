@@ -1,10 +1,5 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
-import java.nio.ByteBuffer;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * <p>A <i>Standard Message Packets, Simple checksum</i> message, as described
  * in the ccTalk specifications. Such messages uses a standard checksum and contains:
@@ -26,75 +21,55 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class SimpleChecksumMessage extends AbstractMessage {
-
-	private Logger logger = LoggerFactory.getLogger(getClass());
-	
-	private byte source;
-	private byte checksum; 
 	
 	public SimpleChecksumMessage(byte destination, byte source, byte header, byte[] data) {
 		super(destination, header, data);
-		this.source = source;
-		this.checksum = calculateChecksum();
+		frame[2] = source;
+		frame[frame.length - 1] = calculateChecksum();
+	}
+	
+	/**
+	 * Create a message backed by an already validated frame, such as a
+	 * parsed message whose checksum has been checked.
+	 * @param frame message frame, which must not be modified afterward
+	 */
+	SimpleChecksumMessage(byte[] frame) {
+		super(frame);
 	}
 	
 	private byte calculateChecksum(){
 		//use an int to perform the 8bit addition of the message
 		//this int least significant bits represent our addition 
-		int intChecksum = Utils.byteToUnsignedInt(source) + Utils.byteToUnsignedInt(destination)
-			+ Utils.byteToUnsignedInt(header) + data.length;
-		for(byte b : data){
-			intChecksum = intChecksum + Utils.byteToUnsignedInt(b);
+		int intChecksum = 0;
+		for(int i=0; i<frame.length - 1; i++){
+			intChecksum += frame[i];
 		}
 		
-		// extract the least significant bits
-		ByteBuffer buf = ByteBuffer.allocate(4).putInt(intChecksum);
-		byte byteChecksum = buf.get(3);
-		byte finalChecksum = (byte)(256 - Utils.byteToUnsignedInt(byteChecksum));
-		
-		logger.debug("Checksum for {}: {}", this, finalChecksum);
-		
-		return finalChecksum;
-	}
-
-	public byte[] bytes() {
-		ByteBuffer buf = ByteBuffer.allocate(5 + data.length);
-		buf.put(destination);
-		buf.put(dataLength);
-		buf.put(source);
-		buf.put(header);
-		buf.put(data);
-		buf.put(checksum);
-		return buf.array();
+		// the least significant bits complement to 256, i.e. (256 - lsb) modulo 256
+		return (byte) -intChecksum;
 	}
 
 	public byte[] getChecksum() {
-		return new byte[]{ checksum };
+		return new byte[]{ frame[frame.length - 1] };
 	}
 
 	public byte getSource() {
-		return source;
+		return frame[2];
 	}
 
 	public String getHexMessage() {
-		StringBuilder strBuilder = new StringBuilder(20 + 2 * data.length);
-		strBuilder.append(Utils.byteToHex(destination));
-		strBuilder.append(Utils.byteToHex(dataLength));
-		strBuilder.append(Utils.byteToHex(source));
-		strBuilder.append(Utils.byteToHex(header));
-		strBuilder.append(Utils.bytesToHex(data));
-		strBuilder.append(Utils.byteToHex(checksum));
-		return strBuilder.toString();
+		return Utils.bytesToHex(frame);
 	}
 
 	@Override
 	public boolean equals(Object other) {
 		if (!(other instanceof SimpleChecksumMessage))return false;
-		SimpleChecksumMessage m = (SimpleChecksumMessage) other;
-		return super.equals(m) &&
-				m.checksum == this.checksum &&
-				m.source == this.source;
-				
+		return super.equals(other);
+	}
+	
+	@Override
+	public int hashCode() {
+		return super.hashCode();
 	}
 
 }
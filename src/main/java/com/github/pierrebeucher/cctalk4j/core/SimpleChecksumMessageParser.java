@@ -0,0 +1,54 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+public class SimpleChecksumMessageParser extends AbstractMessageParser
+		implements MessageParser {
+
+	public SimpleChecksumMessageParser() {
+		super();
+	}
+
+	public SimpleChecksumMessageParser(byte[] bytes) {
+		super(bytes);
+	}
+
+	/**
+	 *
+	 * @return the source byte from the byte representation of the parsed message
+	 */
+	public byte sourceByte(){
+		return bytes[offset + 2];
+	}
+
+	/**
+	 *
+	 * @return the checksum byte from the byte representation of the parsed message
+	 */
+	public byte checksumByte(){
+		return bytes[offset + length - 1];
+	}
+
+	/**
+	 * The 8-bit addition of all the message bytes, checksum included, must be zero.
+	 */
+	public boolean isChecksumValid() throws MessageParsingException {
+		checkMessageLength();
+		int sum = 0;
+		for(int i=offset; i<offset + length; i++){
+			sum += bytes[i];
+		}
+		return (sum & 0xFF) == 0;
+	}
+
+	@Override
+	protected Message doParse() throws MessageParsingException{
+		checkDataLength();
+
+		if(!isChecksumValid()){
+			throw new MessageParsingException("Invalid checksum " + checksumByte()
+					+ " for message " + Utils.bytesToHex(getMessageBytes()));
+		}
+
+		return new SimpleChecksumMessage(copyMessageBytes());
+	}
+
+}
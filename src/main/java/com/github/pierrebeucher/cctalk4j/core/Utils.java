@@ -1,7 +1,5 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
-import java.nio.ByteBuffer;
-
 public class Utils {
 	
 	//private static Logger logger = LoggerFactory.getLogger(Utils.class);
@@ -15,25 +13,13 @@ public class Utils {
 	
 	/**
 	 * <p>Calculate the CRC 16 CCIT using the given byte array.</p>
-	 * <p>Code inspired from http://introcs.cs.princeton.edu/java/61data/CRC16CCITT.java.html</p>
+	 * <p>Delegates to the table-driven {@link CRC16CCIT} calculator, which should be
+	 * used directly to compute a CRC incrementally.</p>
 	 * @param bytes
 	 * @return
 	 */
 	public static short checksumCRC16CCIT(byte[] bytes){
-		short crc = 0x000;          // initial value
-        int polynomial = 0x1021;   // 0001 0000 0010 0001  (0, 5, 12) 
-
-        for (byte b : bytes) {
-            for (int i = 0; i < 8; i++) {
-                boolean bit = ((b   >> (7-i) & 1) == 1);
-                boolean c15 = ((crc >> 15    & 1) == 1);
-                crc <<= 1;
-                if (c15 ^ bit) crc ^= polynomial;
-            }
-        }
-
-        crc &= 0xffff;
-        return crc;
+		return CRC16CCIT.checksum(bytes, 0, bytes.length);
 	}
 	
 	/**
@@ -61,9 +47,8 @@ public class Utils {
 	/**
 	 * <p>Convert an unsigned int into its byte equivalent.
 	 * The given int must be in range [0-255].<p>
-	 * <p>This function uses a <code>ByteBuffer</code> to extract
-	 * the Least Significant Byte of the given integer, thus
-	 * simply doing the extraction. For example,
+	 * <p>This function simply casts the given integer into a byte, thus
+	 * keeping its Least Significant Byte. For example,
 	 * considering <code>int i = 255</code> (0000 0000 0000 0000 0000 0000 1111 1111 in binary),
 	 * we have <code>unsignedIntToByte(i) == (byte) -1</code> (1111 1111 in binary) </p> 
 	 * @param i an integer in range [0-255]
@@ -75,7 +60,7 @@ public class Utils {
 			throw new IllegalArgumentException("Integer must be in range [0-255]");
 		}
 		
-		return ByteBuffer.allocate(4).putInt(i).get(3);
+		return (byte) i;
 	}
 	
 	/**
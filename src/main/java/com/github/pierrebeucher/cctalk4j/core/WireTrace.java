@@ -0,0 +1,340 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Fixed-size ring recording the frames sent and received on a bus, to be dumped
+ * when an incident happens. Each record holds a <code>System.nanoTime()</code> timestamp,
+ * the direction, the device address, the outcome and the frame bytes.</p>
+ * <p>Records are stored off-heap in fixed-size slots, recording a frame only
+ * copies its bytes: no object is allocated and nothing is formatted until
+ * {@link #entries(long, TimeUnit)} or a dump method is called. Once the ring is full,
+ * the oldest records are overwritten.</p>
+ * <p>This class is thread safe. A slot is claimed atomically by each record, and
+ * dumps skip slots being written.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class WireTrace {
+
+	/**
+	 * Default number of records kept
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	public enum Direction {
+		/**
+		 * Frame written by the host
+		 */
+		TX,
+		/**
+		 * Frame received by the host
+		 */
+		RX
+	}
+
+	public enum Outcome {
+		OK,
+		/**
+		 * No complete frame received in time, the record holds the bytes
+		 * received so far
+		 */
+		TIMEOUT,
+		/**
+		 * Frame rejected because of an invalid checksum
+		 */
+		CHECKSUM_ERROR
+	}
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private static final Outcome[] OUTCOMES = Outcome.values();
+
+	/*
+	 * Slot layout: timestamp (8), direction (1), outcome (1),
+	 * address (1), length (2), frame bytes
+	 */
+	private static final int TIMESTAMP_OFFSET = 0;
+	private static final int DIRECTION_OFFSET = 8;
+	private static final int OUTCOME_OFFSET = 9;
+	private static final int ADDRESS_OFFSET = 10;
+	private static final int LENGTH_OFFSET = 11;
+	private static final int FRAME_OFFSET = 13;
+	private static final int SLOT_SIZE = FRAME_OFFSET + AbstractMessage.MAX_LENGTH;
+
+	private final ByteBuffer buffer;
+
+	private final int capacity;
+
+	/**
+	 * Sequence number of the record held by each slot, negative
+	 * while the slot is being written
+	 */
+	private final AtomicLongArray slotSequences;
+
+	private final AtomicLong nextSequence;
+
+	/**
+	 * Create a trace keeping the last {@link #DEFAULT_CAPACITY} records.
+	 */
+	public WireTrace() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity number of records kept
+	 */
+	public WireTrace(int capacity) {
+		super();
+		if(capacity <= 0){
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.capacity = capacity;
+		this.buffer = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		this.slotSequences = new AtomicLongArray(capacity);
+		for(int i=0; i<capacity; i++){
+			slotSequences.set(i, Long.MIN_VALUE);
+		}
+		this.nextSequence = new AtomicLong();
+	}
+
+	/**
+	 * Record a frame. Frames longer than a message maximum length are truncated.
+	 * @param direction frame direction
+	 * @param outcome frame outcome
+	 * @param address address of the device the frame is exchanged with
+	 * @param bytes array holding the frame
+	 * @param off offset of the frame first byte
+	 * @param len frame length, may be 0
+	 */
+	public void record(Direction direction, Outcome outcome, byte address, byte[] bytes, int off, int len){
+		long sequence = nextSequence.getAndIncrement();
+		int slot = (int) (sequence % capacity);
+		int base = slot * SLOT_SIZE;
+		int length = Math.min(len, AbstractMessage.MAX_LENGTH);
+
+		slotSequences.set(slot, -sequence - 1);
+		writeHeader(base, direction, outcome, address, length);
+		for(int i=0; i<length; i++){
+			buffer.put(base + FRAME_OFFSET + i, bytes[off + i]);
+		}
+		slotSequences.set(slot, sequence);
+	}
+
+	/**
+	 * Record the frame wrapped by the given view.
+	 * @param direction frame direction
+	 * @param outcome frame outcome
+	 * @param address address of the device the frame is exchanged with
+	 * @param view view wrapping the frame, may be empty
+	 */
+	public void record(Direction direction, Outcome outcome, byte address, MessageView view){
+		long sequence = nextSequence.getAndIncrement();
+		int slot = (int) (sequence % capacity);
+		int base = slot * SLOT_SIZE;
+		int length = Math.min(view.length(), AbstractMessage.MAX_LENGTH);
+
+		slotSequences.set(slot, -sequence - 1);
+		writeHeader(base, direction, outcome, address, length);
+		for(int i=0; i<length; i++){
+			buffer.put(base + FRAME_OFFSET + i, view.get(i));
+		}
+		slotSequences.set(slot, sequence);
+	}
+
+	private void writeHeader(int base, Direction direction, Outcome outcome, byte address, int length){
+		buffer.putLong(base + TIMESTAMP_OFFSET, System.nanoTime());
+		buffer.put(base + DIRECTION_OFFSET, (byte) direction.ordinal());
+		buffer.put(base + OUTCOME_OFFSET, (byte) outcome.ordinal());
+		buffer.put(base + ADDRESS_OFFSET, address);
+		buffer.putShort(base + LENGTH_OFFSET, (short) length);
+	}
+
+	/**
+	 * @return total number of records since this trace creation,
+	 * including overwritten records
+	 */
+	public long getRecordCount(){
+		return nextSequence.get();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Return the records made during the given duration before now, oldest first.
+	 * @param duration duration to look back
+	 * @param unit duration unit
+	 * @return records made during the duration
+	 */
+	public List<Entry> entries(long duration, TimeUnit unit){
+		long since = System.nanoTime() - unit.toNanos(duration);
+		List<Entry> entries = new ArrayList<Entry>();
+		for(int slot=0; slot<capacity; slot++){
+			Entry e = readSlot(slot);
+			if(e != null && e.getTimestamp() - since >= 0){
+				entries.add(e);
+			}
+		}
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return e1.sequence < e2.sequence ? -1 : (e1.sequence == e2.sequence ? 0 : 1);
+			}
+		});
+		return entries;
+	}
+
+	/**
+	 * Read a slot, or return null if it is empty or is being written.
+	 */
+	private Entry readSlot(int slot){
+		long sequence = slotSequences.get(slot);
+		if(sequence < 0){
+			return null;
+		}
+		int base = slot * SLOT_SIZE;
+		long timestamp = buffer.getLong(base + TIMESTAMP_OFFSET);
+		int direction = buffer.get(base + DIRECTION_OFFSET);
+		int outcome = buffer.get(base + OUTCOME_OFFSET);
+		byte address = buffer.get(base + ADDRESS_OFFSET);
+		int length = buffer.getShort(base + LENGTH_OFFSET);
+		//values may be inconsistent if the slot is being overwritten
+		if(length < 0 || length > AbstractMessage.MAX_LENGTH
+				|| direction < 0 || direction >= DIRECTIONS.length
+				|| outcome < 0 || outcome >= OUTCOMES.length){
+			return null;
+		}
+		byte[] frame = new byte[length];
+		for(int i=0; i<length; i++){
+			frame[i] = buffer.get(base + FRAME_OFFSET + i);
+		}
+		if(slotSequences.get(slot) != sequence){
+			//overwritten while reading
+			return null;
+		}
+		return new Entry(sequence, timestamp, DIRECTIONS[direction], OUTCOMES[outcome], address, frame);
+	}
+
+	/**
+	 * Format the records made during the given duration before now, one record per line
+	 * such as <code>-1520.250 ms TX 40 OK 28 00 3F 01 46</code>, the time being relative to now.
+	 * @param duration duration to look back
+	 * @param unit duration unit
+	 * @return formatted records
+	 */
+	public String dumpHex(long duration, TimeUnit unit){
+		StringBuilder builder = new StringBuilder();
+		try {
+			appendHex(builder, entries(duration, unit), System.nanoTime());
+		} catch (IOException e) {
+			//cannot happen with a StringBuilder
+			throw new IllegalStateException(e);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Write the records made during the given duration before now to the given file,
+	 * formatted as by {@link #dumpHex(long, TimeUnit)}. The file is overwritten.
+	 * @param file file to write
+	 * @param duration duration to look back
+	 * @param unit duration unit
+	 * @throws IOException if the file cannot be written
+	 */
+	public void dump(File file, long duration, TimeUnit unit) throws IOException{
+		List<Entry> entries = entries(duration, unit);
+		long now = System.nanoTime();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.US_ASCII);
+		try {
+			appendHex(writer, entries, now);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static void appendHex(Appendable out, List<Entry> entries, long now) throws IOException{
+		for(Entry e : entries){
+			out.append(String.format(Locale.ROOT, "%.3f ms", (e.getTimestamp() - now) / 1e6))
+				.append(' ').append(e.getDirection().name())
+				.append(' ').append(Integer.toString(e.getAddress() & 0xFF))
+				.append(' ').append(e.getOutcome().name());
+			for(byte b : e.getFrame()){
+				out.append(' ').append(Utils.byteToHex(b));
+			}
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * A record read from a <code>WireTrace</code>.
+	 */
+	public static class Entry {
+
+		private final long sequence;
+		private final long timestamp;
+		private final Direction direction;
+		private final Outcome outcome;
+		private final byte address;
+		private final byte[] frame;
+
+		private Entry(long sequence, long timestamp, Direction direction, Outcome outcome, byte address,
+				byte[] frame) {
+			super();
+			this.sequence = sequence;
+			this.timestamp = timestamp;
+			this.direction = direction;
+			this.outcome = outcome;
+			this.address = address;
+			this.frame = frame;
+		}
+
+		/**
+		 * @return <code>System.nanoTime()</code> at the time of the record
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public Direction getDirection() {
+			return direction;
+		}
+
+		public Outcome getOutcome() {
+			return outcome;
+		}
+
+		public byte getAddress() {
+			return address;
+		}
+
+		/**
+		 * @return a copy of the recorded frame bytes
+		 */
+		public byte[] getFrame() {
+			return frame.clone();
+		}
+
+		@Override
+		public String toString() {
+			return "Entry [direction=" + direction + ", outcome=" + outcome + ", address=" + (address & 0xFF)
+					+ ", frame=" + Utils.bytesToHex(frame) + "]";
+		}
+	}
+
+}
@@ -11,20 +11,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.HeaderInfo;
+import com.github.pierrebeucher.cctalk4j.core.HeaderRegistry;
 import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessageCache;
 import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessageIOException;
 import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
 import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuildException;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuilderFactory;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.AckWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.AsciiDataResponseWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.SelfCheckAckResponseWrapper;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.SerialNumberResponseWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.UnexpectedContentException;
 
 /**
- * Abstract implementation for a <code>Device</code>,
- * providing an interface to perform core ccTalk requests.
+ * <p>Abstract implementation for a <code>Device</code>,
+ * providing an interface to perform core ccTalk requests.</p>
+ * <p>By default, replies are read by a <code>FutureMessageReader</code> thread started
+ * before writing the request. In direct read mode ({@link #setDirectRead(boolean)}),
+ * the requesting thread writes the request then reads the reply itself, saving two context
+ * switches per request: the reply cannot be lost as it is kept by the port
+ * input buffer until read.</p>
  * @author Pierre Beucher
  *
  */
@@ -62,7 +74,26 @@ public abstract class AbstractDevice implements Device {
 	
 	private byte deviceAddress;
 	
-	private Class<? extends MessageBuilder> messageBuilderClass;
+	/*
+	 * Builder bound to this device destination and master source,
+	 * reused for each request built while holding this device lock
+	 */
+	private MessageBuilder messageBuilder;
+	
+	/*
+	 * Type of the messages built by messageBuilder
+	 */
+	private int messageType;
+	
+	/*
+	 * Requests sent repeatedly, such as polls, are built once
+	 */
+	private MessageCache messageCache;
+	
+	/*
+	 * Gives the expected reply length and timeout of each request
+	 */
+	private HeaderRegistry headerRegistry;
 	
 	private int readTimeout;
 	
@@ -70,27 +101,62 @@ public abstract class AbstractDevice implements Device {
 	
 	private FutureMessageReader messageReader;
 	
+	/*
+	 * Whether replies are read by the requesting thread
+	 */
+	private volatile boolean directRead;
+	
 	private List<DeviceConfigurator> configuratorList;
 	
 	/**
-	 * Create a new <code>BillValidator</code> using the given port.
+	 * Create a new <code>Device</code> using the given port.
 	 * @param port message port to use
-	 * @param messageBuilderClass builder class used to create messages
+	 * @param messageBuilderFactory factory of the builder used to create messages
 	 * @param deviceAddress the device address
-	 * @return 
 	 */
-	protected AbstractDevice(MessagePort port, Class<? extends MessageBuilder> messageBuilderClass,
+	protected AbstractDevice(MessagePort port, MessageBuilderFactory messageBuilderFactory,
 			byte deviceAddress) {
 		super();
 		this.port = port;
-		this.messageBuilderClass = messageBuilderClass;
 		this.deviceAddress = deviceAddress;
+		this.messageBuilder = messageBuilderFactory.newBuilder()
+				.destination(deviceAddress)
+				.source(MASTER_ADDRESS);
+		this.messageType = messageBuilder.getMessageType();
+		this.messageCache = new MessageCache();
+		this.headerRegistry = HeaderRegistry.getDefault();
 		this.readTimeout = DEFAULT_READ_TIMEOUT;
 		this.writeTimeout = DEFAULT_WRITE_TIMEOUT;
 		this.messageReader = new FutureMessageReader(port);
 		this.configuratorList = new ArrayList<DeviceConfigurator>();
 	}
 	
+	/**
+	 * Create a new <code>Device</code> using the given port.
+	 * @param port message port to use
+	 * @param messageBuilderClass builder class used to create messages
+	 * @param deviceAddress the device address
+	 * @deprecated use {@link #AbstractDevice(MessagePort, MessageBuilderFactory, byte)}
+	 */
+	@Deprecated
+	protected AbstractDevice(MessagePort port, Class<? extends MessageBuilder> messageBuilderClass,
+			byte deviceAddress) {
+		this(port, reflectiveFactory(messageBuilderClass), deviceAddress);
+	}
+	
+	private static MessageBuilderFactory reflectiveFactory(final Class<? extends MessageBuilder> messageBuilderClass){
+		return new MessageBuilderFactory() {
+			@Override
+			public MessageBuilder newBuilder() {
+				try {
+					return messageBuilderClass.newInstance();
+				} catch (InstantiationException | IllegalAccessException e) {
+					throw new RuntimeException("Cannot instanciate message builder.", e);
+				}
+			}
+		};
+	}
+	
 	@Override
 	public void connect() throws MessagePortException, DeviceConfigurationException {
 		port.open();
@@ -99,6 +165,7 @@ public abstract class AbstractDevice implements Device {
 
 	@Override
 	public void disconnect() throws MessagePortException {
+		messageReader.shutdown();
 		port.close();
 	}
 
@@ -113,19 +180,16 @@ public abstract class AbstractDevice implements Device {
 		}
 	}
 
-	private MessageBuilder createBuilder(){
-		try {
-			return messageBuilderClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new RuntimeException("Cannot instanciate message builder.", e);
-		}
-	}
-	
+	/*
+	 * Must be called while holding this device lock, as the builder is shared
+	 */
 	private Message buildMessage(Header header, byte[] data){
+		if(MessageCache.isCacheable(messageType, data)){
+			return messageCache.get(messageType, this.deviceAddress, MASTER_ADDRESS, header.getValue(), data);
+		}
+		
 		try {
-			return createBuilder()
-				.destination(this.deviceAddress)
-				.source(MASTER_ADDRESS)
+			return messageBuilder
 				.header(header)
 				.data(data)
 				.build();
@@ -164,8 +228,10 @@ public abstract class AbstractDevice implements Device {
 	}
 	
 	@Override
-	public void request(Message m) throws DeviceRequestException{
-		logger.debug("Request: {}", m.getHexMessage());
+	public synchronized void request(Message m) throws DeviceRequestException{
+		if(logger.isDebugEnabled()){
+			logger.debug("Request: {}", m.getHexMessage());
+		}
 		try {
 			port.write(m);
 		} catch (MessagePortException e) {
@@ -173,49 +239,136 @@ public abstract class AbstractDevice implements Device {
 		}
 	}
 	
+	/**
+	 * Holds this device lock, as other requests to this device, for the reply
+	 * not to be read by another request. So does {@link #request(Message)}.
+	 */
 	@Override
-	public Message requestResponse(Message m) throws DeviceRequestException{
+	public synchronized Message requestResponse(Message m) throws DeviceRequestException{
 		return doRequestResponse(m);
 	}
 	
+	/*
+	 * Purge everything to void leftover bytes in buffer
+	 * unless the port already drops everything preceding the response
+	 */
+	private void purgeBuffers() throws DeviceRequestException{
+		if(!port.isEchoCancelling()){
+			try{
+				port.resetInputBuffer();
+				port.resetOutputBuffer();
+			} catch (SerialPortException e){
+				throw new DeviceRequestException(e);
+			}
+		}
+	}
+	
+	/*
+	 * Known requests may take longer than the read timeout
+	 */
+	private int timeoutFor(HeaderInfo info){
+		return info == null ? readTimeout : Math.max(readTimeout, info.getTimeoutClass().getSuggestedTimeout());
+	}
+	
+	/*
+	 * Known requests let the port read their whole response at once
+	 */
+	private static int expectedDataLengthFor(HeaderInfo info){
+		return info == null ? HeaderInfo.VARIABLE_LENGTH : info.getExpectedReplyDataLength();
+	}
+	
 	private Message doRequestResponse(Message m) throws DeviceRequestException{
-		//purge everything to void leftover bytes in buffer
-		try{
-			port.resetInputBuffer();
-			port.resetOutputBuffer();
-		} catch (SerialPortException e){
-			throw new DeviceRequestException(e);
+		purgeBuffers();
+		
+		//port input buffers must not be reset once the request is written
+		//as the reply may already be there
+		HeaderInfo info = headerRegistry.get(m.getHeader());
+		int timeout = timeoutFor(info);
+		int expectedDataLength = expectedDataLengthFor(info);
+		
+		if(directRead){
+			return directRequestResponse(m, timeout, expectedDataLength);
 		}
 		
 		//start reading before sending request
 		//this ensure that the response will not be lost
 		//if we first write the message but the response arrive
 		//before we being to read the port
-		Future<MessageReaderResponse> futureResponse = messageReader.readMessage(readTimeout);
+		Future<MessageReaderResponse> futureResponse = messageReader.readMessage(timeout, expectedDataLength);
 		
 		//normally we should not have to define a timeout as port read already does
 		//just in case...
 		try {
 			request(m);
 			
-			MessageReaderResponse readerResponse = futureResponse.get(readTimeout, TimeUnit.MILLISECONDS);
+			MessageReaderResponse readerResponse = futureResponse.get(timeout, TimeUnit.MILLISECONDS);
 			Message responseMessage = readerResponse.getMessage();
 			if(responseMessage == null){
+				if(readerResponse.isHasTimedOut()){
+					throw new DeviceRequestTimeoutException("No response for request: " + readerResponse.getException(), readerResponse.getException());
+				}
 				if(readerResponse.getException() != null){
 					throw new DeviceRequestException("Unable to get response for request:" + readerResponse.getException(), readerResponse.getException());
 				}
 				throw new DeviceRequestException("Unable to read message response, but no exception reported. There is probably a bug in the MessageReaderResponse, please report.");
 			}
 			
-			logger.debug("Read: {}", responseMessage.getHexMessage());
+			if(logger.isDebugEnabled()){
+				logger.debug("Read: {}", responseMessage.getHexMessage());
+			}
 			
 			
 			return responseMessage;
-		} catch (InterruptedException | ExecutionException | TimeoutException e) {
+		} catch (TimeoutException e) {
+			throw new DeviceRequestTimeoutException("No response for request: " + e, e);
+		} catch (InterruptedException | ExecutionException e) {
 			throw new DeviceRequestException("Error during device request/response:" + e, e);
 		}
 	}
 	
+	/*
+	 * Write the request and read its reply on the calling thread
+	 */
+	private Message directRequestResponse(Message m, int timeout, int expectedDataLength) throws DeviceRequestException{
+		request(m);
+		try {
+			Message responseMessage = port.read(timeout, expectedDataLength);
+			if(logger.isDebugEnabled()){
+				logger.debug("Read: {}", responseMessage.getHexMessage());
+			}
+			return responseMessage;
+		} catch (MessagePortTimeoutException e) {
+			throw new DeviceRequestTimeoutException("No response for request: " + e, e);
+		} catch (MessageIOException e) {
+			throw new DeviceRequestException("Unable to get response for request:" + e, e);
+		}
+	}
+	
+	/**
+	 * <p>Send a request of a batch of back-to-back requests, such as requests
+	 * scanning the device configuration, expecting a single response.</p>
+	 * <p>Buffers are purged before the first request of the batch only, and replies
+	 * read by the calling thread whatever the read mode: each request is written as soon as
+	 * the previous reply is read. The caller must hold this device lock for the whole batch
+	 * so that no other request is interleaved.</p>
+	 * @param requestHeader header to use
+	 * @param data data payload
+	 * @param first true for the first request of the batch
+	 * @return response obtained
+	 * @throws DeviceRequestException
+	 */
+	protected Message batchRequestResponse(Header requestHeader, byte[] data, boolean first) throws DeviceRequestException{
+		if(!Thread.holdsLock(this)){
+			throw new IllegalStateException("Batch requests must be sent while holding the device lock.");
+		}
+		if(first){
+			purgeBuffers();
+		}
+		Message m = buildMessage(requestHeader, data);
+		HeaderInfo info = headerRegistry.get(m.getHeader());
+		return directRequestResponse(m, timeoutFor(info), expectedDataLengthFor(info));
+	}
+	
 	/**
 	 * Send a request with no data expecting a single response.
 	 * @param requestHeader header to use 
@@ -284,6 +437,16 @@ public abstract class AbstractDevice implements Device {
 		return requestAsciiResponse(Header.REQUEST_BUILD_CODE);
 	}
 
+	@Override
+	public int requestSerialNumber() throws DeviceRequestException {
+		Message response = requestResponse(Header.REQUEST_SERIAL_NUMBER);
+		try {
+			return SerialNumberResponseWrapper.wrap(response).getSerialNumber();
+		} catch (UnexpectedContentException e) {
+			throw new DeviceRequestException(e);
+		}
+	}
+
 	/**
 	 * <p><b>Warning: not implemented yet, will throw a RuntimeException.</b></p>
 	 * {@inheritDoc}
@@ -313,6 +476,40 @@ public abstract class AbstractDevice implements Device {
 		this.readTimeout = readTimeout;
 	}
 
+	/**
+	 * @return registry giving the expected reply length and suggested timeout of requests
+	 */
+	public HeaderRegistry getHeaderRegistry() {
+		return headerRegistry;
+	}
+
+	/**
+	 * Set the registry giving the expected reply length and suggested timeout of requests,
+	 * such as a registry with vendor-specific headers. A request whose header is registered
+	 * waits for its reply during the greatest of the read timeout and the header suggested timeout.
+	 * @param headerRegistry registry to use
+	 */
+	public void setHeaderRegistry(HeaderRegistry headerRegistry) {
+		this.headerRegistry = headerRegistry;
+	}
+
+	/**
+	 * 
+	 * @return true if replies are read by the requesting thread
+	 */
+	public boolean isDirectRead() {
+		return directRead;
+	}
+
+	/**
+	 * Read replies on the requesting thread right after writing the request,
+	 * instead of a reading thread started before writing the request.
+	 * @param directRead true to read replies on the requesting thread
+	 */
+	public void setDirectRead(boolean directRead) {
+		this.directRead = directRead;
+	}
+
 	@Override
 	public int getWriteTimeout() {
 		return writeTimeout;
@@ -328,6 +525,13 @@ public abstract class AbstractDevice implements Device {
 		return "Device [addr=" + this.deviceAddress + "]";
 	}
 
+	/**
+	 * @return cache of the requests built by this device
+	 */
+	protected MessageCache getMessageCache() {
+		return messageCache;
+	}
+
 	@Override
 	public MessagePort getMessagePort() {
 		return port;
@@ -0,0 +1,102 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+import java.util.concurrent.Callable;
+
+import com.github.pierrebeucher.cctalk4j.core.Message;
+
+/**
+ * <p>Asynchronous facet of a <code>Device</code>: requests are queued in the
+ * <code>TransactionQueue</code> of the device port and return immediately with
+ * a <code>DeviceFuture</code>, instead of blocking the caller until the reply is read.</p>
+ * <p>Example usage:
+ * <pre>
+ * {@code
+ * AsyncDevice<Device> async = new AsyncDevice<Device>(device);
+ * async.requestResponseAsync(m).addCallback(new DeviceCallback<Message>() {
+ * 	public void completed(Message reply){
+ * 		//do something...
+ * 	}
+ * 
+ * 	public void failed(Throwable cause){
+ * 		//do something...
+ * 	}
+ * });
+ * }
+ * </pre>
+ * </p>
+ * @author Pierre Beucher
+ *
+ * @param <E> device type
+ */
+public class AsyncDevice<E extends Device> {
+	
+	protected final E device;
+	
+	private final TransactionQueue transactionQueue;
+
+	/**
+	 * Create an asynchronous facet queuing requests in the transaction queue of the device port.
+	 * @param device device to request
+	 */
+	public AsyncDevice(E device) {
+		this(device, TransactionQueue.forPort(device.getMessagePort()));
+	}
+	
+	/**
+	 * @param device device to request
+	 * @param transactionQueue queue performing requests
+	 */
+	public AsyncDevice(E device, TransactionQueue transactionQueue) {
+		super();
+		this.device = device;
+		this.transactionQueue = transactionQueue;
+	}
+	
+	/**
+	 * Queue a task performing requests on the device.
+	 * @param task task to perform
+	 * @return future result of the task
+	 */
+	public <T> DeviceFuture<T> submit(final DeviceTask<? super E, T> task){
+		return transactionQueue.submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return task.execute(device);
+			}
+		});
+	}
+	
+	/**
+	 * @see Device#requestResponse(Message)
+	 */
+	public DeviceFuture<Message> requestResponseAsync(final Message m){
+		return submit(new DeviceTask<Device, Message>() {
+			@Override
+			public Message execute(Device device) throws DeviceRequestException {
+				return device.requestResponse(m);
+			}
+		});
+	}
+	
+	/**
+	 * @see Device#simplePoll()
+	 */
+	public DeviceFuture<Void> simplePollAsync(){
+		return submit(new DeviceTask<Device, Void>() {
+			@Override
+			public Void execute(Device device) throws DeviceRequestException {
+				device.simplePoll();
+				return null;
+			}
+		});
+	}
+
+	public E getDevice() {
+		return device;
+	}
+
+	public TransactionQueue getTransactionQueue() {
+		return transactionQueue;
+	}
+	
+}
@@ -102,6 +102,14 @@ public interface Device {
 	 */
 	String requestBuildCode() throws DeviceRequestException;
 	
+	/**
+	 * Request the device serial number.
+	 * Based on header 242.
+	 * @return device serial number, between 0 and 16,777,215
+	 * @throws DeviceRequestException
+	 */
+	int requestSerialNumber() throws DeviceRequestException;
+	
 	/**
 	 * Request the device encryption support. Based on header 111.
 	 * @return device encryption support.
@@ -0,0 +1,27 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+/**
+ * Callback notified when an asynchronous device request completes.
+ * Callbacks are called on the thread performing the request and
+ * should return quickly, as they delay the next requests of the port.
+ * @author Pierre Beucher
+ *
+ * @param <T> request result type
+ * @see DeviceFuture#addCallback(DeviceCallback)
+ */
+public interface DeviceCallback<T> {
+
+	/**
+	 * Called when the request succeeded.
+	 * @param result request result, null for requests without result
+	 */
+	public void completed(T result);
+	
+	/**
+	 * Called when the request failed or was cancelled.
+	 * @param cause request failure, such as a <code>DeviceRequestException</code>,
+	 * or a <code>CancellationException</code> if the request was cancelled
+	 */
+	public void failed(Throwable cause);
+	
+}
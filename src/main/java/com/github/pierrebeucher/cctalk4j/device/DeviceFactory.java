@@ -3,6 +3,7 @@ package com.github.pierrebeucher.cctalk4j.device;
 import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessageParser;
 import com.github.pierrebeucher.cctalk4j.core.MessagePort;
 import com.github.pierrebeucher.cctalk4j.core.SerialMessagePort;
+import com.github.pierrebeucher.cctalk4j.core.SharedBus;
 import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
 import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
@@ -30,7 +31,18 @@ public class DeviceFactory {
 	 */
 	public static BillValidator billValidatorSerialCRC(String portName, byte address) {
 			SerialMessagePort port = new SerialMessagePort(portName, new CRCChecksumMessageParser());
-			return new BillValidator(port, CRCChecksumMessageBuilder.class, address); 
+			return new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, address); 
+	}
+	
+	/**
+	 * Create a new <code>BillValidator</code> on a bus shared with other
+	 * devices, using CRC Checksum messages.
+	 * @param bus bus the device is connected to
+	 * @param address address of the device
+	 * @return
+	 */
+	public static BillValidator billValidatorSharedBusCRC(SharedBus bus, byte address) {
+		return new BillValidator(bus.port(address), CRCChecksumMessageBuilder.FACTORY, address);
 	}
 	
 	
@@ -0,0 +1,119 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pierrebeucher.cctalk4j.core.CcTalkException;
+
+/**
+ * <p>Result of an asynchronous device request. The result may be waited for,
+ * as with any <code>Future</code>, or handled by callbacks
+ * registered with {@link #addCallback(DeviceCallback)}.</p>
+ * @author Pierre Beucher
+ *
+ * @param <T> request result type
+ */
+public class DeviceFuture<T> extends FutureTask<T> {
+	
+	private static final Logger logger = LoggerFactory.getLogger(DeviceFuture.class);
+
+	/*
+	 * Callbacks to notify once done, null once notified
+	 */
+	private List<DeviceCallback<? super T>> callbacks;
+
+	/**
+	 * @param callable request to perform
+	 */
+	public DeviceFuture(Callable<T> callable) {
+		super(callable);
+		this.callbacks = new ArrayList<DeviceCallback<? super T>>(1);
+	}
+
+	/**
+	 * Add a callback notified once the request completes. If already completed,
+	 * the callback is notified immediately by the calling thread.
+	 * @param callback callback to notify
+	 * @return this future
+	 */
+	public DeviceFuture<T> addCallback(DeviceCallback<? super T> callback){
+		synchronized (this) {
+			//waiting threads are released before done() is called
+			if(callbacks != null && !isDone()){
+				callbacks.add(callback);
+				return this;
+			}
+		}
+		notify(callback);
+		return this;
+	}
+	
+	@Override
+	protected void done() {
+		List<DeviceCallback<? super T>> toNotify;
+		synchronized (this) {
+			toNotify = callbacks;
+			callbacks = null;
+		}
+		for(DeviceCallback<? super T> callback : toNotify){
+			notify(callback);
+		}
+	}
+	
+	private void notify(DeviceCallback<? super T> callback){
+		try {
+			T result;
+			try {
+				result = get();
+			} catch (ExecutionException e) {
+				callback.failed(e.getCause());
+				return;
+			} catch (CancellationException e) {
+				callback.failed(e);
+				return;
+			} catch (InterruptedException e) {
+				//cannot happen once done
+				Thread.currentThread().interrupt();
+				callback.failed(e);
+				return;
+			}
+			callback.completed(result);
+		} catch (RuntimeException e) {
+			logger.error("Callback {} failed.", callback, e);
+		}
+	}
+	
+	/**
+	 * Wait for the request result, rethrowing its failure.
+	 * @param timeout maximum time to wait
+	 * @param unit timeout unit
+	 * @return request result
+	 * @throws DeviceRequestTimeoutException if the request is not completed in time
+	 * @throws CcTalkException the request failure, or a <code>DeviceRequestException</code>
+	 * if the request was cancelled or the waiting thread interrupted
+	 */
+	public T getResult(long timeout, TimeUnit unit) throws CcTalkException{
+		try {
+			return get(timeout, unit);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof CcTalkException){
+				throw (CcTalkException) e.getCause();
+			}
+			throw new DeviceRequestException("Request failed: " + e.getCause(), e.getCause());
+		} catch (TimeoutException e) {
+			throw new DeviceRequestTimeoutException("Request not completed after " + timeout + " " + unit, e);
+		} catch (InterruptedException | CancellationException e) {
+			throw new DeviceRequestException(e);
+		}
+	}
+
+}
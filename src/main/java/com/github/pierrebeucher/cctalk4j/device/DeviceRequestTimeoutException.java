@@ -6,4 +6,12 @@ public class DeviceRequestTimeoutException extends DeviceRequestException{
 	 * 
 	 */
 	private static final long serialVersionUID = 2154915587278868854L;
+
+	public DeviceRequestTimeoutException() {
+		super();
+	}
+
+	public DeviceRequestTimeoutException(String message, Throwable cause) {
+		super(message, cause);
+	}
 }
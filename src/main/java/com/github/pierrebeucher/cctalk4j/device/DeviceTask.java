@@ -0,0 +1,22 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+import com.github.pierrebeucher.cctalk4j.core.CcTalkException;
+
+/**
+ * A request, or sequence of requests, performed on a device by an {@link AsyncDevice}.
+ * @author Pierre Beucher
+ *
+ * @param <E> device type
+ * @param <T> result type
+ */
+public interface DeviceTask<E extends Device, T> {
+
+	/**
+	 * Perform the request on the given device.
+	 * @param device device to request
+	 * @return request result
+	 * @throws CcTalkException if the request failed
+	 */
+	public T execute(E device) throws CcTalkException;
+	
+}
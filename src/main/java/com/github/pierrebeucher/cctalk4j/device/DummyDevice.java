@@ -82,6 +82,11 @@ public class DummyDevice implements Device {
 		return null;
 	}
 
+	@Override
+	public int requestSerialNumber() {
+		return 0;
+	}
+
 	@Override
 	public Object requestEncryptionSupport() {
 		return null;
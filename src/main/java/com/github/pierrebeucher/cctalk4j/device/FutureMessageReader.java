@@ -1,13 +1,17 @@
 package com.github.pierrebeucher.cctalk4j.device;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.pierrebeucher.cctalk4j.core.HeaderInfo;
 import com.github.pierrebeucher.cctalk4j.core.Message;
 import com.github.pierrebeucher.cctalk4j.core.MessagePort;
 import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
@@ -17,14 +21,35 @@ import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
  * messages from a <code>MessagePort</code> through a <code>Future</code>.
  * This allow the calling thread to contiue processing and retrieve the result
  * as wished.</p>
+ * <p>Messages are read by a single thread, created on the first read and
+ * ended after {@link #IDLE_TIMEOUT} ms without read: devices which are
+ * not used do not hold any thread.</p>
  * @author Pierre Beucher
  *
  */
 public class FutureMessageReader {
 
+	/**
+	 * Time after which the reading thread ends if no message is read, in ms
+	 */
+	public static final long IDLE_TIMEOUT = 60000;
+	
+	private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+		
+		private final ThreadFactory delegate = Executors.defaultThreadFactory();
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = delegate.newThread(r);
+			t.setName("FutureMessageReader-" + t.getName());
+			t.setDaemon(true);
+			return t;
+		}
+	};
+
 	private MessagePort messagePort;
 		
-	private ExecutorService executorService;
+	private ThreadPoolExecutor executorService;
 	
 	private Logger logger = LoggerFactory.getLogger(getClass());
 	
@@ -34,7 +59,34 @@ public class FutureMessageReader {
 	public FutureMessageReader(MessagePort messagePort) {
 		super();
 		this.messagePort = messagePort;
-		this.executorService = Executors.newSingleThreadExecutor();
+	}
+	
+	private synchronized ThreadPoolExecutor executorService(){
+		if(executorService == null){
+			executorService = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>(), THREAD_FACTORY);
+			executorService.allowCoreThreadTimeOut(true);
+		}
+		return executorService;
+	}
+	
+	/**
+	 * Stop the reading thread once pending reads are done. A new
+	 * thread is created by the next read.
+	 */
+	public synchronized void shutdown(){
+		if(executorService != null){
+			executorService.shutdown();
+			executorService = null;
+		}
+	}
+	
+	/**
+	 * 
+	 * @return true if a thread is currently alive to read messages
+	 */
+	public synchronized boolean hasReaderThread(){
+		return executorService != null && executorService.getPoolSize() > 0;
 	}
 	
 	/**
@@ -44,22 +96,35 @@ public class FutureMessageReader {
 	 * if no message was received.
 	 */
 	public Future<MessageReaderResponse> readMessage(final int timeout){
-		return this.executorService.submit(new MessageReaderCallable(timeout, messagePort));
+		return readMessage(timeout, HeaderInfo.VARIABLE_LENGTH);
+	}
+	
+	/**
+	 * Submit a new task which will read a message with the given timeout,
+	 * expecting the given number of data bytes.
+	 * @see MessagePort#read(int, int)
+	 */
+	public Future<MessageReaderResponse> readMessage(final int timeout, final int expectedDataLength){
+		return executorService().submit(new MessageReaderCallable(timeout, expectedDataLength, messagePort));
 	}
 	
 	private class MessageReaderCallable implements Callable<MessageReaderResponse>{
 
 		private int timeout;
 		
+		private int expectedDataLength;
+		
 		private MessagePort port;
 		
 		/**
 		 * @param timeout
+		 * @param expectedDataLength
 		 * @param port
 		 */
-		public MessageReaderCallable(int timeout, MessagePort port) {
+		public MessageReaderCallable(int timeout, int expectedDataLength, MessagePort port) {
 			super();
 			this.timeout = timeout;
+			this.expectedDataLength = expectedDataLength;
 			this.port = port;
 		}
 		
@@ -68,7 +133,7 @@ public class FutureMessageReader {
 			MessageReaderResponse readerResponse = new MessageReaderResponse();
 			
 			try {
-				Message response = this.port.read(timeout);
+				Message response = this.port.read(timeout, expectedDataLength);
 				readerResponse.setMessage(response);
 			} catch (Exception e) {
 				logger.warn("Exception encountered when reading message. "
@@ -0,0 +1,106 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.SharedBus;
+
+/**
+ * <p>Queue of the asynchronous requests of the devices of a port, performed
+ * in order by a single thread. Any number of callers may queue requests without
+ * blocking, sharing a thread per port.</p>
+ * <p>The thread is created by the first request and ends after {@link #IDLE_TIMEOUT} ms
+ * without request.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class TransactionQueue {
+	
+	/**
+	 * Time after which the thread ends if no request is queued, in ms
+	 */
+	public static final long IDLE_TIMEOUT = 60000;
+	
+	private static final Map<MessagePort, TransactionQueue> PORT_QUEUES = new WeakHashMap<MessagePort, TransactionQueue>();
+	
+	/**
+	 * Return the queue of the given port, created on first call or once the previous
+	 * queue is shut down. Devices sharing a port share its queue, including devices of
+	 * a <code>SharedBus</code> whose queue is the queue of the bus physical port.
+	 * @param port message port
+	 * @return queue of the given port
+	 */
+	public static TransactionQueue forPort(MessagePort port){
+		port = SharedBus.physicalPort(port);
+		synchronized (PORT_QUEUES) {
+			TransactionQueue queue = PORT_QUEUES.get(port);
+			if(queue == null || queue.isShutdown()){
+				queue = new TransactionQueue(String.valueOf(port));
+				PORT_QUEUES.put(port, queue);
+			}
+			return queue;
+		}
+	}
+	
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param name name of the queue thread
+	 */
+	public TransactionQueue(final String name) {
+		super();
+		this.executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final ThreadFactory delegate = Executors.defaultThreadFactory();
+					
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = delegate.newThread(r);
+						t.setName("TransactionQueue-" + name);
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+	
+	/**
+	 * Queue a request.
+	 * @param request request to perform
+	 * @return future result of the request
+	 * @throws java.util.concurrent.RejectedExecutionException if this queue is shut down
+	 */
+	public <T> DeviceFuture<T> submit(Callable<T> request){
+		DeviceFuture<T> future = new DeviceFuture<T>(request);
+		executor.execute(future);
+		return future;
+	}
+	
+	/**
+	 * 
+	 * @return number of requests queued and not started yet
+	 */
+	public int getPendingCount(){
+		return executor.getQueue().size();
+	}
+	
+	/**
+	 * Stop accepting requests, queued requests still being performed.
+	 * The next call to {@link #forPort(MessagePort)} creates a new queue.
+	 */
+	public void shutdown(){
+		executor.shutdown();
+	}
+	
+	public boolean isShutdown(){
+		return executor.isShutdown();
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.github.pierrebeucher.cctalk4j.device.bill;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Immutable set of the <code>Bill</code>s programmed in a device, indexed by bill type.</p>
+ * <p>Bills are held in an array indexed by the unsigned bill type: looking up the bill of
+ * an event is a single array load, without boxing the bill type. A registry is never
+ * modified once built, so that a new registry can be safely published to the threads
+ * reading events by a single reference assignment.</p>
+ * @author Pierre Beucher
+ *
+ */
+public final class BillRegistry {
+	
+	/**
+	 * Registry without any bill
+	 */
+	public static final BillRegistry EMPTY = new BillRegistry(Collections.<Bill>emptyList());
+	
+	private final Bill[] bills;
+	
+	private final Map<Byte, Bill> map;
+	
+	/**
+	 * @param bills bills to register, a bill replacing any previous bill of the same bill type
+	 */
+	public BillRegistry(Collection<Bill> bills) {
+		super();
+		this.bills = new Bill[256];
+		Map<Byte, Bill> m = new LinkedHashMap<Byte, Bill>();
+		for(Bill bill : bills){
+			this.bills[bill.billType() & 0xFF] = bill;
+			m.put(bill.billType(), bill);
+		}
+		this.map = Collections.unmodifiableMap(m);
+	}
+	
+	/**
+	 * 
+	 * @param billType bill type, such as the <i>resultA</i> byte of a credit event
+	 * @return the bill of the given bill type, null if none
+	 */
+	public Bill get(byte billType){
+		return bills[billType & 0xFF];
+	}
+	
+	/**
+	 * 
+	 * @return number of registered bills
+	 */
+	public int size(){
+		return map.size();
+	}
+	
+	/**
+	 * 
+	 * @return true if no bill is registered
+	 */
+	public boolean isEmpty(){
+		return map.isEmpty();
+	}
+	
+	/**
+	 * 
+	 * @return unmodifiable <code>Map</code> of the registered bills by bill type
+	 */
+	public Map<Byte, Bill> asMap(){
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		return "BillRegistry " + map.values();
+	}
+	
+}
@@ -3,153 +3,103 @@ package com.github.pierrebeucher.cctalk4j.device.bill.event;
 import com.github.pierrebeucher.cctalk4j.core.Utils;
 
 /**
- * <code>BillEvent</code> represents a single bill event returned
- * when reading buffered bill events (Header 159).
+ * <p><code>BillEvent</code> represents a single bill event returned
+ * when reading buffered bill events (Header 159).</p>
+ * <p>Events returned by {@link #event(byte, byte)} are canonical instances built once
+ * for every recognized result bytes pair: decoding an event does not allocate.
+ * Instances are immutable and can be compared by reference or using <code>equals</code>.</p>
  * @author Pierre Beucher
  *
  */
 public class BillEvent {
 	
+	/*
+	 * Events with resultA > 0 (bill inserted) indexed by resultA * 2 + resultB
+	 */
+	private static final BillEvent[] BILL_EVENTS = new BillEvent[256 * 2];
+	
+	/*
+	 * Events with resultA == 0 indexed by resultB, null if not recognized
+	 */
+	private static final BillEvent[] STATUS_EVENTS = new BillEvent[256];
+	
+	static {
+		for(int a=1; a<256; a++){
+			byte resultA = Utils.unsignedIntToByte(a);
+			BILL_EVENTS[a << 1] = new BillEvent(resultA, (byte) 0, Event.BILL_VALIDATED_CASHBOX, EventType.CREDIT);
+			BILL_EVENTS[(a << 1) | 1] = new BillEvent(resultA, (byte) 1, Event.BILL_VALIDATED_ESCROW, EventType.PENDING_CREDIT);
+		}
+		
+		status(0, Event.MASTER_INHIBIT_ACTIVE, EventType.STATUS);
+		status(1, Event.BILL_RETURNED_FROM_ESCROW, EventType.STATUS);
+		status(2, Event.INVALID_BILL_VALIDATION_FAIL, EventType.REJECT);
+		status(3, Event.INVALID_BILL_TRANSPORT_FAIL, EventType.REJECT);
+		status(4, Event.INHIBITED_BILL_SERIAL, EventType.STATUS);
+		status(5, Event.INHIBITED_BILL_DIP_SW, EventType.STATUS);
+		status(6, Event.BILL_JAMMED_TRANSPORT_UNSAFE, EventType.FATAL_ERROR);
+		status(7, Event.BILL_JAMMED_STACKER, EventType.FATAL_ERROR);
+		status(8, Event.BILL_PULLED_BACKWARD, EventType.FRAUD_ATTEMPT);
+		status(9, Event.BILL_TAMPER, EventType.FRAUD_ATTEMPT);
+		status(10, Event.STACKER_OK, EventType.STATUS);
+		status(11, Event.STACKER_REMOVED, EventType.STATUS);
+		status(12, Event.STACKER_INSERTED, EventType.STATUS);
+		status(13, Event.STACKER_FAULTY, EventType.FATAL_ERROR);
+		status(14, Event.STACKER_FULL, EventType.STATUS);
+		status(15, Event.STACKER_JAMMED, EventType.FATAL_ERROR);
+		status(16, Event.BILL_JAMMED_TRANSPORT_SAFE, EventType.FATAL_ERROR);
+		status(17, Event.OPTO_FRAUD_DETECTED, EventType.FRAUD_ATTEMPT);
+		status(18, Event.STRING_FRAUD_DETECTED, EventType.FRAUD_ATTEMPT);
+		status(19, Event.ANTI_STRING_MECHANISM_FAULTY, EventType.FATAL_ERROR);
+		status(20, Event.BARCODE_DETECTED, EventType.STATUS);
+		status(21, Event.UNKNOWN_BILL_TYPE_STACKED, EventType.STATUS);
+		status(22, Event.NOTE_JAM_CLEARED, EventType.STATUS);
+	}
+	
+	private static void status(int resultB, Event event, EventType eventType){
+		STATUS_EVENTS[resultB] = new BillEvent((byte) 0, Utils.unsignedIntToByte(resultB), event, eventType);
+	}
+	
+	/**
+	 * Return the canonical event for the given result bytes.
+	 * @param resultA event byte A
+	 * @param resultB event byte B
+	 * @return event for the given result bytes
+	 * @throws UnrecognizedEventException if the result bytes do not match any event
+	 */
 	public static BillEvent event(byte resultA, byte resultB) throws UnrecognizedEventException{
 		int resultAInt = Utils.byteToUnsignedInt(resultA);
 		int resultBInt = Utils.byteToUnsignedInt(resultB);
-		Event event = null;
-		EventType eventType = null;
 		
 		if(resultAInt > 0){
-			if(resultBInt == 0){
-				eventType = EventType.CREDIT;
-				event = Event.BILL_VALIDATED_CASHBOX;
-			} else if (resultBInt == 1){
-				eventType = EventType.PENDING_CREDIT;
-				event = Event.BILL_VALIDATED_ESCROW;
-			} else {
+			if(resultBInt > 1){
 				throw new UnrecognizedEventException("ResultB " + resultBInt +
 						" is not recognized for resultA " + resultAInt +
 						" (bill inserted).");
 			}
-		} else {
-			switch(resultBInt){
-			case 0:
-				eventType = EventType.STATUS;
-				event = Event.MASTER_INHIBIT_ACTIVE;
-				break;
-			case 1:
-				eventType = EventType.STATUS;
-				event = Event.BILL_RETURNED_FROM_ESCROW;
-				break;
-			case 2:
-				eventType = EventType.REJECT;
-				event = Event.INVALID_BILL_VALIDATION_FAIL;
-				break;
-			case 3:
-				eventType = EventType.REJECT;
-				event = Event.INVALID_BILL_TRANSPORT_FAIL;
-				break;
-			case 4:
-				eventType = EventType.STATUS;
-				event = Event.INHIBITED_BILL_SERIAL;
-				break;
-			case 5:
-				eventType = EventType.STATUS;
-				event = Event.INHIBITED_BILL_DIP_SW;
-				break;
-			case 6:
-				eventType = EventType.FATAL_ERROR;
-				event = Event.BILL_JAMMED_TRANSPORT_UNSAFE;
-				break;
-			case 7:
-				eventType = EventType.FATAL_ERROR;
-				event = Event.BILL_JAMMED_STACKER;
-				break;
-			case 8:
-				eventType = EventType.FRAUD_ATTEMPT;
-				event = Event.BILL_PULLED_BACKWARD;
-				break;
-			case 9:
-				eventType = EventType.FRAUD_ATTEMPT;
-				event = Event.BILL_TAMPER;
-				break;
-			case 10:
-				eventType = EventType.STATUS;
-				event = Event.STACKER_OK;
-				break;
-			case 11:
-				eventType = EventType.STATUS;
-				event = Event.STACKER_REMOVED;
-				break;
-			case 12:
-				eventType = EventType.STATUS;
-				event = Event.STACKER_INSERTED;
-				break;
-			case 13:
-				eventType = EventType.FATAL_ERROR;
-				event = Event.STACKER_FAULTY;
-				break;
-			case 14:
-				eventType = EventType.STATUS;
-				event = Event.STACKER_FULL;
-				break;
-			case 15:
-				eventType = EventType.FATAL_ERROR;
-				event = Event.STACKER_JAMMED;
-				break;
-			case 16:
-				eventType = EventType.FATAL_ERROR;
-				event = Event.BILL_JAMMED_TRANSPORT_SAFE;
-				break;
-			case 17:
-				eventType = EventType.FRAUD_ATTEMPT;
-				event = Event.OPTO_FRAUD_DETECTED;
-				break;
-			case 18:
-				eventType = EventType.FRAUD_ATTEMPT;
-				event = Event.STRING_FRAUD_DETECTED;
-				break;
-			case 19:
-				eventType = EventType.FATAL_ERROR;
-				event = Event.ANTI_STRING_MECHANISM_FAULTY;
-				break;
-			case 20:
-				eventType = EventType.STATUS;
-				event = Event.BARCODE_DETECTED;
-				break;
-			case 21:
-				eventType = EventType.STATUS;
-				event = Event.UNKNOWN_BILL_TYPE_STACKED;
-				break;
-			case 22:
-				eventType = EventType.STATUS;
-				event = Event.NOTE_JAM_CLEARED;
-				break;
-			default:
-				throw new UnrecognizedEventException("Unrecognized event: resultA=" + resultAInt
-						+ ", resultB=" + resultB);
-			}
-		}
-	
-		if(event == null || eventType == null){
-			throw new UnrecognizedEventException("Incorrect event or eventType defined for "
-					+ " resultA=" + resultA + ", " + "resultB=" + resultB
-					+ ": event=" + event + ", eventType=" + eventType);
+			return BILL_EVENTS[(resultAInt << 1) | resultBInt];
 		}
 		
-		return new BillEvent(resultA, resultB, event, eventType);
+		BillEvent event = STATUS_EVENTS[resultBInt];
+		if(event == null){
+			throw new UnrecognizedEventException("Unrecognized event: resultA=" + resultAInt
+					+ ", resultB=" + resultBInt);
+		}
+		return event;
 	}
 	
 	/*
 	 * event byte A
 	 */
-	private byte resultA;
+	private final byte resultA;
 	
 	/*
 	 * event byte B
 	 */
-	private byte resultB;
+	private final byte resultB;
 	
-	private Event event;
+	private final Event event;
 	
-	private EventType eventType;
+	private final EventType eventType;
 	
 	/**
 	 * @param resultA
@@ -195,6 +145,17 @@ public class BillEvent {
 				+ eventType.name() + "]";
 	}
 	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + event.hashCode();
+		result = prime * result + eventType.hashCode();
+		result = prime * result + resultA;
+		result = prime * result + resultB;
+		return result;
+	}
+	
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
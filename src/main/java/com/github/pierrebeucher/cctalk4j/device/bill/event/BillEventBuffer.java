@@ -3,7 +3,10 @@ package com.github.pierrebeucher.cctalk4j.device.bill.event;
 import java.util.Arrays;
 
 /**
- * Representation of a Bill Event Buffer obtained using Header 159.
+ * Representation of a Bill Event Buffer obtained using Header 159. A buffer
+ * holds up to {@link #EVENT_BUFFER_SIZE} events, most recent first: a buffer
+ * read with <code>BillValidator.readBufferedNoteEventsIfChanged(byte)</code>
+ * only holds the new events.
  * @author Pierre Beucher
  *
  */
@@ -3,6 +3,25 @@ package com.github.pierrebeucher.cctalk4j.device.bill.event;
 public class EventUtils {
 	
 	private EventUtils(){}
+	
+	/**
+	 * Calculate the number of events added between two event counters. The event
+	 * counter goes from 1 to 255, 0 being only used after power-up or reset.
+	 * @param previousCounter previous event counter
+	 * @param newCounter new event counter
+	 * @return number of events added
+	 */
+	public static int eventCounterDiff(byte previousCounter, byte newCounter){
+		int newCounterInt = newCounter & 0xFF;
+		int previousCounterInt = previousCounter & 0xFF;
+		if(newCounterInt < previousCounterInt){
+			//counter reset
+			return (newCounterInt + 255) - previousCounterInt;
+		} else {
+			//no counter reset
+			return newCounterInt - previousCounterInt;
+		}
+	}
 
 	/**
 	 * Return the bill type of the bill associated to the given event.
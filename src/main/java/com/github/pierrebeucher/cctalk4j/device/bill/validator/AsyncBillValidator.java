@@ -0,0 +1,136 @@
+package com.github.pierrebeucher.cctalk4j.device.bill.validator;
+
+import com.github.pierrebeucher.cctalk4j.device.AsyncDevice;
+import com.github.pierrebeucher.cctalk4j.device.DeviceFuture;
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
+import com.github.pierrebeucher.cctalk4j.device.DeviceTask;
+import com.github.pierrebeucher.cctalk4j.device.InhibitMask;
+import com.github.pierrebeucher.cctalk4j.device.TransactionQueue;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillOperatingModeResponseWrapper;
+
+/**
+ * Asynchronous facet of a <code>BillValidator</code>, each method queuing
+ * the request of the same name and returning immediately.
+ * @author Pierre Beucher
+ *
+ */
+public class AsyncBillValidator extends AsyncDevice<BillValidator> {
+
+	/**
+	 * Create an asynchronous facet queuing requests in the transaction queue of the validator port.
+	 * @param validator validator to request
+	 */
+	public AsyncBillValidator(BillValidator validator) {
+		super(validator);
+	}
+
+	/**
+	 * @param validator validator to request
+	 * @param transactionQueue queue performing requests
+	 */
+	public AsyncBillValidator(BillValidator validator, TransactionQueue transactionQueue) {
+		super(validator, transactionQueue);
+	}
+
+	/**
+	 * @see BillValidator#readBufferedNoteEvents()
+	 */
+	public DeviceFuture<BillEventBuffer> readBufferedNoteEventsAsync(){
+		return submit(new DeviceTask<BillValidator, BillEventBuffer>() {
+			@Override
+			public BillEventBuffer execute(BillValidator device) throws DeviceRequestException {
+				return device.readBufferedNoteEvents();
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#routeBill(byte)
+	 */
+	public DeviceFuture<Void> routeBillAsync(final byte routeCode){
+		return submit(new DeviceTask<BillValidator, Void>() {
+			@Override
+			public Void execute(BillValidator device) throws BillRoutingException, DeviceRequestException {
+				device.routeBill(routeCode);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#requestMasterInhibitStatus()
+	 */
+	public DeviceFuture<Boolean> requestMasterInhibitStatusAsync(){
+		return submit(new DeviceTask<BillValidator, Boolean>() {
+			@Override
+			public Boolean execute(BillValidator device) throws DeviceRequestException {
+				return device.requestMasterInhibitStatus();
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#modifyMasterInhibitStatus(boolean)
+	 */
+	public DeviceFuture<Void> modifyMasterInhibitStatusAsync(final boolean inhibitStatus){
+		return submit(new DeviceTask<BillValidator, Void>() {
+			@Override
+			public Void execute(BillValidator device) throws DeviceRequestException {
+				device.modifyMasterInhibitStatus(inhibitStatus);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#requestInhibitStatus()
+	 */
+	public DeviceFuture<InhibitMask> requestInhibitStatusAsync(){
+		return submit(new DeviceTask<BillValidator, InhibitMask>() {
+			@Override
+			public InhibitMask execute(BillValidator device) throws DeviceRequestException {
+				return device.requestInhibitStatus();
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#modifyInhibitStatus(InhibitMask)
+	 */
+	public DeviceFuture<Void> modifyInhibitStatusAsync(final InhibitMask mask){
+		return submit(new DeviceTask<BillValidator, Void>() {
+			@Override
+			public Void execute(BillValidator device) throws DeviceRequestException {
+				device.modifyInhibitStatus(mask);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#modifyBillOperatingMode(boolean, boolean)
+	 */
+	public DeviceFuture<Void> modifyBillOperatingModeAsync(final boolean useStacker, final boolean useEscrow){
+		return submit(new DeviceTask<BillValidator, Void>() {
+			@Override
+			public Void execute(BillValidator device) throws DeviceRequestException {
+				device.modifyBillOperatingMode(useStacker, useEscrow);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @see BillValidator#requestBillOperatingMode()
+	 */
+	public DeviceFuture<BillOperatingModeResponseWrapper> requestBillOperatingModeAsync(){
+		return submit(new DeviceTask<BillValidator, BillOperatingModeResponseWrapper>() {
+			@Override
+			public BillOperatingModeResponseWrapper execute(BillValidator device) throws DeviceRequestException {
+				return device.requestBillOperatingMode();
+			}
+		});
+	}
+
+}
@@ -1,19 +1,31 @@
 package com.github.pierrebeucher.cctalk4j.device.bill.validator;
 
 import java.nio.charset.StandardCharsets;
-import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.github.pierrebeucher.cctalk4j.core.Header;
 import com.github.pierrebeucher.cctalk4j.core.Message;
 import com.github.pierrebeucher.cctalk4j.core.MessageIOException;
 import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
 import com.github.pierrebeucher.cctalk4j.core.Utils;
 import com.github.pierrebeucher.cctalk4j.device.AbstractDevice;
 import com.github.pierrebeucher.cctalk4j.device.Device;
+import com.github.pierrebeucher.cctalk4j.device.DeviceConfigurationException;
 import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
 import com.github.pierrebeucher.cctalk4j.device.InhibitMask;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.Event;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.EventUtils;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuilderFactory;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.AckWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillEventBufferResponseWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillIdResponseWrapper;
@@ -25,7 +37,13 @@ import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.RouteBillResponse
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.UnexpectedContentException;
 
 /**
- * <code>BillValidator</code> represents a Bill Validator device. 
+ * <p><code>BillValidator</code> represents a Bill Validator device.</p>
+ * <p>The master inhibit status, inhibit status and bill operating mode last read or successfully
+ * modified are kept for {@link #getStateMaxAge()} ms: requesting them is served from memory,
+ * and modifying them to their known value sends nothing. A state becomes unknown when a request
+ * modifying it fails, when the device is connected or disconnected, and when events show the device
+ * was reset (event counter back to 0) or master inhibited. Use {@link #invalidateState()} after
+ * modifying the device state by other means, such as {@link #requestResponse(Message)}.</p>
  * @author Pierre Beucher
  *
  */
@@ -46,20 +64,178 @@ public class BillValidator extends AbstractDevice implements Device {
 	 */
 	public static final byte ROUTE_CODE_EXTEND_ESCROW_TIMEOUT = -1; //255 in unsigned byte
 	
+	/**
+	 * Default time during which a known device state is used instead of requesting it, in ms
+	 */
+	public static final long DEFAULT_STATE_MAX_AGE = 5000;
+	
+	/*
+	 * Device state known from previous requests
+	 */
+	private final StateShadow<Boolean> masterInhibitStatus = new StateShadow<Boolean>();
+	
+	private final StateShadow<InhibitMask> inhibitStatus = new StateShadow<InhibitMask>();
+	
+	/*
+	 * Operating mode as modified, see operatingMode(boolean, boolean)
+	 */
+	private final StateShadow<Integer> billOperatingMode = new StateShadow<Integer>();
+	
+	private final StateShadow<BillOperatingModeResponseWrapper> billOperatingModeResponse = new StateShadow<BillOperatingModeResponseWrapper>();
+	
+	/*
+	 * Maximum age of known states, in ns
+	 */
+	private volatile long stateMaxAge = TimeUnit.MILLISECONDS.toNanos(DEFAULT_STATE_MAX_AGE);
+	
+	private final AtomicLong skippedRequestCount = new AtomicLong();
+	
+	public BillValidator(MessagePort port, MessageBuilderFactory messageBuilderFactory,
+			byte deviceAddress) {
+		super(port, messageBuilderFactory, deviceAddress);
+	}
+	
+	/**
+	 * @deprecated use {@link #BillValidator(MessagePort, MessageBuilderFactory, byte)}
+	 */
+	@Deprecated
 	public BillValidator(MessagePort port, Class<? extends MessageBuilder> messageBuilderClass,
 			byte deviceAddress) {
 		super(port, messageBuilderClass, deviceAddress);
 	}
 	
+	@Override
+	public void connect() throws MessagePortException, DeviceConfigurationException {
+		invalidateState();
+		super.connect();
+	}
+	
+	@Override
+	public void disconnect() throws MessagePortException {
+		invalidateState();
+		super.disconnect();
+	}
+	
 	public BillEventBuffer readBufferedNoteEvents() throws DeviceRequestException{
-		Message response = requestResponse(Header.READ_BUFFERED_BILL_EVENTS);
 		BillEventBufferResponseWrapper wrapper;
 		try {
+			Message response = requestResponse(Header.READ_BUFFERED_BILL_EVENTS);
 			wrapper = BillEventBufferResponseWrapper.wrap(response);
-			return new BillEventBuffer(wrapper.getBillEvents(), wrapper.getEventCounter());
 		} catch (UnexpectedContentException e) {
+			invalidateState();
 			throw new DeviceRequestException(e);
+		} catch (DeviceRequestException e) {
+			//the device may have been reset
+			invalidateState();
+			throw e;
 		}
+		BillEventBuffer buffer = new BillEventBuffer(wrapper.getBillEvents(), wrapper.getEventCounter());
+		updateState(buffer);
+		return buffer;
+	}
+	
+	/**
+	 * Read the buffered note events if the event counter changed. The event counter
+	 * is read straight from the response and compared with the given counter: nothing
+	 * is decoded nor allocated if it is unchanged, otherwise only the new events are decoded.
+	 * @param previousCounter event counter of the previously read buffer
+	 * @return buffer holding the new events, at most <code>BillEventBuffer.EVENT_BUFFER_SIZE</code>,
+	 * or null if the event counter is unchanged
+	 * @throws DeviceRequestException
+	 */
+	public BillEventBuffer readBufferedNoteEventsIfChanged(byte previousCounter) throws DeviceRequestException{
+		BillEventBuffer buffer;
+		try {
+			Message response = requestResponse(Header.READ_BUFFERED_BILL_EVENTS);
+			byte eventCounter = BillEventBufferResponseWrapper.eventCounter(response);
+			if(eventCounter == previousCounter){
+				return null;
+			}
+			int count = Math.min(EventUtils.eventCounterDiff(previousCounter, eventCounter),
+					BillEventBuffer.EVENT_BUFFER_SIZE);
+			buffer = new BillEventBuffer(BillEventBufferResponseWrapper.decodeEvents(response, count), eventCounter);
+		} catch (UnexpectedContentException e) {
+			invalidateState();
+			throw new DeviceRequestException(e);
+		} catch (DeviceRequestException e) {
+			//the device may have been reset
+			invalidateState();
+			throw e;
+		}
+		updateState(buffer);
+		return buffer;
+	}
+	
+	/*
+	 * Forget the states changed by the device itself, as shown by the given events
+	 */
+	private void updateState(BillEventBuffer buffer){
+		if(buffer.getEventCounter() == 0){
+			//event counter is 0 after power up or reset only
+			invalidateState();
+			return;
+		}
+		for(BillEvent event : buffer.getBillEvents()){
+			if(event != null && event.getEvent() == Event.MASTER_INHIBIT_ACTIVE){
+				masterInhibitStatus.invalidate();
+			}
+		}
+	}
+	
+	/**
+	 * Forget the known device state: the next state requests and modifications
+	 * will be sent to the device.
+	 */
+	public void invalidateState(){
+		masterInhibitStatus.invalidate();
+		inhibitStatus.invalidate();
+		billOperatingMode.invalidate();
+		billOperatingModeResponse.invalidate();
+	}
+	
+	/**
+	 * 
+	 * @return time during which a known device state is used instead of requesting it, in ms
+	 */
+	public long getStateMaxAge() {
+		return TimeUnit.NANOSECONDS.toMillis(stateMaxAge);
+	}
+	
+	/**
+	 * @param stateMaxAge time during which a known device state is used instead of
+	 * requesting it, in ms, 0 to always send state requests and modifications to the device
+	 */
+	public void setStateMaxAge(long stateMaxAge) {
+		this.stateMaxAge = stateMaxAge <= 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(stateMaxAge);
+	}
+	
+	/**
+	 * 
+	 * @return number of state requests and modifications served without sending any request
+	 */
+	public long getSkippedRequestCount() {
+		return skippedRequestCount.get();
+	}
+	
+	/*
+	 * Return true if the given known state is equal to the given value,
+	 * counting the skipped request
+	 */
+	private <T> boolean isKnown(StateShadow<T> shadow, T value){
+		T known = shadow.get(stateMaxAge);
+		if(known != null && known.equals(value)){
+			skippedRequestCount.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+	
+	private <T> T known(StateShadow<T> shadow){
+		T known = shadow.get(stateMaxAge);
+		if(known != null){
+			skippedRequestCount.incrementAndGet();
+		}
+		return known;
 	}
 	
 	/**
@@ -68,10 +244,16 @@ public class BillValidator extends AbstractDevice implements Device {
 	 * @throws MessageIOException
 	 * @throws UnexpectedContentException
 	 */
-	public boolean requestMasterInhibitStatus() throws DeviceRequestException{
+	public synchronized boolean requestMasterInhibitStatus() throws DeviceRequestException{
+		Boolean known = known(masterInhibitStatus);
+		if(known != null){
+			return known;
+		}
 		Message response = requestResponse(Header.REQUEST_MASTER_INHIBIT_STATUS);
 		try {
-			return BooleanResponseWrapper.wrap(response).booleanValue();
+			boolean status = BooleanResponseWrapper.wrap(response).booleanValue();
+			masterInhibitStatus.set(status);
+			return status;
 		} catch (UnexpectedContentException e) {
 			throw new DeviceRequestException(e);
 		}
@@ -83,12 +265,18 @@ public class BillValidator extends AbstractDevice implements Device {
 	 * @throws MessageIOException
 	 * @throws UnexpectedContentException
 	 */
-	public void modifyMasterInhibitStatus(boolean inhibitStatus) throws DeviceRequestException{
+	public synchronized void modifyMasterInhibitStatus(boolean inhibitStatus) throws DeviceRequestException{
+		if(isKnown(masterInhibitStatus, inhibitStatus)){
+			return;
+		}
+		//unknown until acknowledged
+		masterInhibitStatus.invalidate();
 		try{
 			Message response = requestResponse(
 				Header.MODIFY_MASTER_INHIBIT_STATUS,
 				new byte[]{Utils.boolToByte(inhibitStatus)});
 			AckWrapper.wrap(response);
+			masterInhibitStatus.set(inhibitStatus);
 		} catch (UnexpectedContentException e) {
 			throw new DeviceRequestException(e);
 		}
@@ -100,10 +288,16 @@ public class BillValidator extends AbstractDevice implements Device {
 	 * @throws MessageIOException
 	 * @throws UnexpectedContentException
 	 */
-	public InhibitMask requestInhibitStatus() throws DeviceRequestException{
+	public synchronized InhibitMask requestInhibitStatus() throws DeviceRequestException{
+		InhibitMask known = known(inhibitStatus);
+		if(known != null){
+			return known;
+		}
 		Message response = requestResponse(Header.REQUEST_INHIBIT_STATUS);
 		try {
-			return new InhibitMask(InhibitStatusResponseWrapper.wrap(response).bitSet());
+			InhibitMask mask = new InhibitMask(InhibitStatusResponseWrapper.wrap(response).bitSet());
+			inhibitStatus.set(mask);
+			return mask;
 		} catch (UnexpectedContentException e) {
 			throw new DeviceRequestException(e);
 		}
@@ -115,10 +309,15 @@ public class BillValidator extends AbstractDevice implements Device {
 	 * @throws MessageIOException
 	 * @throws UnexpectedContentException
 	 */
-	public void modifyInhibitStatus(InhibitMask mask) throws DeviceRequestException{
+	public synchronized void modifyInhibitStatus(InhibitMask mask) throws DeviceRequestException{
+		if(isKnown(inhibitStatus, mask)){
+			return;
+		}
+		inhibitStatus.invalidate();
 		Message response = requestResponse(Header.MODIFY_INHIBIT_STATUS, mask.bytes());
 		try {
 			AckWrapper.wrap(response);
+			inhibitStatus.set(mask);
 		} catch (UnexpectedContentException e) {
 			throw new DeviceRequestException(e);
 		}
@@ -155,6 +354,69 @@ public class BillValidator extends AbstractDevice implements Device {
 		}
 	}
 	
+	/**
+	 * <p>Retrieve the bill ids of consecutive bill types, starting at the given bill type and stopping
+	 * at the first unprogrammed bill type, using Header 157.</p>
+	 * <p>Requests are sent back-to-back as a single batch: buffers are purged once,
+	 * and no other request of this device is performed until all bill ids are retrieved.</p>
+	 * @param firstBillType first bill type to request
+	 * @param maxCount maximum number of bill types to request
+	 * @return bill ids of the programmed bill types, in bill type order
+	 * @throws DeviceRequestException
+	 */
+	public synchronized List<BillIdResponseWrapper> requestBillIds(byte firstBillType, int maxCount) throws DeviceRequestException{
+		List<BillIdResponseWrapper> billIds = new ArrayList<BillIdResponseWrapper>();
+		for(int i=0; i<maxCount; i++){
+			Message response = batchRequestResponse(Header.REQUEST_BILL_ID, new byte[]{(byte) (firstBillType + i)}, i == 0);
+			BillIdResponseWrapper billId;
+			try {
+				billId = BillIdResponseWrapper.wrap(response);
+			} catch (UnexpectedContentException e) {
+				throw new DeviceRequestException(e);
+			}
+			if(!BillIdResponseWrapper.isProgrammed(billId)){
+				break;
+			}
+			billIds.add(billId);
+		}
+		return billIds;
+	}
+	
+	/**
+	 * Retrieve the country scaling factors of the given country codes, sending
+	 * the requests back-to-back as a single batch.
+	 * @param countryCodes country codes for which to retrieve scaling factor
+	 * @return obtained country scaling factors by country code, in the given order
+	 * @throws DeviceRequestException
+	 * @throws IllegalArgumentException if a country code exceeds 2 characters
+	 * @see #requestCountryScalingFactor(String)
+	 */
+	public synchronized Map<String, CountryScalingFactorWrapper> requestCountryScalingFactors(Collection<String> countryCodes)
+				throws DeviceRequestException, IllegalArgumentException{
+		for(String countryCode : countryCodes){
+			if(countryCode.length() > 2){
+				throw new IllegalArgumentException("Country code must not exceed 2 characters length.");
+			}
+		}
+		
+		Map<String, CountryScalingFactorWrapper> factors = new LinkedHashMap<String, CountryScalingFactorWrapper>();
+		for(String countryCode : countryCodes){
+			if(factors.containsKey(countryCode)){
+				continue;
+			}
+			Message response = batchRequestResponse(
+					Header.REQUEST_COUNTRY_SCALING_FACTOR,
+					countryCode.getBytes(StandardCharsets.US_ASCII),
+					factors.isEmpty());
+			try {
+				factors.put(countryCode, CountryScalingFactorWrapper.wrap(response));
+			} catch (UnexpectedContentException e) {
+				throw new DeviceRequestException(e);
+			}
+		}
+		return factors;
+	}
+	
 	/**
 	 * Retrieve the country scaling factor for the given country code. 
 	 * @param countryCode country code for which to retrieve scaling factor
@@ -179,6 +441,16 @@ public class BillValidator extends AbstractDevice implements Device {
 		}
 	}
 	
+	/**
+	 * Request the revision of the currency data programmed in the validator,
+	 * using Header 145.
+	 * @return currency revision as String
+	 * @throws DeviceRequestException
+	 */
+	public String requestCurrencyRevision() throws DeviceRequestException{
+		return requestAsciiResponse(Header.REQUEST_CURRENCY_REVISION);
+	}
+	
 	/**
 	 * Commands the routing of a bill held in escrow.
 	 * Use {@link #ROUTE_CODE_EXTEND_ESCROW_TIMEOUT}, {@link #ROUTE_CODE_RETURN_BILL}
@@ -217,15 +489,19 @@ public class BillValidator extends AbstractDevice implements Device {
 	 * @throws MessageIOException
 	 * @throws UnexpectedContentException
 	 */
-	public void modifyBillOperatingMode(boolean useStacker, boolean useEscrow) throws DeviceRequestException{
-		// {useStacker, useEscrow}
-		BitSet bitSet = new BitSet(2);
-		bitSet.set(0, useEscrow);
-		bitSet.set(1, useStacker);
+	public synchronized void modifyBillOperatingMode(boolean useStacker, boolean useEscrow) throws DeviceRequestException{
+		Integer mode = operatingMode(useStacker, useEscrow);
+		if(isKnown(billOperatingMode, mode)){
+			return;
+		}
+		billOperatingMode.invalidate();
+		billOperatingModeResponse.invalidate();
 		
-		Message response = requestResponse(Header.MODIFY_BILL_OPERATING_MODE, bitSet.toByteArray());
+		// bit 0: use stacker, bit 1: use escrow
+		Message response = requestResponse(Header.MODIFY_BILL_OPERATING_MODE, mode.byteValue());
 		try {
 			AckWrapper.wrap(response);
+			billOperatingMode.set(mode);
 		} catch (UnexpectedContentException e) {
 			throw new DeviceRequestException(e);
 		}
@@ -237,13 +513,24 @@ public class BillValidator extends AbstractDevice implements Device {
 	 * @throws UnexpectedContentException
 	 * @throws MessageIOException
 	 */
-	public BillOperatingModeResponseWrapper requestBillOperatingMode() throws DeviceRequestException {
+	public synchronized BillOperatingModeResponseWrapper requestBillOperatingMode() throws DeviceRequestException {
+		BillOperatingModeResponseWrapper known = known(billOperatingModeResponse);
+		if(known != null){
+			return known;
+		}
 		Message response;
 		try {
 			response = requestResponse(Header.REQUEST_BILL_OPERATING_MODE);
-			return BillOperatingModeResponseWrapper.wrap(response);
+			BillOperatingModeResponseWrapper wrapper = BillOperatingModeResponseWrapper.wrap(response);
+			billOperatingModeResponse.set(wrapper);
+			billOperatingMode.set(operatingMode(wrapper.isStackerUsed(), wrapper.isEscrowUsed()));
+			return wrapper;
 		} catch (UnexpectedContentException e) {
 			throw new DeviceRequestException(e);
 		}
 	}
+	
+	private static Integer operatingMode(boolean useStacker, boolean useEscrow){
+		return (useStacker ? 1 : 0) | (useEscrow ? 2 : 0);
+	}
 }
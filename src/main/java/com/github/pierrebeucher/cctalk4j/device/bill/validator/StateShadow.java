@@ -0,0 +1,43 @@
+package com.github.pierrebeucher.cctalk4j.device.bill.validator;
+
+/**
+ * Last known value of a device-side state, such as its master inhibit status,
+ * with the time it was known at.
+ * @author Pierre Beucher
+ *
+ * @param <T> state type
+ */
+final class StateShadow<T> {
+
+	private T value;
+
+	private long time;
+
+	/**
+	 * @param maxAge maximum age of the value, in ns
+	 * @return the known value, or null if unknown or older than the given age
+	 */
+	synchronized T get(long maxAge){
+		if(value == null || System.nanoTime() - time > maxAge){
+			return null;
+		}
+		return value;
+	}
+
+	/**
+	 * @param value value known from the device, null if unknown
+	 */
+	synchronized void set(T value){
+		this.value = value;
+		this.time = System.nanoTime();
+	}
+
+	synchronized void invalidate(){
+		this.value = null;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.valueOf(value);
+	}
+}
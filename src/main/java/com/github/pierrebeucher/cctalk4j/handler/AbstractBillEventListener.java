@@ -39,7 +39,7 @@ public abstract class AbstractBillEventListener implements BillEventListener {
 	
 	protected Bill generateBillFromBillEvent(BillValidatorHandler handler, BillEvent event) {
 		byte billType = event.getResultA();
-		Bill bill = handler.getBillMap().get(billType);
+		Bill bill = handler.getBillRegistry().get(billType);
 		if(bill == null){
 			
 		}
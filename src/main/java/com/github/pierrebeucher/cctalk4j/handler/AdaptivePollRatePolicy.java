@@ -0,0 +1,127 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+/**
+ * <p><code>PollRatePolicy</code> polling faster while events occur, and slower when idle.</p>
+ * <p>Once any new event is read, the poll period drops to the minimum period. After a credit or
+ * pending credit event, as a customer is likely to insert more bills or a bill waits in escrow,
+ * the minimum period is kept for a number of polls. The period is then multiplied by the
+ * backoff factor after each poll reading no event, up to the maximum period.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class AdaptivePollRatePolicy implements PollRatePolicy {
+	
+	/**
+	 * Default minimum poll period, in ms
+	 */
+	public static final long DEFAULT_MIN_PERIOD = 50;
+	
+	/**
+	 * Default maximum poll period, in ms
+	 */
+	public static final long DEFAULT_MAX_PERIOD = 500;
+	
+	/**
+	 * Default factor applied to the period after each poll reading no event
+	 */
+	public static final double DEFAULT_BACKOFF_FACTOR = 2;
+	
+	/**
+	 * Default number of polls performed at the minimum period after a credit event,
+	 * about 10 seconds, long enough for a customer to insert the next bill
+	 */
+	public static final int DEFAULT_CREDIT_HOLD_POLLS = 200;
+	
+	private final long minPeriod;
+	
+	private final long maxPeriod;
+	
+	private final double backoffFactor;
+	
+	private final int creditHoldPolls;
+	
+	private long period;
+	
+	/*
+	 * Number of polls left at the minimum period
+	 */
+	private int holdPolls;
+
+	/**
+	 * Create a policy with default bounds.
+	 */
+	public AdaptivePollRatePolicy() {
+		this(DEFAULT_MIN_PERIOD, DEFAULT_MAX_PERIOD, DEFAULT_BACKOFF_FACTOR, DEFAULT_CREDIT_HOLD_POLLS);
+	}
+	
+	/**
+	 * @param minPeriod poll period once an event is read, in ms
+	 * @param maxPeriod poll period once idle, in ms
+	 * @param backoffFactor factor applied to the period after each poll reading no event, greater than 1
+	 * @param creditHoldPolls number of polls performed at the minimum period after a credit event
+	 */
+	public AdaptivePollRatePolicy(long minPeriod, long maxPeriod, double backoffFactor, int creditHoldPolls) {
+		super();
+		if(minPeriod <= 0 || maxPeriod < minPeriod){
+			throw new IllegalArgumentException("Invalid poll period range [" + minPeriod + "-" + maxPeriod + "]");
+		}
+		if(!(backoffFactor > 1)){
+			throw new IllegalArgumentException("Backoff factor must be greater than 1.");
+		}
+		if(creditHoldPolls < 0){
+			throw new IllegalArgumentException("Credit hold polls cannot be negative.");
+		}
+		this.minPeriod = minPeriod;
+		this.maxPeriod = maxPeriod;
+		this.backoffFactor = backoffFactor;
+		this.creditHoldPolls = creditHoldPolls;
+	}
+
+	/**
+	 * Start at the minimum period, as events may be pending.
+	 */
+	@Override
+	public long start() {
+		period = minPeriod;
+		holdPolls = 0;
+		return period;
+	}
+
+	@Override
+	public long nextPeriod(int newEventCount, boolean credit) {
+		if(credit){
+			period = minPeriod;
+			holdPolls = creditHoldPolls;
+		} else if(newEventCount > 0){
+			period = minPeriod;
+		} else if(holdPolls > 0){
+			holdPolls--;
+		} else {
+			period = Math.min(maxPeriod, Math.max(period + 1, (long) (period * backoffFactor)));
+		}
+		return period;
+	}
+
+	public long getMinPeriod() {
+		return minPeriod;
+	}
+
+	public long getMaxPeriod() {
+		return maxPeriod;
+	}
+
+	public double getBackoffFactor() {
+		return backoffFactor;
+	}
+
+	public int getCreditHoldPolls() {
+		return creditHoldPolls;
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptivePollRatePolicy [minPeriod=" + minPeriod + ", maxPeriod=" + maxPeriod + ", backoffFactor="
+				+ backoffFactor + ", creditHoldPolls=" + creditHoldPolls + "]";
+	}
+	
+}
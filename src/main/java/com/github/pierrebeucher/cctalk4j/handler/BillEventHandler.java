@@ -1,18 +1,17 @@
 package com.github.pierrebeucher.cctalk4j.handler;
 
 import java.lang.Math;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.pierrebeucher.cctalk4j.core.Utils;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.EventUtils;
 
 /**
  * <p><code>BillEventHandler</code> is used to handle bill event buffers.
@@ -20,13 +19,14 @@ import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
  * and {@link #handleLostEvent(BillEventBuffer, BillEventBuffer)}
  * to monitor incoming events, fed using {@link #feed(BillEventBuffer)}.</p>
  * 
- * <p>Any <code>BillEventBuffer</code> fed is saved into a Deque of a limited
- * size (minimum size: 1). This <code>Deque</code> has two roles: mainly,
+ * <p>Any <code>BillEventBuffer</code> fed is saved into a history of a limited
+ * size (minimum size: 1). This history has two roles: mainly,
  * keep the previous event counter to compare it with a buffer event count and
  * deduce new, old and lost events. It can also be used to keep a more complete
- * history of encountered events. This <code>Deque</code> is automatically recycled
+ * history of encountered events. This history is automatically recycled
  * once its maximal size is reached, with older <code>BillEventBuffer</code> being
- * removed.</p>
+ * overwritten. Feeding a buffer neither locks nor allocates for the history, and
+ * other threads may read it with {@link #getEventBufferDeque()}.</p>
  * 
  * <p>Example considering the following <code>BillEventBuffer</code> being polled from a device, one after another:
  * <pre>{@code
@@ -68,6 +68,8 @@ import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
  * Will trigger a call to {@link #handleLostEvent(BillEventBuffer, BillEventBuffer)}, as too much events
  * has been added (6 new events), more that can be held in memory: some events has ben lost.
  * </p>
+ * <p>Listeners are notified on the thread feeding buffers, unless an {@link EventDispatcher}
+ * is set with {@link #setEventDispatcher(EventDispatcher)}.</p>
  * @author Pierre Beucher
  *
  */
@@ -84,32 +86,29 @@ class BillEventHandler {
 	 */
 	public static int DEFAULT_MAX_EVENT_BUFFER_DEQUE_SIZE = 50;
 	
+	/**
+	 * @see EventUtils#eventCounterDiff(byte, byte)
+	 */
 	public static int calculateEventCounterDiff(byte previousCounter, byte newCounter){
-		int newCounterInt = Utils.byteToUnsignedInt(newCounter);
-		int previousCounterInt = Utils.byteToUnsignedInt(previousCounter);
-		if(newCounterInt < previousCounterInt){
-			//counter reset
-			return (newCounterInt + 255) - previousCounterInt;
-		} else {
-			//no counter reset
-			return newCounterInt - previousCounterInt;
-		}
+		return EventUtils.eventCounterDiff(previousCounter, newCounter);
 	}
 	
 	/*
-	 * Deque keeping fed BillEventBuffers until a certain limit
+	 * Ring keeping fed BillEventBuffers until a certain limit
 	 */
-	private Deque<BillEventBuffer> eventBufferDeque;
+	private EventBufferHistory eventBufferHistory;
 	
 	/*
-	 * Maximum number of event buffers to keep in the deque
+	 * Collection of listeners to notify
+	 * may be iterated by the dispatcher threads
 	 */
-	private int eventBufferDequeMaxSize;
+	private Collection<BillEventListener> eventListeners;
 	
 	/*
-	 * Collection of listeners to notify
+	 * Dispatcher notifying listeners, null to notify them
+	 * on the thread feeding buffers
 	 */
-	private Collection<BillEventListener> eventListeners;
+	private volatile EventDispatcher eventDispatcher;
 	
 	/*
 	 * Validator handler for which this event handler works 
@@ -133,9 +132,8 @@ class BillEventHandler {
 		super();
 		this.eventBufferQueueInitialised = false;
 		this.handler = handler;
-		this.eventBufferDequeMaxSize = bufferDequeMaxSize;
-		this.eventBufferDeque = new LinkedBlockingDeque<BillEventBuffer>(bufferDequeMaxSize);
-		this.eventListeners = new ArrayList<BillEventListener>();
+		this.eventBufferHistory = new EventBufferHistory(bufferDequeMaxSize);
+		this.eventListeners = new CopyOnWriteArrayList<BillEventListener>();
 	}
 	
 	/**
@@ -226,7 +224,7 @@ class BillEventHandler {
 	 * @return the previous event buffer, or null if there are none
 	 */
 	protected BillEventBuffer peekPreviousEventBuffer(){
-		return this.eventBufferDeque.peekLast();
+		return this.eventBufferHistory.peekLast();
 	}
 	
 	/**
@@ -234,20 +232,17 @@ class BillEventHandler {
 	 * @return the most recent buffer event counter, or 0 if no event buffer fed yet
 	 */
 	protected byte peekPreviousEventCounter(){
-		return this.eventBufferDeque.size() == 0 ?  0 : this.eventBufferDeque.peekLast().getEventCounter();
+		BillEventBuffer previous = this.eventBufferHistory.peekLast();
+		return previous == null ?  0 : previous.getEventCounter();
 	}
 	
 	/**
-	 * Push a new event buffer into the Deque, and
-	 * remove older buffers if necessary (Deque full)
+	 * Push a new event buffer into the history, overwriting
+	 * the oldest buffer if necessary (history full)
 	 * @param eventBuffer buffer to push
 	 */
 	private void pushEventBuffer(BillEventBuffer eventBuffer){
-		//pop if queue full
-		if(this.eventBufferDeque.size() == this.eventBufferDequeMaxSize) {
-			this.eventBufferDeque.pop();
-		}
-		this.eventBufferDeque.add(eventBuffer);
+		this.eventBufferHistory.add(eventBuffer);
 	}
 	
 	/**
@@ -291,6 +286,11 @@ class BillEventHandler {
 	 * @param count number of event lost
 	 */
 	private void notifyLostEvent(int count, BillEventBuffer previousBuffer, BillEventBuffer newBuffer){
+		EventDispatcher dispatcher = eventDispatcher;
+		if(dispatcher != null){
+			dispatcher.publishLostEvent(eventListeners, count, previousBuffer, newBuffer);
+			return;
+		}
 		for(BillEventListener listener : eventListeners){
 			listener.lostEvent(count, previousBuffer, newBuffer);
 		}
@@ -305,18 +305,23 @@ class BillEventHandler {
 	 * @throws DeviceHandlingException 
 	 */
 	private void notifyNewEvent(BillEvent e) {
+		EventDispatcher dispatcher = eventDispatcher;
+		if(dispatcher != null){
+			dispatcher.publishNewEvent(eventListeners, handler, e);
+			return;
+		}
 		for(BillEventListener listener : eventListeners){
 			listener.newEvent(handler, e);
 		}
 	}
 
 	/**
-	 * 
-	 * @return <code>Deque</code> of <code>BillEventBuffer</code> fed to 
-	 * this <code>BillEventHandler</code>.
+	 * Read the history of fed buffers, without blocking the thread feeding buffers.
+	 * @return a copy of the <code>BillEventBuffer</code> fed to 
+	 * this <code>BillEventHandler</code>, oldest first.
 	 */
 	public Deque<BillEventBuffer> getEventBufferDeque() {
-		return this.eventBufferDeque;
+		return this.eventBufferHistory.snapshot();
 	}
 
 	/**
@@ -332,7 +337,7 @@ class BillEventHandler {
 	 * @return maximum size of the event buffer queue
 	 */
 	public int getEventBufferQueueMaxSize() {
-		return eventBufferDequeMaxSize;
+		return eventBufferHistory.getCapacity();
 	}
 
 	/**
@@ -347,5 +352,23 @@ class BillEventHandler {
 		return eventBufferQueueInitialised;
 	}
 
+	/**
+	 * 
+	 * @return dispatcher notifying listeners, or null if they are notified on
+	 * the thread feeding buffers
+	 */
+	public EventDispatcher getEventDispatcher() {
+		return eventDispatcher;
+	}
+
+	/**
+	 * Set the dispatcher notifying listeners. Should be set before feeding buffers.
+	 * @param eventDispatcher dispatcher notifying listeners, or null to notify them
+	 * on the thread feeding buffers
+	 */
+	public void setEventDispatcher(EventDispatcher eventDispatcher) {
+		this.eventDispatcher = eventDispatcher;
+	}
+
 	
 }
@@ -28,8 +28,10 @@ public interface BillEventListener {
 	/**
 	 * Called when an event loss has been detected.
 	 * @param lostEventCount number of event lost
-	 * @param previousBuffer event buffer before event loss
-	 * @param newBuffer event buffer after event loss
+	 * @param previousBuffer event buffer before event loss, null if the notifications
+	 * of read events were dropped by an <code>EventDispatcher</code>
+	 * @param newBuffer event buffer after event loss, null if the notifications
+	 * of read events were dropped by an <code>EventDispatcher</code>
 	 */
 	void lostEvent(int lostEventCount, BillEventBuffer previousBuffer, BillEventBuffer newBuffer);
 }
@@ -0,0 +1,227 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.device.bill.Bill;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.CountryScalingFactorWrapper;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.UnexpectedContentException;
+
+/**
+ * <p>Keeps the bill tables and country scaling factors discovered from devices in a
+ * properties file, keyed by {@link DeviceIdentity}: a device whose identity is cached
+ * does not need its whole bill table to be requested again. Reprogramming the currency
+ * data of a device changes its currency revision, and thus its identity.</p>
+ * <p>A single file may be shared by the handlers of several devices. The file is read
+ * on first use and rewritten on each store.</p>
+ * <p>Example usage:
+ * <pre>
+ * {@code
+ * handler.setBillTableCache(new BillTableCache(new File("bill-tables.properties")));
+ * handler.startInputAcceptance();
+ * }
+ * </pre>
+ * </p>
+ * @author Pierre Beucher
+ *
+ */
+public class BillTableCache {
+	
+	private static final Logger logger = LoggerFactory.getLogger(BillTableCache.class);
+	
+	private final File file;
+	
+	/*
+	 * File content, null until read
+	 */
+	private Properties properties;
+	
+	private long hitCount;
+	
+	private long missCount;
+	
+	/**
+	 * @param file file holding the cache, created on first store
+	 */
+	public BillTableCache(File file) {
+		super();
+		this.file = file;
+	}
+	
+	/**
+	 * Load the cached bill table of the given device identity, if any.
+	 * @param identity device identity
+	 * @param bills map to which cached bills are put by bill type
+	 * @param countryScalingFactors map to which cached scaling factors are put by country code
+	 * @return true if the identity is cached, false otherwise leaving the given maps unchanged
+	 */
+	public synchronized boolean load(DeviceIdentity identity, Map<Byte, Bill> bills,
+			Map<String, CountryScalingFactorWrapper> countryScalingFactors){
+		Properties p = properties();
+		String key = identity.toKey();
+		String billTypes = p.getProperty(key + ".bills");
+		String countries = p.getProperty(key + ".countries");
+		if(billTypes == null || countries == null){
+			missCount++;
+			return false;
+		}
+		
+		try {
+			Map<Byte, Bill> cachedBills = new LinkedHashMap<Byte, Bill>();
+			for(String type : split(billTypes)){
+				byte billType = Byte.parseByte(type);
+				String[] bill = p.getProperty(key + ".bill." + type).split(" ");
+				String id = bill[0];
+				cachedBills.put(billType, new Bill(billType, id.substring(0, 2), id.substring(2, 6), id.substring(6, 7),
+						new BigDecimal(bill[1])));
+			}
+			
+			Map<String, CountryScalingFactorWrapper> cachedFactors = new LinkedHashMap<String, CountryScalingFactorWrapper>();
+			for(String countryCode : split(countries)){
+				String[] factor = p.getProperty(key + ".country." + countryCode).split(" ");
+				int scalingFactor = Integer.parseInt(factor[0]);
+				cachedFactors.put(countryCode, CountryScalingFactorWrapper.wrap(new CRCChecksumMessage((byte) 1, (byte) 0, new byte[]{
+						(byte) scalingFactor, (byte) (scalingFactor >> 8), Byte.parseByte(factor[1])})));
+			}
+			
+			bills.putAll(cachedBills);
+			countryScalingFactors.putAll(cachedFactors);
+			hitCount++;
+			return true;
+		} catch (RuntimeException | UnexpectedContentException e) {
+			logger.warn("Invalid cache entry for {} in {}, ignoring it.", identity, file, e);
+			missCount++;
+			return false;
+		}
+	}
+	
+	/**
+	 * Cache the bill table of the given device identity, rewriting the cache file.
+	 * @param identity device identity
+	 * @param bills bills by bill type
+	 * @param countryScalingFactors scaling factors by country code
+	 * @throws IOException if the cache file cannot be written
+	 */
+	public synchronized void store(DeviceIdentity identity, Map<Byte, Bill> bills,
+			Map<String, CountryScalingFactorWrapper> countryScalingFactors) throws IOException{
+		Properties p = properties();
+		String key = identity.toKey();
+		invalidate(p, key);
+		StringBuilder billTypes = new StringBuilder();
+		for(Bill bill : bills.values()){
+			join(billTypes, String.valueOf(bill.billType()));
+			p.setProperty(key + ".bill." + bill.billType(), bill.rawIdentification() + " " + bill.getCurrencyValue().toPlainString());
+		}
+		p.setProperty(key + ".bills", billTypes.toString());
+		StringBuilder countries = new StringBuilder();
+		for(Map.Entry<String, CountryScalingFactorWrapper> e : countryScalingFactors.entrySet()){
+			join(countries, e.getKey());
+			p.setProperty(key + ".country." + e.getKey(), e.getValue().getScalingFactor() + " " + e.getValue().getDecimalPlace());
+		}
+		p.setProperty(key + ".countries", countries.toString());
+		write(p);
+	}
+	
+	/**
+	 * Remove the cached bill table of the given device identity, if any.
+	 * @param identity device identity
+	 * @throws IOException if the cache file cannot be written
+	 */
+	public synchronized void invalidate(DeviceIdentity identity) throws IOException{
+		Properties p = properties();
+		if(invalidate(p, identity.toKey())){
+			write(p);
+		}
+	}
+	
+	/*
+	 * Remove the entries of the given key, returning true if any
+	 */
+	private static boolean invalidate(Properties p, String key){
+		String prefix = key + ".";
+		boolean removed = false;
+		for(String name : p.stringPropertyNames()){
+			if(name.startsWith(prefix)){
+				p.remove(name);
+				removed = true;
+			}
+		}
+		return removed;
+	}
+	
+	private static String[] split(String list){
+		return list.isEmpty() ? new String[0] : list.split(",");
+	}
+	
+	private static void join(StringBuilder list, String item){
+		if(list.length() > 0){
+			list.append(',');
+		}
+		list.append(item);
+	}
+	
+	private Properties properties(){
+		if(properties == null){
+			properties = new Properties();
+			if(file.exists()){
+				try (InputStream in = new FileInputStream(file)){
+					properties.load(in);
+				} catch (IOException | IllegalArgumentException e) {
+					logger.warn("Cannot read bill table cache {}, starting with an empty cache.", file, e);
+					properties.clear();
+				}
+			}
+		}
+		return properties;
+	}
+	
+	/*
+	 * Write to a temporary file then rename it, so that the cache file is never left half written
+	 */
+	private void write(Properties p) throws IOException{
+		File parent = file.getAbsoluteFile().getParentFile();
+		File tmp = new File(parent, file.getName() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)){
+			p.store(out, "ccTalk4j bill table cache");
+		}
+		if(!tmp.renameTo(file)){
+			//renaming over an existing file fails on some platforms
+			if(!file.delete() || !tmp.renameTo(file)){
+				throw new IOException("Cannot write bill table cache " + file);
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @return number of loads finding the requested identity
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+	
+	/**
+	 * 
+	 * @return number of loads not finding the requested identity
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+}
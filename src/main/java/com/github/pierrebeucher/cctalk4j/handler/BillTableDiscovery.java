@@ -0,0 +1,183 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
+import com.github.pierrebeucher.cctalk4j.device.bill.Bill;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillIdResponseWrapper;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.CountryScalingFactorWrapper;
+
+/**
+ * <p>Discovers the bills programmed in a <code>BillValidator</code>: the bill id of each
+ * bill type, stopping at the first unprogrammed bill type, and the scaling factor of
+ * each of their countries.</p>
+ * <p>Bill ids then country scaling factors are requested as two batches of back-to-back
+ * requests (see {@link BillValidator#requestBillIds(byte, int)}): buffers are purged once per
+ * batch and replies read by the requesting thread, keeping the bus busy until the whole bill
+ * table is known. The time spent discovering the table is recorded.</p>
+ * <p>With a {@link BillTableCache}, the device identity is requested first: the bill table
+ * of a cached identity is not requested, and a requested bill table is cached.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class BillTableDiscovery {
+	
+	/**
+	 * Maximum number of bill types requested
+	 */
+	public static final int MAX_BILL_TYPES = 128;
+	
+	private static final Logger logger = LoggerFactory.getLogger(BillTableDiscovery.class);
+	
+	private final BillValidator device;
+	
+	private Map<Byte, Bill> bills;
+	
+	private Map<String, CountryScalingFactorWrapper> countryScalingFactors;
+	
+	private long discoveryTime;
+	
+	/*
+	 * Cache of discovered bill tables, null if none
+	 */
+	private BillTableCache cache;
+	
+	/*
+	 * Whether the last discovered bill table was found in cache
+	 */
+	private boolean fromCache;
+	
+	/**
+	 * @param device device whose bill table to discover
+	 */
+	public BillTableDiscovery(BillValidator device) {
+		super();
+		this.device = device;
+		this.bills = Collections.emptyMap();
+		this.countryScalingFactors = Collections.emptyMap();
+	}
+	
+	/**
+	 * Request the bill table of the device, unless found in cache. Bills whose currency
+	 * value cannot be calculated are skipped.
+	 * @return programmed bills by bill type
+	 * @throws DeviceRequestException
+	 */
+	public Map<Byte, Bill> discover() throws DeviceRequestException{
+		long start = System.nanoTime();
+		
+		DeviceIdentity identity = null;
+		if(cache != null){
+			identity = DeviceIdentity.request(device);
+			Map<Byte, Bill> cachedBills = new LinkedHashMap<Byte, Bill>();
+			Map<String, CountryScalingFactorWrapper> cachedFactors = new LinkedHashMap<String, CountryScalingFactorWrapper>();
+			if(cache.load(identity, cachedBills, cachedFactors)){
+				done(start, cachedBills, cachedFactors, true);
+				return cachedBills;
+			}
+		}
+		
+		List<BillIdResponseWrapper> billIds = device.requestBillIds((byte) 1, MAX_BILL_TYPES);
+		Set<String> countryCodes = new LinkedHashSet<String>();
+		for(BillIdResponseWrapper billId : billIds){
+			countryCodes.add(billId.getCountryCode());
+		}
+		Map<String, CountryScalingFactorWrapper> factors = device.requestCountryScalingFactors(countryCodes);
+		
+		Map<Byte, Bill> discovered = new LinkedHashMap<Byte, Bill>();
+		for(int i=0; i<billIds.size(); i++){
+			byte billType = (byte) (i + 1);
+			BillIdResponseWrapper billWp = billIds.get(i);
+			CountryScalingFactorWrapper csfWp = factors.get(billWp.getCountryCode());
+			try{
+				BigDecimal billCurrencyValue = BillValidatorHandler.calculateBillCurrencyValue(
+						billWp.getValueCode(), csfWp.getScalingFactor(), csfWp.getDecimalPlace());
+				Bill bill = new Bill(billType, billWp.getCountryCode(), billWp.getValueCode(), billWp.getIssueCode(), billCurrencyValue);
+				discovered.put(billType, bill);
+				logger.info("Bill requested for {}: {}", device, bill);
+			} catch (NumberFormatException e){
+				//skip bill if cannot calculate currency value...
+				logger.error("Cannot calculate bill currency value for {} with {}. Skipping bill.", billWp, csfWp, e);
+			}
+		}
+		
+		if(cache != null){
+			try {
+				cache.store(identity, discovered, factors);
+			} catch (IOException e) {
+				logger.error("Cannot cache bill table of {}.", identity, e);
+			}
+		}
+		done(start, discovered, factors, false);
+		return discovered;
+	}
+	
+	private void done(long start, Map<Byte, Bill> bills, Map<String, CountryScalingFactorWrapper> factors, boolean fromCache){
+		this.discoveryTime = System.nanoTime() - start;
+		this.bills = bills;
+		this.countryScalingFactors = factors;
+		this.fromCache = fromCache;
+		logger.info("Discovered {} bills of {} countries for {} in {} ms{}.", bills.size(), factors.size(),
+				device, getDiscoveryTime(TimeUnit.MILLISECONDS), fromCache ? " from cache" : "");
+	}
+	
+	/**
+	 * 
+	 * @return bills found by the last discovery, by bill type
+	 */
+	public Map<Byte, Bill> getBills() {
+		return bills;
+	}
+	
+	/**
+	 * 
+	 * @return country scaling factors found by the last discovery, by country code
+	 */
+	public Map<String, CountryScalingFactorWrapper> getCountryScalingFactors() {
+		return countryScalingFactors;
+	}
+	
+	/**
+	 * @param unit unit of the returned time
+	 * @return time spent by the last discovery, 0 if none
+	 */
+	public long getDiscoveryTime(TimeUnit unit) {
+		return unit.convert(discoveryTime, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * 
+	 * @return true if the last discovered bill table was found in cache
+	 */
+	public boolean isFromCache() {
+		return fromCache;
+	}
+	
+	public BillTableCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * @param cache cache of discovered bill tables, null to always request the bill table
+	 */
+	public void setCache(BillTableCache cache) {
+		this.cache = cache;
+	}
+	
+	public BillValidator getDevice() {
+		return device;
+	}
+	
+}
@@ -1,19 +1,22 @@
 package com.github.pierrebeucher.cctalk4j.handler;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 
 import com.github.pierrebeucher.cctalk4j.core.MessageIOException;
 import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.SharedBus;
 import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
 import com.github.pierrebeucher.cctalk4j.device.InhibitMask;
 import com.github.pierrebeucher.cctalk4j.device.bill.Bill;
+import com.github.pierrebeucher.cctalk4j.device.bill.BillRegistry;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.BadEventException;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.EventType;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.EventUtils;
 import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
-import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillIdResponseWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.CountryScalingFactorWrapper;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.UnexpectedContentException;
 
@@ -60,6 +63,11 @@ import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.UnexpectedContent
  * poll the <code>BillValidator</code> events and feed them to the <code>BillEventHandler</code>.
  * The <code>BillEventHandler</code> will then notify any listener of the incoming events using
  * defined callbacks functions. </p>
+ * <p>Handlers of many devices may share the polling threads of a {@link PollScheduler}
+ * set with {@link #setPollScheduler(PollScheduler)}, having a single thread per port.</p>
+ * <p>Listeners are notified on the polling thread: a slow listener delays the next poll.
+ * Setting an {@link EventDispatcher} with {@link #setEventDispatcher(EventDispatcher)} notifies
+ * them from an <code>Executor</code> instead, still in the order events were read.</p>
  * @author Pierre Beucher
  *
  */
@@ -85,15 +93,15 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	}
 	
 	/*
-	 * Bill map programmed in the device
-	 * key is bill type (as returned with a bill event buffer)
+	 * Bills programmed in the device, replaced as a whole
+	 * so that the polling thread never reads a partial bill table
 	 */
-	private Map<Byte, Bill> billMap;
+	private volatile BillRegistry billRegistry;
 	
 	/*
 	 * Map holding known country codes and scaling factors
 	 */
-	private Map<String, CountryScalingFactorWrapper> countryScalingFactorMap;
+	private volatile Map<String, CountryScalingFactorWrapper> countryScalingFactorMap;
 	
 	/*
 	 * Event handler used when credit polling
@@ -105,6 +113,16 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	 */
 	private long creditPollPeriod;
 	
+	/*
+	 * Policy giving the credit poll period, null for a fixed creditPollPeriod
+	 */
+	private PollRatePolicy pollRatePolicy;
+	
+	/*
+	 * Scheduler running the credit poller, null for a dedicated thread
+	 */
+	private PollScheduler pollScheduler;
+	
 	/*
 	 * Current credit poller runnable
 	 */
@@ -115,6 +133,11 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	 */
 	private Thread creditPollerThread;
 	
+	/*
+	 * Discovers the bill table before acceptance
+	 */
+	private BillTableDiscovery billTableDiscovery;
+	
 	/**
 	 * Create a new <code>BillValidatorHandler</code> for the given
 	 * validator.
@@ -122,8 +145,9 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	 */
 	public BillValidatorHandler(BillValidator validator) {
 		super(validator);
-		this.billMap = new HashMap<Byte, Bill>();
-		this.countryScalingFactorMap = new HashMap<String, CountryScalingFactorWrapper >();
+		this.billRegistry = BillRegistry.EMPTY;
+		this.countryScalingFactorMap = Collections.emptyMap();
+		this.billTableDiscovery = new BillTableDiscovery(validator);
 		this.eventHandler = new BillEventHandler(this);
 		this.creditPollPeriod = DEFAULT_CREDIT_POLL_PERIOD;
 	}
@@ -136,6 +160,25 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	public void addListener(BillEventListener listener){
 		this.eventHandler.addListener(listener);
 	}
+	
+	/**
+	 * 
+	 * @return dispatcher notifying listeners, or null if they are notified
+	 * on the polling thread
+	 */
+	public EventDispatcher getEventDispatcher(){
+		return this.eventHandler.getEventDispatcher();
+	}
+	
+	/**
+	 * Notify listeners using the given dispatcher instead of the polling thread.
+	 * Should be set before starting input acceptance.
+	 * @param eventDispatcher dispatcher notifying listeners, or null to notify
+	 * them on the polling thread
+	 */
+	public void setEventDispatcher(EventDispatcher eventDispatcher){
+		this.eventHandler.setEventDispatcher(eventDispatcher);
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -204,72 +247,20 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	}
 	
 	/**
-	 * Internal function which will request all available bytes, the country scaling factor for the countries,
-	 * related, and feed a <code>Map</code> with created <code>Bill</code> instances. 
+	 * Internal function which will request all available bills and the country scaling factor
+	 * of their countries as back-to-back batches, and feed a <code>Map</code> with created <code>Bill</code> instances. 
 	 * @throws DeviceHandlingException 
 	 */
 	private void requestBillsAndCountries() throws DeviceHandlingException{
-		//request all bills and there related country code (if not already requested)
-		//and create a new Bill instances for bill Map
-		//stop requesting when an unprogrammed bill is encountered
-		clearBillMap();
 		try{
-			for(byte billType=1; billType<=128; billType++){
-				BillIdResponseWrapper billWp = device.requestBillId(billType);
-				if(!BillIdResponseWrapper.isProgrammed(billWp)){
-					logger.info("Stopping bill requesting at unprogrammed bill type: {}", billType);
-					break; //stop at first unprogrammed bill encountered
-				}
-				
-				//build concrete Bill using BillId and CountryScalingFactor
-				CountryScalingFactorWrapper csfWp = retrieveCountryScalingFactorFor(billWp.getCountryCode());
-				
-				//calculate currency value and put new Bill in Map
-				try{
-					BigDecimal billCurrencyValue = calculateBillCurrencyValue(billWp.getValueCode(), csfWp.getScalingFactor(), csfWp.getDecimalPlace());
-					Bill bill = new Bill(billType, billWp.getCountryCode(), billWp.getValueCode(), billWp.getIssueCode(), billCurrencyValue);
-					mapBill(bill);
-					logger.info("Bill requested for {}: {}", device, bill);
-				} catch (NumberFormatException e){
-					//skip bill if cannot calculate currency value...
-					logger.error("Cannot calculate bill currency value for {} with {}. Skipping bill.", billWp, csfWp, e);
-					continue;
-				}
-			}
+			BillRegistry registry = new BillRegistry(billTableDiscovery.discover().values());
+			countryScalingFactorMap = Collections.unmodifiableMap(billTableDiscovery.getCountryScalingFactors());
+			billRegistry = registry;
 		} catch(DeviceRequestException e){
 			throw new DeviceHandlingException("Error requesting available bills and countries", e);
 		}
 	}
 	
-	private void clearBillMap(){
-		this.billMap.clear();
-	}
-	
-	private void mapBill(Bill bill){
-		billMap.put(bill.billType(), bill);
-	}
-	
-	/**
-	 * Retrieve the country scaling factor for the given country code.
-	 * Request the validator of the given country code only if it has not
-	 * already been requested.
-	 * @param countryCode country code to request
-	 * @return the country scaling factor wrapper
-	 * @throws IllegalArgumentException 
-	 * @throws UnexpectedContentException 
-	 * @throws MessageIOException 
-	 */
-	private CountryScalingFactorWrapper retrieveCountryScalingFactorFor(String countryCode) throws DeviceRequestException{
-		if(countryScalingFactorMap.containsKey(countryCode)){
-			return countryScalingFactorMap.get(countryCode);
-		} else {
-			CountryScalingFactorWrapper csfWp = device.requestCountryScalingFactor(countryCode);
-			logger.info("Requesting scaling factor for {}: {}", countryCode, csfWp);
-			countryScalingFactorMap.put(countryCode, csfWp);
-			return csfWp;
-		}
-	}
-	
 	private void requestCurrencyRevision(){
 		//TODO
 	}
@@ -288,19 +279,31 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	}
 
 	@Override
-	protected void startCreditPolling() {
+	protected void startCreditPolling() throws DeviceHandlingException {
 		logger.info("Starting credit polling for {}", device);
 		
 		this.creditPoller = new BillValidatorCreditPoller(device, creditPollPeriod, eventHandler);
-		this.creditPollerThread = new Thread(creditPoller);
-		this.creditPollerThread.start();
+		if(pollRatePolicy != null){
+			this.creditPoller.setPollRatePolicy(pollRatePolicy);
+		}
+		if(pollScheduler != null){
+			//devices on a shared bus are polled on the lane of its physical port
+			this.pollScheduler.schedule(SharedBus.physicalPort(device.getMessagePort()), creditPoller);
+		} else {
+			this.creditPollerThread = new Thread(creditPoller);
+			this.creditPollerThread.start();
+		}
 	}
 
 	@Override
 	protected void stopCreditPolling() throws DeviceHandlingException {
 		this.creditPoller.setContinuePolling(false);
 		try {
-			this.creditPollerThread.join();
+			if(pollScheduler != null){
+				this.pollScheduler.cancel(creditPoller);
+			} else {
+				this.creditPollerThread.join();
+			}
 		} catch (InterruptedException e) {
 			throw new DeviceHandlingException("Error while waiting for poller thread to die.", e);
 		}
@@ -329,21 +332,96 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	public long getCreditPollPeriod() {
 		return creditPollPeriod;
 	}
+	
+	/**
+	 * 
+	 * @return scheduler running credit polls, or null if credit polls run on a dedicated thread
+	 */
+	public PollScheduler getPollScheduler() {
+		return pollScheduler;
+	}
+	
+	/**
+	 * Run credit polls on the given scheduler, which may be shared by many handlers,
+	 * instead of a dedicated thread. Handlers of devices on the same port, including
+	 * devices of a <code>SharedBus</code>, share a lane. Changes are effective when
+	 * credit polling is started.
+	 * @param pollScheduler scheduler running credit polls, or null to run them
+	 * on a dedicated thread
+	 */
+	public void setPollScheduler(PollScheduler pollScheduler) {
+		this.pollScheduler = pollScheduler;
+	}
+	
+	/**
+	 * 
+	 * @return policy giving the credit poll period, or null if the credit poll period is fixed
+	 */
+	public PollRatePolicy getPollRatePolicy() {
+		return pollRatePolicy;
+	}
+	
+	/**
+	 * Set the policy giving the credit poll period, such as an {@link AdaptivePollRatePolicy}
+	 * polling faster while bills are inserted and slower when idle.
+	 * Changes are effective when credit polling is started.
+	 * @param pollRatePolicy policy giving the credit poll period, or null to
+	 * poll at the fixed credit poll period
+	 */
+	public void setPollRatePolicy(PollRatePolicy pollRatePolicy) {
+		this.pollRatePolicy = pollRatePolicy;
+	}
 
 	/**
-	 * Return a Map containg all Bill programmed in the handled device.
-	 * Note that <code>null</code> will be returned unless {@link #doPreAcceptance()}
+	 * Return an unmodifiable Map containg all Bill programmed in the handled device.
+	 * Note that the Map will be empty unless {@link #doPreAcceptance()}
 	 * as been called at least once, otherwise the bill list will not have
 	 * been queried yet.
 	 * @return a Map representing device's programmed bills
+	 * @see #getBillRegistry()
 	 */
 	public Map<Byte, Bill> getBillMap() {
-		return billMap;
+		return billRegistry.asMap();
+	}
+	
+	/**
+	 * Return the bills programmed in the handled device, looked up by bill type without boxing.
+	 * The registry is replaced as a whole each time bills are requested, a returned registry
+	 * never changes.
+	 * @return registry of the device programmed bills, empty until {@link #doPreAcceptance()} is called
+	 */
+	public BillRegistry getBillRegistry() {
+		return billRegistry;
+	}
+	
+	/**
+	 * 
+	 * @return discovery of the bill table, giving the time spent by the last discovery
+	 */
+	public BillTableDiscovery getBillTableDiscovery() {
+		return billTableDiscovery;
+	}
+	
+	/**
+	 * 
+	 * @return cache of bill tables, or null if the bill table is requested on each acceptance start
+	 */
+	public BillTableCache getBillTableCache() {
+		return billTableDiscovery.getCache();
+	}
+	
+	/**
+	 * Set the cache of bill tables: the bill table of a device whose identity is cached
+	 * is not requested on acceptance start.
+	 * @param cache cache of bill tables, null to request the bill table on each acceptance start
+	 */
+	public void setBillTableCache(BillTableCache cache) {
+		billTableDiscovery.setCache(cache);
 	}
 	
 	/**
 	 * <p>Get the Bill associated to the given event. Event type must be CREDIT or PENDING_CREDIT.</p>
-	 * <p>This <code>BillValidatorHandler</code> holds a Map matching each bill type
+	 * <p>This <code>BillValidatorHandler</code> holds a <code>BillRegistry</code> matching each bill type
 	 * (i.e. the event <i>resultA</i> byte) to a Bill instance. If the bill type is matched
 	 * to a known bill, this instance is returned. Otherwise, null is returned. </p>
 	 * @param event event for which the 
@@ -352,7 +430,7 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 	 */
 	public Bill getBillForEvent(BillEvent event) throws BadEventException{
 		byte billType = EventUtils.getBillTypeForEvent(event);
-		return this.getBillMap().get(billType);
+		return billRegistry.get(billType);
 	}
 
 	/**
@@ -371,6 +449,15 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 			this.eventHandler = eventHandler;
 		}
 		
+		private boolean hasCredit(BillEventBuffer eventBuffer){
+			for(BillEvent e : eventBuffer.getBillEvents()){
+				if(e.getEventType() == EventType.CREDIT || e.getEventType() == EventType.PENDING_CREDIT){
+					return true;
+				}
+			}
+			return false;
+		}
+		
 		protected void beforePollStart() throws CreditPollingException{
 			//initialise the device with the currently in-memory event buffer
 			try {
@@ -383,7 +470,12 @@ public class BillValidatorHandler extends AbstractDeviceHandler<BillValidator> {
 		@Override
 		protected void doCreditPoll() throws CreditPollingException{
 			try {
-				eventHandler.feed(device.readBufferedNoteEvents());
+				//unchanged event buffers are not decoded
+				BillEventBuffer eventBuffer = device.readBufferedNoteEventsIfChanged(eventHandler.getCurrentEventCounter());
+				if(eventBuffer != null){
+					eventHandler.feed(eventBuffer);
+					reportPollActivity(eventBuffer.getBillEvents().length, hasCredit(eventBuffer));
+				}
 			} catch (DeviceRequestException e) {
 				throw new CreditPollingException(e);
 			}
@@ -1,5 +1,9 @@
 package com.github.pierrebeucher.cctalk4j.handler;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +17,27 @@ import com.github.pierrebeucher.cctalk4j.device.Device;
  * and start. Then, call {@link #setContinuePolling(boolean)} with <code>false</code>
  * to stop the polling and end the <code>Thread</code>.
  * </p>
+ * <p>
+ * Polls are performed at a fixed rate: each poll is scheduled one poll period after
+ * the previous scheduled poll, whatever the time taken by the poll itself. If a poll
+ * lasts longer than the poll period, the missed deadlines are counted and skipped,
+ * the next poll being performed at the next deadline. Stopping the polling wakes up
+ * the polling thread immediately.
+ * </p>
+ * <p>
+ * The poll period is given by a {@link PollRatePolicy}, constant unless specified otherwise
+ * with {@link #setPollRatePolicy(PollRatePolicy)}. Implementations report the events read by each
+ * poll with {@link #reportPollActivity(int, boolean)}, allowing the policy to adapt the period.
+ * </p>
+ * <p>
+ * Instead of running in its own <code>Thread</code>, a poller may be scheduled by a
+ * {@link PollScheduler} sharing a thread between the pollers of a port.
+ * </p>
+ * <p>
+ * The actual intervals between polls are recorded and can be compared to the poll
+ * period with {@link #getLastPollInterval(TimeUnit)}, {@link #getMeanPollInterval(TimeUnit)}
+ * and {@link #getMaxPollInterval(TimeUnit)}.
+ * </p>
  * @author Pierre Beucher
  *
  */
@@ -22,6 +47,49 @@ public abstract class CreditPollingRunnable<E extends Device> implements Runnabl
 	
 	private long pollPeriod;
 	
+	private PollRatePolicy pollRatePolicy;
+	
+	/*
+	 * Period before the next poll, in ms
+	 */
+	private volatile long currentPollPeriod;
+	
+	/*
+	 * Activity reported by the current poll
+	 */
+	private int pollEventCount;
+	
+	private boolean pollCredit;
+	
+	/*
+	 * Scheduled start of the next poll, as given by System.nanoTime()
+	 */
+	private long deadline;
+	
+	private long previousStart;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	/*
+	 * Signaled when polling is stopped
+	 */
+	private final Condition stopped = lock.newCondition();
+	
+	private volatile long pollCount;
+	
+	private volatile long missedDeadlineCount;
+	
+	private volatile long lastPollInterval;
+	
+	private volatile long maxPollInterval;
+	
+	/*
+	 * Time between the first and last poll start
+	 */
+	private volatile long totalPollInterval;
+	
+	private volatile long pollIntervalCount;
+	
 	protected E device;
 
 	protected Logger logger = LoggerFactory.getLogger(getClass());
@@ -35,6 +103,7 @@ public abstract class CreditPollingRunnable<E extends Device> implements Runnabl
 		super();
 		this.continuePolling = false;
 		this.pollPeriod = pollPeriod;
+		this.pollRatePolicy = new FixedPollRatePolicy(pollPeriod);
 		this.device = device;
 	}
 	
@@ -45,16 +114,9 @@ public abstract class CreditPollingRunnable<E extends Device> implements Runnabl
 		}
 		
 		try{
-			beforePollStart();
-			
-			this.continuePolling = true;
-			while(continuePolling){
-				doCreditPoll();
-				try {
-					Thread.sleep(pollPeriod);
-				} catch (InterruptedException e) {
-					logger.error("Poll has been interrupted for {}: {}", this, e);
-				}
+			startPolling();
+			while(isContinuePolling()){
+				awaitDeadline(poll());
 			}
 		} catch (CreditPollingException e){
 			logger.error("FATAL: Unhandled exception during credit poll: " + e + ". Credit poll will stop.", e);
@@ -62,6 +124,84 @@ public abstract class CreditPollingRunnable<E extends Device> implements Runnabl
 		}
 	}
 	
+	/**
+	 * Prepare polling, the first poll being due immediately.
+	 */
+	void startPolling() throws CreditPollingException{
+		beforePollStart();
+		
+		setContinuePolling(true);
+		currentPollPeriod = pollRatePolicy.start();
+		deadline = System.nanoTime();
+	}
+	
+	/**
+	 * Perform a single poll.
+	 * @return scheduled start of the next poll, as given by <code>System.nanoTime()</code>
+	 */
+	long poll() throws CreditPollingException{
+		long start = System.nanoTime();
+		if(pollCount > 0){
+			recordPollInterval(start - previousStart);
+		}
+		previousStart = start;
+		pollCount++;
+		
+		pollEventCount = 0;
+		pollCredit = false;
+		doCreditPoll();
+		
+		//next deadline is relative to the previous one, not to the poll end
+		currentPollPeriod = pollRatePolicy.nextPeriod(pollEventCount, pollCredit);
+		long period = TimeUnit.MILLISECONDS.toNanos(currentPollPeriod);
+		deadline += period;
+		long now = System.nanoTime();
+		if(now - deadline > 0){
+			long missed = (now - deadline) / period + 1;
+			missedDeadlineCount += missed;
+			deadline += missed * period;
+			logger.warn("Credit poll of {} lasted more than its period, {} deadline(s) missed.", device, missed);
+		}
+		return deadline;
+	}
+	
+	/**
+	 * Report the events read by the current poll to the poll rate policy.
+	 * Called by {@link #doCreditPoll()} implementations.
+	 * @param newEventCount number of new events read
+	 * @param credit true if a credit or pending credit event was read
+	 */
+	protected void reportPollActivity(int newEventCount, boolean credit){
+		pollEventCount += newEventCount;
+		pollCredit |= credit;
+	}
+	
+	/**
+	 * Wait until the given deadline, or until polling is stopped.
+	 */
+	private void awaitDeadline(long deadline){
+		lock.lock();
+		try {
+			long remaining = deadline - System.nanoTime();
+			while(continuePolling && remaining > 0){
+				remaining = stopped.awaitNanos(remaining);
+			}
+		} catch (InterruptedException e) {
+			logger.error("Poll has been interrupted for {}: {}", this, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void recordPollInterval(long interval){
+		lastPollInterval = interval;
+		totalPollInterval += interval;
+		pollIntervalCount++;
+		if(interval > maxPollInterval){
+			maxPollInterval = interval;
+		}
+	}
+	
 	/**
 	 * Called right before credit poll starts. Perform poll initialisations if required.
 	 */
@@ -76,20 +216,110 @@ public abstract class CreditPollingRunnable<E extends Device> implements Runnabl
 	 * 
 	 * @return true if credit polling is to continue.
 	 */
-	public synchronized boolean isContinuePolling() {
-		return continuePolling;
+	public boolean isContinuePolling() {
+		lock.lock();
+		try {
+			return continuePolling;
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	/**
 	 * This method will prevent this <code>Runnable</code> to perform
 	 * any more polling. If a polling is currently being performed,
 	 * it will be finished and no other polling will occur. If no polling
-	 * is being perform, the <code>Runnable</code> will wait for a 
-	 * maximum of a single poll period before finishing.
+	 * is being perform, the <code>Runnable</code> will finish immediately.
 	 * @param continuePolling false to stop polling, true to continue
 	 */
-	public synchronized void setContinuePolling(boolean continuePolling) {
-		this.continuePolling = continuePolling;
+	public void setContinuePolling(boolean continuePolling) {
+		lock.lock();
+		try {
+			this.continuePolling = continuePolling;
+			if(!continuePolling){
+				stopped.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return polled device
+	 */
+	public E getDevice() {
+		return device;
+	}
+	
+	/**
+	 * 
+	 * @return poll period given at creation in ms
+	 */
+	public long getPollPeriod() {
+		return pollPeriod;
+	}
+	
+	/**
+	 * 
+	 * @return requested period before the next poll in ms
+	 */
+	public long getCurrentPollPeriod() {
+		return currentPollPeriod;
+	}
+	
+	public PollRatePolicy getPollRatePolicy() {
+		return pollRatePolicy;
+	}
+	
+	/**
+	 * Set the policy giving the poll period. Must be set before polling starts.
+	 * @param pollRatePolicy policy giving the poll period
+	 */
+	public void setPollRatePolicy(PollRatePolicy pollRatePolicy) {
+		this.pollRatePolicy = pollRatePolicy;
+	}
+	
+	/**
+	 * 
+	 * @return number of polls performed
+	 */
+	public long getPollCount() {
+		return pollCount;
+	}
+	
+	/**
+	 * 
+	 * @return number of poll deadlines skipped because a poll lasted
+	 * longer than the poll period
+	 */
+	public long getMissedDeadlineCount() {
+		return missedDeadlineCount;
+	}
+	
+	/**
+	 * @param unit unit of the returned interval
+	 * @return actual interval between the start of the last two polls, 0 if less than two polls
+	 */
+	public long getLastPollInterval(TimeUnit unit) {
+		return unit.convert(lastPollInterval, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @param unit unit of the returned interval
+	 * @return mean actual interval between the start of two polls, 0 if less than two polls
+	 */
+	public long getMeanPollInterval(TimeUnit unit) {
+		long count = pollIntervalCount;
+		return count == 0 ? 0 : unit.convert(totalPollInterval / count, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * @param unit unit of the returned interval
+	 * @return highest actual interval between the start of two polls, 0 if less than two polls
+	 */
+	public long getMaxPollInterval(TimeUnit unit) {
+		return unit.convert(maxPollInterval, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
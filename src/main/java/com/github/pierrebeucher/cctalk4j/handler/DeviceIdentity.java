@@ -0,0 +1,97 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+
+/**
+ * <p>Identifies a device and the revision of its programmed currency data:
+ * manufacturer ID, product code, build code, serial number and currency revision.
+ * Two devices having the same identity are expected to have the same bill table.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class DeviceIdentity {
+	
+	/**
+	 * Request the identity of the given validator, using 5 short requests.
+	 * @param device validator to identify
+	 * @return validator identity
+	 * @throws DeviceRequestException
+	 */
+	public static DeviceIdentity request(BillValidator device) throws DeviceRequestException{
+		return new DeviceIdentity(
+				device.requestManufacturerId(),
+				device.requestProductCode(),
+				device.requestBuildCode(),
+				device.requestSerialNumber(),
+				device.requestCurrencyRevision());
+	}
+	
+	private final String manufacturerId;
+	
+	private final String productCode;
+	
+	private final String buildCode;
+	
+	private final int serialNumber;
+	
+	private final String currencyRevision;
+
+	public DeviceIdentity(String manufacturerId, String productCode, String buildCode, int serialNumber,
+			String currencyRevision) {
+		super();
+		this.manufacturerId = manufacturerId;
+		this.productCode = productCode;
+		this.buildCode = buildCode;
+		this.serialNumber = serialNumber;
+		this.currencyRevision = currencyRevision;
+	}
+	
+	/**
+	 * 
+	 * @return a String uniquely representing this identity
+	 */
+	public String toKey(){
+		return manufacturerId + "/" + productCode + "/" + buildCode + "/" + serialNumber + "/" + currencyRevision;
+	}
+
+	public String getManufacturerId() {
+		return manufacturerId;
+	}
+
+	public String getProductCode() {
+		return productCode;
+	}
+
+	public String getBuildCode() {
+		return buildCode;
+	}
+
+	public int getSerialNumber() {
+		return serialNumber;
+	}
+
+	public String getCurrencyRevision() {
+		return currencyRevision;
+	}
+
+	@Override
+	public int hashCode() {
+		return toKey().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof DeviceIdentity))
+			return false;
+		return toKey().equals(((DeviceIdentity) obj).toKey());
+	}
+
+	@Override
+	public String toString() {
+		return "DeviceIdentity [" + toKey() + "]";
+	}
+	
+}
@@ -0,0 +1,111 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+
+/**
+ * <p>Fixed-capacity ring keeping the last event buffers fed to a <code>BillEventHandler</code>.
+ * Once full, adding a buffer overwrites the oldest one.</p>
+ * <p>Buffers are added by a single thread, without locking nor allocating. Any thread
+ * may read the history using {@link #snapshot()} or {@link #peekLast()} without locking:
+ * buffers overwritten while being read are left out of the snapshot.</p>
+ * @author Pierre Beucher
+ *
+ */
+class EventBufferHistory {
+
+	private final AtomicReferenceArray<BillEventBuffer> buffers;
+
+	private final int capacity;
+
+	/*
+	 * Number of buffers whose addition has started
+	 */
+	private volatile long startCount;
+
+	/*
+	 * Number of buffers added
+	 */
+	private volatile long addCount;
+
+	/**
+	 * @param capacity maximum number of buffers kept
+	 * @throws IllegalArgumentException if capacity is not positive
+	 */
+	EventBufferHistory(int capacity) {
+		super();
+		if(capacity <= 0){
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.capacity = capacity;
+		this.buffers = new AtomicReferenceArray<BillEventBuffer>(capacity);
+	}
+
+	/**
+	 * Add a buffer, overwriting the oldest one if full. Must be called
+	 * by a single thread at a time.
+	 * @param buffer buffer to add
+	 */
+	void add(BillEventBuffer buffer){
+		long sequence = addCount;
+		startCount = sequence + 1;
+		buffers.set(slot(sequence), buffer);
+		addCount = sequence + 1;
+	}
+
+	private int slot(long sequence){
+		return (int) (sequence % capacity);
+	}
+
+	/**
+	 * @return the most recently added buffer, null if none
+	 */
+	BillEventBuffer peekLast(){
+		while(true){
+			long sequence = addCount - 1;
+			if(sequence < 0){
+				return null;
+			}
+			BillEventBuffer buffer = buffers.get(slot(sequence));
+			if(startCount - capacity <= sequence){
+				return buffer;
+			}
+			//overwritten while reading, only possible with a capacity of 1
+		}
+	}
+
+	/**
+	 * @return a copy of the history, oldest buffer first
+	 */
+	Deque<BillEventBuffer> snapshot(){
+		long end = addCount;
+		long start = Math.max(0, end - capacity);
+		BillEventBuffer[] read = new BillEventBuffer[(int) (end - start)];
+		for(long i=start; i<end; i++){
+			read[(int) (i - start)] = buffers.get(slot(i));
+		}
+
+		//buffers being added since may have overwritten the oldest buffers read
+		long valid = Math.max(start, startCount - capacity);
+		Deque<BillEventBuffer> deque = new ArrayDeque<BillEventBuffer>(read.length);
+		for(long i=valid; i<end; i++){
+			deque.add(read[(int) (i - start)]);
+		}
+		return deque;
+	}
+
+	/**
+	 * @return number of buffers kept
+	 */
+	int size(){
+		return (int) Math.min(addCount, capacity);
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+}
@@ -0,0 +1,397 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+
+/**
+ * <p>Notifies <code>BillEventListener</code>s from an <code>Executor</code> instead of
+ * the credit poll thread, so that slow listeners do not delay the next poll.</p>
+ * <p>Notifications are queued in a bounded ring of preallocated slots by a single producer,
+ * the credit poll thread, and delivered in order by a single drain task at a time
+ * running on the executor: events of a device are delivered in the order they were read,
+ * whatever the number of executor threads. If the ring is full, the producer waits for
+ * listeners to catch up, up to {@link #getMaxProducerWait(TimeUnit)}.</p>
+ * <p>If no slot frees up in time or the producer is interrupted, the notification is
+ * dropped so that polling goes on, further notifications being dropped without waiting
+ * until a slot frees up. Dropped notifications are counted and reported to listeners as
+ * lost events, with <code>null</code> buffers, ahead of the next notification queued.</p>
+ * <p>Queue depth and dispatch latency (time between queuing a notification and
+ * delivering it) are recorded and can be monitored.</p>
+ * <p>An instance must be used by a single <code>BillValidatorHandler</code>.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class EventDispatcher {
+
+	/**
+	 * Default maximum number of queued notifications
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Default maximum time waited by the producer for a free slot, in ms
+	 */
+	public static final long DEFAULT_MAX_PRODUCER_WAIT = 1000;
+
+	/*
+	 * Time waited by the producer between two checks when the ring is full
+	 */
+	private static final long PRODUCER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+	/*
+	 * A queued notification, reused once delivered
+	 */
+	private static final class Slot {
+		Collection<BillEventListener> listeners;
+		BillValidatorHandler handler;
+		//new event notification if event is not null, lost event notification otherwise
+		BillEvent event;
+		int lostEventCount;
+		BillEventBuffer previousBuffer;
+		BillEventBuffer newBuffer;
+		long queueTime;
+
+		void clear(){
+			listeners = null;
+			handler = null;
+			event = null;
+			previousBuffer = null;
+			newBuffer = null;
+		}
+	}
+
+	private final Executor executor;
+
+	private final Slot[] slots;
+
+	private final int capacity;
+
+	/*
+	 * Number of notifications queued, written by the producer only
+	 */
+	private volatile long published;
+
+	/*
+	 * Number of notifications delivered, written by the drain task only
+	 */
+	private volatile long consumed;
+
+	/*
+	 * Whether a drain task is submitted or running
+	 */
+	private final AtomicBoolean draining;
+
+	private final Runnable drainTask;
+
+	private volatile int maxQueueDepth;
+
+	private volatile long producerWaitCount;
+
+	private volatile long maxProducerWaitNanos;
+
+	/*
+	 * Notifications dropped and not reported yet, and whether the ring stayed
+	 * full since the last drop, written by the producer only
+	 */
+	private int unreportedDropCount;
+
+	private boolean overflowing;
+
+	private volatile long droppedCount;
+
+	private volatile long totalDispatchLatency;
+
+	private volatile long maxDispatchLatency;
+
+	/**
+	 * Create a dispatcher queuing up to {@link #DEFAULT_CAPACITY} notifications.
+	 * @param executor executor notifying listeners
+	 */
+	public EventDispatcher(Executor executor) {
+		this(executor, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param executor executor notifying listeners
+	 * @param capacity maximum number of queued notifications
+	 */
+	public EventDispatcher(Executor executor, int capacity) {
+		super();
+		if(capacity <= 0){
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.executor = executor;
+		this.capacity = capacity;
+		this.slots = new Slot[capacity];
+		for(int i=0; i<capacity; i++){
+			slots[i] = new Slot();
+		}
+		this.maxProducerWaitNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_PRODUCER_WAIT);
+		this.draining = new AtomicBoolean(false);
+		this.drainTask = new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		};
+	}
+
+	/**
+	 * Queue a new event notification. Must be called by a single thread at a time.
+	 */
+	void publishNewEvent(Collection<BillEventListener> listeners, BillValidatorHandler handler, BillEvent event){
+		Slot slot = reportDropped(listeners) ? claim() : null;
+		if(slot == null){
+			drop(1);
+			return;
+		}
+		slot.listeners = listeners;
+		slot.handler = handler;
+		slot.event = event;
+		publish(slot);
+	}
+
+	/**
+	 * Queue a lost event notification. Must be called by a single thread at a time.
+	 */
+	void publishLostEvent(Collection<BillEventListener> listeners, int count,
+			BillEventBuffer previousBuffer, BillEventBuffer newBuffer){
+		Slot slot = reportDropped(listeners) ? claim() : null;
+		if(slot == null){
+			drop(count);
+			return;
+		}
+		slot.listeners = listeners;
+		slot.lostEventCount = count;
+		slot.previousBuffer = previousBuffer;
+		slot.newBuffer = newBuffer;
+		publish(slot);
+	}
+
+	/**
+	 * Queue a lost event notification for the notifications dropped so far, if any.
+	 * @return false if it was dropped as well
+	 */
+	private boolean reportDropped(Collection<BillEventListener> listeners){
+		if(unreportedDropCount == 0){
+			return true;
+		}
+		Slot slot = claim();
+		if(slot == null){
+			return false;
+		}
+		slot.listeners = listeners;
+		slot.lostEventCount = unreportedDropCount;
+		unreportedDropCount = 0;
+		publish(slot);
+		return true;
+	}
+
+	private void drop(int count){
+		unreportedDropCount += count;
+		droppedCount += count;
+		logger.warn("Event notification dropped, listeners did not catch up within {} ms: {}",
+				TimeUnit.NANOSECONDS.toMillis(maxProducerWaitNanos), this);
+	}
+
+	/**
+	 * Return the next free slot, waiting for one if the ring is full.
+	 * @return null if no slot freed up in time or if the current thread is interrupted
+	 */
+	private Slot claim(){
+		long sequence = published;
+		if(sequence - consumed >= capacity){
+			if(overflowing){
+				//do not wait again for listeners which did not catch up
+				return null;
+			}
+			producerWaitCount++;
+			long deadline = System.nanoTime() + maxProducerWaitNanos;
+			while(sequence - consumed >= capacity){
+				if(Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0){
+					overflowing = true;
+					return null;
+				}
+				LockSupport.parkNanos(PRODUCER_WAIT_NANOS);
+			}
+		}
+		overflowing = false;
+		return slots[(int) (sequence % capacity)];
+	}
+
+	private void publish(Slot slot){
+		slot.queueTime = System.nanoTime();
+		long sequence = published + 1;
+		published = sequence;
+
+		int depth = (int) (sequence - consumed);
+		if(depth > maxQueueDepth){
+			maxQueueDepth = depth;
+		}
+
+		if(draining.compareAndSet(false, true)){
+			try {
+				executor.execute(drainTask);
+			} catch (RejectedExecutionException e) {
+				draining.set(false);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Deliver queued notifications until the ring is empty.
+	 */
+	private void drain(){
+		do {
+			long sequence = consumed;
+			while(sequence < published){
+				Slot slot = slots[(int) (sequence % capacity)];
+				recordLatency(System.nanoTime() - slot.queueTime);
+				deliver(slot);
+				slot.clear();
+				sequence++;
+				consumed = sequence;
+			}
+			draining.set(false);
+
+			//a notification may have been published after the last check
+			//but before the flag was reset, without submitting a new task
+		} while(consumed < published && draining.compareAndSet(false, true));
+	}
+
+	private void recordLatency(long latency){
+		totalDispatchLatency += latency;
+		if(latency > maxDispatchLatency){
+			maxDispatchLatency = latency;
+		}
+	}
+
+	private void deliver(Slot slot){
+		for(BillEventListener listener : slot.listeners){
+			try {
+				if(slot.event != null){
+					listener.newEvent(slot.handler, slot.event);
+				} else {
+					listener.lostEvent(slot.lostEventCount, slot.previousBuffer, slot.newBuffer);
+				}
+			} catch (RuntimeException e) {
+				logger.error("Listener {} failed to handle notification.", listener, e);
+			}
+		}
+	}
+
+	/**
+	 * Wait until all queued notifications are delivered.
+	 * @param timeout maximum time to wait
+	 * @param unit timeout unit
+	 * @return true if all notifications were delivered, false on timeout
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while(consumed < published){
+			if(System.nanoTime() - deadline >= 0){
+				return false;
+			}
+			if(Thread.interrupted()){
+				throw new InterruptedException();
+			}
+			LockSupport.parkNanos(PRODUCER_WAIT_NANOS);
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of queued notifications not delivered yet
+	 */
+	public int getQueueDepth(){
+		return (int) (published - consumed);
+	}
+
+	/**
+	 * @return highest number of queued notifications not delivered yet
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of notifications delivered
+	 */
+	public long getDeliveredCount(){
+		return consumed;
+	}
+
+	/**
+	 * @return number of times the producer waited because the queue was full
+	 */
+	public long getProducerWaitCount() {
+		return producerWaitCount;
+	}
+
+	/**
+	 * @return number of events whose notification was dropped because the queue stayed full
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @param unit unit of the returned time
+	 * @return maximum time waited by the producer for a free slot
+	 */
+	public long getMaxProducerWait(TimeUnit unit) {
+		return unit.convert(maxProducerWaitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Set the maximum time waited by the producer for a free slot before dropping
+	 * a notification, {@link #DEFAULT_MAX_PRODUCER_WAIT} ms by default.
+	 * @param maxProducerWait maximum time to wait
+	 * @param unit unit of the given time
+	 */
+	public void setMaxProducerWait(long maxProducerWait, TimeUnit unit) {
+		this.maxProducerWaitNanos = unit.toNanos(maxProducerWait);
+	}
+
+	/**
+	 * @param unit unit of the returned latency
+	 * @return mean time between queuing and delivering a notification
+	 */
+	public long getMeanDispatchLatency(TimeUnit unit){
+		long count = consumed;
+		return count == 0 ? 0 : unit.convert(totalDispatchLatency / count, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit unit of the returned latency
+	 * @return highest time between queuing and delivering a notification
+	 */
+	public long getMaxDispatchLatency(TimeUnit unit){
+		return unit.convert(maxDispatchLatency, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "EventDispatcher [queueDepth=" + getQueueDepth() + ", maxQueueDepth=" + maxQueueDepth
+				+ ", delivered=" + consumed + ", producerWaits=" + producerWaitCount + ", dropped=" + droppedCount + "]";
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+/**
+ * <code>PollRatePolicy</code> polling at a constant period.
+ * @author Pierre Beucher
+ *
+ */
+public class FixedPollRatePolicy implements PollRatePolicy {
+	
+	private long period;
+
+	/**
+	 * @param period poll period in ms
+	 */
+	public FixedPollRatePolicy(long period) {
+		super();
+		if(period <= 0){
+			throw new IllegalArgumentException("Poll period must be positive.");
+		}
+		this.period = period;
+	}
+
+	@Override
+	public long start() {
+		return period;
+	}
+
+	@Override
+	public long nextPeriod(int newEventCount, boolean credit) {
+		return period;
+	}
+
+	public long getPeriod() {
+		return period;
+	}
+
+	@Override
+	public String toString() {
+		return "FixedPollRatePolicy [period=" + period + "]";
+	}
+	
+}
@@ -0,0 +1,26 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+/**
+ * <p>Decides the period between two credit polls, depending on the events read by the
+ * previous poll. Used by a <code>CreditPollingRunnable</code>.</p>
+ * <p>A policy may keep state between polls, and is used by a single poller at a time.</p>
+ * @author Pierre Beucher
+ *
+ */
+public interface PollRatePolicy {
+	
+	/**
+	 * Called when polling starts, resetting any state of this policy.
+	 * @return initial poll period, in ms, until the first poll is performed
+	 */
+	public long start();
+	
+	/**
+	 * Called after each poll.
+	 * @param newEventCount number of new events read by the poll
+	 * @param credit true if a credit or pending credit event was read by the poll
+	 * @return period before the next poll, in ms
+	 */
+	public long nextPeriod(int newEventCount, boolean credit);
+	
+}
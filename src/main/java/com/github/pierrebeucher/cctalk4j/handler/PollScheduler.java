@@ -0,0 +1,293 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Runs the credit polls of many devices on a few shared threads, instead of
+ * a thread per <code>CreditPollingRunnable</code>.</p>
+ * <p>Pollers are scheduled on a lane, usually identified by the physical <code>MessagePort</code>
+ * of the polled device (see {@link com.github.pierrebeucher.cctalk4j.core.SharedBus#physicalPort(com.github.pierrebeucher.cctalk4j.core.MessagePort)}).
+ * Each lane has a single thread performing the polls of its pollers
+ * by earliest deadline first, pollers due at the same time being polled in the order they
+ * became due: the number of threads grows with the number of ports, not of devices,
+ * and devices sharing a port are never polled concurrently.</p>
+ * <p>A poller failing with an exception is stopped, without affecting
+ * the other pollers of its lane.</p>
+ * <p>Only poll threads are shared: a polled device not using direct read
+ * (see <code>AbstractDevice.setDirectRead(boolean)</code>) keeps its own reader thread,
+ * which does not reach its idle timeout while the device is polled.</p>
+ * <p>Example usage:
+ * <pre>
+ * {@code
+ * PollScheduler scheduler = new PollScheduler();
+ * for(BillValidatorHandler handler : handlers){
+ * 	handler.setPollScheduler(scheduler);
+ * 	handler.startInputAcceptance();
+ * }
+ * //...
+ * scheduler.shutdown();
+ * }
+ * </pre>
+ * </p>
+ * @author Pierre Beucher
+ *
+ */
+public class PollScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(PollScheduler.class);
+
+	private final Map<Object, Lane> lanes;
+
+	private final Map<CreditPollingRunnable<?>, Lane> pollerLanes;
+
+	private boolean shutdown;
+
+	public PollScheduler() {
+		super();
+		this.lanes = new HashMap<Object, Lane>();
+		this.pollerLanes = new HashMap<CreditPollingRunnable<?>, Lane>();
+	}
+
+	/**
+	 * Start the given poller and schedule its polls on the lane identified by the
+	 * given key, starting the lane thread if needed. The poller is prepared on
+	 * the calling thread, its first poll being due immediately.
+	 * @param laneKey key of the lane, such as the polled device port
+	 * @param poller poller to schedule
+	 * @throws CreditPollingException if the poller cannot be prepared
+	 * @throws IllegalStateException if this scheduler is shut down, or the poller already scheduled
+	 */
+	public void schedule(Object laneKey, CreditPollingRunnable<?> poller) throws CreditPollingException{
+		if(!poller.getDevice().isConnected()){
+			throw new CreditPollingException("Device needs to be connected before starting credit poll.");
+		}
+
+		Lane lane;
+		synchronized (this) {
+			if(shutdown){
+				throw new IllegalStateException("Poll scheduler is shut down.");
+			}
+			if(pollerLanes.containsKey(poller)){
+				throw new IllegalStateException("Poller already scheduled: " + poller);
+			}
+			lane = lanes.get(laneKey);
+			if(lane == null){
+				lane = new Lane(laneKey);
+				lanes.put(laneKey, lane);
+				lane.thread.start();
+			}
+			pollerLanes.put(poller, lane);
+		}
+
+		try {
+			poller.startPolling();
+		} catch (CreditPollingException | RuntimeException e) {
+			synchronized (this) {
+				pollerLanes.remove(poller);
+			}
+			throw e;
+		}
+		lane.add(poller, System.nanoTime());
+	}
+
+	/**
+	 * Stop the given poller, waiting for its ongoing poll if any.
+	 * Does nothing if the poller is not scheduled.
+	 * @param poller poller to stop
+	 * @throws InterruptedException if interrupted while waiting for the ongoing poll
+	 */
+	public void cancel(CreditPollingRunnable<?> poller) throws InterruptedException{
+		poller.setContinuePolling(false);
+		Lane lane;
+		synchronized (this) {
+			lane = pollerLanes.remove(poller);
+		}
+		if(lane != null){
+			lane.remove(poller);
+		}
+	}
+
+	/**
+	 * Stop all pollers and lane threads. Ongoing polls are not waited for.
+	 */
+	public void shutdown(){
+		synchronized (this) {
+			shutdown = true;
+			for(CreditPollingRunnable<?> poller : pollerLanes.keySet()){
+				poller.setContinuePolling(false);
+			}
+			pollerLanes.clear();
+			for(Lane lane : lanes.values()){
+				lane.thread.interrupt();
+			}
+			lanes.clear();
+		}
+	}
+
+	public synchronized boolean isShutdown(){
+		return shutdown;
+	}
+
+	/**
+	 *
+	 * @return number of lanes, each having its own thread
+	 */
+	public synchronized int getLaneCount(){
+		return lanes.size();
+	}
+
+	/**
+	 *
+	 * @return number of scheduled pollers
+	 */
+	public synchronized int getPollerCount(){
+		return pollerLanes.size();
+	}
+
+	/*
+	 * A scheduled poll
+	 */
+	private static final class Entry implements Comparable<Entry> {
+		final CreditPollingRunnable<?> poller;
+		final long deadline;
+		final long sequence;
+
+		Entry(CreditPollingRunnable<?> poller, long deadline, long sequence) {
+			this.poller = poller;
+			this.deadline = deadline;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry o) {
+			long diff = deadline - o.deadline;
+			if(diff != 0){
+				return diff < 0 ? -1 : 1;
+			}
+			return sequence < o.sequence ? -1 : (sequence == o.sequence ? 0 : 1);
+		}
+	}
+
+	/*
+	 * Pollers sharing a thread
+	 */
+	private final class Lane implements Runnable {
+
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/*
+		 * Signaled when a poll is added or ends
+		 */
+		private final Condition changed = lock.newCondition();
+
+		private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+
+		private final Thread thread;
+
+		private long sequence;
+
+		/*
+		 * Poller being polled, null if none
+		 */
+		private CreditPollingRunnable<?> current;
+
+		Lane(Object key) {
+			this.thread = new Thread(this, "PollScheduler-" + key);
+			this.thread.setDaemon(true);
+		}
+
+		void add(CreditPollingRunnable<?> poller, long deadline){
+			lock.lock();
+			try {
+				queue.add(new Entry(poller, deadline, sequence++));
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void remove(CreditPollingRunnable<?> poller) throws InterruptedException{
+			lock.lock();
+			try {
+				//a poller stopped from its own poll cannot wait for it
+				while(current == poller && Thread.currentThread() != thread){
+					changed.await();
+				}
+				for(Entry e : queue){
+					if(e.poller == poller){
+						queue.remove(e);
+						break;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/*
+		 * Wait for the next due poll
+		 */
+		private Entry take() throws InterruptedException{
+			lock.lock();
+			try {
+				while(true){
+					Entry next = queue.peek();
+					if(next == null){
+						changed.await();
+					} else {
+						long remaining = next.deadline - System.nanoTime();
+						if(remaining <= 0){
+							queue.poll();
+							current = next.poller;
+							return next;
+						}
+						changed.awaitNanos(remaining);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(!Thread.currentThread().isInterrupted()){
+					Entry entry = take();
+					CreditPollingRunnable<?> poller = entry.poller;
+					long deadline = 0;
+					boolean reschedule = false;
+					try {
+						if(poller.isContinuePolling()){
+							deadline = poller.poll();
+							reschedule = poller.isContinuePolling();
+						}
+					} catch (CreditPollingException | RuntimeException e) {
+						logger.error("FATAL: Unhandled exception during credit poll of {}. Credit poll will stop.", poller, e);
+						poller.setContinuePolling(false);
+					}
+
+					lock.lock();
+					try {
+						current = null;
+						if(reschedule){
+							queue.add(new Entry(poller, deadline, sequence++));
+						}
+						changed.signalAll();
+					} finally {
+						lock.unlock();
+					}
+				}
+			} catch (InterruptedException e) {
+				logger.debug("Poll scheduler lane {} interrupted.", thread.getName());
+			}
+		}
+	}
+}
@@ -28,6 +28,16 @@ public interface SerialPort {
 	
 	boolean writeBytes(byte[] b) throws SerialPortException;
 	
+	/**
+	 * Read exactly <code>count</code> bytes, waiting at most <code>timeout</code>
+	 * milliseconds for them to be available. If the timeout expires, no byte is consumed:
+	 * bytes already received remain available for the next read.
+	 * @param count number of bytes to read
+	 * @param timeout timeout in milliseconds
+	 * @return read bytes
+	 * @throws SerialPortTimeoutException if the bytes are not available within the timeout
+	 * @throws SerialPortException
+	 */
 	byte[] readBytes(int count, int timeout) throws SerialPortException;
 
 	boolean open() throws SerialPortException;
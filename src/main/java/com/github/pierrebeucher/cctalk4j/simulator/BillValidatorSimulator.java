@@ -0,0 +1,440 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessageFactory;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillIdResponseWrapper;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.RouteBillResponseWrapper;
+
+/**
+ * <p>In-process model of a ccTalk bill validator, answering the requests of every
+ * <code>Header</code> used by the library as a real device would.</p>
+ * <p>The simulator keeps the state of a bill validator: programmed bill table and country
+ * scaling factors, master inhibit, inhibit mask, operating mode, escrow and a 5 slots
+ * event buffer whose counter wraps from 255 to 1 and is 0 only after a reset. Like a real
+ * device, it starts master inhibited with all bills inhibited.</p>
+ * <p>Bill insertions are scripted with {@link #insertBill(int)}, and any other event
+ * with {@link #addEvent(int, int)}. Requests are answered by {@link #handle(Message)},
+ * used by {@link SimulatedMessagePort} and {@link SimulatedSerialPort} to put the simulator
+ * behind a <code>MessagePort</code> or a <code>SerialPort</code>.</p>
+ * <p>Example usage:
+ * <pre>
+ * {@code
+ * BillValidatorSimulator sim = new BillValidatorSimulator((byte) 40, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+ * sim.programBill(1, "EU0005A");
+ * sim.setCountryScalingFactor("EU", 100, 2);
+ * MessagePort port = new SerialMessagePort(new SimulatedSerialPort(sim), MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+ * BillValidatorHandler handler = new BillValidatorHandler(
+ * 		new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, (byte) 40));
+ * //...
+ * sim.insertBill(1);
+ * }
+ * </pre>
+ * </p>
+ * @author Pierre Beucher
+ *
+ */
+public class BillValidatorSimulator {
+
+	/**
+	 * Address of the host, destination of replies
+	 */
+	public static final byte HOST_ADDRESS = 1;
+
+	/**
+	 * Header of the NAK reply, sent to requests the simulator does not support
+	 */
+	public static final byte NAK_HEADER = 5;
+
+	private static final byte ACK_HEADER = 0;
+
+	private static final byte[] EMPTY = MessageFactory.EMPTY_DATA_BYTES;
+
+	private final byte address;
+
+	private final int messageType;
+
+	/*
+	 * Bill identifiers indexed by bill type, null if not programmed
+	 */
+	private final String[] billIds;
+
+	/*
+	 * {scaling factor, decimal places} by country code
+	 */
+	private final Map<String, int[]> scalingFactors;
+
+	private String manufacturerId = "SIM";
+
+	private String equipmentCategoryId = "Bill Validator";
+
+	private String productCode = "BV-SIM";
+
+	private String buildCode = "1";
+
+	private String currencyRevision = "SIM01";
+
+	private int serialNumber = 1;
+
+	private int selfCheckFaultCode;
+
+	private boolean masterInhibited;
+
+	private int inhibitMask;
+
+	private boolean stackerUsed;
+
+	private boolean escrowUsed;
+
+	/*
+	 * Type of the bill held in escrow, 0 if escrow is empty
+	 */
+	private int escrowBillType;
+
+	/*
+	 * Event results A and B, newest first
+	 */
+	private final byte[] events;
+
+	private int eventCounter;
+
+	private long requestCount;
+
+	/**
+	 * @param address address of the simulated device
+	 * @param messageType one of the <code>MessagePort.MESSAGE_TYPE</code> constants
+	 */
+	public BillValidatorSimulator(byte address, int messageType) {
+		super();
+		this.address = address;
+		this.messageType = messageType;
+		this.billIds = new String[256];
+		this.scalingFactors = new HashMap<String, int[]>();
+		this.events = new byte[2 * BillEventBuffer.EVENT_BUFFER_SIZE];
+		reset();
+	}
+
+	/**
+	 * Simulate a power cycle: event counter and buffer are cleared, the device is master
+	 * inhibited with all bills inhibited, escrow and stacker are not used and a bill
+	 * held in escrow is returned. Configuration and bill table are kept.
+	 */
+	public synchronized void reset(){
+		masterInhibited = true;
+		inhibitMask = 0;
+		stackerUsed = false;
+		escrowUsed = false;
+		escrowBillType = 0;
+		eventCounter = 0;
+		for(int i=0; i<events.length; i++){
+			events[i] = 0;
+		}
+	}
+
+	/**
+	 * Program a bill type.
+	 * @param billType bill type in range [1-255]
+	 * @param billId 7 characters bill identifier, such as "EU0005A"
+	 */
+	public synchronized void programBill(int billType, String billId){
+		checkBillType(billType);
+		if(billId.length() != 7){
+			throw new IllegalArgumentException("Bill id must have 7 characters: " + billId);
+		}
+		billIds[billType] = billId;
+	}
+
+	/**
+	 * @param countryCode 2 characters country code
+	 * @param scalingFactor scaling factor in range [0-65535]
+	 * @param decimalPlaces number of decimal places
+	 */
+	public synchronized void setCountryScalingFactor(String countryCode, int scalingFactor, int decimalPlaces){
+		scalingFactors.put(countryCode, new int[]{scalingFactor, decimalPlaces});
+	}
+
+	/**
+	 * Script the insertion of a bill, adding the event a real device would: a credit,
+	 * or a pending credit if escrow is used, the bill being held until routed. A bill
+	 * is not accepted if the device is master inhibited, if its type is inhibited or not
+	 * programmed, or if escrow already holds a bill.
+	 * @param billType type of the inserted bill
+	 * @return true if the bill was accepted or held in escrow, false if it was rejected
+	 */
+	public synchronized boolean insertBill(int billType){
+		checkBillType(billType);
+		if(masterInhibited){
+			addEvent(0, 0); //master inhibit active
+			return false;
+		}
+		if(billIds[billType] == null){
+			addEvent(0, 2); //invalid bill (validation fail)
+			return false;
+		}
+		if(billType > 16 || (inhibitMask & (1 << (billType - 1))) == 0){
+			addEvent(0, 4); //inhibited bill (on serial)
+			return false;
+		}
+		if(escrowUsed){
+			if(escrowBillType != 0){
+				addEvent(0, 3); //invalid bill (transport problem)
+				return false;
+			}
+			escrowBillType = billType;
+			addEvent(billType, 1); //validated and held in escrow
+		} else {
+			addEvent(billType, 0); //validated and sent to cashbox / stacker
+		}
+		return true;
+	}
+
+	/**
+	 * Add an event to the event buffer, discarding its oldest event and
+	 * incrementing its counter.
+	 * @param resultA event result A, bill type or 0 for status events
+	 * @param resultB event result B, see <code>BillEvent</code>
+	 */
+	public synchronized void addEvent(int resultA, int resultB){
+		System.arraycopy(events, 0, events, 2, events.length - 2);
+		events[0] = (byte) resultA;
+		events[1] = (byte) resultB;
+		eventCounter = eventCounter == 255 ? 1 : eventCounter + 1;
+	}
+
+	/**
+	 * Answer a request.
+	 * @param request request read from the bus
+	 * @return reply, or null if the request is not addressed to this device
+	 */
+	public synchronized Message handle(Message request){
+		byte destination = request.getDestination();
+		if(destination != address && destination != 0){
+			return null;
+		}
+		requestCount++;
+
+		Header header = Header.fromValue(request.getHeader());
+		byte[] data = request.getDataBytes();
+		if(header == null){
+			return nak();
+		}
+		switch(header){
+			case SIMPLE_POLL:
+				return ack();
+			case REQUEST_MANUFACTURER_ID:
+				return ascii(manufacturerId);
+			case REQUEST_EQUIPMENT_CATEGORY_ID:
+				return ascii(equipmentCategoryId);
+			case REQUEST_PRODUCT_CODE:
+				return ascii(productCode);
+			case REQUEST_BUILD_CODE:
+				return ascii(buildCode);
+			case REQUEST_CURRENCY_REVISION:
+				return ascii(currencyRevision);
+			case REQUEST_SERIAL_NUMBER:
+				return reply(new byte[]{(byte) serialNumber, (byte) (serialNumber >> 8), (byte) (serialNumber >> 16)});
+			case PERFORM_SELF_CHECK:
+				return reply(new byte[]{(byte) selfCheckFaultCode});
+			case MODIFY_INHIBIT_STATUS:
+				if(data.length != 2){
+					return nak();
+				}
+				inhibitMask = (data[0] & 0xFF) | (data[1] & 0xFF) << 8;
+				return ack();
+			case REQUEST_INHIBIT_STATUS:
+				return reply(new byte[]{(byte) inhibitMask, (byte) (inhibitMask >> 8)});
+			case MODIFY_MASTER_INHIBIT_STATUS:
+				if(data.length != 1){
+					return nak();
+				}
+				masterInhibited = (data[0] & 1) == 0;
+				return ack();
+			case REQUEST_MASTER_INHIBIT_STATUS:
+				return reply(new byte[]{(byte) (masterInhibited ? 0 : 1)});
+			case READ_BUFFERED_BILL_EVENTS:
+				return eventBuffer();
+			case MODIFY_BILL_ID:
+				if(data.length != 8 || data[0] == 0){
+					return nak();
+				}
+				billIds[data[0] & 0xFF] = new String(data, 1, 7, StandardCharsets.US_ASCII);
+				return ack();
+			case REQUEST_BILL_ID:
+				if(data.length != 1 || data[0] == 0){
+					return nak();
+				}
+				String billId = billIds[data[0] & 0xFF];
+				return ascii(billId != null ? billId : BillIdResponseWrapper.UNPROGRAMMED_BILL_IDENTIFICATION);
+			case REQUEST_COUNTRY_SCALING_FACTOR:
+				return countryScalingFactor(data);
+			case ROUTE_BILL:
+				return routeBill(data);
+			case MODIFY_BILL_OPERATING_MODE:
+				if(data.length != 1){
+					return nak();
+				}
+				//bit 0: use stacker, bit 1: use escrow
+				stackerUsed = (data[0] & 1) != 0;
+				escrowUsed = (data[0] & 2) != 0;
+				return ack();
+			case REQUEST_BILL_OPERATING_MODE:
+				return reply(new byte[]{(byte) ((stackerUsed ? 1 : 0) | (escrowUsed ? 2 : 0))});
+			default:
+				//encryption is not supported
+				return nak();
+		}
+	}
+
+	private Message eventBuffer(){
+		byte[] reply = new byte[1 + events.length];
+		reply[0] = (byte) eventCounter;
+		System.arraycopy(events, 0, reply, 1, events.length);
+		return reply(reply);
+	}
+
+	private Message countryScalingFactor(byte[] data){
+		if(data.length != 2){
+			return nak();
+		}
+		int[] factor = scalingFactors.get(new String(data, StandardCharsets.US_ASCII));
+		if(factor == null){
+			//unknown country
+			return reply(new byte[]{0, 0, 0});
+		}
+		return reply(new byte[]{(byte) factor[0], (byte) (factor[0] >> 8), (byte) factor[1]});
+	}
+
+	private Message routeBill(byte[] data){
+		if(data.length != 1){
+			return nak();
+		}
+		if(escrowBillType == 0){
+			return reply(new byte[]{RouteBillResponseWrapper.ROUTE_CODE_ERROR_ESCROW_EMPTY});
+		}
+		switch(data[0] & 0xFF){
+			case 0:
+				escrowBillType = 0;
+				addEvent(0, 1); //bill returned from escrow
+				return ack();
+			case 1:
+				addEvent(escrowBillType, 0);
+				escrowBillType = 0;
+				return ack();
+			case 255:
+				//escrow timeout is not simulated
+				return ack();
+			default:
+				return reply(new byte[]{RouteBillResponseWrapper.ROUTE_CODE_ERROR_FAILED_TO_ROUTE_BILL});
+		}
+	}
+
+	private Message ack(){
+		return reply(EMPTY);
+	}
+
+	private Message nak(){
+		return MessageFactory.message(messageType, HOST_ADDRESS, address, NAK_HEADER, EMPTY);
+	}
+
+	private Message ascii(String value){
+		return reply(value.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private Message reply(byte[] data){
+		return MessageFactory.message(messageType, HOST_ADDRESS, address, ACK_HEADER, data);
+	}
+
+	private static void checkBillType(int billType){
+		if(billType < 1 || billType > 255){
+			throw new IllegalArgumentException("Bill type must be in range [1-255]: " + billType);
+		}
+	}
+
+	public byte getAddress() {
+		return address;
+	}
+
+	public int getMessageType() {
+		return messageType;
+	}
+
+	/**
+	 *
+	 * @return number of requests addressed to this device
+	 */
+	public synchronized long getRequestCount() {
+		return requestCount;
+	}
+
+	public synchronized int getEventCounter() {
+		return eventCounter;
+	}
+
+	/**
+	 *
+	 * @return type of the bill held in escrow, 0 if escrow is empty
+	 */
+	public synchronized int getEscrowBillType() {
+		return escrowBillType;
+	}
+
+	public synchronized boolean isMasterInhibited() {
+		return masterInhibited;
+	}
+
+	public synchronized int getInhibitMask() {
+		return inhibitMask;
+	}
+
+	public synchronized boolean isStackerUsed() {
+		return stackerUsed;
+	}
+
+	public synchronized boolean isEscrowUsed() {
+		return escrowUsed;
+	}
+
+	public synchronized void setManufacturerId(String manufacturerId) {
+		this.manufacturerId = manufacturerId;
+	}
+
+	public synchronized void setEquipmentCategoryId(String equipmentCategoryId) {
+		this.equipmentCategoryId = equipmentCategoryId;
+	}
+
+	public synchronized void setProductCode(String productCode) {
+		this.productCode = productCode;
+	}
+
+	public synchronized void setBuildCode(String buildCode) {
+		this.buildCode = buildCode;
+	}
+
+	public synchronized void setCurrencyRevision(String currencyRevision) {
+		this.currencyRevision = currencyRevision;
+	}
+
+	/**
+	 * @param serialNumber serial number in range [0-16777215]
+	 */
+	public synchronized void setSerialNumber(int serialNumber) {
+		this.serialNumber = serialNumber;
+	}
+
+	/**
+	 * @param selfCheckFaultCode fault code replied to self checks, 0 for no fault
+	 */
+	public synchronized void setSelfCheckFaultCode(int selfCheckFaultCode) {
+		this.selfCheckFaultCode = selfCheckFaultCode;
+	}
+
+	@Override
+	public String toString() {
+		return "BillValidatorSimulator [address=" + (address & 0xFF) + "]";
+	}
+}
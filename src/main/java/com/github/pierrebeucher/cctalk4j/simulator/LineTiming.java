@@ -0,0 +1,67 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of a simulated serial line: time to transmit bytes at a baud rate,
+ * and time taken by the simulated device to start replying.
+ * @author Pierre Beucher
+ *
+ */
+class LineTiming {
+
+	private volatile boolean enabled;
+
+	private volatile int baudRate;
+
+	private volatile long responseDelayNanos;
+
+	LineTiming(int baudRate, long responseDelayMicros) {
+		this.enabled = true;
+		this.baudRate = baudRate;
+		this.responseDelayNanos = TimeUnit.MICROSECONDS.toNanos(responseDelayMicros);
+	}
+
+	/**
+	 * @param byteCount number of transmitted bytes
+	 * @return time to transmit the given number of bytes, 0 if timing is disabled
+	 */
+	long transmitNanos(int byteCount){
+		//10 bits per byte: start bit, 8 data bits, stop bit
+		return enabled ? byteCount * 10L * TimeUnit.SECONDS.toNanos(1) / baudRate : 0;
+	}
+
+	/**
+	 * @return time between the end of a request and the start of its reply, 0 if timing is disabled
+	 */
+	long responseDelayNanos(){
+		return enabled ? responseDelayNanos : 0;
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	int getBaudRate() {
+		return baudRate;
+	}
+
+	void setBaudRate(int baudRate) {
+		if(baudRate <= 0){
+			throw new IllegalArgumentException("Baud rate must be positive.");
+		}
+		this.baudRate = baudRate;
+	}
+
+	long getResponseDelayMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(responseDelayNanos);
+	}
+
+	void setResponseDelayMicros(long responseDelayMicros) {
+		this.responseDelayNanos = TimeUnit.MICROSECONDS.toNanos(responseDelayMicros);
+	}
+}
@@ -0,0 +1,217 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.pierrebeucher.cctalk4j.core.HeaderInfo;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessageParsingException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
+
+/**
+ * <p>A <code>MessagePort</code> connected to a bus of simulated devices, exchanging
+ * messages without encoding them. Unlike {@link SimulatedSerialPort}, no byte
+ * framing is involved, which keeps the port overhead out of benchmarks of the upper
+ * layers.</p>
+ * <p>Replies are available after the time a request and its reply take on the line at
+ * the configured baud rate, plus {@link #getResponseDelayMicros()}. Line timing can be
+ * disabled for replies to be available as soon as requests are written.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class SimulatedMessagePort implements MessagePort {
+
+	private final BillValidatorSimulator[] devices;
+
+	private final LineTiming timing;
+
+	private final ReentrantLock lock;
+
+	/*
+	 * Signaled when a reply is queued
+	 */
+	private final Condition received;
+
+	private final ArrayDeque<Reply> replies;
+
+	/*
+	 * Time at which the line is free of any transmission
+	 */
+	private long lineFreeAt;
+
+	private volatile boolean open;
+
+	/**
+	 * @param devices devices on the bus
+	 */
+	public SimulatedMessagePort(BillValidatorSimulator... devices) {
+		super();
+		if(devices.length == 0){
+			throw new IllegalArgumentException("At least one device is required.");
+		}
+		this.devices = devices.clone();
+		this.timing = new LineTiming(SimulatedSerialPort.DEFAULT_BAUD_RATE,
+				SimulatedSerialPort.DEFAULT_RESPONSE_DELAY_MICROS);
+		this.lock = new ReentrantLock();
+		this.received = lock.newCondition();
+		this.replies = new ArrayDeque<Reply>();
+	}
+
+	/*
+	 * A reply and the time at which it is fully received
+	 */
+	private static final class Reply {
+		final Message message;
+		final long time;
+
+		Reply(Message message, long time) {
+			this.message = message;
+			this.time = time;
+		}
+	}
+
+	@Override
+	public void open() throws MessagePortException {
+		open = true;
+	}
+
+	@Override
+	public void close() throws MessagePortException {
+		open = false;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return !open;
+	}
+
+	@Override
+	public void write(Message m) throws MessagePortException {
+		if(!open){
+			throw new MessagePortException("Port is not open.");
+		}
+		lock.lock();
+		try {
+			long requestEnd = Math.max(System.nanoTime(), lineFreeAt) + timing.transmitNanos(m.length());
+			lineFreeAt = requestEnd;
+			for(BillValidatorSimulator d : devices){
+				Message reply = d.handle(m);
+				if(reply != null){
+					long start = Math.max(requestEnd + timing.responseDelayNanos(), lineFreeAt);
+					lineFreeAt = start + timing.transmitNanos(reply.length());
+					replies.add(new Reply(reply, lineFreeAt));
+				}
+			}
+			received.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Message read(int timeout) throws MessagePortException, MessageParsingException {
+		return read(timeout, HeaderInfo.VARIABLE_LENGTH);
+	}
+
+	@Override
+	public Message read(int timeout, int expectedDataLength) throws MessagePortException, MessageParsingException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		lock.lock();
+		try {
+			while(true){
+				long now = System.nanoTime();
+				long wakeUp = deadline;
+				Reply next = replies.peek();
+				if(next != null){
+					if(next.time - now <= 0){
+						replies.poll();
+						return next.message;
+					}
+					if(next.time - deadline < 0){
+						wakeUp = next.time;
+					}
+				}
+				if(deadline - now <= 0){
+					throw new MessagePortTimeoutException("No message received within timeout.");
+				}
+				received.awaitNanos(wakeUp - now);
+			}
+		} catch (InterruptedException e) {
+			throw new MessagePortException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Discard the replies already received. Replies still being transmitted
+	 * are received afterward.
+	 */
+	@Override
+	public void resetInputBuffer() throws SerialPortException {
+		lock.lock();
+		try {
+			long now = System.nanoTime();
+			while(!replies.isEmpty() && replies.peek().time - now <= 0){
+				replies.poll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void resetOutputBuffer() throws SerialPortException {
+	}
+
+	@Override
+	public boolean isEchoCancelling() {
+		return false;
+	}
+
+	/**
+	 * @param enabled false for replies to be available as soon as requests are written
+	 */
+	public void setTimingEnabled(boolean enabled) {
+		timing.setEnabled(enabled);
+	}
+
+	public boolean isTimingEnabled() {
+		return timing.isEnabled();
+	}
+
+	public int getBaudRate() {
+		return timing.getBaudRate();
+	}
+
+	public void setBaudRate(int baudRate) {
+		timing.setBaudRate(baudRate);
+	}
+
+	/**
+	 * @return time between the end of a request and the start of its reply, in µs
+	 */
+	public long getResponseDelayMicros() {
+		return timing.getResponseDelayMicros();
+	}
+
+	public void setResponseDelayMicros(long responseDelayMicros) {
+		timing.setResponseDelayMicros(responseDelayMicros);
+	}
+
+	@Override
+	public String toString() {
+		return "SimulatedMessagePort " + Arrays.toString(devices);
+	}
+}
@@ -0,0 +1,362 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessageParser;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessageParser;
+import com.github.pierrebeucher.cctalk4j.core.MessageParsingException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.SimpleChecksumMessageParser;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPort;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortTimeoutException;
+
+/**
+ * <p>A <code>SerialPort</code> connected to a bus of simulated devices, to use with a
+ * <code>SerialMessagePort</code> in place of a real serial port.</p>
+ * <p>Written bytes are framed as ccTalk messages and handled by the devices, the reply
+ * bytes being made available for reading as they would be received on the line: each
+ * byte takes 10 bits at the configured baud rate (about 1.04 ms at 9600 baud), and a
+ * reply starts {@link #getResponseDelayMicros()} after the end of its request. Frames
+ * with an invalid checksum are ignored, as by a real device. Line timing can be disabled
+ * for replies to be available as soon as requests are written.</p>
+ * <p>Written bytes can also be echoed, as on a single-wire ccTalk bus.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class SimulatedSerialPort implements SerialPort {
+
+	/**
+	 * Default baud rate, the ccTalk standard one
+	 */
+	public static final int DEFAULT_BAUD_RATE = 9600;
+
+	/**
+	 * Default time between the end of a request and the start of its reply, in µs
+	 */
+	public static final long DEFAULT_RESPONSE_DELAY_MICROS = 1000;
+
+	private final BillValidatorSimulator[] devices;
+
+	private final MessageParser parser;
+
+	private final LineTiming timing;
+
+	private final ReentrantLock lock;
+
+	/*
+	 * Signaled when bytes are queued for reading
+	 */
+	private final Condition received;
+
+	/*
+	 * Bytes to read and the time at which each one is received
+	 */
+	private byte[] rx;
+
+	private long[] rxTime;
+
+	private int rxHead;
+
+	private int rxTail;
+
+	/*
+	 * Written bytes not framed yet
+	 */
+	private final byte[] tx;
+
+	private int txLength;
+
+	/*
+	 * Time at which the line is free of any transmission
+	 */
+	private long lineFreeAt;
+
+	private volatile boolean open;
+
+	private volatile boolean echo;
+
+	/**
+	 * @param devices devices on the bus, all using the same message type
+	 */
+	public SimulatedSerialPort(BillValidatorSimulator... devices) {
+		super();
+		if(devices.length == 0){
+			throw new IllegalArgumentException("At least one device is required.");
+		}
+		for(BillValidatorSimulator d : devices){
+			if(d.getMessageType() != devices[0].getMessageType()){
+				throw new IllegalArgumentException("All devices must use the same message type.");
+			}
+		}
+		this.devices = devices.clone();
+		this.parser = devices[0].getMessageType() == MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM ?
+				new CRCChecksumMessageParser() : new SimpleChecksumMessageParser();
+		this.timing = new LineTiming(DEFAULT_BAUD_RATE, DEFAULT_RESPONSE_DELAY_MICROS);
+		this.lock = new ReentrantLock();
+		this.received = lock.newCondition();
+		this.rx = new byte[512];
+		this.rxTime = new long[512];
+		this.tx = new byte[512];
+	}
+
+	@Override
+	public Object getConcretSerialPort() {
+		return this;
+	}
+
+	@Override
+	public boolean writeBytes(byte[] b) throws SerialPortException {
+		if(!open){
+			throw new SerialPortException("Port is not open.");
+		}
+		lock.lock();
+		try {
+			long start = Math.max(System.nanoTime(), lineFreeAt);
+			if(echo){
+				for(int i=0; i<b.length; i++){
+					queue(b[i], start + timing.transmitNanos(i + 1));
+				}
+			}
+			lineFreeAt = start + timing.transmitNanos(b.length);
+
+			for(int i=0; i<b.length; i++){
+				if(txLength == tx.length){
+					//garbage, no frame can be that long
+					txLength = 0;
+				}
+				tx[txLength++] = b[i];
+				Message request = frame();
+				if(request != null){
+					long requestEnd = start + timing.transmitNanos(i + 1);
+					dispatch(request, requestEnd);
+				}
+			}
+			received.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		return true;
+	}
+
+	/*
+	 * Return the request framed by the written bytes, if complete.
+	 * Must be called holding the lock.
+	 */
+	private Message frame(){
+		if(txLength < 2 || txLength < (tx[1] & 0xFF) + 5){
+			return null;
+		}
+		int length = txLength;
+		txLength = 0;
+		try {
+			parser.setMessageBytes(tx, 0, length);
+			return parser.parse();
+		} catch (MessageParsingException e) {
+			//ignored by devices
+			return null;
+		}
+	}
+
+	/*
+	 * Must be called holding the lock
+	 */
+	private void dispatch(Message request, long requestEnd){
+		for(BillValidatorSimulator d : devices){
+			Message reply = d.handle(request);
+			if(reply != null){
+				byte[] bytes = reply.bytes();
+				long start = Math.max(requestEnd + timing.responseDelayNanos(), lineFreeAt);
+				for(int i=0; i<bytes.length; i++){
+					queue(bytes[i], start + timing.transmitNanos(i + 1));
+				}
+				lineFreeAt = start + timing.transmitNanos(bytes.length);
+			}
+		}
+	}
+
+	/*
+	 * Must be called holding the lock
+	 */
+	private void queue(byte b, long time){
+		if(rxTail == rx.length){
+			int size = rxTail - rxHead;
+			if(size > rx.length / 2){
+				rx = Arrays.copyOf(rx, rx.length * 2);
+				rxTime = Arrays.copyOf(rxTime, rxTime.length * 2);
+			}
+			System.arraycopy(rx, rxHead, rx, 0, size);
+			System.arraycopy(rxTime, rxHead, rxTime, 0, size);
+			rxHead = 0;
+			rxTail = size;
+		}
+		rx[rxTail] = b;
+		rxTime[rxTail] = time;
+		rxTail++;
+	}
+
+	/**
+	 * Wait until the given number of bytes is received. Bytes are not consumed on timeout.
+	 */
+	@Override
+	public byte[] readBytes(int count, int timeout) throws SerialPortException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		lock.lock();
+		try {
+			while(true){
+				long now = System.nanoTime();
+				long wakeUp = deadline;
+				if(rxTail - rxHead >= count){
+					long at = rxTime[rxHead + count - 1];
+					if(at - now <= 0){
+						byte[] bytes = Arrays.copyOfRange(rx, rxHead, rxHead + count);
+						rxHead += count;
+						return bytes;
+					}
+					if(at - deadline < 0){
+						wakeUp = at;
+					}
+				}
+				if(deadline - now <= 0){
+					throw new SerialPortTimeoutException(count + " bytes not received within " + timeout + " ms.");
+				}
+				received.awaitNanos(wakeUp - now);
+			}
+		} catch (InterruptedException e) {
+			throw new SerialPortException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean open() throws SerialPortException {
+		open = true;
+		return true;
+	}
+
+	@Override
+	public boolean close() throws SerialPortException {
+		open = false;
+		return true;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return !open;
+	}
+
+	@Override
+	public void setParameters(int baudRate, int dataBits, int stopBits, int parity, boolean rtsLineStatus,
+			boolean dtrLineStatus) throws SerialPortException {
+		timing.setBaudRate(baudRate);
+	}
+
+	@Override
+	public void setFlowControl(int flowControlFlag) throws SerialPortException {
+	}
+
+	@Override
+	public void setDTR(boolean enabled) throws SerialPortException {
+	}
+
+	@Override
+	public void setRTS(boolean enabled) throws SerialPortException {
+	}
+
+	@Override
+	public boolean isCTS() throws SerialPortException {
+		return false;
+	}
+
+	@Override
+	public boolean isDRS() throws SerialPortException {
+		return false;
+	}
+
+	@Override
+	public boolean isRING() throws SerialPortException {
+		return false;
+	}
+
+	@Override
+	public boolean isRLSD() throws SerialPortException {
+		return false;
+	}
+
+	/**
+	 * Discard the bytes already received. Bytes still being transmitted,
+	 * such as the end of a reply, are received afterward.
+	 */
+	@Override
+	public void resetInputBuffer() throws SerialPortException {
+		lock.lock();
+		try {
+			long now = System.nanoTime();
+			while(rxHead < rxTail && rxTime[rxHead] - now <= 0){
+				rxHead++;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void resetOutputBuffer() throws SerialPortException {
+	}
+
+	/**
+	 * @param enabled true to echo written bytes, as on a single-wire bus
+	 */
+	public void setEcho(boolean enabled) {
+		this.echo = enabled;
+	}
+
+	public boolean isEcho() {
+		return echo;
+	}
+
+	/**
+	 * @param enabled false for replies to be available as soon as requests are written
+	 */
+	public void setTimingEnabled(boolean enabled) {
+		timing.setEnabled(enabled);
+	}
+
+	public boolean isTimingEnabled() {
+		return timing.isEnabled();
+	}
+
+	public int getBaudRate() {
+		return timing.getBaudRate();
+	}
+
+	public void setBaudRate(int baudRate) {
+		timing.setBaudRate(baudRate);
+	}
+
+	/**
+	 * @return time between the end of a request and the start of its reply, in µs
+	 */
+	public long getResponseDelayMicros() {
+		return timing.getResponseDelayMicros();
+	}
+
+	public void setResponseDelayMicros(long responseDelayMicros) {
+		timing.setResponseDelayMicros(responseDelayMicros);
+	}
+
+	@Override
+	public String toString() {
+		return "SimulatedSerialPort " + Arrays.toString(devices);
+	}
+}
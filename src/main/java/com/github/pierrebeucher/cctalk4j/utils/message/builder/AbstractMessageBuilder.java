@@ -5,31 +5,44 @@ import java.util.Arrays;
 import com.github.pierrebeucher.cctalk4j.core.Header;
 import com.github.pierrebeucher.cctalk4j.core.Message;
 
+/**
+ * Base <code>MessageBuilder</code> implementation. Message content is held
+ * in primitive fields, and is kept after {@link #build()}: a builder can be reused
+ * to build several messages, setting only the content which changes between them.
+ * @author Pierre Beucher
+ *
+ */
 public abstract class AbstractMessageBuilder implements MessageBuilder{
 
-	protected Byte destination;
-	protected Byte source;
-	protected Byte header;
+	protected byte destination;
+	protected byte source;
+	protected byte header;
 	protected byte[] data = EMPTY_DATA; //by default, no data
 	
+	protected boolean destinationSet;
+	protected boolean sourceSet;
+	protected boolean headerSet;
+	
 	public MessageBuilder destination(byte dest) {
 		this.destination = dest;
+		this.destinationSet = true;
 		return this;
 	}
 
 	public MessageBuilder source(byte source) {
 		this.source = source;
+		this.sourceSet = true;
 		return this;
 	}
 
 	public MessageBuilder header(byte header) {
 		this.header = header;
+		this.headerSet = true;
 		return this;
 	}
 
 	public MessageBuilder header(Header h) {
-		this.header = h.getValue();
-		return this;
+		return header(h.getValue());
 	}
 
 	public MessageBuilder data(byte[] data) {
@@ -43,16 +56,16 @@ public abstract class AbstractMessageBuilder implements MessageBuilder{
 	 * @throws MessageBuildException
 	 */
 	protected void ensureMessageConsistency() throws MessageBuildException{
-		if(source == null || source == 0){
-			throw new MessageBuildException("Source cannot be null or 0.");
+		if(!sourceSet || source == 0){
+			throw new MessageBuildException("Source must be set and cannot be 0.");
 		}
 		
-		if(destination == null){
-			throw new MessageBuildException("Destination cannot be null.");
+		if(!destinationSet){
+			throw new MessageBuildException("Destination must be set.");
 		}
 		
-		if(header == null){
-			throw new MessageBuildException("Header cannot be null.");
+		if(!headerSet){
+			throw new MessageBuildException("Header must be set.");
 		}
 	}
 	
@@ -2,6 +2,7 @@ package com.github.pierrebeucher.cctalk4j.utils.message.builder;
 
 import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
 import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
 
 /**
  * A <code>MessageBuilder</code> for <code>CRCChecksumMessage</code>.
@@ -13,12 +14,27 @@ import com.github.pierrebeucher.cctalk4j.core.Message;
 public class CRCChecksumMessageBuilder extends AbstractMessageBuilder
 		implements MessageBuilder {
 	
+	/**
+	 * Factory creating <code>CRCChecksumMessageBuilder</code> instances
+	 */
+	public static final MessageBuilderFactory FACTORY = new MessageBuilderFactory() {
+		@Override
+		public MessageBuilder newBuilder() {
+			return new CRCChecksumMessageBuilder();
+		}
+	};
+	
 	/**
 	 * 
 	 */
 	public CRCChecksumMessageBuilder() {
 		super();
-		this.source = 1; // default source to 1 as it is unused
+		source((byte) 1); // default source to 1 as it is unused
+	}
+	
+	@Override
+	public int getMessageType() {
+		return MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM;
 	}
 	
 	public Message doBuild() {		
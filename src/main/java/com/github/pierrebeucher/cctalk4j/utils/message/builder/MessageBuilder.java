@@ -7,6 +7,7 @@ import com.github.pierrebeucher.cctalk4j.core.Message;
  * <code>MessageBuilder</code> is used to build messages.
  * Message content is defined before calling {@link #build()}
  * method to create an instance of the configured message.
+ * Builders are created by a {@link MessageBuilderFactory}.
  * @author Pierre Beucher
  *
  */
@@ -61,6 +62,12 @@ public interface MessageBuilder {
 	 */
 	public MessageBuilder data(byte[] data);
 	
+	/**
+	 * @return type of the messages built, one of the
+	 * <code>MessagePort.MESSAGE_TYPE</code> constants
+	 */
+	public int getMessageType();
+	
 	/**
 	 * Build the effective Message.
 	 * @return build message
@@ -0,0 +1,16 @@
+package com.github.pierrebeucher.cctalk4j.utils.message.builder;
+
+/**
+ * <code>MessageBuilderFactory</code> creates new <code>MessageBuilder</code>
+ * instances without reflection, such as {@link CRCChecksumMessageBuilder#FACTORY}
+ * or {@link SimpleChecksumMessageBuilder#FACTORY}.
+ * @author Pierre Beucher
+ *
+ */
+public interface MessageBuilderFactory {
+
+	/**
+	 * @return a new <code>MessageBuilder</code>
+	 */
+	public MessageBuilder newBuilder();
+}
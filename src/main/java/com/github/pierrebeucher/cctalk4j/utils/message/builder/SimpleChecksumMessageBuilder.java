@@ -1,10 +1,31 @@
 package com.github.pierrebeucher.cctalk4j.utils.message.builder;
 
 import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
 import com.github.pierrebeucher.cctalk4j.core.SimpleChecksumMessage;
 
+/**
+ * A <code>MessageBuilder</code> for <code>SimpleChecksumMessage</code>.
+ * @author Pierre Beucher
+ *
+ */
 public class SimpleChecksumMessageBuilder extends AbstractMessageBuilder{
 
+	/**
+	 * Factory creating <code>SimpleChecksumMessageBuilder</code> instances
+	 */
+	public static final MessageBuilderFactory FACTORY = new MessageBuilderFactory() {
+		@Override
+		public MessageBuilder newBuilder() {
+			return new SimpleChecksumMessageBuilder();
+		}
+	};
+
+	@Override
+	public int getMessageType() {
+		return MessagePort.MESSAGE_TYPE_STANDARD_CHECKSUM;
+	}
+
 	public Message doBuild() {
 		return new SimpleChecksumMessage(destination, source, header, data);
 	}
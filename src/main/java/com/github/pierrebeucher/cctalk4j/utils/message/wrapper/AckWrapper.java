@@ -17,7 +17,7 @@ public class AckWrapper extends ResponseWrapper {
 	}
 	
 	public static boolean isAck(Message m){
-		return m.getDataBytes().length == 0 && m.getHeader() == Header.NONE.getValue();
+		return m.getDataLength() == 0 && m.getHeader() == Header.NONE.getValue();
 	}
 	
 	private AckWrapper(Message message) throws UnexpectedContentException {
@@ -26,7 +26,7 @@ public class AckWrapper extends ResponseWrapper {
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length > 0){
+		if(message.getDataLength() > 0){
 			throwWrappingException("ACK message is not supposed to contain data bytes.");
 		}
 		
@@ -26,7 +26,7 @@ public class AsciiDataResponseWrapper extends ResponseWrapper{
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length == 0){
+		if(message.getDataLength() == 0){
 			throwWrappingException("At least one data byte is expected.");
 		}
 		
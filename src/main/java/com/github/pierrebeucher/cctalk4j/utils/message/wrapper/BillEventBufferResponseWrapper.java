@@ -2,6 +2,7 @@ package com.github.pierrebeucher.cctalk4j.utils.message.wrapper;
 
 import com.github.pierrebeucher.cctalk4j.core.Message;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
 import com.github.pierrebeucher.cctalk4j.device.bill.event.UnrecognizedEventException;
 
 /**
@@ -22,6 +23,51 @@ public class BillEventBufferResponseWrapper extends ResponseWrapper{
 	 */
 	public static final int EVENT_BUFFER_LENGTH = 11;
 	
+	/**
+	 * Read the event counter of an event buffer response, without decoding its events.
+	 * @param m event buffer response
+	 * @return event counter
+	 * @throws UnexpectedContentException if the message is not an event buffer
+	 */
+	public static byte eventCounter(Message m) throws UnexpectedContentException{
+		checkDataLength(m);
+		return m.getDataByte(0);
+	}
+	
+	/**
+	 * Decode the most recent events of an event buffer response.
+	 * @param m event buffer response
+	 * @param count number of events to decode, up to <code>BillEventBuffer.EVENT_BUFFER_SIZE</code>
+	 * @return decoded events, most recent first
+	 * @throws UnexpectedContentException if the message is not an event buffer or
+	 * holds an unrecognized event
+	 */
+	public static BillEvent[] decodeEvents(Message m, int count) throws UnexpectedContentException{
+		checkDataLength(m);
+		if(count < 0 || count > BillEventBuffer.EVENT_BUFFER_SIZE){
+			throw new IllegalArgumentException("Event count must be in range [0-" + BillEventBuffer.EVENT_BUFFER_SIZE + "]");
+		}
+		
+		//events are canonical instances, no event is allocated
+		BillEvent[] billEvents = new BillEvent[count];
+		for(int i=0; i<count; i++){
+			byte resultA = m.getDataByte(1 + 2 * i);
+			byte resultB = m.getDataByte(2 + 2 * i);
+			try {
+				billEvents[i] = BillEvent.event(resultA, resultB);
+			} catch (UnrecognizedEventException e) {
+				throw new UnexpectedContentException(e);
+			}
+		}
+		return billEvents;
+	}
+	
+	private static void checkDataLength(Message m) throws UnexpectedContentException{
+		if(m.getDataLength() != EVENT_BUFFER_LENGTH){
+			throw new UnexpectedContentException("Event buffer data length must be equals to " + EVENT_BUFFER_LENGTH);
+		}
+	}
+	
 	private BillEvent[] billEvents;
 	private byte eventCounter;
 	
@@ -31,27 +77,8 @@ public class BillEventBufferResponseWrapper extends ResponseWrapper{
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		byte[] data = message.getDataBytes();
-		
-		if(data.length != EVENT_BUFFER_LENGTH){
-			throw new UnexpectedContentException("Event buffer data length must be equals to " + EVENT_BUFFER_LENGTH);
-		}
-		
-		eventCounter = data[0];
-		billEvents = new BillEvent[5];
-		
-		//parse the bill event buffer byte array
-		int billEventIndex = 0; //index in billEvents array
-		for(int i=1; i<data.length; i+=2){
-			byte resultA = data[i];
-			byte resultB = data[i+1];
-			try {
-				billEvents[billEventIndex] = BillEvent.event(resultA, resultB);
-				billEventIndex++;
-			} catch (UnrecognizedEventException e) {
-				throw new UnexpectedContentException(e);
-			}
-		}
+		eventCounter = eventCounter(message);
+		billEvents = decodeEvents(message, BillEventBuffer.EVENT_BUFFER_SIZE);
 	}
 
 	public BillEvent[] getBillEvents() {
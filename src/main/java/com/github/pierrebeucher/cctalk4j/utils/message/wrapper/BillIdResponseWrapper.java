@@ -42,7 +42,7 @@ public class BillIdResponseWrapper extends AsciiDataResponseWrapper {
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
 		super.wrapContent();
-		if(message.getDataBytes().length < 7){
+		if(message.getDataLength() < 7){
 			throw new UnexpectedContentException("Bill id response is expected to have at least 7 characters.");
 		}
 		
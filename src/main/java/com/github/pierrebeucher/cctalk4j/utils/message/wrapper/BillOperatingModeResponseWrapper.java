@@ -31,9 +31,9 @@ public class BillOperatingModeResponseWrapper extends ResponseWrapper {
 	 */
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length != 1){
+		if(message.getDataLength() != 1){
 			throw new UnexpectedContentException("Expected 1 byte,"
-					+ " but found " + message.getDataBytes().length + " bytes.");
+					+ " but found " + message.getDataLength() + " bytes.");
 		}
 		
 		//convert our bits into boolean values
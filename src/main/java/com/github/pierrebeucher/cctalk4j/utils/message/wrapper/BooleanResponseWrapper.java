@@ -25,13 +25,13 @@ public class BooleanResponseWrapper extends ResponseWrapper {
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length != 1) {
+		if(message.getDataLength() != 1) {
 			throw new UnexpectedContentException("Boolean response cannot contain more than one data byte.");
 		}
 		
-		if(message.getDataBytes()[0] == 1){
+		if(message.getDataByte(0) == 1){
 			this.booleanValue = true;
-		} else if (message.getDataBytes()[0] == 0){
+		} else if (message.getDataByte(0) == 0){
 			this.booleanValue = false;
 		} else {
 			throw new UnexpectedContentException("Boolean response data byte must be either 0 or 1");
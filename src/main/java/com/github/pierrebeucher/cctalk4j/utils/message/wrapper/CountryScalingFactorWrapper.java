@@ -41,14 +41,14 @@ public class CountryScalingFactorWrapper extends ResponseWrapper {
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length != 3){
+		if(message.getDataLength() != 3){
 			throw new UnexpectedContentException("Message data length must be equals to 3 (scaling factor LSB / MSB and decimal place).");
 		}
 		
-		byte scalingFactorLsb = message.getDataBytes()[0];
-		byte scalingFactorMsb = message.getDataBytes()[1];
+		byte scalingFactorLsb = message.getDataByte(0);
+		byte scalingFactorMsb = message.getDataByte(1);
 		this.scalingFactor = produceScalingFactorInt(scalingFactorMsb, scalingFactorLsb);
-		this.decimalPlace = message.getDataBytes()[2];
+		this.decimalPlace = message.getDataByte(2);
 	}
 	
 	/**
@@ -22,7 +22,7 @@ public class InhibitStatusResponseWrapper extends BitSetResponseWrapper {
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length < 2){
+		if(message.getDataLength() < 2){
 			throw new UnexpectedContentException("Expected at least 2 inhibit mask bytes.");
 		}
 		
@@ -41,16 +41,16 @@ public class RouteBillResponseWrapper extends ResponseWrapper {
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
 		//message data is either empty (ack) or a single error code		
-		switch(message.getDataBytes().length){
+		switch(message.getDataLength()){
 			case 0:
 				this.errorCode = null;
 				break;
 			case 1:
-				this.errorCode = message.getDataBytes()[0];
+				this.errorCode = message.getDataByte(0);
 				break;
 			default:
 				if(!ignoreIncorrectResponseLength){
-					throw new UnexpectedContentException("Route bill response payload length must be 0 or 1, but is " + message.getDataBytes().length);
+					throw new UnexpectedContentException("Route bill response payload length must be 0 or 1, but is " + message.getDataLength());
 				}
 		}
 		
@@ -29,14 +29,14 @@ public class SelfCheckResponseWrapper extends ResponseWrapper {
 
 	@Override
 	protected void wrapContent() throws UnexpectedContentException {
-		if(message.getDataBytes().length < 1 || message.getDataBytes().length > 2){
+		if(message.getDataLength() < 1 || message.getDataLength() > 2){
 			throw new UnexpectedContentException("Expected 1 or 2 bytes (fault and optional extra info)"
-					+ ", got " + message.getDataBytes().length + " bytes.");
+					+ ", got " + message.getDataLength() + " bytes.");
 		}
 		
-		this.faultCode = message.getDataBytes()[0];
-		if(message.getDataBytes().length > 1){
-			this.optionalExtraInfo = message.getDataBytes()[1];
+		this.faultCode = message.getDataByte(0);
+		if(message.getDataLength() > 1){
+			this.optionalExtraInfo = message.getDataByte(1);
 		}
 	}
 	
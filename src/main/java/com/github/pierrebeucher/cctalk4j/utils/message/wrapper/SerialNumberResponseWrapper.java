@@ -0,0 +1,43 @@
+package com.github.pierrebeucher.cctalk4j.utils.message.wrapper;
+
+import com.github.pierrebeucher.cctalk4j.core.Message;
+
+/**
+ * <code>ResponseWrapper</code> for a serial number message.
+ * A serial number message contains 3 data bytes, least significant byte first.
+ * @author Pierre Beucher
+ *
+ */
+public class SerialNumberResponseWrapper extends ResponseWrapper {
+
+	private int serialNumber;
+	
+	public static SerialNumberResponseWrapper wrap(Message m) throws UnexpectedContentException{
+		SerialNumberResponseWrapper mw = new SerialNumberResponseWrapper(m);
+		mw.wrapContent();
+		return mw;
+	}
+	
+	protected SerialNumberResponseWrapper(Message message) throws UnexpectedContentException {
+		super(message);
+	}
+
+	@Override
+	protected void wrapContent() throws UnexpectedContentException {
+		if(message.getDataLength() != 3){
+			throw new UnexpectedContentException("Message data length must be equals to 3 (serial number LSB, middle byte and MSB).");
+		}
+		
+		this.serialNumber = (message.getDataByte(0) & 0xFF)
+				| (message.getDataByte(1) & 0xFF) << 8
+				| (message.getDataByte(2) & 0xFF) << 16;
+	}
+	
+	/**
+	 * @return serial number, between 0 and 16,777,215
+	 */
+	public int getSerialNumber() {
+		return serialNumber;
+	}
+
+}
@@ -45,6 +45,23 @@ public class AbstractMessageParserTest {
 		Assert.assertThrows(MessageParsingException.class, r);
 	}
 
+	@Test
+	public void dataBytes_region() throws MessageParsingException {
+		byte[] region = Utils.unsignedIntsToBytes(new int[]{0, 0, 40,2,95,231,254,253,223, 0});
+		MyAbstractMessageParser parser = new MyAbstractMessageParser(goodMessage);
+		parser.setMessageBytes(region, 2, 7);
+		Assert.assertEquals(parser.dataBytes(), Utils.unsignedIntsToBytes(new int[]{254, 253}));
+		Assert.assertEquals(parser.destinationByte(), Utils.unsignedIntToByte(40));
+		Assert.assertEquals(parser.getMessageBytes(), Utils.unsignedIntsToBytes(new int[]{40,2,95,231,254,253,223}));
+	}
+	
+	@Test
+	public void dataBytes_unsignedLength() throws MessageParsingException {
+		byte[] message = new byte[5 + 200];
+		message[1] = Utils.unsignedIntToByte(200);
+		Assert.assertEquals(new MyAbstractMessageParser(message).dataBytes().length, 200);
+	}
+	
 	@Test
 	public void dataLengthByte() throws MessageParsingException {
 		byte actual = new MyAbstractMessageParser(goodMessage).dataLengthByte();
@@ -74,6 +91,10 @@ public class AbstractMessageParserTest {
 		protected Message doParse() throws MessageParsingException {
 			return null;
 		}
+		@Override
+		public boolean isChecksumValid() throws MessageParsingException {
+			return true;
+		}
 	}
 
 }
@@ -76,6 +76,46 @@ public class AbstractMessageTest {
 		Assert.assertEquals(m.getHeader(), Utils.unsignedIntToByte(254));
 	}
 	
+	@Test
+	public void getDataBytes_copy() {
+		byte[] data = new byte[]{2, 1};
+		AbstractMessage m = new MyAbstractMessage(Utils.unsignedIntToByte(40),
+				Utils.unsignedIntToByte(254),
+				data);
+		data[0] = 42;
+		m.getDataBytes()[1] = 42;
+		Assert.assertEquals(m.getDataBytes(), new byte[]{2, 1});
+	}
+
+	@Test
+	public void getDataByte() {
+		AbstractMessage m = new MyAbstractMessage(Utils.unsignedIntToByte(40),
+				Utils.unsignedIntToByte(254),
+				new byte[]{2, 1});
+		Assert.assertEquals(m.getDataLength(), 2);
+		Assert.assertEquals(m.getDataByte(0), 2);
+		Assert.assertEquals(m.getDataByte(1), 1);
+	}
+
+	@Test(expectedExceptions=IndexOutOfBoundsException.class)
+	public void getDataByte_outOfBounds() {
+		AbstractMessage m = new MyAbstractMessage(Utils.unsignedIntToByte(40),
+				Utils.unsignedIntToByte(254),
+				new byte[]{2, 1});
+		m.getDataByte(2);
+	}
+
+	@Test
+	public void hashCode_equals() {
+		AbstractMessage m1 = new MyAbstractMessage(Utils.unsignedIntToByte(40),
+				Utils.unsignedIntToByte(254),
+				new byte[]{1, 2});
+		AbstractMessage m2 = new MyAbstractMessage(Utils.unsignedIntToByte(40),
+				Utils.unsignedIntToByte(254),
+				new byte[]{1, 2});
+		Assert.assertEquals(m1.hashCode(), m2.hashCode());
+	}
+	
 	private class MyAbstractMessage extends AbstractMessage{
 		public MyAbstractMessage(byte destination, byte header, byte[] data) {
 			super(destination, header, data);
@@ -0,0 +1,67 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the table-driven {@link CRC16CCIT} with the former bit-by-bit
+ * implementation, for a poll-sized frame and a full 255 data bytes frame.
+ * @author Pierre Beucher
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CRC16CCITBenchmark {
+
+	@Param({"3", "258"})
+	private int length;
+
+	private byte[] bytes;
+
+	private CRC16CCIT crc;
+
+	@Setup
+	public void setup(){
+		bytes = new byte[length];
+		for(int i=0; i<length; i++){
+			bytes[i] = (byte) (i * 31);
+		}
+		crc = new CRC16CCIT();
+	}
+
+	@Benchmark
+	public short bitwise(){
+		short crc = 0x000;
+		int polynomial = 0x1021;
+		for (byte b : bytes) {
+			for (int i = 0; i < 8; i++) {
+				boolean bit = ((b   >> (7-i) & 1) == 1);
+				boolean c15 = ((crc >> 15    & 1) == 1);
+				crc <<= 1;
+				if (c15 ^ bit) crc ^= polynomial;
+			}
+		}
+		return crc;
+	}
+
+	@Benchmark
+	public short tableDriven(){
+		return crc.reset().update(bytes, 0, bytes.length).value();
+	}
+
+}
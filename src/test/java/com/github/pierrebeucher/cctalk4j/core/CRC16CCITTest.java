@@ -0,0 +1,123 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.nio.ByteBuffer;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.Test;
+
+/**
+ * CRC 16 CCIT tests data taken from the ccTalk official specifications examples,
+ * see {@link UtilsTest}.
+ * @author Pierre Beucher
+ *
+ */
+public class CRC16CCITTest {
+
+	/**
+	 * TX crc = CRC( 40, 0, 1 ) = 3F46 hex
+	 */
+	@Test
+	public void update_byte() {
+		CRC16CCIT crc = new CRC16CCIT()
+			.update((byte) 40)
+			.update((byte) 0)
+			.update((byte) 1);
+		Assert.assertEquals(crc.value(), (short) 0x3F46);
+		Assert.assertEquals(crc.msb(), (byte) 0x3F);
+		Assert.assertEquals(crc.lsb(), (byte) 0x46);
+	}
+
+	/**
+	 * Data = 70 B8 D9 64 04 15 / CRC-CCITT Checksum = FB00
+	 */
+	@Test
+	public void update_slice() {
+		byte[] bytes = Utils.unsignedIntsToBytes(new int[]{0xFF, 0x70, 0xB8, 0xD9, 0x64, 0x04, 0x15, 0xFF});
+		CRC16CCIT crc = new CRC16CCIT().update(bytes, 1, 6);
+		Assert.assertEquals(crc.value(), (short) 0xFB00);
+	}
+
+	/**
+	 * Data = 72 61 B9 4E D0 78 / CRC-CCITT Checksum = 93E3
+	 */
+	@Test
+	public void update_incremental() {
+		byte[] bytes = Utils.unsignedIntsToBytes(new int[]{0x72, 0x61, 0xB9, 0x4E, 0xD0, 0x78});
+		CRC16CCIT crc = new CRC16CCIT()
+			.update(bytes, 0, 2)
+			.update(bytes[2])
+			.update(bytes, 3, 3);
+		Assert.assertEquals(crc.value(), (short) 0x93E3);
+	}
+
+	/**
+	 * Data = 63 FA D1 9F E6 19 / CRC-CCITT Checksum = 5BB3
+	 */
+	@Test
+	public void update_heapByteBuffer() {
+		ByteBuffer buf = ByteBuffer.wrap(Utils.unsignedIntsToBytes(new int[]{0x63, 0xFA, 0xD1, 0x9F, 0xE6, 0x19}));
+		CRC16CCIT crc = new CRC16CCIT().update(buf);
+		Assert.assertEquals(crc.value(), (short) 0x5BB3);
+		Assert.assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void update_directByteBuffer() {
+		ByteBuffer buf = ByteBuffer.allocateDirect(6);
+		buf.put(Utils.unsignedIntsToBytes(new int[]{0x63, 0xFA, 0xD1, 0x9F, 0xE6, 0x19}));
+		buf.flip();
+		CRC16CCIT crc = new CRC16CCIT().update(buf);
+		Assert.assertEquals(crc.value(), (short) 0x5BB3);
+		Assert.assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void update_err_outOfBounds() {
+		ThrowingRunnable r = new ThrowingRunnable() {
+			@Override
+			public void run() throws Throwable {
+				new CRC16CCIT().update(new byte[]{1, 2, 3}, 2, 2);
+			}
+		};
+		Assert.assertThrows(IndexOutOfBoundsException.class, r);
+	}
+
+	/**
+	 * RX crc = CRC( 1, 0, 0 ) = 3730 hex
+	 */
+	@Test
+	public void reset() {
+		CRC16CCIT crc = new CRC16CCIT().update(new byte[]{40, 0, 1});
+		crc.reset().update(new byte[]{1, 0, 0});
+		Assert.assertEquals(crc.value(), (short) 0x3730);
+	}
+
+	/**
+	 * Table-driven implementation must match the bitwise implementation
+	 * for every single byte value and a few multi-bytes sequences.
+	 */
+	@Test
+	public void checksum_matchesBitwise() {
+		byte[] all = new byte[256];
+		for(int i=0; i<256; i++){
+			all[i] = (byte) i;
+			Assert.assertEquals(CRC16CCIT.checksum(all, i, 1), bitwise(all, i, 1));
+		}
+		Assert.assertEquals(CRC16CCIT.checksum(all, 0, 256), bitwise(all, 0, 256));
+		Assert.assertEquals(CRC16CCIT.checksum(all, 100, 57), bitwise(all, 100, 57));
+	}
+
+	private static short bitwise(byte[] bytes, int off, int len){
+		int crc = 0;
+		for(int j=off; j<off+len; j++){
+			for (int i = 0; i < 8; i++) {
+				boolean bit = ((bytes[j] >> (7-i) & 1) == 1);
+				boolean c15 = ((crc >> 15 & 1) == 1);
+				crc <<= 1;
+				if (c15 ^ bit) crc ^= CRC16CCIT.POLYNOMIAL;
+			}
+		}
+		return (short) crc;
+	}
+}
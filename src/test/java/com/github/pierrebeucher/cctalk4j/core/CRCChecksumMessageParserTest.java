@@ -40,6 +40,62 @@ public class CRCChecksumMessageParserTest {
 		Assert.assertEquals(actual, expected);
 	}
 	
+	@Test
+	public void parse_ownsBytes() throws MessageParsingException {
+		byte[] bytes = correctManIDResp.clone();
+		Message actual = new CRCChecksumMessageParser(bytes).parse();
+		bytes[4] = 0;
+		Assert.assertEquals(actual.bytes(), correctManIDResp);
+		Assert.assertEquals(actual, new CRCChecksumMessage((byte) 1, (byte) 0, new byte[]{65, 83, 84}));
+	}
+	
+	@Test
+	public void parseInto_nominal() throws MessageParsingException {
+		byte[] region = Utils.unsignedIntsToBytes(new int[]{7, 1,3,114,0,65,83,84,192, 7});
+		MessageView view = new MessageView();
+		CRCChecksumMessageParser parser = new CRCChecksumMessageParser();
+		parser.setMessageBytes(region, 1, 8);
+		parser.parseInto(view);
+		
+		Assert.assertEquals(view.length(), 8);
+		Assert.assertEquals(view.destination(), (byte) 1);
+		Assert.assertEquals(view.header(), (byte) 0);
+		Assert.assertEquals(view.dataBytes(), Utils.unsignedIntsToBytes(new int[]{65, 83, 84}));
+		
+		//view is reused for next message
+		parser.setMessageBytes(Utils.unsignedIntsToBytes(new int[]{1, 0, 0x30, 0, 0x37}));
+		parser.parseInto(view);
+		Assert.assertEquals(view.length(), 5);
+		Assert.assertEquals(view.dataLength(), 0);
+	}
+	
+	@Test
+	public void parseInto_error_crc() throws MessageParsingException {
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				new CRCChecksumMessageParser(badCrcMsbManIDResp).parseInto(new MessageView());
+			}
+		};
+		Assert.assertThrows(MessageParsingException.class, r);
+	}
+	
+	@Test
+	public void parseInto_error_dataLength() throws MessageParsingException {
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				new CRCChecksumMessageParser(badLengthManIDResp).parseInto(new MessageView());
+			}
+		};
+		Assert.assertThrows(MessageParsingException.class, r);
+	}
+	
+	@Test
+	public void isChecksumValid() throws MessageParsingException {
+		Assert.assertTrue(new CRCChecksumMessageParser(correctManIDResp).isChecksumValid());
+		Assert.assertFalse(new CRCChecksumMessageParser(badCrcLsbManIDResp).isChecksumValid());
+		Assert.assertFalse(new CRCChecksumMessageParser(badCrcMsbManIDResp).isChecksumValid());
+	}
+	
 	@Test
 	public void parse_error_crcLsb() throws MessageParsingException {
 		ThrowingRunnable r = new ThrowingRunnable(){
@@ -1,6 +1,11 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
 import org.testng.annotations.Test;
 
 import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
@@ -38,6 +43,59 @@ public class CRCChecksumMessageTest {
 		Assert.assertEquals(rawMsg, byteMsg);
 	}
 	
+	@Test
+	public void encodeTo_array() {
+		byte[] expected = new byte[]{0, 40, 2, 0x3D, -2, 7, 8, 0x07, 0};
+		Message m = new CRCChecksumMessage(
+				(byte)40,
+				(byte)-2,
+				new byte[]{7, 8});
+		byte[] dst = new byte[9];
+		int written = m.encodeTo(dst, 1);
+		
+		Assert.assertEquals(written, 7);
+		Assert.assertEquals(dst, expected);
+		Assert.assertEquals(Arrays.copyOfRange(dst, 1, 8), m.bytes());
+	}
+	
+	@Test
+	public void encodeTo_buffer() {
+		Message m = new CRCChecksumMessage(
+				(byte)40,
+				(byte)1,
+				new byte[]{});
+		ByteBuffer dst = ByteBuffer.allocateDirect(16);
+		dst.put((byte) 0);
+		int written = m.encodeTo(dst);
+		
+		Assert.assertEquals(written, 5);
+		Assert.assertEquals(dst.position(), 6);
+		byte[] actual = new byte[5];
+		dst.position(1);
+		dst.get(actual);
+		Assert.assertEquals(actual, new byte[]{40, 0, 70, 1, 63});
+	}
+	
+	@Test
+	public void encodeTo_err_overflow() {
+		final Message m = new CRCChecksumMessage(
+				(byte)40,
+				(byte)1,
+				new byte[]{});
+		Assert.assertThrows(BufferOverflowException.class, new ThrowingRunnable() {
+			@Override
+			public void run() throws Throwable {
+				m.encodeTo(ByteBuffer.allocate(4));
+			}
+		});
+		Assert.assertThrows(IndexOutOfBoundsException.class, new ThrowingRunnable() {
+			@Override
+			public void run() throws Throwable {
+				m.encodeTo(new byte[5], 1);
+			}
+		});
+	}
+	
 	@Test
 	public void getCrcLsb(){
 		CRCChecksumMessage m = new CRCChecksumMessage(
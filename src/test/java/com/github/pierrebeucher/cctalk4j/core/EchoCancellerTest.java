@@ -0,0 +1,80 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class EchoCancellerTest {
+
+	private byte[] request = Utils.unsignedIntsToBytes(new int[]{40, 0, 70, 1, 63});
+	
+	private EchoCanceller canceller;
+	
+	@BeforeMethod
+	public void beforeMethod(){
+		canceller = new EchoCanceller();
+	}
+	
+	@Test
+	public void filter_echoThenReply() {
+		canceller.expect(request, 0, request.length);
+		byte[] received = Utils.unsignedIntsToBytes(new int[]{40, 0, 70, 1, 63, 1, 0, 0x30, 0, 0x37});
+		
+		Assert.assertEquals(canceller.filter(received, 0, received.length), 5);
+		Assert.assertTrue(canceller.pollEchoCompleted());
+		Assert.assertFalse(canceller.pollEchoCompleted());
+		Assert.assertEquals(canceller.getDroppedByteCount(), 0);
+	}
+	
+	@Test
+	public void filter_echoSplitAcrossChunks() {
+		canceller.expect(request, 0, request.length);
+		byte[] received = Utils.unsignedIntsToBytes(new int[]{40, 0, 70, 1, 63, 1, 0});
+		
+		Assert.assertEquals(canceller.filter(received, 0, 3), 3);
+		Assert.assertTrue(canceller.isEchoPending());
+		Assert.assertEquals(canceller.remaining(), 2);
+		Assert.assertEquals(canceller.filter(received, 3, 4), 5);
+		Assert.assertFalse(canceller.isEchoPending());
+		
+		//following bytes are all part of the reply
+		Assert.assertEquals(canceller.filter(received, 5, 2), 5);
+	}
+	
+	/**
+	 * Leftover bytes partially matching the echo are dropped
+	 */
+	@Test
+	public void filter_leftoverBeforeEcho() {
+		canceller.expect(request, 0, request.length);
+		byte[] received = Utils.unsignedIntsToBytes(new int[]{40, 0, 40, 40, 0, 70, 1, 63, 7});
+		
+		Assert.assertEquals(canceller.filter(received, 0, received.length), 8);
+		Assert.assertEquals(canceller.getDroppedByteCount(), 3);
+	}
+	
+	@Test
+	public void filter_idle() {
+		byte[] received = Utils.unsignedIntsToBytes(new int[]{1, 0, 0x30, 0, 0x37});
+		Assert.assertEquals(canceller.filter(received, 0, received.length), 5);
+		Assert.assertEquals(canceller.getDroppedByteCount(), 5);
+	}
+	
+	@Test
+	public void replyReceived() {
+		canceller.expect(request, 0, request.length);
+		canceller.filter(request, 0, request.length);
+		canceller.replyReceived();
+		
+		byte[] received = new byte[]{1, 2};
+		Assert.assertEquals(canceller.filter(received, 0, received.length), 2);
+	}
+	
+	@Test
+	public void reset() {
+		canceller.expect(request, 0, request.length);
+		canceller.reset();
+		Assert.assertFalse(canceller.isEchoPending());
+		Assert.assertEquals(canceller.remaining(), 0);
+	}
+}
@@ -0,0 +1,175 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class FrameDecoderTest {
+
+	//Manufacturer ID response [1, 3, crcLsb, 0, 'A', 'S', 'T', crcMsb]
+	private byte[] manIDResp = Utils.unsignedIntsToBytes(new int[]{1,3,114,0,65,83,84,192});
+	
+	//ACK response
+	private byte[] ackResp = Utils.unsignedIntsToBytes(new int[]{1,0,0x30,0,0x37});
+	
+	private FrameDecoder decoder;
+	
+	private MessageView view;
+	
+	@BeforeMethod
+	public void beforeMethod(){
+		decoder = new FrameDecoder(new CRCChecksumMessageParser());
+		view = new MessageView();
+	}
+	
+	@Test
+	public void next_wholeFrame() {
+		decoder.feed(manIDResp);
+		
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.dataBytes(), new byte[]{65, 83, 84});
+		Assert.assertEquals(decoder.pending(), 0);
+		Assert.assertFalse(decoder.next(view));
+	}
+	
+	@Test
+	public void next_byteByByte() {
+		for(int i=0; i<manIDResp.length - 1; i++){
+			decoder.feed(manIDResp, i, 1);
+			Assert.assertFalse(decoder.next(view));
+		}
+		Assert.assertEquals(decoder.bytesNeeded(), 1);
+		decoder.feed(manIDResp, manIDResp.length - 1, 1);
+		
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.length(), 8);
+	}
+	
+	@Test
+	public void next_severalFramesInOneChunk() {
+		decoder.feed(Utils.concat(ackResp, Utils.concat(manIDResp, ackResp)));
+		
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.length(), 5);
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.length(), 8);
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.length(), 5);
+		Assert.assertFalse(decoder.next(view));
+	}
+	
+	@Test
+	public void next_leavesParserOnFrame() throws MessageParsingException {
+		decoder.feed(Utils.concat(new byte[]{42}, manIDResp));
+		Assert.assertTrue(decoder.next(view));
+		
+		Message m = decoder.getParser().parse();
+		Assert.assertEquals(m.getDataBytes(), new byte[]{65, 83, 84});
+	}
+	
+	/**
+	 * A noise byte announcing a short frame is discarded once the candidate
+	 * checksum fails, and decoding resumes on the real frame.
+	 */
+	@Test
+	public void next_resyncOnNoise() {
+		decoder.feed(Utils.concat(new byte[]{7}, manIDResp));
+		
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.dataBytes(), new byte[]{65, 83, 84});
+		Assert.assertEquals(decoder.getDiscardedByteCount(), 1);
+	}
+	
+	/**
+	 * A corrupted frame is dropped, the next frame is still decoded
+	 * once stalled candidates are skipped.
+	 */
+	@Test
+	public void next_resyncOnCorruptedFrame() {
+		byte[] corrupted = manIDResp.clone();
+		corrupted[5] = 0;
+		decoder.feed(Utils.concat(corrupted, ackResp));
+		
+		while(!decoder.next(view)){
+			decoder.skip();
+		}
+		Assert.assertEquals(view.length(), 5);
+		Assert.assertEquals(decoder.getDiscardedByteCount(), 8);
+	}
+	
+	/**
+	 * A noise byte announcing a long frame waits for more bytes,
+	 * until skipped.
+	 */
+	@Test
+	public void skip_stalledCandidate() {
+		decoder.feed(Utils.concat(new byte[]{0, (byte) 200}, ackResp));
+		Assert.assertFalse(decoder.next(view));
+		Assert.assertTrue(decoder.bytesNeeded() > 0);
+		
+		decoder.skip();
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals(view.length(), 5);
+	}
+	
+	@Test
+	public void next_rejectListener() {
+		final byte[][] rejected = new byte[1][];
+		decoder.setRejectListener(new FrameDecoder.RejectListener() {
+			@Override
+			public void frameRejected(byte[] bytes, int off, int len) {
+				if(rejected[0] == null){
+					rejected[0] = Arrays.copyOfRange(bytes, off, off + len);
+				}
+			}
+		});
+		byte[] corrupted = manIDResp.clone();
+		corrupted[5] = 0;
+		decoder.feed(corrupted);
+		
+		Assert.assertFalse(decoder.next(view));
+		Assert.assertEquals(rejected[0], corrupted);
+	}
+	
+	@Test
+	public void wrapPending() {
+		decoder.feed(manIDResp, 0, 4);
+		decoder.wrapPending(view);
+		Assert.assertEquals(view.length(), 4);
+		Assert.assertEquals(view.get(3), manIDResp[3]);
+		Assert.assertEquals(decoder.pending(), 4);
+	}
+	
+	@Test
+	public void feed_largeChunk() {
+		byte[] chunk = new byte[0];
+		for(int i=0; i<200; i++){
+			chunk = Utils.concat(chunk, manIDResp);
+		}
+		decoder.feed(chunk);
+		for(int i=0; i<200; i++){
+			Assert.assertTrue(decoder.next(view));
+		}
+		Assert.assertFalse(decoder.next(view));
+	}
+	
+	@Test
+	public void reset() {
+		decoder.feed(manIDResp, 0, 4);
+		decoder.reset();
+		Assert.assertEquals(decoder.pending(), 0);
+		Assert.assertEquals(decoder.bytesNeeded(), 2);
+		Assert.assertEquals(decoder.getDiscardedByteCount(), 4);
+	}
+	
+	@Test
+	public void next_simpleChecksum() {
+		FrameDecoder simpleDecoder = new FrameDecoder(new SimpleChecksumMessageParser());
+		simpleDecoder.feed(Utils.concat(new byte[]{3, 0}, new SimpleChecksumMessage((byte)1, (byte)40, (byte)0, new byte[]{1, 2}).bytes()));
+		
+		Assert.assertTrue(simpleDecoder.next(view));
+		Assert.assertEquals(view.dataBytes(), new byte[]{1, 2});
+	}
+}
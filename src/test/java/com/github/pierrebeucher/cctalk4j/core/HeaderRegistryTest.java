@@ -0,0 +1,85 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.HeaderInfo.TimeoutClass;
+
+public class HeaderRegistryTest {
+
+	@Test
+	public void standard_allHeaders() {
+		HeaderRegistry registry = HeaderRegistry.standard();
+		for(Header h : Header.values()){
+			HeaderInfo info = registry.get(h);
+			Assert.assertNotNull(info, "No metadata for " + h);
+			Assert.assertSame(info.getHeader(), h);
+			Assert.assertEquals(info.getName(), h.name());
+			Assert.assertSame(registry.get(h.getValue()), info);
+		}
+	}
+
+	@Test
+	public void standard_metadata() {
+		HeaderRegistry registry = HeaderRegistry.getDefault();
+
+		HeaderInfo events = registry.get(Header.READ_BUFFERED_BILL_EVENTS);
+		Assert.assertTrue(events.isFixedReplyLength());
+		Assert.assertEquals(events.getExpectedReplyDataLength(), 11);
+		Assert.assertTrue(events.isIdempotent());
+		Assert.assertEquals(events.getTimeoutClass(), TimeoutClass.SHORT);
+
+		HeaderInfo manufacturer = registry.get(Header.REQUEST_MANUFACTURER_ID);
+		Assert.assertFalse(manufacturer.isFixedReplyLength());
+		Assert.assertEquals(manufacturer.getExpectedReplyDataLength(), HeaderInfo.VARIABLE_LENGTH);
+
+		HeaderInfo route = registry.get(Header.ROUTE_BILL);
+		Assert.assertFalse(route.isIdempotent());
+		Assert.assertEquals(route.getTimeoutClass(), TimeoutClass.LONG);
+	}
+
+	@Test
+	public void register_vendorHeader() {
+		HeaderRegistry registry = HeaderRegistry.standard();
+		HeaderInfo vendor = new HeaderInfo((byte) 100, "VENDOR_REQUEST_STATUS", 4, 4, true, TimeoutClass.NORMAL);
+		registry.register(vendor);
+
+		Assert.assertSame(registry.get((byte) 100), vendor);
+		Assert.assertNull(vendor.getHeader());
+		Assert.assertNull(HeaderRegistry.standard().get((byte) 100));
+	}
+
+	@Test
+	public void register_replace() {
+		HeaderRegistry registry = HeaderRegistry.standard();
+		HeaderInfo poll = HeaderInfo.fixed(Header.SIMPLE_POLL, 0, true, TimeoutClass.NORMAL);
+		registry.register(poll);
+
+		Assert.assertSame(registry.get(Header.SIMPLE_POLL), poll);
+	}
+
+	@Test
+	public void get_unknown() {
+		Assert.assertNull(new HeaderRegistry().get(Header.SIMPLE_POLL));
+		Assert.assertNull(HeaderRegistry.getDefault().get((byte) 1));
+	}
+
+	@Test
+	public void headerInfo_invalidRange() {
+		ThrowingRunnable r = new ThrowingRunnable() {
+			public void run() throws Throwable {
+				HeaderInfo.range(Header.NONE, 3, 2, true, TimeoutClass.SHORT);
+			}
+		};
+		Assert.assertThrows(IllegalArgumentException.class, r);
+	}
+
+	@Test
+	public void header_fromValue() {
+		for(Header h : Header.values()){
+			Assert.assertSame(Header.fromValue(h.getValue()), h);
+		}
+		Assert.assertNull(Header.fromValue((byte) 1));
+	}
+}
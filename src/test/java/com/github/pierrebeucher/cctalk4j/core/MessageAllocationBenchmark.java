@@ -0,0 +1,92 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compare the construction of frame-backed messages with the former
+ * representation, holding a logger and separate data and checksum arrays.
+ * Run with <code>-prof gc</code> to compare allocation rates.
+ * @author Pierre Beucher
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageAllocationBenchmark {
+
+	private byte[] data;
+
+	private byte[] frame;
+
+	private CRCChecksumMessageParser parser;
+
+	@Setup
+	public void setup(){
+		data = new byte[]{65, 83, 84};
+		frame = new CRCChecksumMessage((byte) 1, (byte) 0, data).bytes();
+		parser = new CRCChecksumMessageParser();
+	}
+
+	@Benchmark
+	public Object legacyConstruct(){
+		return new LegacyCRCChecksumMessage((byte) 1, (byte) 0, data);
+	}
+
+	@Benchmark
+	public Message construct(){
+		return new CRCChecksumMessage((byte) 1, (byte) 0, data);
+	}
+
+	@Benchmark
+	public Message parse() throws MessageParsingException {
+		parser.setMessageBytes(frame, 0, frame.length);
+		return parser.parse();
+	}
+
+	/**
+	 * Former message layout: a logger looked up per instance, data and checksum
+	 * held apart from the header fields, and a debug call in the constructor.
+	 */
+	static class LegacyCRCChecksumMessage {
+
+		private Logger logger = LoggerFactory.getLogger(getClass());
+
+		private byte destination;
+		private byte header;
+		private byte dataLength;
+		private byte[] data;
+		private byte[] checksum;
+
+		LegacyCRCChecksumMessage(byte destination, byte header, byte[] data) {
+			this.destination = destination;
+			this.header = header;
+			this.data = data;
+			this.dataLength = (byte) data.length;
+			short crc = new CRC16CCIT()
+					.update(this.destination)
+					.update(this.dataLength)
+					.update(this.header)
+					.update(this.data)
+					.value();
+			logger.debug("Calculated 16bits CRC checksum for {} is {}", this, crc);
+			this.checksum = new byte[]{ (byte) (crc >>> 8), (byte) crc };
+		}
+	}
+
+}
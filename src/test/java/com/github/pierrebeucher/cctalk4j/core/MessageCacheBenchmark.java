@@ -0,0 +1,66 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuildException;
+
+/**
+ * Compare building a bill event poll request for each poll, as formerly done
+ * by devices, with getting it from a {@link MessageCache}. Both variants encode
+ * the request in a reused write buffer.
+ * @author Pierre Beucher
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCacheBenchmark {
+
+	private static final byte DESTINATION = 40;
+
+	private static final byte SOURCE = 1;
+
+	private MessageCache cache;
+
+	private byte[] buffer;
+
+	@Setup
+	public void setup(){
+		cache = new MessageCache();
+		buffer = new byte[AbstractMessage.MAX_LENGTH];
+	}
+
+	@Benchmark
+	public int reflectiveBuild() throws ReflectiveOperationException, MessageBuildException {
+		Message m = CRCChecksumMessageBuilder.class.newInstance()
+				.destination(DESTINATION)
+				.source(SOURCE)
+				.header(Header.READ_BUFFERED_BILL_EVENTS)
+				.data(MessageFactory.EMPTY_DATA_BYTES)
+				.build();
+		return m.encodeTo(buffer, 0);
+	}
+
+	@Benchmark
+	public int cached(){
+		Message m = cache.get(MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM, DESTINATION, SOURCE,
+				Header.READ_BUFFERED_BILL_EVENTS.getValue(), MessageFactory.EMPTY_DATA_BYTES);
+		return m.encodeTo(buffer, 0);
+	}
+
+}
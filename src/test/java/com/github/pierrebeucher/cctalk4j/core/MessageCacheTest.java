@@ -0,0 +1,102 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MessageCacheTest {
+
+	private static final int CRC = MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM;
+	private static final int STANDARD = MessagePort.MESSAGE_TYPE_STANDARD_CHECKSUM;
+
+	private MessageCache cache;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		cache = new MessageCache();
+	}
+
+	@Test
+	public void get_hit() {
+		Message m1 = cache.get(CRC, (byte) 40, (byte) 1, Header.READ_BUFFERED_BILL_EVENTS.getValue(), new byte[]{});
+		Message m2 = cache.get(CRC, (byte) 40, (byte) 1, Header.READ_BUFFERED_BILL_EVENTS.getValue(), new byte[]{});
+		Assert.assertSame(m2, m1);
+		Assert.assertEquals(m1.bytes(), new CRCChecksumMessage((byte) 40, Header.READ_BUFFERED_BILL_EVENTS.getValue(), new byte[]{}).bytes());
+		Assert.assertEquals(cache.size(), 1);
+		Assert.assertEquals(cache.getMissCount(), 1);
+		Assert.assertEquals(cache.getHitCount(), 1);
+	}
+
+	@Test
+	public void get_distinctKeys() {
+		byte h = Header.MODIFY_INHIBIT_STATUS.getValue();
+		Message[] messages = new Message[]{
+			cache.get(CRC, (byte) 40, (byte) 1, h, new byte[]{1, 2}),
+			cache.get(STANDARD, (byte) 40, (byte) 1, h, new byte[]{1, 2}),
+			cache.get(CRC, (byte) 41, (byte) 1, h, new byte[]{1, 2}),
+			cache.get(STANDARD, (byte) 40, (byte) 2, h, new byte[]{1, 2}),
+			cache.get(CRC, (byte) 40, (byte) 1, (byte) (h + 1), new byte[]{1, 2}),
+			cache.get(CRC, (byte) 40, (byte) 1, h, new byte[]{1, 3}),
+			cache.get(CRC, (byte) 40, (byte) 1, h, new byte[]{1, 2, 0}),
+			cache.get(CRC, (byte) 40, (byte) 1, h, new byte[]{1})
+		};
+		for(int i=0; i<messages.length; i++){
+			for(int j=i+1; j<messages.length; j++){
+				Assert.assertNotEquals(messages[i].bytes(), messages[j].bytes(), "Messages " + i + " and " + j);
+			}
+		}
+		Assert.assertEquals(cache.size(), messages.length);
+		Assert.assertTrue(messages[1] instanceof SimpleChecksumMessage);
+	}
+
+	@Test
+	public void get_dataCopied() {
+		byte[] data = new byte[]{1, 2};
+		Message m = cache.get(CRC, (byte) 40, (byte) 1, (byte) 231, data);
+		data[0] = 9;
+		Assert.assertEquals(m.getDataBytes(), new byte[]{1, 2});
+		Assert.assertSame(cache.get(CRC, (byte) 40, (byte) 1, (byte) 231, new byte[]{1, 2}), m);
+	}
+
+	@Test
+	public void get_notCacheable() {
+		byte[] data = new byte[]{1, 2, 3, 4, 5};
+		Message m1 = cache.get(CRC, (byte) 40, (byte) 1, (byte) 231, data);
+		Message m2 = cache.get(CRC, (byte) 40, (byte) 1, (byte) 231, data);
+		Assert.assertNotSame(m2, m1);
+		Assert.assertEquals(m2.bytes(), m1.bytes());
+		Assert.assertEquals(cache.size(), 0);
+	}
+
+	@Test
+	public void get_full() {
+		cache = new MessageCache(2);
+		for(int i=0; i<4; i++){
+			cache.get(CRC, (byte) i, (byte) 1, (byte) 254, MessageFactory.EMPTY_DATA_BYTES);
+		}
+		Assert.assertEquals(cache.size(), 2);
+		Message m = cache.get(CRC, (byte) 3, (byte) 1, (byte) 254, MessageFactory.EMPTY_DATA_BYTES);
+		Assert.assertEquals(m.getDestination(), 3);
+		Assert.assertEquals(cache.getHitCount(), 0);
+	}
+
+	@Test(expectedExceptions=IllegalArgumentException.class)
+	public void get_unknownType() {
+		cache.get(3, (byte) 40, (byte) 1, (byte) 254, MessageFactory.EMPTY_DATA_BYTES);
+	}
+
+	@Test
+	public void clear() {
+		Message m = cache.get(CRC, (byte) 40, (byte) 1, (byte) 254, MessageFactory.EMPTY_DATA_BYTES);
+		cache.clear();
+		Assert.assertEquals(cache.size(), 0);
+		Assert.assertNotSame(cache.get(CRC, (byte) 40, (byte) 1, (byte) 254, MessageFactory.EMPTY_DATA_BYTES), m);
+	}
+
+	@Test
+	public void isCacheable() {
+		Assert.assertTrue(MessageCache.isCacheable(CRC, new byte[MessageCache.MAX_CACHED_DATA_LENGTH]));
+		Assert.assertFalse(MessageCache.isCacheable(CRC, new byte[MessageCache.MAX_CACHED_DATA_LENGTH + 1]));
+		Assert.assertFalse(MessageCache.isCacheable(0, new byte[]{}));
+	}
+}
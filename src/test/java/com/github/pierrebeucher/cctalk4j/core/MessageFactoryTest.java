@@ -43,4 +43,18 @@ public class MessageFactoryTest {
 		Assert.assertEquals(m.getSource(), source);
 		Assert.assertEquals(m.getDataBytes(), someData);
 	}
+
+	@Test
+	public void message() {
+		Message crc = MessageFactory.message(MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM, destination, source, header.getValue(), someData);
+		Assert.assertEquals(crc.bytes(), MessageFactory.messageCRCChecksum(destination, header, someData).bytes());
+
+		Message simple = MessageFactory.message(MessagePort.MESSAGE_TYPE_STANDARD_CHECKSUM, destination, source, header.getValue(), someData);
+		Assert.assertEquals(simple.bytes(), MessageFactory.messageSimpleChecksum(destination, source, header, someData).bytes());
+	}
+
+	@Test(expectedExceptions=IllegalArgumentException.class)
+	public void message_unknownType() {
+		MessageFactory.message(0, destination, source, header.getValue(), someData);
+	}
 }
@@ -0,0 +1,86 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.nio.ByteBuffer;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.Test;
+
+public class MessageViewTest {
+
+	//Manufacturer ID response
+	private byte[] manIDResp = Utils.unsignedIntsToBytes(new int[]{1,3,114,0,65,83,84,192});
+
+	@Test
+	public void wrap_array() {
+		byte[] region = Utils.unsignedIntsToBytes(new int[]{9, 1,3,114,0,65,83,84,192, 9});
+		MessageView view = new MessageView().wrap(region, 1, 8);
+		
+		Assert.assertEquals(view.length(), 8);
+		Assert.assertEquals(view.destination(), (byte) 1);
+		Assert.assertEquals(view.dataLength(), 3);
+		Assert.assertEquals(view.header(), (byte) 0);
+		Assert.assertEquals(view.dataByte(0), (byte) 65);
+		Assert.assertEquals(view.dataByte(2), (byte) 84);
+		Assert.assertEquals(view.get(7), Utils.unsignedIntToByte(192));
+		Assert.assertEquals(view.dataBytes(), new byte[]{65, 83, 84});
+	}
+	
+	@Test
+	public void wrap_directBuffer() {
+		ByteBuffer buf = ByteBuffer.allocateDirect(16);
+		buf.put((byte) 9);
+		buf.put(manIDResp);
+		buf.flip();
+		buf.position(1);
+		MessageView view = new MessageView().wrap(buf);
+		
+		Assert.assertEquals(view.length(), 8);
+		Assert.assertEquals(view.header(), (byte) 0);
+		Assert.assertEquals(view.dataBytes(), new byte[]{65, 83, 84});
+		Assert.assertEquals(buf.position(), 1);
+	}
+	
+	@Test
+	public void copyData() {
+		MessageView view = new MessageView().wrap(manIDResp, 0, manIDResp.length);
+		byte[] dst = new byte[5];
+		
+		Assert.assertEquals(view.copyData(dst, 1), 3);
+		Assert.assertEquals(dst, new byte[]{0, 65, 83, 84, 0});
+	}
+	
+	@Test
+	public void clear() {
+		MessageView view = new MessageView().wrap(manIDResp, 0, manIDResp.length);
+		view.clear();
+		Assert.assertTrue(view.isEmpty());
+	}
+	
+	@Test
+	public void getHexMessage() {
+		MessageView view = new MessageView().wrap(manIDResp, 0, manIDResp.length);
+		Assert.assertEquals(view.getHexMessage(), "01 03 72 00 41 53 54 C0");
+	}
+	
+	@Test
+	public void dataByte_err_outOfBounds() {
+		final MessageView view = new MessageView().wrap(manIDResp, 0, manIDResp.length);
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				view.dataByte(3);
+			}
+		};
+		Assert.assertThrows(IndexOutOfBoundsException.class, r);
+	}
+	
+	@Test
+	public void wrap_err_outOfBounds() {
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				new MessageView().wrap(manIDResp, 2, 8);
+			}
+		};
+		Assert.assertThrows(IndexOutOfBoundsException.class, r);
+	}
+}
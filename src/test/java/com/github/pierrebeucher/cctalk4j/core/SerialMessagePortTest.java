@@ -0,0 +1,326 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.serial.SerialPort;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortTimeoutException;
+
+public class SerialMessagePortTest {
+	
+	//Manufacturer ID response
+	private byte[] manIDResp = Utils.unsignedIntsToBytes(new int[]{1,3,114,0,65,83,84,192});
+
+	private ScriptedSerialPort serialPort;
+	
+	private SerialMessagePort port;
+	
+	@BeforeMethod
+	public void beforeMethod(){
+		serialPort = new ScriptedSerialPort();
+		port = new SerialMessagePort(serialPort, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+	}
+	
+	@Test
+	public void write() throws MessagePortException {
+		Message m = new CRCChecksumMessage((byte)40, (byte)1, new byte[]{});
+		port.write(m);
+		port.write(m);
+		
+		Assert.assertEquals(serialPort.written, Utils.concat(m.bytes(), m.bytes()));
+	}
+	
+	@Test
+	public void read_nominal() throws MessagePortException, MessageParsingException {
+		serialPort.receive(manIDResp);
+		Message m = port.read(100);
+		
+		Assert.assertEquals(m.getDataBytes(), new byte[]{65, 83, 84});
+	}
+	
+	/**
+	 * A noise byte announcing a long message is dropped once its
+	 * bytes stop arriving, without waiting for the read timeout.
+	 */
+	@Test
+	public void read_resyncOnNoise() throws MessagePortException, MessageParsingException {
+		serialPort.receive(Utils.concat(new byte[]{0, (byte)200}, manIDResp));
+		long start = System.currentTimeMillis();
+		Message m = port.read(2000);
+		
+		Assert.assertEquals(m.getDataBytes(), new byte[]{65, 83, 84});
+		Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+	
+	/**
+	 * A message of known length is read at once.
+	 */
+	@Test
+	public void read_expectedLength() throws MessagePortException, MessageParsingException {
+		serialPort.receive(manIDResp);
+		Message m = port.read(100, 3);
+		
+		Assert.assertEquals(m.getDataBytes(), new byte[]{65, 83, 84});
+		Assert.assertEquals(serialPort.readCount, 1);
+	}
+	
+	/**
+	 * A message shorter than expected is read after failing to read it at once.
+	 */
+	@Test
+	public void read_expectedLengthMismatch() throws MessagePortException, MessageParsingException {
+		serialPort.receive(manIDResp);
+		long start = System.currentTimeMillis();
+		Message m = port.read(2000, 11);
+		
+		Assert.assertEquals(m.getDataBytes(), new byte[]{65, 83, 84});
+		Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+	
+	@Test
+	public void read_timeout() {
+		serialPort.receive(Arrays.copyOf(manIDResp, 4));
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				port.read(100);
+			}
+		};
+		Assert.assertThrows(MessagePortTimeoutException.class, r);
+	}
+	
+	@Test
+	public void read_standardChecksum() throws MessagePortException, MessageParsingException {
+		port = new SerialMessagePort(serialPort, MessagePort.MESSAGE_TYPE_STANDARD_CHECKSUM);
+		serialPort.receive(new byte[]{1, 1, 40, 127, 3, 84});
+		Message m = port.read(100);
+		
+		Assert.assertEquals(m, new SimpleChecksumMessage((byte)1, (byte)40, (byte)127, new byte[]{3}));
+	}
+	
+	@Test
+	public void read_echoCancellation() throws MessagePortException, MessageParsingException {
+		serialPort.echo = true;
+		port.setEchoCancellation(true);
+		Assert.assertTrue(port.isEchoCancelling());
+		
+		//leftover bytes preceding the request are dropped as well
+		serialPort.receive(new byte[]{1, 0, 0x30});
+		port.write(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{65, 83, 84}));
+		serialPort.receive(manIDResp);
+		Message m = port.read(100);
+		
+		Assert.assertEquals(m.getDataBytes(), new byte[]{65, 83, 84});
+	}
+	
+	@Test
+	public void wireTrace() throws MessagePortException, MessageParsingException {
+		Message request = new CRCChecksumMessage((byte)40, (byte)1, new byte[]{});
+		port.write(request);
+		serialPort.receive(manIDResp);
+		port.read(100);
+		serialPort.receive(Arrays.copyOf(manIDResp, 4));
+		try {
+			port.read(100);
+			Assert.fail("Read should time out");
+		} catch (MessagePortTimeoutException e) {
+			//expected
+		}
+		
+		List<WireTrace.Entry> entries = port.getWireTrace().entries(1, TimeUnit.MINUTES);
+		Assert.assertEquals(entries.size(), 3);
+		Assert.assertEquals(entries.get(0).getDirection(), WireTrace.Direction.TX);
+		Assert.assertEquals(entries.get(0).getFrame(), request.bytes());
+		Assert.assertEquals(entries.get(1).getDirection(), WireTrace.Direction.RX);
+		Assert.assertEquals(entries.get(1).getOutcome(), WireTrace.Outcome.OK);
+		Assert.assertEquals(entries.get(1).getAddress(), 40);
+		Assert.assertEquals(entries.get(1).getFrame(), manIDResp);
+		Assert.assertEquals(entries.get(2).getOutcome(), WireTrace.Outcome.TIMEOUT);
+		Assert.assertEquals(entries.get(2).getAddress(), 40);
+		//holds the undecoded bytes left when timing out
+		Assert.assertTrue(entries.get(2).getFrame().length <= 4);
+	}
+	
+	@Test
+	public void wireTrace_disabled() throws MessagePortException {
+		port.setWireTrace(null);
+		port.write(new CRCChecksumMessage((byte)40, (byte)1, new byte[]{}));
+		Assert.assertNull(port.getWireTrace());
+	}
+	
+	/**
+	 * Read may be started before the request is written.
+	 */
+	@Test
+	public void read_beforeWrite() throws Exception {
+		serialPort.echo = true;
+		port.setEchoCancellation(true);
+		FutureTask<Message> read = new FutureTask<Message>(new Callable<Message>() {
+			@Override
+			public Message call() throws Exception {
+				return port.read(1000);
+			}
+		});
+		new Thread(read).start();
+		Thread.sleep(50);
+		
+		port.write(new CRCChecksumMessage((byte)40, (byte)1, new byte[]{}));
+		serialPort.receive(manIDResp);
+		
+		Assert.assertEquals(read.get(1, TimeUnit.SECONDS).getDataBytes(), new byte[]{65, 83, 84});
+	}
+	
+	/**
+	 * A read waiting for its reply does not hold back the write of the request,
+	 * as done by devices reading on another thread.
+	 */
+	@Test
+	public void write_duringRead() throws Exception {
+		FutureTask<Message> read = new FutureTask<Message>(new Callable<Message>() {
+			@Override
+			public Message call() throws Exception {
+				return port.read(2000);
+			}
+		});
+		new Thread(read).start();
+		Thread.sleep(50);
+		
+		long start = System.nanoTime();
+		port.write(new CRCChecksumMessage((byte)40, (byte)1, new byte[]{}));
+		Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+		serialPort.receive(manIDResp);
+		
+		Assert.assertEquals(read.get(1, TimeUnit.SECONDS).getDataBytes(), new byte[]{65, 83, 84});
+	}
+	
+	/**
+	 * Serial port returning bytes previously given with {@link #receive(byte[])},
+	 * and recording written bytes.
+	 */
+	static class ScriptedSerialPort implements SerialPort {
+		
+		byte[] written = new byte[0];
+		
+		/**
+		 * Whether written bytes are received back, as on a single-wire bus
+		 */
+		boolean echo = false;
+		
+		int readCount = 0;
+		
+		private byte[] received = new byte[0];
+		
+		synchronized void receive(byte[] bytes){
+			received = Utils.concat(received, bytes);
+			notifyAll();
+		}
+
+		@Override
+		public Object getConcretSerialPort() {
+			return this;
+		}
+
+		@Override
+		public synchronized boolean writeBytes(byte[] b) throws SerialPortException {
+			written = Utils.concat(written, b);
+			if(echo){
+				receive(b);
+			}
+			return true;
+		}
+
+		@Override
+		public synchronized byte[] readBytes(int count, int timeout) throws SerialPortException {
+			readCount++;
+			long deadline = System.currentTimeMillis() + timeout;
+			while(received.length < count){
+				long remaining = deadline - System.currentTimeMillis();
+				if(remaining <= 0){
+					throw new SerialPortTimeoutException("Timeout");
+				}
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					throw new SerialPortException(e);
+				}
+			}
+			byte[] bytes = Arrays.copyOf(received, count);
+			received = Arrays.copyOfRange(received, count, received.length);
+			return bytes;
+		}
+
+		@Override
+		public boolean open() throws SerialPortException {
+			return true;
+		}
+
+		@Override
+		public boolean close() throws SerialPortException {
+			return true;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public void setParameters(int baudRate, int dataBits, int stopBits, int parity, boolean rtsLineStatus,
+				boolean dtrLineStatus) throws SerialPortException {
+		}
+
+		@Override
+		public void setFlowControl(int flowControlFlag) throws SerialPortException {
+		}
+
+		@Override
+		public void setDTR(boolean enabled) throws SerialPortException {
+		}
+
+		@Override
+		public void setRTS(boolean enabled) throws SerialPortException {
+		}
+
+		@Override
+		public boolean isCTS() throws SerialPortException {
+			return false;
+		}
+
+		@Override
+		public boolean isDRS() throws SerialPortException {
+			return false;
+		}
+
+		@Override
+		public boolean isRING() throws SerialPortException {
+			return false;
+		}
+
+		@Override
+		public boolean isRLSD() throws SerialPortException {
+			return false;
+		}
+
+		@Override
+		public synchronized void resetInputBuffer() throws SerialPortException {
+			received = new byte[0];
+		}
+
+		@Override
+		public void resetOutputBuffer() throws SerialPortException {
+		}
+	}
+}
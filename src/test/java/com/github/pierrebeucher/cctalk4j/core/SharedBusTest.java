@@ -0,0 +1,342 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortException;
+
+public class SharedBusTest {
+
+	private BusPort physical;
+
+	private SharedBus bus;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		physical = new BusPort();
+		bus = new SharedBus(physical);
+	}
+
+	private static Message request(int address){
+		return new CRCChecksumMessage((byte) address, Header.SIMPLE_POLL.getValue(), new byte[]{});
+	}
+
+	private static Message transaction(MessagePort port, int address) throws MessagePortException, MessageParsingException{
+		port.write(request(address));
+		return port.read(1000);
+	}
+
+	/**
+	 * Transactions of several addresses never overlap and each address reads its own reply.
+	 */
+	@Test
+	public void transaction_serialised() throws Exception {
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int a=1; a<=3; a++){
+			final int address = a;
+			final MessagePort port = bus.port((byte) address);
+			port.open();
+			Thread t = new Thread(){
+				@Override
+				public void run() {
+					try {
+						for(int i=0; i<50; i++){
+							Message reply = transaction(port, address);
+							Assert.assertEquals(reply.getDataByte(0), address);
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads.add(t);
+			t.start();
+		}
+		for(Thread t : threads){
+			t.join(10000);
+		}
+
+		Assert.assertEquals(errors, Collections.emptyList());
+		Assert.assertEquals(physical.overlapCount, 0);
+		for(int a=1; a<=3; a++){
+			Assert.assertEquals(bus.getTransactionCount((byte) a), 50);
+		}
+	}
+
+	/**
+	 * Addresses waiting for the bus are granted in turn.
+	 */
+	@Test
+	public void transaction_roundRobin() throws Exception {
+		List<Byte> order = runConcurrently(20, 1);
+		//both addresses are waiting for the bus once started
+		for(int i=2; i<order.size()-2; i++){
+			Assert.assertNotEquals(order.get(i), order.get(i-1), "Grant order: " + order);
+		}
+	}
+
+	/**
+	 * An address having several waiting requests is granted up to its weight
+	 * consecutive transactions.
+	 */
+	@Test
+	public void transaction_weight() throws Exception {
+		bus.setWeight((byte) 1, 3);
+		List<Byte> order = runConcurrently(30, 2);
+
+		//both addresses are waiting for the bus until one is done
+		int end = Math.min(order.lastIndexOf((byte) 1), order.lastIndexOf((byte) 2));
+		int maxRun = 0;
+		int run = 0;
+		for(int i=1; i<end; i++){
+			run = order.get(i).equals(order.get(i-1)) ? run + 1 : 0;
+			maxRun = Math.max(maxRun, run + 1);
+		}
+		Assert.assertEquals(maxRun, 3, "Grant order: " + order);
+	}
+
+	/*
+	 * Run transactions of addresses 1 and 2 concurrently, returning the order of the requests written
+	 */
+	private List<Byte> runConcurrently(final int count, int address1Threads) throws Exception {
+		physical.readDelay = 5;
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int i=0; i<address1Threads + 1; i++){
+			final int address = i < address1Threads ? 1 : 2;
+			final MessagePort port = bus.port((byte) address);
+			Thread t = new Thread(){
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for(int i=0; i<count; i++){
+							transaction(port, address);
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			threads.add(t);
+			t.start();
+		}
+		start.countDown();
+		for(Thread t : threads){
+			t.join(10000);
+		}
+		return physical.writeOrder;
+	}
+
+	/**
+	 * Buffers are reset once the bus is granted, not during another address transaction.
+	 */
+	@Test
+	public void resetInputBuffer_deferred() throws Exception {
+		final MessagePort port1 = bus.port((byte) 1);
+		MessagePort port2 = bus.port((byte) 2);
+		physical.readDelay = 100;
+
+		Thread t = new Thread(){
+			@Override
+			public void run() {
+				try {
+					transaction(port1, 1);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		t.start();
+		Thread.sleep(30);
+		port2.resetInputBuffer();
+		Assert.assertEquals(physical.resetCount, 0);
+
+		transaction(port2, 2);
+		t.join(1000);
+		Assert.assertEquals(physical.resetCount, 1);
+		Assert.assertEquals(physical.resetDuringTransactionCount, 0);
+	}
+
+	@Test
+	public void read_noRequest() {
+		final MessagePort port = bus.port((byte) 1);
+		Assert.assertThrows(MessagePortTimeoutException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				port.read(50);
+			}
+		});
+	}
+
+	/**
+	 * A bus held by an address not reading its reply is released.
+	 */
+	@Test
+	public void write_forcedRelease() throws Exception {
+		bus.setMaxHoldTime(100);
+		bus.port((byte) 1).write(request(1));
+
+		long start = System.currentTimeMillis();
+		Message reply = transaction(bus.port((byte) 2), 2);
+		Assert.assertEquals(reply.getDataByte(0), 2);
+		Assert.assertTrue(System.currentTimeMillis() - start >= 90);
+		Assert.assertEquals(bus.getForcedReleaseCount(), 1);
+	}
+
+	/**
+	 * A reply being read keeps the bus, even past the maximum hold time.
+	 */
+	@Test
+	public void read_longerThanMaxHoldTime() throws Exception {
+		bus.setMaxHoldTime(50);
+		physical.readDelay = 200;
+		Thread t = new Thread(){
+			@Override
+			public void run() {
+				try {
+					transaction(bus.port((byte) 1), 1);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		t.start();
+		Thread.sleep(20);
+
+		Message reply = transaction(bus.port((byte) 2), 2);
+		t.join(1000);
+		Assert.assertEquals(reply.getDataByte(0), 2);
+		Assert.assertEquals(bus.getForcedReleaseCount(), 0);
+		Assert.assertEquals(physical.overlapCount, 0);
+	}
+
+	/**
+	 * A new request of an address supersedes its unread reply.
+	 */
+	@Test
+	public void write_unreadReply() throws Exception {
+		MessagePort port = bus.port((byte) 1);
+		port.write(request(1));
+		Message reply = transaction(port, 1);
+		Assert.assertEquals(reply.getDataByte(0), 1);
+		Assert.assertEquals(bus.getForcedReleaseCount(), 0);
+	}
+
+	@Test
+	public void open_shared() throws Exception {
+		MessagePort port1 = bus.port((byte) 1);
+		MessagePort port2 = bus.port((byte) 2);
+		Assert.assertSame(bus.port((byte) 1), port1);
+
+		port1.open();
+		port2.open();
+		Assert.assertTrue(port1.isOpen());
+		Assert.assertEquals(physical.openCount, 1);
+
+		port1.close();
+		Assert.assertFalse(port1.isOpen());
+		Assert.assertTrue(port2.isOpen());
+		Assert.assertTrue(physical.isOpen());
+
+		port2.close();
+		Assert.assertFalse(physical.isOpen());
+	}
+
+	/**
+	 * Physical port replying to each request with the request destination as data,
+	 * and recording transactions.
+	 */
+	private static class BusPort implements MessagePort {
+
+		volatile long readDelay;
+
+		volatile boolean open;
+
+		volatile int openCount;
+
+		final List<Byte> writeOrder = Collections.synchronizedList(new ArrayList<Byte>());
+
+		volatile int overlapCount;
+
+		volatile int resetCount;
+
+		volatile int resetDuringTransactionCount;
+
+		/*
+		 * Destination of the request being replied, -1 if none
+		 */
+		private volatile int inFlight = -1;
+
+		@Override
+		public void open() throws MessagePortException {
+			open = true;
+			openCount++;
+		}
+
+		@Override
+		public void close() throws MessagePortException {
+			open = false;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return !open;
+		}
+
+		@Override
+		public void write(Message m) throws MessagePortException {
+			if(inFlight != -1){
+				overlapCount++;
+			}
+			inFlight = m.getDestination();
+			writeOrder.add(m.getDestination());
+		}
+
+		@Override
+		public Message read(int timeout) throws MessagePortException {
+			return read(timeout, -1);
+		}
+
+		@Override
+		public Message read(int timeout, int expectedDataLength) throws MessagePortException {
+			try {
+				Thread.sleep(readDelay);
+			} catch (InterruptedException e) {
+				throw new MessagePortException(e);
+			}
+			int destination = inFlight;
+			inFlight = -1;
+			return new CRCChecksumMessage((byte) 1, (byte) 0, new byte[]{(byte) destination});
+		}
+
+		@Override
+		public void resetInputBuffer() throws SerialPortException {
+			resetCount++;
+			if(inFlight != -1){
+				resetDuringTransactionCount++;
+			}
+		}
+
+		@Override
+		public void resetOutputBuffer() throws SerialPortException {
+		}
+
+		@Override
+		public boolean isEchoCancelling() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.Test;
+
+public class SimpleChecksumMessageParserTest {
+
+	private byte[] correctMessage = new byte[]{1, 1, 40, 127, 3, 84};
+	private byte[] badChecksumMessage = new byte[]{1, 1, 40, 127, 3, 85};
+	private byte[] badLengthMessage = new byte[]{1, 2, 40, 127, 3, 84};
+	
+	@Test
+	public void sourceByte() {
+		Assert.assertEquals(new SimpleChecksumMessageParser(correctMessage).sourceByte(), (byte) 40);
+	}
+	
+	@Test
+	public void checksumByte() {
+		Assert.assertEquals(new SimpleChecksumMessageParser(correctMessage).checksumByte(), (byte) 84);
+	}
+	
+	@Test
+	public void isChecksumValid() throws MessageParsingException {
+		Assert.assertTrue(new SimpleChecksumMessageParser(correctMessage).isChecksumValid());
+		Assert.assertFalse(new SimpleChecksumMessageParser(badChecksumMessage).isChecksumValid());
+	}
+	
+	@Test
+	public void parse_nominal() throws MessageParsingException {
+		Message expected = new SimpleChecksumMessage((byte)1, (byte)40, (byte)127, new byte[]{3});
+		Assert.assertEquals(new SimpleChecksumMessageParser(correctMessage).parse(), expected);
+	}
+	
+	@Test
+	public void parse_error_checksum() {
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				new SimpleChecksumMessageParser(badChecksumMessage).parse();
+			}
+		};
+		Assert.assertThrows(MessageParsingException.class, r);
+	}
+	
+	@Test
+	public void parse_error_dataLength() {
+		ThrowingRunnable r = new ThrowingRunnable(){
+			public void run() throws Throwable {
+				new SimpleChecksumMessageParser(badLengthMessage).parse();
+			}
+		};
+		Assert.assertThrows(MessageParsingException.class, r);
+	}
+}
@@ -1,5 +1,7 @@
 package com.github.pierrebeucher.cctalk4j.core;
 
+import java.nio.ByteBuffer;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -44,6 +46,25 @@ public class SimpleChecksumMessageTest {
 		Assert.assertEquals(m.bytes(), expectedRaw);
 	}
 	
+	@Test
+	public void encodeTo_array() {
+		byte[] expectedRaw = new byte[]{1, 1, 40, 127, 3, 84};
+		SimpleChecksumMessage m = new SimpleChecksumMessage((byte)1, (byte)40, (byte)127, new byte[]{3});
+		byte[] dst = new byte[6];
+		
+		Assert.assertEquals(m.encodeTo(dst, 0), 6);
+		Assert.assertEquals(dst, expectedRaw);
+	}
+	
+	@Test
+	public void encodeTo_buffer() {
+		SimpleChecksumMessage m = new SimpleChecksumMessage((byte)1, (byte)40, (byte)127, new byte[]{});
+		ByteBuffer dst = ByteBuffer.allocate(5);
+		
+		Assert.assertEquals(m.encodeTo(dst), 5);
+		Assert.assertEquals(dst.array(), new byte[]{1, 0, 40, 127, 88});
+	}
+	
 	@Test
 	public void equals_true(){
 		SimpleChecksumMessage m1 = new SimpleChecksumMessage(
@@ -0,0 +1,53 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare recording a frame in a {@link WireTrace} with formatting
+ * it as an hexadecimal string, as done for debug logging.
+ * @author Pierre Beucher
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireTraceBenchmark {
+
+	private Message message;
+
+	private byte[] frame;
+
+	private WireTrace trace;
+
+	@Setup
+	public void setup(){
+		message = new CRCChecksumMessage((byte) 40, Header.READ_BUFFERED_BILL_EVENTS.getValue(), new byte[]{});
+		frame = message.bytes();
+		trace = new WireTrace();
+	}
+
+	@Benchmark
+	public void record(){
+		trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) 40, frame, 0, frame.length);
+	}
+
+	@Benchmark
+	public String hexMessage(){
+		return message.getHexMessage();
+	}
+
+}
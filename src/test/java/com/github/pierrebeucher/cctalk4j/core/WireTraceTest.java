@@ -0,0 +1,95 @@
+package com.github.pierrebeucher.cctalk4j.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WireTraceTest {
+
+	private byte[] request = new byte[]{40, 0, 0x46, 1, 0x3F};
+
+	private WireTrace trace;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		trace = new WireTrace(4);
+	}
+
+	@Test
+	public void record() {
+		trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) 40, request, 0, request.length);
+		trace.record(WireTrace.Direction.RX, WireTrace.Outcome.CHECKSUM_ERROR, (byte) 40, request, 1, 3);
+
+		List<WireTrace.Entry> entries = trace.entries(1, TimeUnit.MINUTES);
+		Assert.assertEquals(entries.size(), 2);
+		WireTrace.Entry tx = entries.get(0);
+		Assert.assertEquals(tx.getDirection(), WireTrace.Direction.TX);
+		Assert.assertEquals(tx.getOutcome(), WireTrace.Outcome.OK);
+		Assert.assertEquals(tx.getAddress(), 40);
+		Assert.assertEquals(tx.getFrame(), request);
+		Assert.assertEquals(entries.get(1).getFrame(), new byte[]{0, 0x46, 1});
+		Assert.assertTrue(entries.get(1).getTimestamp() - tx.getTimestamp() >= 0);
+	}
+
+	@Test
+	public void record_view() {
+		MessageView view = new MessageView().wrap(request, 0, request.length);
+		trace.record(WireTrace.Direction.RX, WireTrace.Outcome.OK, (byte) 40, view);
+		trace.record(WireTrace.Direction.RX, WireTrace.Outcome.TIMEOUT, (byte) 40, new MessageView());
+
+		List<WireTrace.Entry> entries = trace.entries(1, TimeUnit.MINUTES);
+		Assert.assertEquals(entries.get(0).getFrame(), request);
+		Assert.assertEquals(entries.get(1).getFrame().length, 0);
+	}
+
+	@Test
+	public void record_overwritesOldest() {
+		for(int i=0; i<6; i++){
+			trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) i, request, 0, request.length);
+		}
+		List<WireTrace.Entry> entries = trace.entries(1, TimeUnit.MINUTES);
+		Assert.assertEquals(entries.size(), 4);
+		for(int i=0; i<4; i++){
+			Assert.assertEquals(entries.get(i).getAddress(), i + 2);
+		}
+		Assert.assertEquals(trace.getRecordCount(), 6);
+	}
+
+	@Test
+	public void entries_duration() throws InterruptedException {
+		trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) 40, request, 0, request.length);
+		Thread.sleep(50);
+		trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) 41, request, 0, request.length);
+
+		List<WireTrace.Entry> entries = trace.entries(25, TimeUnit.MILLISECONDS);
+		Assert.assertEquals(entries.size(), 1);
+		Assert.assertEquals(entries.get(0).getAddress(), 41);
+	}
+
+	@Test
+	public void dumpHex() {
+		trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) 40, request, 0, request.length);
+		String dump = trace.dumpHex(1, TimeUnit.MINUTES);
+		Assert.assertTrue(dump.matches("-\\d+\\.\\d{3} ms TX 40 OK 28 00 46 01 3F\n"), dump);
+	}
+
+	@Test
+	public void dump() throws IOException {
+		trace.record(WireTrace.Direction.TX, WireTrace.Outcome.OK, (byte) 40, request, 0, request.length);
+		File file = File.createTempFile("wiretrace", ".txt");
+		try {
+			trace.dump(file, 1, TimeUnit.MINUTES);
+			String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+			Assert.assertEquals(content, trace.dumpHex(1, TimeUnit.MINUTES).replaceAll("-\\d+\\.\\d{3}", content.substring(0, content.indexOf(' '))));
+		} finally {
+			file.delete();
+		}
+	}
+}
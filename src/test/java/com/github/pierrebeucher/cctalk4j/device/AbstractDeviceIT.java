@@ -10,7 +10,7 @@ import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
 import com.github.pierrebeucher.cctalk4j.core.SerialMessagePort;
 import com.github.pierrebeucher.cctalk4j.core.Utils;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
-import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuilderFactory;
 import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.SelfCheckResponseWrapper;
 
 public class AbstractDeviceIT {
@@ -57,7 +57,7 @@ public class AbstractDeviceIT {
 	private Device buildTestDevice(){
 		MessagePort port = new SerialMessagePort(portName, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
 		return new MyAbstractDevice(port,
-				CRCChecksumMessageBuilder.class,
+				CRCChecksumMessageBuilder.FACTORY,
 				address);
 	}
 	
@@ -163,9 +163,9 @@ public class AbstractDeviceIT {
 	
 	private class MyAbstractDevice extends AbstractDevice{
 
-		public MyAbstractDevice(MessagePort port, Class<? extends MessageBuilder> messageBuilderClass,
+		public MyAbstractDevice(MessagePort port, MessageBuilderFactory messageBuilderFactory,
 				byte deviceAddress) {
-			super(port, messageBuilderClass, deviceAddress);
+			super(port, messageBuilderFactory, deviceAddress);
 		}
 		
 	}
@@ -15,7 +15,7 @@ public class AbstractDeviceTest {
 	private Device buildTestDevice(){
 		MessagePort port = new SerialMessagePort(portName, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
 		return new AbstractDevice(port,
-				CRCChecksumMessageBuilder.class,
+				CRCChecksumMessageBuilder.FACTORY,
 				address){
 			
 		};
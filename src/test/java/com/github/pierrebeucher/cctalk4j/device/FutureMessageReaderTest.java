@@ -0,0 +1,113 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
+
+public class FutureMessageReaderTest {
+
+	private static final Message REPLY = new CRCChecksumMessage((byte)1, (byte)0, new byte[]{});
+
+	/**
+	 * The reading thread is only created by the first read.
+	 */
+	@Test
+	public void readMessage_lazyThread() throws Exception {
+		FutureMessageReader reader = new FutureMessageReader(new StubMessagePort(REPLY));
+		Assert.assertFalse(reader.hasReaderThread());
+
+		MessageReaderResponse response = reader.readMessage(100).get(1, TimeUnit.SECONDS);
+		Assert.assertSame(response.getMessage(), REPLY);
+		Assert.assertTrue(reader.hasReaderThread());
+	}
+
+	/**
+	 * A new reading thread is created by the first read after shutdown.
+	 */
+	@Test
+	public void shutdown() throws Exception {
+		FutureMessageReader reader = new FutureMessageReader(new StubMessagePort(REPLY));
+		reader.readMessage(100).get(1, TimeUnit.SECONDS);
+		reader.shutdown();
+		Assert.assertFalse(reader.hasReaderThread());
+
+		MessageReaderResponse response = reader.readMessage(100).get(1, TimeUnit.SECONDS);
+		Assert.assertSame(response.getMessage(), REPLY);
+	}
+
+	@Test
+	public void readMessage_timeout() throws Exception {
+		FutureMessageReader reader = new FutureMessageReader(new StubMessagePort(null));
+
+		MessageReaderResponse response = reader.readMessage(100).get(1, TimeUnit.SECONDS);
+		Assert.assertNull(response.getMessage());
+		Assert.assertTrue(response.isHasTimedOut());
+	}
+
+	/**
+	 * Port replying with the same message, or timing out if none.
+	 */
+	private static class StubMessagePort implements MessagePort {
+
+		private final Message reply;
+
+		StubMessagePort(Message reply) {
+			this.reply = reply;
+		}
+
+		@Override
+		public void open() throws MessagePortException {
+		}
+
+		@Override
+		public void close() throws MessagePortException {
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public void write(Message m) throws MessagePortException {
+		}
+
+		@Override
+		public Message read(int timeout) throws MessagePortException {
+			return read(timeout, -1);
+		}
+
+		@Override
+		public Message read(int timeout, int expectedDataLength) throws MessagePortException {
+			if(reply == null){
+				throw new MessagePortTimeoutException("No reply.");
+			}
+			return reply;
+		}
+
+		@Override
+		public void resetInputBuffer() {
+		}
+
+		@Override
+		public void resetOutputBuffer() {
+		}
+
+		@Override
+		public boolean isEchoCancelling() {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.github.pierrebeucher.cctalk4j.device;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+
+/**
+ * Compare the round trip of a simple poll when the reply is read by the
+ * <code>FutureMessageReader</code> thread and when it is read directly
+ * by the requesting thread. The port replies as soon as a request is written,
+ * so that only the request path is measured.
+ * @author Pierre Beucher
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestResponseBenchmark {
+
+	private BillValidator futureReadDevice;
+
+	private BillValidator directReadDevice;
+
+	@Setup
+	public void setup() throws Exception {
+		futureReadDevice = new BillValidator(new LoopbackMessagePort(), CRCChecksumMessageBuilder.FACTORY, (byte) 40);
+		futureReadDevice.connect();
+		directReadDevice = new BillValidator(new LoopbackMessagePort(), CRCChecksumMessageBuilder.FACTORY, (byte) 40);
+		directReadDevice.setDirectRead(true);
+		directReadDevice.connect();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		futureReadDevice.disconnect();
+		directReadDevice.disconnect();
+	}
+
+	@Benchmark
+	public void futureRead() throws DeviceRequestException {
+		futureReadDevice.simplePoll();
+	}
+
+	@Benchmark
+	public void directRead() throws DeviceRequestException {
+		directReadDevice.simplePoll();
+	}
+
+	/**
+	 * Port replying ACK to each written request.
+	 */
+	private static class LoopbackMessagePort implements MessagePort {
+
+		private static final Message ACK = new CRCChecksumMessage((byte) 1, (byte) 0, new byte[]{});
+
+		private final BlockingQueue<Message> replies = new ArrayBlockingQueue<Message>(16);
+
+		private boolean open;
+
+		@Override
+		public void open() throws MessagePortException {
+			open = true;
+		}
+
+		@Override
+		public void close() throws MessagePortException {
+			open = false;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return !open;
+		}
+
+		@Override
+		public void write(Message m) throws MessagePortException {
+			replies.add(ACK);
+		}
+
+		@Override
+		public Message read(int timeout) throws MessagePortException {
+			return read(timeout, -1);
+		}
+
+		@Override
+		public Message read(int timeout, int expectedDataLength) throws MessagePortException {
+			try {
+				Message m = replies.poll(timeout, TimeUnit.MILLISECONDS);
+				if(m == null){
+					throw new MessagePortTimeoutException("No reply.");
+				}
+				return m;
+			} catch (InterruptedException e) {
+				throw new MessagePortException(e);
+			}
+		}
+
+		@Override
+		public void resetInputBuffer() {
+		}
+
+		@Override
+		public void resetOutputBuffer() {
+		}
+
+		@Override
+		public boolean isEchoCancelling() {
+			return true;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.pierrebeucher.cctalk4j.device.bill;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.Test;
+
+public class BillRegistryTest {
+
+	private static Bill bill(int billType, String valueCode){
+		return new Bill((byte) billType, "EU", valueCode, "A", new BigDecimal(valueCode));
+	}
+
+	@Test
+	public void get() {
+		Bill b1 = bill(1, "0005");
+		Bill b128 = bill(128, "0500");
+		Bill b255 = bill(255, "0200");
+		BillRegistry registry = new BillRegistry(Arrays.asList(b1, b128, b255));
+
+		Assert.assertSame(registry.get((byte) 1), b1);
+		Assert.assertSame(registry.get((byte) 128), b128);
+		Assert.assertSame(registry.get((byte) -1), b255);
+		Assert.assertNull(registry.get((byte) 2));
+		Assert.assertNull(registry.get((byte) 0));
+		Assert.assertEquals(registry.size(), 3);
+	}
+
+	@Test
+	public void get_empty() {
+		Assert.assertTrue(BillRegistry.EMPTY.isEmpty());
+		Assert.assertNull(BillRegistry.EMPTY.get((byte) 1));
+		Assert.assertTrue(BillRegistry.EMPTY.asMap().isEmpty());
+	}
+
+	/**
+	 * A registry does not change once built, whatever is done with the given bills.
+	 */
+	@Test
+	public void immutable() {
+		List<Bill> bills = new ArrayList<Bill>(Arrays.asList(bill(1, "0005")));
+		final BillRegistry registry = new BillRegistry(bills);
+		bills.add(bill(2, "0010"));
+
+		Assert.assertNull(registry.get((byte) 2));
+		Assert.assertEquals(registry.asMap().size(), 1);
+		Assert.assertThrows(UnsupportedOperationException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				registry.asMap().put((byte) 2, bill(2, "0010"));
+			}
+		});
+	}
+
+	@Test
+	public void asMap() {
+		Bill b1 = bill(1, "0005");
+		Bill b3 = bill(3, "0020");
+		BillRegistry registry = new BillRegistry(Arrays.asList(b1, b3));
+
+		Assert.assertSame(registry.asMap().get((byte) 1), b1);
+		Assert.assertSame(registry.asMap().get((byte) 3), b3);
+		Assert.assertNull(registry.asMap().get((byte) 2));
+	}
+}
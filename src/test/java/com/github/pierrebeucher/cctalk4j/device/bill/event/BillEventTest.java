@@ -1,6 +1,7 @@
 package com.github.pierrebeucher.cctalk4j.device.bill.event;
 
 import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
 import org.testng.annotations.Test;
 
 public class BillEventTest {
@@ -157,6 +158,40 @@ public class BillEventTest {
 		_event_test((byte)0, (byte)22, Event.NOTE_JAM_CLEARED, EventType.STATUS);
 	}
 	
+	@Test
+	public void event_canonical() throws UnrecognizedEventException {
+		Assert.assertSame(BillEvent.event((byte)3, (byte)0), BillEvent.event((byte)3, (byte)0));
+		Assert.assertSame(BillEvent.event((byte)0, (byte)14), BillEvent.event((byte)0, (byte)14));
+		Assert.assertNotSame(BillEvent.event((byte)3, (byte)0), BillEvent.event((byte)4, (byte)0));
+	}
+	
+	private void _event_unrecognized(final byte resultA, final byte resultB){
+		ThrowingRunnable r = new ThrowingRunnable() {
+			public void run() throws Throwable {
+				BillEvent.event(resultA, resultB);
+			}
+		};
+		Assert.assertThrows(UnrecognizedEventException.class, r);
+	}
+	
+	@Test
+	public void event_unrecognized_credit() {
+		_event_unrecognized((byte)1, (byte)2);
+		_event_unrecognized((byte)-1, (byte)-1);
+	}
+	
+	@Test
+	public void event_unrecognized_status() {
+		_event_unrecognized((byte)0, (byte)23);
+		_event_unrecognized((byte)0, (byte)-1);
+	}
+	
+	@Test
+	public void hashCode_equals() {
+		BillEvent e2 = new BillEvent(resultA, resultB, event, eventType);
+		Assert.assertEquals(e1.hashCode(), e2.hashCode());
+	}
+	
 	@Test
 	public void equals_true() {
 		BillEvent e1 = new BillEvent(resultA, resultB, event, eventType);
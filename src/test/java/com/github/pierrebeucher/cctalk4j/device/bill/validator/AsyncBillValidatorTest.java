@@ -0,0 +1,235 @@
+package com.github.pierrebeucher.cctalk4j.device.bill.validator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.core.CcTalkException;
+import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessageFactory;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.SharedBus;
+import com.github.pierrebeucher.cctalk4j.device.DeviceCallback;
+import com.github.pierrebeucher.cctalk4j.device.DeviceFactory;
+import com.github.pierrebeucher.cctalk4j.device.DeviceFuture;
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
+import com.github.pierrebeucher.cctalk4j.device.TransactionQueue;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidatorTest.ReplyingMessagePort;
+import com.github.pierrebeucher.cctalk4j.simulator.BillValidatorSimulator;
+import com.github.pierrebeucher.cctalk4j.simulator.SimulatedMessagePort;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+
+public class AsyncBillValidatorTest {
+
+	private static final Message ACK = new CRCChecksumMessage((byte)1, (byte)0, new byte[]{});
+
+	private ReplyingMessagePort port;
+
+	private TransactionQueue queue;
+
+	private AsyncBillValidator validator;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		port = new ReplyingMessagePort();
+		queue = new TransactionQueue("test");
+		BillValidator device = new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, (byte)40);
+		device.setReadTimeout(100);
+		validator = new AsyncBillValidator(device, queue);
+	}
+
+	@AfterMethod
+	public void afterMethod(){
+		queue.shutdown();
+	}
+
+	@Test
+	public void requestMasterInhibitStatusAsync() throws CcTalkException {
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{1}));
+		Assert.assertTrue(validator.requestMasterInhibitStatusAsync().getResult(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void routeBillAsync_callback() throws Exception {
+		port.replies.add(ACK);
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		validator.routeBillAsync(BillValidator.ROUTE_CODE_SEND_BILL_CASHBOX_STACKER).addCallback(new DeviceCallback<Void>() {
+			@Override
+			public void completed(Void result) {
+				done.countDown();
+			}
+
+			@Override
+			public void failed(Throwable cause) {
+				failure.set(cause);
+				done.countDown();
+			}
+		});
+
+		Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+		Assert.assertNull(failure.get());
+	}
+
+	/**
+	 * Failures are reported to callbacks and rethrown by getResult.
+	 */
+	@Test
+	public void simplePollAsync_failure() throws Exception {
+		DeviceFuture<Void> future = validator.simplePollAsync();
+		try {
+			future.getResult(1, TimeUnit.SECONDS);
+			Assert.fail("No failure reported.");
+		} catch (DeviceRequestException e) {
+			//expected, no reply
+		}
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		future.addCallback(new DeviceCallback<Void>() {
+			@Override
+			public void completed(Void result) {
+			}
+
+			@Override
+			public void failed(Throwable cause) {
+				failure.set(cause);
+			}
+		});
+		Assert.assertTrue(failure.get() instanceof DeviceRequestException);
+	}
+
+	/**
+	 * Many callers queue requests without blocking, requests being performed in order
+	 * by the single thread of the queue.
+	 */
+	@Test
+	public void submit_manyCallers() throws Exception {
+		final int callers = 200;
+		for(int i=0; i<callers; i++){
+			port.replies.add(ACK);
+		}
+
+		final AtomicInteger completed = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(callers);
+		final List<String> threads = new ArrayList<String>();
+		List<Thread> callerThreads = new ArrayList<Thread>();
+		for(int i=0; i<callers; i++){
+			Thread t = new Thread(){
+				@Override
+				public void run() {
+					validator.simplePollAsync().addCallback(new DeviceCallback<Void>() {
+						@Override
+						public void completed(Void result) {
+							synchronized (threads) {
+								threads.add(Thread.currentThread().getName());
+							}
+							completed.incrementAndGet();
+							done.countDown();
+						}
+
+						@Override
+						public void failed(Throwable cause) {
+							done.countDown();
+						}
+					});
+				}
+			};
+			callerThreads.add(t);
+			t.start();
+		}
+		for(Thread t : callerThreads){
+			t.join(1000);
+		}
+
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(completed.get(), callers);
+		for(String name : threads){
+			Assert.assertEquals(name, "TransactionQueue-test");
+		}
+	}
+
+	/**
+	 * Raw requests queued while the device is polled from another thread
+	 * get their own reply.
+	 */
+	@Test
+	public void requestResponseAsync_whilePolling() throws Exception {
+		BillValidatorSimulator sim = new BillValidatorSimulator((byte) 40, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		sim.setSerialNumber(123456);
+		SimulatedMessagePort simPort = new SimulatedMessagePort(sim);
+		simPort.open();
+		final BillValidator device = new BillValidator(simPort, CRCChecksumMessageBuilder.FACTORY, (byte)40);
+		AsyncBillValidator async = new AsyncBillValidator(device, queue);
+
+		final AtomicBoolean polling = new AtomicBoolean(true);
+		final AtomicReference<Throwable> pollFailure = new AtomicReference<Throwable>();
+		Thread poller = new Thread(){
+			@Override
+			public void run() {
+				try {
+					while(polling.get()){
+						device.readBufferedNoteEvents();
+					}
+				} catch (Throwable e) {
+					pollFailure.set(e);
+				}
+			}
+		};
+		poller.start();
+		try {
+			Message request = MessageFactory.messageCRCChecksum((byte)40, Header.REQUEST_SERIAL_NUMBER);
+			for(int i=0; i<50; i++){
+				Message reply = async.requestResponseAsync(request).getResult(1, TimeUnit.SECONDS);
+				Assert.assertEquals(reply.getDataBytes(), new byte[]{0x40, (byte) 0xE2, 0x01});
+			}
+		} finally {
+			polling.set(false);
+			poller.join(1000);
+		}
+		Assert.assertNull(pollFailure.get());
+	}
+
+	@Test
+	public void forPort_shared() {
+		Assert.assertSame(TransactionQueue.forPort(port), TransactionQueue.forPort(port));
+		Assert.assertSame(new AsyncBillValidator(validator.getDevice()).getTransactionQueue(), TransactionQueue.forPort(port));
+	}
+
+	/**
+	 * A port queue shut down is replaced, for devices created afterward to be requested.
+	 */
+	@Test
+	public void forPort_shutdown() throws CcTalkException {
+		TransactionQueue previous = TransactionQueue.forPort(port);
+		previous.shutdown();
+
+		AsyncBillValidator v = new AsyncBillValidator(validator.getDevice());
+		Assert.assertNotSame(v.getTransactionQueue(), previous);
+		Assert.assertFalse(v.getTransactionQueue().isShutdown());
+		port.replies.add(ACK);
+		v.simplePollAsync().getResult(1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Devices on a shared bus share the queue of its physical port.
+	 */
+	@Test
+	public void forPort_sharedBus() {
+		SharedBus bus = new SharedBus(port);
+		AsyncBillValidator v40 = new AsyncBillValidator(DeviceFactory.billValidatorSharedBusCRC(bus, (byte) 40));
+		AsyncBillValidator v41 = new AsyncBillValidator(DeviceFactory.billValidatorSharedBusCRC(bus, (byte) 41));
+		Assert.assertSame(v40.getTransactionQueue(), v41.getTransactionQueue());
+		Assert.assertSame(v40.getTransactionQueue(), TransactionQueue.forPort(port));
+	}
+}
@@ -0,0 +1,325 @@
+package com.github.pierrebeucher.cctalk4j.device.bill.validator;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestException;
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestTimeoutException;
+import com.github.pierrebeucher.cctalk4j.device.InhibitMask;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.UnrecognizedEventException;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillOperatingModeResponseWrapper;
+
+public class BillValidatorTest {
+
+	private ReplyingMessagePort port;
+
+	private BillValidator validator;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		port = new ReplyingMessagePort();
+		validator = new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, (byte)40);
+	}
+
+	private static Message eventBuffer(int counter, int... results){
+		byte[] data = new byte[11];
+		data[0] = (byte) counter;
+		for(int i=0; i<results.length; i++){
+			data[1 + i] = (byte) results[i];
+		}
+		return new CRCChecksumMessage((byte)1, (byte)0, data);
+	}
+
+	@Test
+	public void readBufferedNoteEvents() throws DeviceRequestException, UnrecognizedEventException {
+		port.replies.add(eventBuffer(3, 2, 0, 0, 14, 1, 1));
+		BillEventBuffer buffer = validator.readBufferedNoteEvents();
+
+		Assert.assertEquals(buffer.getEventCounter(), 3);
+		Assert.assertEquals(buffer.getBillEvents().length, BillEventBuffer.EVENT_BUFFER_SIZE);
+		Assert.assertSame(buffer.getBillEvents()[0], BillEvent.event((byte)2, (byte)0));
+	}
+
+	@Test
+	public void readBufferedNoteEventsIfChanged_unchanged() throws DeviceRequestException {
+		//unrecognized events are not decoded
+		port.replies.add(eventBuffer(3, 0, 200, 0, 200));
+		Assert.assertNull(validator.readBufferedNoteEventsIfChanged((byte)3));
+	}
+
+	@Test
+	public void readBufferedNoteEventsIfChanged_newEvents() throws DeviceRequestException, UnrecognizedEventException {
+		port.replies.add(eventBuffer(5, 2, 0, 0, 14, 0, 200));
+		BillEventBuffer buffer = validator.readBufferedNoteEventsIfChanged((byte)3);
+
+		Assert.assertEquals(buffer.getEventCounter(), 5);
+		Assert.assertEquals(buffer.getBillEvents(), new BillEvent[]{
+				BillEvent.event((byte)2, (byte)0),
+				BillEvent.event((byte)0, (byte)14)});
+	}
+
+	@Test
+	public void readBufferedNoteEventsIfChanged_lostEvents() throws DeviceRequestException {
+		port.replies.add(eventBuffer(250, 2, 0, 2, 0, 2, 0, 2, 0, 2, 0));
+		BillEventBuffer buffer = validator.readBufferedNoteEventsIfChanged((byte)1);
+
+		Assert.assertEquals(buffer.getBillEvents().length, BillEventBuffer.EVENT_BUFFER_SIZE);
+	}
+
+	@Test(expectedExceptions=DeviceRequestException.class)
+	public void readBufferedNoteEventsIfChanged_err_unrecognized() throws DeviceRequestException {
+		port.replies.add(eventBuffer(4, 0, 200));
+		validator.readBufferedNoteEventsIfChanged((byte)3);
+	}
+
+	@Test
+	public void readBufferedNoteEvents_directRead() throws DeviceRequestException, UnrecognizedEventException {
+		validator.setDirectRead(true);
+		port.replies.add(eventBuffer(3, 2, 0));
+		BillEventBuffer buffer = validator.readBufferedNoteEvents();
+
+		Assert.assertEquals(buffer.getEventCounter(), 3);
+		Assert.assertSame(buffer.getBillEvents()[0], BillEvent.event((byte)2, (byte)0));
+	}
+
+	@Test(expectedExceptions=DeviceRequestTimeoutException.class)
+	public void readBufferedNoteEvents_directReadTimeout() throws DeviceRequestException {
+		validator.setDirectRead(true);
+		validator.setReadTimeout(50);
+		validator.readBufferedNoteEvents();
+	}
+
+	@Test(expectedExceptions=DeviceRequestTimeoutException.class)
+	public void readBufferedNoteEvents_timeout() throws DeviceRequestException {
+		validator.setReadTimeout(50);
+		validator.readBufferedNoteEvents();
+	}
+
+	private static final Message ACK = new CRCChecksumMessage((byte)1, (byte)0, new byte[]{});
+
+	private static final Message NAK = new CRCChecksumMessage((byte)1, (byte)5, new byte[]{});
+
+	@Test
+	public void modifyMasterInhibitStatus_known() throws DeviceRequestException {
+		port.replies.add(ACK);
+		validator.modifyMasterInhibitStatus(true);
+		validator.modifyMasterInhibitStatus(true);
+
+		//served from memory
+		Assert.assertTrue(validator.requestMasterInhibitStatus());
+		Assert.assertEquals(port.writeCount, 1);
+		Assert.assertEquals(validator.getSkippedRequestCount(), 2);
+
+		port.replies.add(ACK);
+		validator.modifyMasterInhibitStatus(false);
+		Assert.assertEquals(port.writeCount, 2);
+	}
+
+	@Test
+	public void requestInhibitStatus_known() throws DeviceRequestException {
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{-1, -1}));
+		Assert.assertEquals(validator.requestInhibitStatus(), InhibitMask.FULLY_ENABLING_MASK);
+		Assert.assertEquals(validator.requestInhibitStatus(), InhibitMask.FULLY_ENABLING_MASK);
+		validator.modifyInhibitStatus(InhibitMask.FULLY_ENABLING_MASK);
+
+		Assert.assertEquals(port.writeCount, 1);
+	}
+
+	@Test
+	public void modifyBillOperatingMode_known() throws DeviceRequestException {
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{3}));
+		BillOperatingModeResponseWrapper mode = validator.requestBillOperatingMode();
+		Assert.assertTrue(mode.isStackerUsed());
+		Assert.assertTrue(mode.isEscrowUsed());
+
+		validator.modifyBillOperatingMode(true, true);
+		Assert.assertEquals(port.writeCount, 1);
+
+		port.replies.add(ACK);
+		validator.modifyBillOperatingMode(true, false);
+		Assert.assertEquals(port.writeCount, 2);
+	}
+
+	/**
+	 * The mode is sent as a single byte, stacker on bit 0 and escrow on bit 1.
+	 */
+	@Test
+	public void modifyBillOperatingMode_dataByte() throws DeviceRequestException {
+		port.replies.add(ACK);
+		validator.modifyBillOperatingMode(true, false);
+		Assert.assertEquals(port.lastWritten.getDataBytes(), new byte[]{1});
+
+		port.replies.add(ACK);
+		validator.modifyBillOperatingMode(false, true);
+		Assert.assertEquals(port.lastWritten.getDataBytes(), new byte[]{2});
+
+		port.replies.add(ACK);
+		validator.modifyBillOperatingMode(false, false);
+		Assert.assertEquals(port.lastWritten.getDataBytes(), new byte[]{0});
+	}
+
+	/**
+	 * A mode set by the host matches the same mode requested from the device.
+	 */
+	@Test
+	public void modifyBillOperatingMode_stackerOnly() throws DeviceRequestException {
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{1}));
+		BillOperatingModeResponseWrapper mode = validator.requestBillOperatingMode();
+		Assert.assertTrue(mode.isStackerUsed());
+		Assert.assertFalse(mode.isEscrowUsed());
+
+		validator.modifyBillOperatingMode(true, false);
+		Assert.assertEquals(port.writeCount, 1);
+	}
+
+	/**
+	 * A known state is requested again once older than the state max age.
+	 */
+	@Test
+	public void requestMasterInhibitStatus_stale() throws Exception {
+		validator.setStateMaxAge(20);
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{1}));
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{0}));
+		Assert.assertTrue(validator.requestMasterInhibitStatus());
+		Thread.sleep(40);
+		Assert.assertFalse(validator.requestMasterInhibitStatus());
+		Assert.assertEquals(port.writeCount, 2);
+	}
+
+	@Test
+	public void requestMasterInhibitStatus_noStateMaxAge() throws Exception {
+		validator.setStateMaxAge(0);
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{1}));
+		port.replies.add(new CRCChecksumMessage((byte)1, (byte)0, new byte[]{1}));
+		validator.requestMasterInhibitStatus();
+		validator.requestMasterInhibitStatus();
+		Assert.assertEquals(port.writeCount, 2);
+	}
+
+	/**
+	 * A failed modification leaves the state unknown.
+	 */
+	@Test
+	public void modifyMasterInhibitStatus_failure() throws DeviceRequestException {
+		port.replies.add(ACK);
+		validator.modifyMasterInhibitStatus(true);
+		//a timeout would leave a read pending, taking the next reply
+		port.replies.add(NAK);
+		try {
+			validator.modifyMasterInhibitStatus(false);
+			Assert.fail("NAK expected.");
+		} catch (DeviceRequestException e) {
+			//expected
+		}
+
+		port.replies.add(ACK);
+		validator.modifyMasterInhibitStatus(true);
+		Assert.assertEquals(port.writeCount, 3);
+	}
+
+	/**
+	 * States are unknown once events show the device was reset or master inhibited.
+	 */
+	@Test
+	public void readBufferedNoteEvents_invalidateState() throws DeviceRequestException {
+		port.replies.add(ACK);
+		port.replies.add(ACK);
+		validator.modifyMasterInhibitStatus(true);
+		validator.modifyInhibitStatus(InhibitMask.FULLY_ENABLING_MASK);
+
+		//master inhibit active event
+		port.replies.add(eventBuffer(4, 0, 0));
+		validator.readBufferedNoteEventsIfChanged((byte)3);
+		port.replies.add(ACK);
+		validator.modifyMasterInhibitStatus(true);
+		validator.modifyInhibitStatus(InhibitMask.FULLY_ENABLING_MASK);
+		Assert.assertEquals(port.writeCount, 4);
+
+		//reset
+		port.replies.add(eventBuffer(0));
+		validator.readBufferedNoteEvents();
+		port.replies.add(ACK);
+		validator.modifyInhibitStatus(InhibitMask.FULLY_ENABLING_MASK);
+		Assert.assertEquals(port.writeCount, 6);
+	}
+
+	/**
+	 * Port replying to each request with the next queued message.
+	 */
+	static class ReplyingMessagePort implements MessagePort {
+
+		BlockingQueue<Message> replies = new LinkedBlockingQueue<Message>();
+
+		volatile int writeCount;
+
+		volatile Message lastWritten;
+
+		@Override
+		public void open() throws MessagePortException {
+		}
+
+		@Override
+		public void close() throws MessagePortException {
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public void write(Message m) throws MessagePortException {
+			writeCount++;
+			lastWritten = m;
+		}
+
+		@Override
+		public Message read(int timeout) throws MessagePortException {
+			return read(timeout, -1);
+		}
+
+		@Override
+		public Message read(int timeout, int expectedDataLength) throws MessagePortException {
+			try {
+				Message m = replies.poll(timeout, TimeUnit.MILLISECONDS);
+				if(m == null){
+					throw new MessagePortTimeoutException("No reply.");
+				}
+				return m;
+			} catch (InterruptedException e) {
+				throw new MessagePortException(e);
+			}
+		}
+
+		@Override
+		public void resetInputBuffer() {
+		}
+
+		@Override
+		public void resetOutputBuffer() {
+		}
+
+		@Override
+		public boolean isEchoCancelling() {
+			return true;
+		}
+	}
+}
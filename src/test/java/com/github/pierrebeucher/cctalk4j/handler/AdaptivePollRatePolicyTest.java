@@ -0,0 +1,104 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class AdaptivePollRatePolicyTest {
+
+	private AdaptivePollRatePolicy policy;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		policy = new AdaptivePollRatePolicy(50, 1000, 2, 3);
+	}
+
+	@Test
+	public void start() {
+		Assert.assertEquals(policy.start(), 50);
+	}
+
+	@Test
+	public void nextPeriod_backoff() {
+		policy.start();
+		long[] expected = {100, 200, 400, 800, 1000, 1000};
+		for(long e : expected){
+			Assert.assertEquals(policy.nextPeriod(0, false), e);
+		}
+	}
+
+	@Test
+	public void nextPeriod_event() {
+		policy.start();
+		for(int i=0; i<10; i++){
+			policy.nextPeriod(0, false);
+		}
+		Assert.assertEquals(policy.nextPeriod(1, false), 50);
+		Assert.assertEquals(policy.nextPeriod(0, false), 100);
+	}
+
+	/**
+	 * The minimum period is kept for a number of polls after a credit.
+	 */
+	@Test
+	public void nextPeriod_creditHold() {
+		policy.start();
+		policy.nextPeriod(0, false);
+		Assert.assertEquals(policy.nextPeriod(1, true), 50);
+		for(int i=0; i<3; i++){
+			Assert.assertEquals(policy.nextPeriod(0, false), 50);
+		}
+		Assert.assertEquals(policy.nextPeriod(0, false), 100);
+	}
+
+	@Test
+	public void start_reset() {
+		policy.start();
+		policy.nextPeriod(1, true);
+		Assert.assertEquals(policy.start(), 50);
+		Assert.assertEquals(policy.nextPeriod(0, false), 100);
+	}
+
+	/**
+	 * A backoff factor close to 1 still increases the period.
+	 */
+	@Test
+	public void nextPeriod_smallFactor() {
+		AdaptivePollRatePolicy p = new AdaptivePollRatePolicy(1, 10, 1.01, 0);
+		p.start();
+		Assert.assertEquals(p.nextPeriod(0, false), 2);
+	}
+
+	@Test
+	public void constructor_invalid() {
+		Assert.assertThrows(IllegalArgumentException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				new AdaptivePollRatePolicy(0, 1000, 2, 0);
+			}
+		});
+		Assert.assertThrows(IllegalArgumentException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				new AdaptivePollRatePolicy(100, 50, 2, 0);
+			}
+		});
+		Assert.assertThrows(IllegalArgumentException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				new AdaptivePollRatePolicy(50, 1000, 1, 0);
+			}
+		});
+		Assert.assertThrows(IllegalArgumentException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				new AdaptivePollRatePolicy(50, 1000, 2, -1);
+			}
+		});
+	}
+
+	@Test
+	public void fixedPolicy() {
+		FixedPollRatePolicy p = new FixedPollRatePolicy(200);
+		Assert.assertEquals(p.start(), 200);
+		Assert.assertEquals(p.nextPeriod(5, true), 200);
+		Assert.assertEquals(p.nextPeriod(0, false), 200);
+	}
+}
@@ -1,5 +1,6 @@
 package com.github.pierrebeucher.cctalk4j.handler;
 
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -174,9 +175,13 @@ public class BillEventHandlerTest {
 		handler.feed(buf1);
 		handler.feed(buf2);
 		
-		Assert.assertEquals(handler.getEventBufferDeque().poll(), emptyBuffer);
-		Assert.assertEquals(handler.getEventBufferDeque().poll(), buf1);
-		Assert.assertEquals(handler.getEventBufferDeque().poll(), buf2);
+		Deque<BillEventBuffer> deque = handler.getEventBufferDeque();
+		Assert.assertEquals(deque.poll(), emptyBuffer);
+		Assert.assertEquals(deque.poll(), buf1);
+		Assert.assertEquals(deque.poll(), buf2);
+		
+		//the deque is a copy of the history
+		Assert.assertEquals(handler.getEventBufferDeque().size(), 3);
 	}
 
 	@Test
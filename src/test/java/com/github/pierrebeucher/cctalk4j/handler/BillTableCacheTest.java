@@ -0,0 +1,122 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.device.bill.Bill;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.CountryScalingFactorWrapper;
+
+public class BillTableCacheTest {
+
+	private static final DeviceIdentity IDENTITY = new DeviceIdentity("BNV", "NV9", "B1", 197121, "EU01");
+
+	private File file;
+
+	private Map<Byte, Bill> bills;
+
+	private Map<String, CountryScalingFactorWrapper> factors;
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		file = File.createTempFile("bill-tables", ".properties");
+		file.delete();
+
+		bills = new LinkedHashMap<Byte, Bill>();
+		bills.put((byte) 1, new Bill((byte) 1, "EU", "0005", "A", new BigDecimal("5.00")));
+		bills.put((byte) 3, new Bill((byte) 3, "GB", "0010", "B", new BigDecimal("10.00")));
+		bills.put((byte) 128, new Bill((byte) 128, "GB", "0050", "A", new BigDecimal("50.00")));
+
+		factors = new LinkedHashMap<String, CountryScalingFactorWrapper>();
+		factors.put("EU", CountryScalingFactorWrapper.wrap(new CRCChecksumMessage((byte) 1, (byte) 0, new byte[]{(byte) 0xB8, (byte) 0x88, 2})));
+		factors.put("GB", CountryScalingFactorWrapper.wrap(new CRCChecksumMessage((byte) 1, (byte) 0, new byte[]{100, 0, 2})));
+	}
+
+	@AfterMethod
+	public void afterMethod(){
+		file.delete();
+	}
+
+	@Test
+	public void store_load() throws Exception {
+		new BillTableCache(file).store(IDENTITY, bills, factors);
+
+		BillTableCache cache = new BillTableCache(file);
+		Map<Byte, Bill> loadedBills = new HashMap<Byte, Bill>();
+		Map<String, CountryScalingFactorWrapper> loadedFactors = new HashMap<String, CountryScalingFactorWrapper>();
+		Assert.assertTrue(cache.load(IDENTITY, loadedBills, loadedFactors));
+
+		Assert.assertEquals(loadedBills, bills);
+		Assert.assertEquals(loadedBills.get((byte) 3).getCurrencyValue(), new BigDecimal("10.00"));
+		Assert.assertEquals(loadedFactors.keySet(), factors.keySet());
+		Assert.assertEquals(loadedFactors.get("EU").getScalingFactor(), 35000);
+		Assert.assertEquals(loadedFactors.get("EU").getDecimalPlace(), 2);
+		Assert.assertEquals(cache.getHitCount(), 1);
+	}
+
+	@Test
+	public void load_otherIdentity() throws Exception {
+		BillTableCache cache = new BillTableCache(file);
+		cache.store(IDENTITY, bills, factors);
+
+		Map<Byte, Bill> loadedBills = new HashMap<Byte, Bill>();
+		DeviceIdentity reprogrammed = new DeviceIdentity("BNV", "NV9", "B1", 197121, "EU02");
+		Assert.assertFalse(cache.load(reprogrammed, loadedBills, new HashMap<String, CountryScalingFactorWrapper>()));
+		Assert.assertTrue(loadedBills.isEmpty());
+		Assert.assertEquals(cache.getMissCount(), 1);
+	}
+
+	/**
+	 * A replaced bill table does not keep bills of the previous one.
+	 */
+	@Test
+	public void store_replace() throws Exception {
+		BillTableCache cache = new BillTableCache(file);
+		cache.store(IDENTITY, bills, factors);
+		bills.remove((byte) 3);
+		cache.store(IDENTITY, bills, factors);
+
+		Map<Byte, Bill> loadedBills = new HashMap<Byte, Bill>();
+		Assert.assertTrue(new BillTableCache(file).load(IDENTITY, loadedBills, new HashMap<String, CountryScalingFactorWrapper>()));
+		Assert.assertEquals(loadedBills, bills);
+	}
+
+	@Test
+	public void invalidate() throws Exception {
+		BillTableCache cache = new BillTableCache(file);
+		cache.store(IDENTITY, bills, factors);
+		cache.invalidate(IDENTITY);
+
+		Assert.assertFalse(new BillTableCache(file).load(IDENTITY, new HashMap<Byte, Bill>(),
+				new HashMap<String, CountryScalingFactorWrapper>()));
+	}
+
+	/**
+	 * An invalid entry is a miss, the bill table being requested again.
+	 */
+	@Test
+	public void load_invalidEntry() throws IOException {
+		String key = IDENTITY.toKey();
+		try (OutputStream out = new FileOutputStream(file)){
+			out.write((key + ".bills=1\n" + key + ".countries=EU\n" + key + ".bill.1=EU\n").getBytes(StandardCharsets.ISO_8859_1));
+		}
+
+		Map<Byte, Bill> loadedBills = new HashMap<Byte, Bill>();
+		BillTableCache cache = new BillTableCache(file);
+		Assert.assertFalse(cache.load(IDENTITY, loadedBills, new HashMap<String, CountryScalingFactorWrapper>()));
+		Assert.assertTrue(loadedBills.isEmpty());
+		Assert.assertEquals(cache.getMissCount(), 1);
+	}
+}
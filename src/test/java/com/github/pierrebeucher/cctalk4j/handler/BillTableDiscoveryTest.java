@@ -0,0 +1,213 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
+import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
+import com.github.pierrebeucher.cctalk4j.device.bill.Bill;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+
+public class BillTableDiscoveryTest {
+
+	private TablePort port;
+
+	private BillTableDiscovery discovery;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		port = new TablePort();
+		BillValidator validator = new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, (byte) 40);
+		//the port replies synchronously to the last written request
+		validator.setDirectRead(true);
+		discovery = new BillTableDiscovery(validator);
+	}
+
+	@Test
+	public void discover() throws Exception {
+		port.billIds.put((byte) 1, "EU0005A");
+		port.billIds.put((byte) 2, "EU0010A");
+		port.billIds.put((byte) 3, "US0001A");
+		port.billIds.put((byte) 5, "EU0020A");
+
+		Map<Byte, Bill> bills = discovery.discover();
+
+		//stopped at the first unprogrammed bill type
+		Assert.assertEquals(bills.size(), 3);
+		Assert.assertEquals(bills.get((byte) 2).getCurrencyValue(), new BigDecimal("10.00"));
+		Assert.assertEquals(bills.get((byte) 3).getCurrencyValue(), new BigDecimal("1.00"));
+		Assert.assertEquals(discovery.getCountryScalingFactors().keySet(), new HashSet<String>(Arrays.asList("EU", "US")));
+		Assert.assertSame(discovery.getBills(), bills);
+		Assert.assertTrue(discovery.getDiscoveryTime(TimeUnit.NANOSECONDS) > 0);
+	}
+
+	/**
+	 * Requests are sent back-to-back: buffers are purged once per batch
+	 * and replies read by the requesting thread.
+	 */
+	@Test
+	public void discover_batched() throws Exception {
+		for(int i=1; i<=20; i++){
+			port.billIds.put((byte) i, (i % 2 == 0 ? "EU" : "GB") + "0005A");
+		}
+		discovery.getDevice().setDirectRead(false);
+
+		discovery.discover();
+
+		Assert.assertEquals(discovery.getBills().size(), 20);
+		Assert.assertEquals(port.writeCount, 21 + 2);
+		Assert.assertEquals(port.resetCount, 2);
+		Assert.assertEquals(port.readerThreads, new HashSet<Thread>(Collections.singleton(Thread.currentThread())));
+	}
+
+	/**
+	 * A cached bill table is not requested again, until the currency data is reprogrammed.
+	 */
+	@Test
+	public void discover_cache() throws Exception {
+		File file = File.createTempFile("bill-tables", ".properties");
+		file.delete();
+		try {
+			for(int i=1; i<=20; i++){
+				port.billIds.put((byte) i, "EU0005A");
+			}
+			discovery.setCache(new BillTableCache(file));
+
+			Map<Byte, Bill> cold = discovery.discover();
+			Assert.assertFalse(discovery.isFromCache());
+			int coldWrites = port.writeCount;
+
+			//a new cache instance reads the file
+			discovery.setCache(new BillTableCache(file));
+			port.writeCount = 0;
+			Map<Byte, Bill> warm = discovery.discover();
+			Assert.assertTrue(discovery.isFromCache());
+			Assert.assertEquals(warm, cold);
+			Assert.assertEquals(discovery.getCountryScalingFactors().get("EU").getScalingFactor(), 100);
+			Assert.assertEquals(port.writeCount, 5);
+			Assert.assertTrue(port.writeCount < coldWrites);
+
+			port.currencyRevision = "EU02";
+			port.billIds.put((byte) 1, "EU0010A");
+			Map<Byte, Bill> reprogrammed = discovery.discover();
+			Assert.assertFalse(discovery.isFromCache());
+			Assert.assertEquals(reprogrammed.get((byte) 1).valueCode(), "0010");
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void discover_noBill() throws Exception {
+		Assert.assertTrue(discovery.discover().isEmpty());
+		Assert.assertTrue(discovery.getCountryScalingFactors().isEmpty());
+		Assert.assertEquals(port.writeCount, 1);
+	}
+
+	/**
+	 * Port replying to bill id and country scaling factor requests from a bill table,
+	 * bill types not in the table being unprogrammed.
+	 */
+	private static class TablePort implements MessagePort {
+
+		final Map<Byte, String> billIds = new HashMap<Byte, String>();
+
+		final Set<Thread> readerThreads = new HashSet<Thread>();
+
+		int writeCount;
+
+		int resetCount;
+
+		String currencyRevision = "EU01";
+
+		private Message lastRequest;
+
+		@Override
+		public void open() throws MessagePortException {
+		}
+
+		@Override
+		public void close() throws MessagePortException {
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public synchronized void write(Message m) throws MessagePortException {
+			writeCount++;
+			lastRequest = m;
+		}
+
+		@Override
+		public Message read(int timeout) throws MessagePortException {
+			return read(timeout, -1);
+		}
+
+		@Override
+		public synchronized Message read(int timeout, int expectedDataLength) throws MessagePortException {
+			readerThreads.add(Thread.currentThread());
+			Message request = lastRequest;
+			lastRequest = null;
+			if(request == null){
+				throw new MessagePortTimeoutException("No request.");
+			}
+			byte[] data;
+			if(request.getHeader() == Header.REQUEST_BILL_ID.getValue()){
+				String id = billIds.get(request.getDataByte(0));
+				data = (id == null ? "......." : id).getBytes(StandardCharsets.US_ASCII);
+			} else if(request.getHeader() == Header.REQUEST_COUNTRY_SCALING_FACTOR.getValue()){
+				data = new byte[]{100, 0, 2};
+			} else if(request.getHeader() == Header.REQUEST_SERIAL_NUMBER.getValue()){
+				data = new byte[]{1, 2, 3};
+			} else if(request.getHeader() == Header.REQUEST_CURRENCY_REVISION.getValue()){
+				data = currencyRevision.getBytes(StandardCharsets.US_ASCII);
+			} else if(request.getHeader() == Header.REQUEST_MANUFACTURER_ID.getValue()
+					|| request.getHeader() == Header.REQUEST_PRODUCT_CODE.getValue()
+					|| request.getHeader() == Header.REQUEST_BUILD_CODE.getValue()){
+				data = new byte[]{'I', 'D'};
+			} else {
+				data = new byte[]{};
+			}
+			return new CRCChecksumMessage((byte) 1, (byte) 0, data);
+		}
+
+		@Override
+		public synchronized void resetInputBuffer() {
+			resetCount++;
+		}
+
+		@Override
+		public void resetOutputBuffer() {
+		}
+
+		@Override
+		public boolean isEchoCancelling() {
+			return false;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.github.pierrebeucher.cctalk4j.handler;
 
+import java.util.concurrent.TimeUnit;
+
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -56,6 +58,103 @@ public class CreditPollingRunnableTest {
 		Assert.assertFalse(pollerThread.isAlive());
 	}
 	
+	private CreditPollingRunnable<Device> sleepingPoller(long pollPeriod, final long pollDuration){
+		return new CreditPollingRunnable<Device>(device, pollPeriod){
+			@Override
+			protected void doCreditPoll() {
+				try {
+					Thread.sleep(pollDuration);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			@Override
+			protected void beforePollStart() throws CreditPollingException {
+			}
+		};
+	}
+	
+	/**
+	 * Poll duration does not add to the poll period.
+	 */
+	@Test
+	public void run_fixedRate() throws InterruptedException {
+		CreditPollingRunnable<Device> p = sleepingPoller(100, 40);
+		Thread t = new Thread(p);
+		t.start();
+		Thread.sleep(1050);
+		p.setContinuePolling(false);
+		t.join(1000);
+		
+		Assert.assertTrue(p.getPollCount() >= 10 && p.getPollCount() <= 12, "Poll count: " + p.getPollCount());
+		long mean = p.getMeanPollInterval(TimeUnit.MILLISECONDS);
+		Assert.assertTrue(mean >= 95 && mean <= 120, "Mean poll interval: " + mean);
+		Assert.assertEquals(p.getMissedDeadlineCount(), 0);
+	}
+	
+	/**
+	 * Deadlines passed while polling are skipped and counted.
+	 */
+	@Test
+	public void run_missedDeadlines() throws InterruptedException {
+		CreditPollingRunnable<Device> p = sleepingPoller(100, 250);
+		Thread t = new Thread(p);
+		t.start();
+		Thread.sleep(500);
+		p.setContinuePolling(false);
+		t.join(1000);
+		
+		Assert.assertTrue(p.getMissedDeadlineCount() >= 2, "Missed deadlines: " + p.getMissedDeadlineCount());
+		Assert.assertTrue(p.getMaxPollInterval(TimeUnit.MILLISECONDS) >= 300);
+	}
+	
+	/**
+	 * Stopping does not wait for the end of the poll period.
+	 */
+	@Test
+	public void setContinuePolling_wakeUp() throws InterruptedException {
+		CreditPollingRunnable<Device> p = sleepingPoller(10000, 0);
+		Thread t = new Thread(p);
+		t.start();
+		Thread.sleep(100);
+		long start = System.currentTimeMillis();
+		p.setContinuePolling(false);
+		t.join(5000);
+		
+		Assert.assertFalse(t.isAlive());
+		Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+		Assert.assertEquals(p.getPollCount(), 1);
+	}
+	
+	/**
+	 * Poll period follows the poll rate policy, given the reported activity.
+	 */
+	@Test
+	public void run_pollRatePolicy() throws InterruptedException {
+		CreditPollingRunnable<Device> p = new CreditPollingRunnable<Device>(device, 200){
+			@Override
+			protected void doCreditPoll() {
+				//report a credit on first poll only
+				reportPollActivity(getPollCount() == 1 ? 1 : 0, getPollCount() == 1);
+			}
+
+			@Override
+			protected void beforePollStart() throws CreditPollingException {
+			}
+		};
+		p.setPollRatePolicy(new AdaptivePollRatePolicy(20, 80, 2, 2));
+		Thread t = new Thread(p);
+		t.start();
+		Thread.sleep(500);
+		p.setContinuePolling(false);
+		t.join(1000);
+		
+		//20, 20, 20, 40, 80, 80...
+		Assert.assertEquals(p.getCurrentPollPeriod(), 80);
+		Assert.assertTrue(p.getPollCount() >= 7 && p.getPollCount() <= 11, "Poll count: " + p.getPollCount());
+	}
+	
 	
 	
 }
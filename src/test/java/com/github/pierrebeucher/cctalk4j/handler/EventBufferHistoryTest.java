@@ -0,0 +1,81 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.Deque;
+import java.util.Iterator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+
+public class EventBufferHistoryTest {
+
+	private static BillEventBuffer buffer(int counter){
+		return new BillEventBuffer(new BillEvent[]{}, (byte) counter);
+	}
+
+	@Test
+	public void empty() {
+		EventBufferHistory history = new EventBufferHistory(3);
+		Assert.assertNull(history.peekLast());
+		Assert.assertTrue(history.snapshot().isEmpty());
+		Assert.assertEquals(history.size(), 0);
+	}
+
+	@Test
+	public void add_overwriteOldest() {
+		EventBufferHistory history = new EventBufferHistory(3);
+		BillEventBuffer[] buffers = new BillEventBuffer[5];
+		for(int i=0; i<buffers.length; i++){
+			buffers[i] = buffer(i + 1);
+			history.add(buffers[i]);
+		}
+
+		Deque<BillEventBuffer> snapshot = history.snapshot();
+		Assert.assertEquals(snapshot.size(), 3);
+		Assert.assertSame(snapshot.pollFirst(), buffers[2]);
+		Assert.assertSame(snapshot.pollFirst(), buffers[3]);
+		Assert.assertSame(snapshot.pollFirst(), buffers[4]);
+		Assert.assertSame(history.peekLast(), buffers[4]);
+		Assert.assertEquals(history.size(), 3);
+	}
+
+	@Test(expectedExceptions=IllegalArgumentException.class)
+	public void capacity_err_zero() {
+		new EventBufferHistory(0);
+	}
+
+	/**
+	 * Snapshots taken while buffers are added hold consecutive buffers, oldest first.
+	 */
+	@Test
+	public void snapshot_concurrentAdd() throws InterruptedException {
+		final EventBufferHistory history = new EventBufferHistory(4);
+		final int count = 200000;
+		Thread writer = new Thread(){
+			@Override
+			public void run() {
+				for(int i=1; i<=count; i++){
+					history.add(buffer(i));
+				}
+			}
+		};
+		writer.start();
+		while(writer.isAlive()){
+			Deque<BillEventBuffer> snapshot = history.snapshot();
+			Assert.assertTrue(snapshot.size() <= 4);
+			Iterator<BillEventBuffer> it = snapshot.iterator();
+			if(it.hasNext()){
+				int previous = it.next().getEventCounter() & 0xFF;
+				while(it.hasNext()){
+					int counter = it.next().getEventCounter() & 0xFF;
+					Assert.assertEquals(counter, (previous + 1) & 0xFF);
+					previous = counter;
+				}
+			}
+		}
+		writer.join();
+		Assert.assertEquals(history.peekLast().getEventCounter(), (byte) count);
+	}
+}
@@ -0,0 +1,288 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.UnrecognizedEventException;
+
+public class EventDispatcherTest {
+
+	private ExecutorService executor;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterMethod
+	public void afterMethod(){
+		executor.shutdownNow();
+	}
+
+	private static BillEvent event(int billType) throws UnrecognizedEventException{
+		return BillEvent.event((byte) billType, (byte) 0);
+	}
+
+	/**
+	 * Events are delivered in order even with a multi-threaded executor.
+	 */
+	@Test
+	public void publishNewEvent_inOrder() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor, 8);
+		RecordingListener listener = new RecordingListener(0);
+		Collection<BillEventListener> listeners = Collections.<BillEventListener>singletonList(listener);
+
+		List<BillEvent> expected = new ArrayList<BillEvent>();
+		for(int i=0; i<2000; i++){
+			BillEvent e = event(1 + i % 200);
+			expected.add(e);
+			dispatcher.publishNewEvent(listeners, null, e);
+		}
+
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.events, expected);
+		Assert.assertEquals(dispatcher.getDeliveredCount(), 2000);
+		Assert.assertEquals(dispatcher.getQueueDepth(), 0);
+		Assert.assertTrue(dispatcher.getMaxQueueDepth() <= 8);
+	}
+
+	/**
+	 * A slow listener does not delay the producer while the queue is not full.
+	 */
+	@Test
+	public void publishNewEvent_slowListener() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor);
+		RecordingListener listener = new RecordingListener(50);
+		Collection<BillEventListener> listeners = Collections.<BillEventListener>singletonList(listener);
+
+		long start = System.nanoTime();
+		for(int i=1; i<=5; i++){
+			dispatcher.publishNewEvent(listeners, null, event(i));
+		}
+		Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+		Assert.assertTrue(dispatcher.getQueueDepth() > 0);
+
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.events.size(), 5);
+		Assert.assertTrue(dispatcher.getMaxDispatchLatency(TimeUnit.MILLISECONDS) >= 50);
+		Assert.assertTrue(dispatcher.getMeanDispatchLatency(TimeUnit.NANOSECONDS) > 0);
+		Assert.assertEquals(dispatcher.getProducerWaitCount(), 0);
+	}
+
+	/**
+	 * The producer waits for free slots once the queue is full.
+	 */
+	@Test
+	public void publishNewEvent_full() throws Exception {
+		final EventDispatcher dispatcher = new EventDispatcher(executor, 2);
+		final CountDownLatch release = new CountDownLatch(1);
+		final RecordingListener listener = new RecordingListener(0){
+			@Override
+			public void newEvent(BillValidatorHandler handler, BillEvent event) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.newEvent(handler, event);
+			}
+		};
+		final Collection<BillEventListener> listeners = Collections.<BillEventListener>singletonList(listener);
+
+		Thread producer = new Thread(){
+			@Override
+			public void run() {
+				try {
+					for(int i=1; i<=4; i++){
+						dispatcher.publishNewEvent(listeners, null, event(i));
+					}
+				} catch (UnrecognizedEventException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		producer.start();
+		producer.join(200);
+		Assert.assertTrue(producer.isAlive());
+		Assert.assertEquals(dispatcher.getProducerWaitCount(), 1);
+
+		release.countDown();
+		producer.join(5000);
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.events, Arrays.asList(event(1), event(2), event(3), event(4)));
+	}
+
+	/*
+	 * Listener blocked until the given latch is released
+	 */
+	private static RecordingListener blockedListener(final CountDownLatch release){
+		return new RecordingListener(0){
+			@Override
+			public void newEvent(BillValidatorHandler handler, BillEvent event) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.newEvent(handler, event);
+			}
+		};
+	}
+
+	/**
+	 * If the queue stays full, notifications are dropped after a bounded wait
+	 * and reported as lost events once listeners catch up.
+	 */
+	@Test
+	public void publishNewEvent_stayingFull() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor, 2);
+		dispatcher.setMaxProducerWait(50, TimeUnit.MILLISECONDS);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingListener listener = blockedListener(release);
+		Collection<BillEventListener> listeners = Collections.<BillEventListener>singletonList(listener);
+
+		long start = System.nanoTime();
+		for(int i=1; i<=6; i++){
+			dispatcher.publishNewEvent(listeners, null, event(i));
+		}
+		//a single wait, later notifications being dropped without waiting
+		Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+		Assert.assertEquals(dispatcher.getProducerWaitCount(), 1);
+		Assert.assertEquals(dispatcher.getDroppedCount(), 4);
+
+		release.countDown();
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		dispatcher.publishNewEvent(listeners, null, event(7));
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.events, Arrays.asList(event(1), event(2), event(7)));
+		Assert.assertEquals(listener.lostEventCount, 4);
+		Assert.assertNull(listener.lostPrevious);
+		Assert.assertNull(listener.lostNew);
+	}
+
+	/**
+	 * An interrupted producer does not wait for a free slot.
+	 */
+	@Test
+	public void publishNewEvent_interrupted() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		Collection<BillEventListener> listeners = Collections.<BillEventListener>singletonList(blockedListener(release));
+		dispatcher.publishNewEvent(listeners, null, event(1));
+
+		Thread.currentThread().interrupt();
+		long start = System.nanoTime();
+		try {
+			dispatcher.publishNewEvent(listeners, null, event(2));
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+			Assert.assertEquals(dispatcher.getDroppedCount(), 1);
+			//interrupt status is kept for the poller
+			Assert.assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void publishLostEvent() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor);
+		RecordingListener listener = new RecordingListener(0);
+		BillEventBuffer previous = new BillEventBuffer(new BillEvent[]{}, (byte) 1);
+		BillEventBuffer next = new BillEventBuffer(new BillEvent[]{}, (byte) 9);
+
+		dispatcher.publishLostEvent(Collections.<BillEventListener>singletonList(listener), 3, previous, next);
+
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.lostEventCount, 3);
+		Assert.assertSame(listener.lostPrevious, previous);
+		Assert.assertSame(listener.lostNew, next);
+	}
+
+	/**
+	 * A failing listener does not prevent other listeners nor next events from being notified.
+	 */
+	@Test
+	public void publishNewEvent_failingListener() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor);
+		RecordingListener failing = new RecordingListener(0){
+			@Override
+			public void newEvent(BillValidatorHandler handler, BillEvent event) {
+				throw new IllegalStateException("Listener failure");
+			}
+		};
+		RecordingListener listener = new RecordingListener(0);
+		List<BillEventListener> listeners = new ArrayList<BillEventListener>();
+		listeners.add(failing);
+		listeners.add(listener);
+
+		dispatcher.publishNewEvent(listeners, null, event(1));
+		dispatcher.publishNewEvent(listeners, null, event(2));
+
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.events.size(), 2);
+	}
+
+	@Test
+	public void billEventHandler_feed() throws Exception {
+		EventDispatcher dispatcher = new EventDispatcher(executor);
+		RecordingListener listener = new RecordingListener(0);
+		BillEventHandler handler = new BillEventHandler(null);
+		handler.setEventDispatcher(dispatcher);
+		handler.addListener(listener);
+		handler.initEventBufferQueue(new BillEventBuffer(new BillEvent[]{}, (byte) 0));
+
+		handler.feed(new BillEventBuffer(new BillEvent[]{event(2), event(1)}, (byte) 2));
+
+		Assert.assertTrue(dispatcher.awaitDelivery(5, TimeUnit.SECONDS));
+		Assert.assertEquals(listener.events, Arrays.asList(event(1), event(2)));
+	}
+
+	private static class RecordingListener implements BillEventListener {
+
+		private final long delay;
+
+		final List<BillEvent> events = Collections.synchronizedList(new ArrayList<BillEvent>());
+
+		volatile int lostEventCount;
+		volatile BillEventBuffer lostPrevious;
+		volatile BillEventBuffer lostNew;
+
+		RecordingListener(long delay) {
+			this.delay = delay;
+		}
+
+		@Override
+		public void newEvent(BillValidatorHandler handler, BillEvent event) {
+			if(delay > 0){
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			events.add(event);
+		}
+
+		@Override
+		public void lostEvent(int lostEventCount, BillEventBuffer previousBuffer, BillEventBuffer newBuffer) {
+			this.lostEventCount = lostEventCount;
+			this.lostPrevious = previousBuffer;
+			this.lostNew = newBuffer;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+import com.github.pierrebeucher.cctalk4j.simulator.BillValidatorSimulator;
+import com.github.pierrebeucher.cctalk4j.simulator.SimulatedMessagePort;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+
+/**
+ * <p>Compare poll rate policies on a simulated bill validator, in virtual time.</p>
+ * <p>Each poll is performed by a <code>BillValidatorCreditPoller</code> reading the event
+ * buffer of a <code>BillValidatorSimulator</code>, the policy being given the events
+ * reported by the poller. Line timing is disabled and the virtual clock advances by the
+ * poll period requested after each poll.</p>
+ * <p>Customers arrive randomly and insert a few bills each. An inserted bill is either
+ * rejected (reject event) or held in escrow (pending credit event) until the host reads
+ * the event buffer, then stacked and credited about a second later (credit event). For
+ * each policy are reported the number of polls, the bus utilisation (time spent exchanging
+ * read buffered bill events messages) and, separately for credit and pending credit events
+ * and for other events, the latency between an event and the poll reading it.</p>
+ * <p>Run with <code>main()</code>, results do not depend on the host machine.</p>
+ * @author Pierre Beucher
+ *
+ */
+public class PollRatePolicyBenchmark {
+
+	/*
+	 * Simulated duration, in ms
+	 */
+	private static final long DURATION = 8 * 3600 * 1000L;
+
+	/*
+	 * Mean time between two customers, in ms
+	 */
+	private static final long MEAN_CUSTOMER_INTERVAL = 10 * 60 * 1000L;
+
+	/*
+	 * Share of inserted bills which are rejected
+	 */
+	private static final double REJECT_RATE = 0.2;
+
+	/*
+	 * Bus time of a poll: 5 bytes request and 16 bytes reply at 9600 baud, 10 bits per byte
+	 */
+	private static final double POLL_BUS_TIME = 21 * 10 * 1000.0 / 9600;
+
+	/*
+	 * Time between reading a pending credit and the credit event, in ms
+	 */
+	private static final long STACK_TIME = 1000;
+
+	private static final byte ADDRESS = 40;
+
+	private static final int BILL_TYPE = 1;
+
+	/*
+	 * Event results B
+	 */
+	private static final int CREDIT = 0;
+
+	private static final int PENDING_CREDIT = 1;
+
+	private static final int REJECT = 2;
+
+	public static void main(String[] args) throws Exception {
+		//requests are logged at debug level by the test configuration
+		Configurator.setLevel(BillValidator.class.getName(), Level.INFO);
+
+		run("fixed 200ms", new FixedPollRatePolicy(200));
+		run("fixed 100ms", new FixedPollRatePolicy(100));
+		run("adaptive", new AdaptivePollRatePolicy());
+		run("adaptive 1s", new AdaptivePollRatePolicy(50, 1000, 2, 20));
+	}
+
+	private static void run(String name, PollRatePolicy policy) throws Exception {
+		Random random = new Random(42);
+
+		//scripted events as {time, result A, result B}, earliest first
+		PriorityQueue<long[]> script = new PriorityQueue<long[]>(64, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] o1, long[] o2) {
+				return Long.compare(o1[0], o2[0]);
+			}
+		});
+		long customer = 0;
+		while(true){
+			customer += (long) (-Math.log(1 - random.nextDouble()) * MEAN_CUSTOMER_INTERVAL);
+			if(customer >= DURATION){
+				break;
+			}
+			long insertion = customer;
+			int bills = 1 + random.nextInt(4);
+			for(int i=0; i<bills; i++){
+				if(random.nextDouble() < REJECT_RATE){
+					script.add(new long[]{insertion, 0, REJECT});
+				} else {
+					script.add(new long[]{insertion, BILL_TYPE, PENDING_CREDIT});
+				}
+				insertion += 4000 + random.nextInt(4000);
+			}
+		}
+
+		BillValidatorSimulator sim = new BillValidatorSimulator(ADDRESS, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		SimulatedMessagePort port = new SimulatedMessagePort(sim);
+		port.setTimingEnabled(false);
+		port.open();
+		BillValidator validator = new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, ADDRESS);
+		validator.setDirectRead(true);
+		BillValidatorHandler handler = new BillValidatorHandler(validator);
+		BillValidatorHandler.BillValidatorCreditPoller poller =
+				handler.new BillValidatorCreditPoller(validator, 200, new BillEventHandler(handler));
+		poller.setPollRatePolicy(policy);
+		poller.startPolling();
+
+		Latency credits = new Latency();
+		Latency others = new Latency();
+		List<long[]> unread = new ArrayList<long[]>();
+		long time = 0;
+		while(time < DURATION){
+			while(!script.isEmpty() && script.peek()[0] <= time){
+				long[] e = script.poll();
+				sim.addEvent((int) e[1], (int) e[2]);
+				unread.add(e);
+			}
+
+			poller.poll();
+
+			//events are far enough apart for the buffer to hold all unread events
+			for(long[] e : unread){
+				long latency = time - e[0];
+				if(e[1] == 0){
+					others.add(latency);
+				} else {
+					credits.add(latency);
+					if(e[2] == PENDING_CREDIT){
+						script.add(new long[]{time + STACK_TIME, BILL_TYPE, CREDIT});
+					}
+				}
+			}
+			unread.clear();
+			time += poller.getCurrentPollPeriod();
+		}
+		port.close();
+
+		double utilisation = 100 * poller.getPollCount() * POLL_BUS_TIME / DURATION;
+		System.out.println(String.format("%-12s polls=%-8d bus=%5.2f%%  credit %s  other %s",
+				name, poller.getPollCount(), utilisation, credits, others));
+	}
+
+	/*
+	 * Latency between events and the polls reading them
+	 */
+	private static class Latency {
+
+		private long count;
+
+		private long total;
+
+		private long max;
+
+		void add(long latency){
+			count++;
+			total += latency;
+			max = Math.max(max, latency);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("events=%-4d latency mean=%4dms max=%4dms", count, count == 0 ? 0 : total / count, max);
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package com.github.pierrebeucher.cctalk4j.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.SharedBus;
+import com.github.pierrebeucher.cctalk4j.device.Device;
+import com.github.pierrebeucher.cctalk4j.device.DeviceFactory;
+import com.github.pierrebeucher.cctalk4j.device.DummyDevice;
+import com.github.pierrebeucher.cctalk4j.simulator.BillValidatorSimulator;
+import com.github.pierrebeucher.cctalk4j.simulator.SimulatedMessagePort;
+
+public class PollSchedulerTest {
+
+	private PollScheduler scheduler;
+
+	/*
+	 * Number of polls currently performed, and highest number of concurrent polls
+	 */
+	private AtomicInteger activePolls;
+
+	private AtomicInteger maxActivePolls;
+
+	@BeforeMethod
+	public void beforeMethod(){
+		scheduler = new PollScheduler();
+		activePolls = new AtomicInteger();
+		maxActivePolls = new AtomicInteger();
+	}
+
+	@AfterMethod
+	public void afterMethod(){
+		scheduler.shutdown();
+	}
+
+	private CreditPollingRunnable<Device> poller(long pollPeriod, final long pollDuration, final boolean fail){
+		//pollers of a previous test may end after the next test started
+		final AtomicInteger activePolls = this.activePolls;
+		final AtomicInteger maxActivePolls = this.maxActivePolls;
+		return new CreditPollingRunnable<Device>(new DummyDevice(), pollPeriod){
+			@Override
+			protected void doCreditPoll() throws CreditPollingException {
+				int active = activePolls.incrementAndGet();
+				if(active > maxActivePolls.get()){
+					maxActivePolls.set(active);
+				}
+				try {
+					Thread.sleep(pollDuration);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					activePolls.decrementAndGet();
+				}
+				if(fail){
+					throw new CreditPollingException("Poll failure");
+				}
+			}
+
+			@Override
+			protected void beforePollStart() throws CreditPollingException {
+			}
+		};
+	}
+
+	/**
+	 * Pollers of a lane share a single thread, each being polled at its own period.
+	 */
+	@Test
+	public void schedule_sharedLane() throws Exception {
+		Object port = new Object();
+		List<CreditPollingRunnable<Device>> pollers = new ArrayList<CreditPollingRunnable<Device>>();
+		for(int i=0; i<10; i++){
+			CreditPollingRunnable<Device> p = poller(i < 5 ? 50 : 100, 1, false);
+			pollers.add(p);
+			scheduler.schedule(port, p);
+		}
+		Thread.sleep(520);
+		for(CreditPollingRunnable<Device> p : pollers){
+			scheduler.cancel(p);
+		}
+
+		Assert.assertEquals(scheduler.getLaneCount(), 1);
+		Assert.assertEquals(maxActivePolls.get(), 1);
+		for(int i=0; i<10; i++){
+			long count = pollers.get(i).getPollCount();
+			long expected = i < 5 ? 11 : 6;
+			Assert.assertTrue(count >= expected - 2 && count <= expected, "Poll count of " + i + ": " + count);
+		}
+	}
+
+	@Test
+	public void schedule_lanePerKey() throws Exception {
+		scheduler.schedule("COM1", poller(50, 0, false));
+		scheduler.schedule("COM1", poller(50, 0, false));
+		scheduler.schedule("COM2", poller(50, 0, false));
+
+		Assert.assertEquals(scheduler.getLaneCount(), 2);
+		Assert.assertEquals(scheduler.getPollerCount(), 3);
+	}
+
+	/**
+	 * Handlers of devices on a shared bus are polled on a single lane.
+	 */
+	@Test
+	public void schedule_sharedBus() throws Exception {
+		BillValidatorSimulator sim40 = new BillValidatorSimulator((byte) 40, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		BillValidatorSimulator sim41 = new BillValidatorSimulator((byte) 41, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		SimulatedMessagePort physical = new SimulatedMessagePort(sim40, sim41);
+		physical.setTimingEnabled(false);
+		SharedBus bus = new SharedBus(physical);
+
+		List<BillValidatorHandler> handlers = new ArrayList<BillValidatorHandler>();
+		for(int address=40; address<=41; address++){
+			BillValidatorHandler handler = new BillValidatorHandler(DeviceFactory.billValidatorSharedBusCRC(bus, (byte) address));
+			handler.setCreditPollPeriod(20);
+			handler.setPollScheduler(scheduler);
+			handler.initialise();
+			handler.startInputAcceptance();
+			handlers.add(handler);
+		}
+		long requests40 = sim40.getRequestCount();
+		long requests41 = sim41.getRequestCount();
+		Thread.sleep(200);
+		for(BillValidatorHandler handler : handlers){
+			handler.stopInputAcceptance();
+			handler.terminate();
+		}
+
+		Assert.assertEquals(scheduler.getLaneCount(), 1);
+		Assert.assertTrue(sim40.getRequestCount() > requests40);
+		Assert.assertTrue(sim41.getRequestCount() > requests41);
+	}
+
+	@Test(expectedExceptions=IllegalStateException.class)
+	public void schedule_twice() throws Exception {
+		CreditPollingRunnable<Device> p = poller(50, 0, false);
+		scheduler.schedule("COM1", p);
+		scheduler.schedule("COM1", p);
+	}
+
+	@Test(expectedExceptions=IllegalStateException.class)
+	public void schedule_shutdown() throws Exception {
+		scheduler.shutdown();
+		scheduler.schedule("COM1", poller(50, 0, false));
+	}
+
+	/**
+	 * Cancelling waits for the ongoing poll, after which no poll occurs.
+	 */
+	@Test
+	public void cancel() throws Exception {
+		CreditPollingRunnable<Device> p = poller(10, 100, false);
+		scheduler.schedule("COM1", p);
+		Thread.sleep(50);
+		scheduler.cancel(p);
+
+		Assert.assertEquals(activePolls.get(), 0);
+		Assert.assertFalse(p.isContinuePolling());
+		long count = p.getPollCount();
+		Thread.sleep(200);
+		Assert.assertEquals(p.getPollCount(), count);
+		Assert.assertEquals(scheduler.getPollerCount(), 0);
+	}
+
+	/**
+	 * A failing poller is stopped, other pollers of the lane go on.
+	 */
+	@Test
+	public void run_failingPoller() throws Exception {
+		CreditPollingRunnable<Device> failing = poller(50, 0, true);
+		CreditPollingRunnable<Device> p = poller(50, 0, false);
+		scheduler.schedule("COM1", failing);
+		scheduler.schedule("COM1", p);
+		Thread.sleep(300);
+
+		Assert.assertEquals(failing.getPollCount(), 1);
+		Assert.assertFalse(failing.isContinuePolling());
+		Assert.assertTrue(p.getPollCount() >= 5);
+		Assert.assertTrue(p.isContinuePolling());
+	}
+}
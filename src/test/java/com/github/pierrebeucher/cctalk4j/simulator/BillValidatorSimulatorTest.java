@@ -0,0 +1,189 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.device.DeviceRequestTimeoutException;
+import com.github.pierrebeucher.cctalk4j.device.InhibitMask;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEventBuffer;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.Event;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillRoutingException;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillIdResponseWrapper;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.BillOperatingModeResponseWrapper;
+import com.github.pierrebeucher.cctalk4j.utils.message.wrapper.CountryScalingFactorWrapper;
+
+public class BillValidatorSimulatorTest {
+
+	private BillValidatorSimulator sim;
+
+	private BillValidator validator;
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		sim = new BillValidatorSimulator((byte) 40, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		sim.programBill(1, "EU0005A");
+		sim.programBill(2, "EU0010A");
+		sim.setCountryScalingFactor("EU", 100, 2);
+
+		SimulatedMessagePort port = new SimulatedMessagePort(sim);
+		port.setTimingEnabled(false);
+		validator = new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, (byte) 40);
+		validator.connect();
+	}
+
+	@AfterMethod
+	public void afterMethod() throws Exception {
+		validator.disconnect();
+	}
+
+	private void acceptAll() throws Exception {
+		validator.modifyInhibitStatus(InhibitMask.FULLY_ENABLING_MASK);
+		validator.modifyMasterInhibitStatus(true);
+	}
+
+	private BillEvent lastEvent() throws Exception {
+		return validator.readBufferedNoteEvents().getBillEvents()[0];
+	}
+
+	@Test
+	public void identification() throws Exception {
+		sim.setSerialNumber(0x123456);
+		validator.simplePoll();
+		Assert.assertEquals(validator.requestManufacturerId(), "SIM");
+		Assert.assertEquals(validator.requestEquipmentCategoryId(), "Bill Validator");
+		Assert.assertEquals(validator.requestSerialNumber(), 0x123456);
+		Assert.assertFalse(validator.performSelfCheck().hasFault());
+		Assert.assertEquals(validator.requestCurrencyRevision(), "SIM01");
+	}
+
+	@Test
+	public void billTable() throws Exception {
+		List<BillIdResponseWrapper> ids = validator.requestBillIds((byte) 1, 16);
+		Assert.assertEquals(ids.size(), 2);
+		Assert.assertEquals(ids.get(1).getValueCode(), "0010");
+
+		Map<String, CountryScalingFactorWrapper> factors = validator.requestCountryScalingFactors(Collections.singleton("EU"));
+		Assert.assertEquals(factors.get("EU").getScalingFactor(), 100);
+		Assert.assertEquals(factors.get("EU").getDecimalPlace(), 2);
+	}
+
+	@Test
+	public void inhibitStatus() throws Exception {
+		BitSet bits = new BitSet();
+		bits.set(1);
+		validator.modifyInhibitStatus(new InhibitMask(bits));
+		Assert.assertEquals(sim.getInhibitMask(), 2);
+
+		validator.invalidateState();
+		Assert.assertEquals(validator.requestInhibitStatus(), new InhibitMask(bits));
+		Assert.assertFalse(validator.requestMasterInhibitStatus());
+	}
+
+	@Test
+	public void billOperatingMode() throws Exception {
+		validator.modifyBillOperatingMode(true, false);
+		Assert.assertTrue(sim.isStackerUsed());
+		Assert.assertFalse(sim.isEscrowUsed());
+
+		BillOperatingModeResponseWrapper mode = validator.requestBillOperatingMode();
+		Assert.assertTrue(mode.isStackerUsed());
+		Assert.assertFalse(mode.isEscrowUsed());
+	}
+
+	@Test
+	public void insertBill_credit() throws Exception {
+		acceptAll();
+		Assert.assertTrue(sim.insertBill(2));
+
+		BillEventBuffer buffer = validator.readBufferedNoteEvents();
+		Assert.assertEquals(buffer.getEventCounter(), 1);
+		Assert.assertSame(buffer.getBillEvents()[0], BillEvent.event((byte) 2, (byte) 0));
+	}
+
+	@Test
+	public void insertBill_rejected() throws Exception {
+		Assert.assertFalse(sim.insertBill(1));
+		Assert.assertEquals(lastEvent().getEvent(), Event.MASTER_INHIBIT_ACTIVE);
+
+		validator.modifyMasterInhibitStatus(true);
+		Assert.assertFalse(sim.insertBill(1));
+		Assert.assertEquals(lastEvent().getEvent(), Event.INHIBITED_BILL_SERIAL);
+
+		validator.modifyInhibitStatus(InhibitMask.FULLY_ENABLING_MASK);
+		Assert.assertFalse(sim.insertBill(3));
+		Assert.assertEquals(lastEvent().getEvent(), Event.INVALID_BILL_VALIDATION_FAIL);
+	}
+
+	@Test
+	public void insertBill_escrow() throws Exception {
+		acceptAll();
+		validator.modifyBillOperatingMode(true, true);
+
+		Assert.assertTrue(sim.insertBill(1));
+		Assert.assertEquals(lastEvent().getEvent(), Event.BILL_VALIDATED_ESCROW);
+		Assert.assertEquals(sim.getEscrowBillType(), 1);
+		//escrow is busy
+		Assert.assertFalse(sim.insertBill(2));
+
+		validator.routeBill(BillValidator.ROUTE_CODE_SEND_BILL_CASHBOX_STACKER);
+		Assert.assertSame(lastEvent(), BillEvent.event((byte) 1, (byte) 0));
+		Assert.assertEquals(sim.getEscrowBillType(), 0);
+
+		sim.insertBill(2);
+		validator.routeBill(BillValidator.ROUTE_CODE_RETURN_BILL);
+		Assert.assertEquals(lastEvent().getEvent(), Event.BILL_RETURNED_FROM_ESCROW);
+	}
+
+	@Test
+	public void routeBill_escrowEmpty() {
+		Assert.assertThrows(BillRoutingException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				validator.routeBill(BillValidator.ROUTE_CODE_SEND_BILL_CASHBOX_STACKER);
+			}
+		});
+	}
+
+	/**
+	 * The event buffer keeps the 5 last events and its counter wraps from 255 to 1.
+	 */
+	@Test
+	public void eventBuffer_wrap() throws Exception {
+		acceptAll();
+		for(int i=0; i<256; i++){
+			sim.insertBill(1 + i % 2);
+		}
+		BillEventBuffer buffer = validator.readBufferedNoteEvents();
+		Assert.assertEquals(buffer.getEventCounter(), 1);
+		Assert.assertEquals(buffer.getBillEvents().length, BillEventBuffer.EVENT_BUFFER_SIZE);
+		Assert.assertEquals(buffer.getBillEvents()[0].getResultA(), 2);
+		Assert.assertEquals(buffer.getBillEvents()[4].getResultA(), 2);
+
+		sim.reset();
+		Assert.assertEquals(validator.readBufferedNoteEvents().getEventCounter(), 0);
+		Assert.assertTrue(sim.isMasterInhibited());
+	}
+
+	@Test
+	public void handle_otherAddress() throws Exception {
+		final BillValidator other = new BillValidator(validator.getMessagePort(), CRCChecksumMessageBuilder.FACTORY, (byte) 41);
+		long requests = sim.getRequestCount();
+		Assert.assertThrows(DeviceRequestTimeoutException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				other.simplePoll();
+			}
+		});
+		Assert.assertEquals(sim.getRequestCount(), requests);
+	}
+}
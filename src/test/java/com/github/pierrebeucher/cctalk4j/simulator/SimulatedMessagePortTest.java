@@ -0,0 +1,95 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessageFactory;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortException;
+import com.github.pierrebeucher.cctalk4j.core.MessagePortTimeoutException;
+
+public class SimulatedMessagePortTest {
+
+	private SimulatedMessagePort port;
+
+	@BeforeMethod
+	public void beforeMethod() throws MessagePortException {
+		port = new SimulatedMessagePort(
+				new BillValidatorSimulator((byte) 40, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM),
+				new BillValidatorSimulator((byte) 41, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM));
+		port.open();
+	}
+
+	private static Message request(int address, Header header){
+		return MessageFactory.messageCRCChecksum((byte) address, header);
+	}
+
+	/**
+	 * A reply is read once the request and the reply are transmitted.
+	 */
+	@Test
+	public void read_timing() throws Exception {
+		long start = System.nanoTime();
+		port.write(request(40, Header.REQUEST_PRODUCT_CODE));
+		Message reply = port.read(100);
+		long elapsed = System.nanoTime() - start;
+
+		Assert.assertEquals(reply.getDestination(), BillValidatorSimulator.HOST_ADDRESS);
+		//5 request bytes, 11 reply bytes of 1.04 ms and 1 ms response delay
+		Assert.assertTrue(elapsed >= TimeUnit.MICROSECONDS.toNanos(17600), "Transaction time: " + elapsed + " ns");
+	}
+
+	@Test
+	public void read_address() throws Exception {
+		port.setTimingEnabled(false);
+		port.write(request(41, Header.REQUEST_MANUFACTURER_ID));
+		Assert.assertEquals(port.read(100).getDataLength(), 3);
+
+		port.write(request(42, Header.SIMPLE_POLL));
+		Assert.assertThrows(MessagePortTimeoutException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				port.read(20);
+			}
+		});
+	}
+
+	@Test
+	public void read_unsupportedHeader() throws Exception {
+		port.write(request(40, Header.REQUEST_ENCRYPTION_SUPPORT));
+		Assert.assertEquals(port.read(100).getHeader(), BillValidatorSimulator.NAK_HEADER);
+	}
+
+	/**
+	 * Resetting the input buffer discards received replies only.
+	 */
+	@Test
+	public void resetInputBuffer() throws Exception {
+		port.write(request(40, Header.SIMPLE_POLL));
+		Thread.sleep(30);
+		port.write(request(41, Header.SIMPLE_POLL));
+		port.resetInputBuffer();
+		port.read(100);
+
+		Assert.assertThrows(MessagePortTimeoutException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				port.read(30);
+			}
+		});
+	}
+
+	@Test
+	public void write_closed() throws Exception {
+		port.close();
+		Assert.assertThrows(MessagePortException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				port.write(request(40, Header.SIMPLE_POLL));
+			}
+		});
+	}
+}
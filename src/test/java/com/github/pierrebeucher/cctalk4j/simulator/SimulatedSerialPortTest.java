@@ -0,0 +1,140 @@
+package com.github.pierrebeucher.cctalk4j.simulator;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
+import com.github.pierrebeucher.cctalk4j.core.SerialMessagePort;
+import com.github.pierrebeucher.cctalk4j.device.bill.Bill;
+import com.github.pierrebeucher.cctalk4j.device.bill.event.BillEvent;
+import com.github.pierrebeucher.cctalk4j.device.bill.validator.BillValidator;
+import com.github.pierrebeucher.cctalk4j.handler.BillValidatorHandler;
+import com.github.pierrebeucher.cctalk4j.handler.SimpleBillEventListener;
+import com.github.pierrebeucher.cctalk4j.serial.SerialPortTimeoutException;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+
+public class SimulatedSerialPortTest {
+
+	private BillValidatorSimulator sim;
+
+	private SimulatedSerialPort serialPort;
+
+	private SerialMessagePort port;
+
+	private BillValidator validator;
+
+	@BeforeMethod
+	public void beforeMethod() throws Exception {
+		sim = new BillValidatorSimulator((byte) 40, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		sim.programBill(1, "EU0005A");
+		sim.programBill(2, "EU0010A");
+		sim.setCountryScalingFactor("EU", 100, 2);
+
+		serialPort = new SimulatedSerialPort(sim);
+		port = new SerialMessagePort(serialPort, MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+		validator = new BillValidator(port, CRCChecksumMessageBuilder.FACTORY, (byte) 40);
+		validator.connect();
+	}
+
+	@AfterMethod
+	public void afterMethod() throws Exception {
+		if(validator.isConnected()){
+			validator.disconnect();
+		}
+	}
+
+	/**
+	 * A transaction lasts the time of its request and reply bytes at 9600 baud
+	 * plus the response delay.
+	 */
+	@Test
+	public void transaction_timing() throws Exception {
+		validator.simplePoll();
+
+		long start = System.nanoTime();
+		validator.simplePoll();
+		long elapsed = System.nanoTime() - start;
+		//10 bytes of 1.04 ms and 1 ms response delay
+		Assert.assertTrue(elapsed >= TimeUnit.MICROSECONDS.toNanos(11400), "Transaction time: " + elapsed + " ns");
+
+		serialPort.setTimingEnabled(false);
+		start = System.nanoTime();
+		validator.simplePoll();
+		Assert.assertTrue(System.nanoTime() - start < elapsed);
+	}
+
+	@Test
+	public void transaction_echo() throws Exception {
+		serialPort.setEcho(true);
+		port.setEchoCancellation(true);
+
+		validator.simplePoll();
+		Assert.assertEquals(validator.requestProductCode(), "BV-SIM");
+	}
+
+	/**
+	 * Frames with an invalid checksum are ignored by the device.
+	 */
+	@Test
+	public void writeBytes_invalidChecksum() throws Exception {
+		serialPort.writeBytes(new byte[]{40, 0, 1, (byte) 254, 0});
+		Assert.assertEquals(sim.getRequestCount(), 0);
+
+		validator.simplePoll();
+		Assert.assertEquals(sim.getRequestCount(), 1);
+	}
+
+	@Test
+	public void readBytes_timeout() {
+		Assert.assertThrows(SerialPortTimeoutException.class, new ThrowingRunnable() {
+			public void run() throws Throwable {
+				serialPort.readBytes(1, 20);
+			}
+		});
+	}
+
+	/**
+	 * A handler accepts a bill inserted into the simulator, routing it from escrow.
+	 */
+	@Test
+	public void handler_insertBill() throws Exception {
+		final CountDownLatch credited = new CountDownLatch(1);
+		final Bill[] bill = new Bill[1];
+		BillValidatorHandler handler = new BillValidatorHandler(validator);
+		handler.setCreditPollPeriod(20);
+		handler.addListener(new SimpleBillEventListener(){
+			@Override
+			public void credit(BillValidatorHandler handler, BillEvent e, Bill b) {
+				bill[0] = b;
+				credited.countDown();
+			}
+		});
+
+		handler.initialise();
+		handler.startInputAcceptance();
+		Assert.assertTrue(sim.isEscrowUsed());
+		Assert.assertFalse(sim.isMasterInhibited());
+
+		//let the poller read the initial event buffer
+		long requests = sim.getRequestCount();
+		long deadline = System.currentTimeMillis() + 5000;
+		while(sim.getRequestCount() < requests + 2 && System.currentTimeMillis() < deadline){
+			Thread.sleep(10);
+		}
+
+		Assert.assertTrue(sim.insertBill(2));
+		Assert.assertTrue(credited.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(bill[0].getCurrencyValue().compareTo(BigDecimal.TEN), 0);
+		Assert.assertEquals(sim.getEscrowBillType(), 0);
+
+		handler.stopInputAcceptance();
+		handler.terminate();
+	}
+}
@@ -20,7 +20,7 @@ public class AbstractMessageBuilderTest {
 	@Test
 	public void destination() {
 		AbstractMessageBuilder builder = new MyAbstractMessageBuilder();
-		Byte dest = 40;
+		byte dest = 40;
 		builder.destination(dest);
 		Assert.assertEquals(builder.destination, dest);
 	}
@@ -28,7 +28,7 @@ public class AbstractMessageBuilderTest {
 	@Test
 	public void headerbyte() {
 		AbstractMessageBuilder builder = new MyAbstractMessageBuilder();
-		Byte header = Header.SIMPLE_POLL.getValue();
+		byte header = Header.SIMPLE_POLL.getValue();
 		builder.header(header);
 		Assert.assertEquals(builder.header, header);
 	}
@@ -38,18 +38,41 @@ public class AbstractMessageBuilderTest {
 		AbstractMessageBuilder builder = new MyAbstractMessageBuilder();
 		Header header = Header.SIMPLE_POLL;
 		builder.header(header);
-		Assert.assertEquals(builder.header, (Byte)header.getValue());
+		Assert.assertEquals(builder.header, header.getValue());
 	}
 
 	@Test
 	public void source() {
 		AbstractMessageBuilder builder = new MyAbstractMessageBuilder();
-		Byte source = 1;
+		byte source = 1;
 		builder.source(source);
 		Assert.assertEquals(builder.source, source);
 	}
 	
+	@Test
+	public void build_reuse() throws MessageBuildException {
+		AbstractMessageBuilder builder = new MyAbstractMessageBuilder();
+		builder.destination((byte) 40).source((byte) 1).header(Header.SIMPLE_POLL).build();
+		builder.header(Header.READ_BUFFERED_BILL_EVENTS).build();
+		Assert.assertEquals(builder.destination, 40);
+		Assert.assertEquals(builder.source, 1);
+		Assert.assertEquals(builder.header, Header.READ_BUFFERED_BILL_EVENTS.getValue());
+	}
+	
+	@Test(expectedExceptions=MessageBuildException.class)
+	public void build_err_no_source() throws MessageBuildException {
+		new MyAbstractMessageBuilder()
+			.destination((byte) 40)
+			.header(Header.SIMPLE_POLL)
+			.build();
+	}
+	
 	private class MyAbstractMessageBuilder extends AbstractMessageBuilder{
+		@Override
+		public int getMessageType() {
+			return 0;
+		}
+		
 		@Override
 		protected Message doBuild() {
 			return null;
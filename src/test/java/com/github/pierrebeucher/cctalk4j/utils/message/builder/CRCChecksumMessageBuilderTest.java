@@ -7,6 +7,7 @@ import org.testng.annotations.Test;
 import com.github.pierrebeucher.cctalk4j.core.CRCChecksumMessage;
 import com.github.pierrebeucher.cctalk4j.core.Header;
 import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
 
 public class CRCChecksumMessageBuilderTest {
@@ -65,4 +66,20 @@ public class CRCChecksumMessageBuilderTest {
 		};
 		Assert.assertThrows(MessageBuildException.class, r);
 	}
+	
+	@Test
+	public void build_reuse() throws MessageBuildException {
+		MessageBuilder builder = CRCChecksumMessageBuilder.FACTORY.newBuilder()
+			.destination(destination);
+		Message first = builder.header(header).data(data).build();
+		Message second = builder.header(Header.READ_BUFFERED_BILL_EVENTS).data(MessageBuilder.EMPTY_DATA).build();
+		
+		Assert.assertEquals(first, new CRCChecksumMessage(destination, header.getValue(), data));
+		Assert.assertEquals(second, new CRCChecksumMessage(destination, Header.READ_BUFFERED_BILL_EVENTS.getValue(), new byte[]{}));
+	}
+	
+	@Test
+	public void getMessageType() {
+		Assert.assertEquals(new CRCChecksumMessageBuilder().getMessageType(), MessagePort.MESSAGE_TYPE_CRC16_CHECKSUM);
+	}
 }
@@ -0,0 +1,67 @@
+package com.github.pierrebeucher.cctalk4j.utils.message.builder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+
+/**
+ * Compare building a request with a new reflectively instantiated builder,
+ * as formerly done by devices, with a reused builder bound to the device.
+ * @author Pierre Beucher
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBuilderBenchmark {
+
+	private static final byte DESTINATION = 40;
+
+	private static final byte SOURCE = 1;
+
+	private byte[] data;
+
+	private MessageBuilder boundBuilder;
+
+	@Setup
+	public void setup(){
+		data = new byte[]{1, 2, 3, 4, 5, 6, 7, 8};
+		boundBuilder = CRCChecksumMessageBuilder.FACTORY.newBuilder()
+				.destination(DESTINATION)
+				.source(SOURCE);
+	}
+
+	@Benchmark
+	public Message reflectiveBuilder() throws ReflectiveOperationException, MessageBuildException {
+		return CRCChecksumMessageBuilder.class.newInstance()
+				.destination(DESTINATION)
+				.source(SOURCE)
+				.header(Header.MODIFY_BILL_ID)
+				.data(data)
+				.build();
+	}
+
+	@Benchmark
+	public Message boundBuilder() throws MessageBuildException {
+		return boundBuilder
+				.header(Header.MODIFY_BILL_ID)
+				.data(data)
+				.build();
+	}
+
+}
@@ -6,6 +6,7 @@ import org.testng.annotations.Test;
 
 import com.github.pierrebeucher.cctalk4j.core.Header;
 import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.core.MessagePort;
 import com.github.pierrebeucher.cctalk4j.core.SimpleChecksumMessage;
 import com.github.pierrebeucher.cctalk4j.utils.message.builder.SimpleChecksumMessageBuilder;
 
@@ -85,4 +86,16 @@ public class SimpleChecksumMessageBuilderTest {
 		};
 		Assert.assertThrows(MessageBuildException.class, r);
 	}
+	
+	@Test
+	public void factory() throws MessageBuildException {
+		Message actual = SimpleChecksumMessageBuilder.FACTORY.newBuilder()
+				.destination(destination)
+				.source(source)
+				.header(header)
+				.build();
+		
+		Assert.assertEquals(actual, new SimpleChecksumMessage(destination, source, header.getValue(), new byte[]{}));
+		Assert.assertEquals(SimpleChecksumMessageBuilder.FACTORY.newBuilder().getMessageType(), MessagePort.MESSAGE_TYPE_STANDARD_CHECKSUM);
+	}
 }
@@ -73,6 +73,37 @@ public class BillEventBufferResponseWrapperTest {
 		Assert.assertThrows(UnexpectedContentException.class, r);
 	}
 	
+	@Test
+	public void eventCounter_nominal() throws UnexpectedContentException, MessageBuildException {
+		Message m = new CRCChecksumMessageBuilder()
+				.destination(Utils.unsignedIntToByte(40))
+				.header(Header.NONE)
+				.data(new byte[]{42, 0, 42, 0, 42, 0, 42, 0, 42, 0, 42})
+				.build();
+		
+		Assert.assertEquals(BillEventBufferResponseWrapper.eventCounter(m), (byte)42);
+	}
+	
+	@Test
+	public void decodeEvents_mostRecent() throws UnexpectedContentException, MessageBuildException, UnrecognizedEventException {
+		BillEvent e1 = BillEvent.event((byte)2, (byte)0);
+		BillEvent e2 = BillEvent.event((byte)0, (byte)14);
+		
+		Message m = new CRCChecksumMessageBuilder()
+				.destination(Utils.unsignedIntToByte(40))
+				.header(Header.NONE)
+				.data(new byte[]{42,
+						e1.getResultA(), e1.getResultB(), 
+						e2.getResultA(), e2.getResultB(), 
+						0, 42, //older events are not decoded
+						0, 42,
+						0, 42})
+				.build();
+		
+		Assert.assertEquals(BillEventBufferResponseWrapper.decodeEvents(m, 2), new BillEvent[]{e1, e2});
+		Assert.assertEquals(BillEventBufferResponseWrapper.decodeEvents(m, 0), new BillEvent[]{});
+	}
+	
 	@Test
 	public void wrap_err_data_length() throws UnexpectedContentException, MessageBuildException, IllegalArgumentException, UnrecognizedEventException {
 		BillEvent e1 = BillEvent.event((byte)2, (byte)0);
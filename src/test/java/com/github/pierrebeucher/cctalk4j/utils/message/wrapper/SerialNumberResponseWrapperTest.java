@@ -0,0 +1,45 @@
+package com.github.pierrebeucher.cctalk4j.utils.message.wrapper;
+
+import org.testng.Assert;
+import org.testng.Assert.ThrowingRunnable;
+import org.testng.annotations.Test;
+
+import com.github.pierrebeucher.cctalk4j.core.Header;
+import com.github.pierrebeucher.cctalk4j.core.Message;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.CRCChecksumMessageBuilder;
+import com.github.pierrebeucher.cctalk4j.utils.message.builder.MessageBuildException;
+
+public class SerialNumberResponseWrapperTest {
+
+	private static Message message(byte[] data) throws MessageBuildException{
+		return new CRCChecksumMessageBuilder()
+			.destination((byte)1)
+			.header(Header.NONE)
+			.data(data)
+			.build();
+	}
+
+	@Test
+	public void wrap_nominal() throws MessageBuildException, UnexpectedContentException {
+		// 0xFE 0x12 0x34 LSB first = 0x3412FE
+		Message message = message(new byte[]{(byte) 0xFE, 0x12, 0x34});
+		Assert.assertEquals(SerialNumberResponseWrapper.wrap(message).getSerialNumber(), 0x3412FE);
+	}
+
+	@Test
+	public void wrap_max() throws MessageBuildException, UnexpectedContentException {
+		Message message = message(new byte[]{-1, -1, -1});
+		Assert.assertEquals(SerialNumberResponseWrapper.wrap(message).getSerialNumber(), 16777215);
+	}
+
+	@Test
+	public void wrap_err_length() throws MessageBuildException {
+		final Message message = message(new byte[]{1, 2});
+		Assert.assertThrows(UnexpectedContentException.class, new ThrowingRunnable(){
+			@Override
+			public void run() throws Throwable {
+				SerialNumberResponseWrapper.wrap(message);
+			}
+		});
+	}
+}